@@ -9,6 +9,7 @@ import com.softwarearchetypes.accounting.events.AccountingEvent;
 import com.softwarearchetypes.accounting.events.CreditEntryRegistered;
 import com.softwarearchetypes.accounting.events.DebitEntryRegistered;
 import com.softwarearchetypes.common.Version;
+import com.softwarearchetypes.quantity.money.CompactMoney;
 import com.softwarearchetypes.quantity.money.Money;
 
 import static com.softwarearchetypes.common.Preconditions.checkArgument;
@@ -19,9 +20,10 @@ class Account {
     private final AccountId accountId;
     private final AccountType type;
     private final AccountName name;
-    private final Money balance;
-    //for optimistic locking
-    private final Version version;
+    //written under the account lock, read without it - kept in minor units, in the currency of the account's entries
+    private volatile CompactMoney balance;
+    //for optimistic locking - bumped every time the account is saved
+    private volatile Version version;
     //we do not load all accounts' entries when retrieving them from DB
     //adding new entries requires optimistic lock
     private final Entries newEntries;
@@ -44,22 +46,45 @@ class Account {
         this.type = type;
         this.name = name;
         this.version = version;
-        this.balance = Optional.ofNullable(balance).orElse(Money.zeroPln());
+        this.balance = CompactMoney.from(Optional.ofNullable(balance).orElse(Money.zeroPln()));
         this.newEntries = Entries.empty();
     }
 
     void addEntry(Entry entry) {
-        newEntries.add(entry);
-        balance.add(entry.amount());
-        recordEntryEvent(entry);
+        addEntries(List.of(entry));
     }
 
+    //entries are summed in minor units, the balance is replaced once - entries in another currency are rejected, as Money.add would
     void addEntries(List<Entry> newEntries) {
+        long total = 0;
+        for (Entry entry : newEntries) {
+            checkArgument(balance.currencyCode().equals(entry.currencyCode()),
+                    String.format("Account %s is kept in %s, cannot add an entry in %s", accountId, balance.currencyCode(), entry.currencyCode()));
+            total = Math.addExact(total, entry.amountInMinorUnits());
+        }
         this.newEntries.addAll(newEntries);
-        newEntries.forEach(entry -> {
-            balance.add(entry.amount());
-            recordEntryEvent(entry);
-        });
+        newEntries.forEach(this::recordEntryEvent);
+        balance = CompactMoney.of(Math.addExact(balance.minorUnits(), total), balance.currencyCode());
+    }
+
+    //new entries were written to the entry store - the account moves on to the next version
+    void markSaved() {
+        newEntries.clear();
+        version = Version.of(version.value() + 1);
+    }
+
+    //posting changes the account before it is saved - a failed save restores it, as the account may be shared (e.g. in memory)
+    Snapshot snapshot() {
+        return new Snapshot(balance, version, newEntries.toList(), List.copyOf(pendingEvents));
+    }
+
+    void restore(Snapshot snapshot) {
+        balance = snapshot.balance();
+        version = snapshot.version();
+        newEntries.clear();
+        newEntries.addAll(snapshot.newEntries());
+        pendingEvents.clear();
+        pendingEvents.addAll(snapshot.pendingEvents());
     }
 
     String name() {
@@ -75,7 +100,8 @@ class Account {
                     entry.id().value(),
                     entry.accountId().uuid(),
                     entry.transactionId().value(),
-                    entry.amount()
+                    entry.amount(),
+                    entry.metadata().metadata()
             );
             case AccountDebited debited -> new DebitEntryRegistered(
                     UUID.randomUUID(),
@@ -84,7 +110,8 @@ class Account {
                     entry.id().value(),
                     entry.accountId().uuid(),
                     entry.transactionId().value(),
-                    entry.amount()
+                    entry.amount(),
+                    entry.metadata().metadata()
             );
         };
         pendingEvents.add(event);
@@ -111,6 +138,10 @@ class Account {
     }
 
     Money balance() {
+        return balance.toMoney();
+    }
+
+    CompactMoney compactBalance() {
         return balance;
     }
 
@@ -118,6 +149,9 @@ class Account {
         return version;
     }
 
+    record Snapshot(CompactMoney balance, Version version, List<Entry> newEntries, List<AccountingEvent> pendingEvents) {
+    }
+
     // List<Money> amounts() {
     //     return newEntries.amounts();
     // }
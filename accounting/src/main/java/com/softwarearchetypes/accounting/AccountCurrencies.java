@@ -0,0 +1,33 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Currency of entries of every account, for repositories keeping balances as bare minor units.
+ * An account's entries are all in the currency of its first entry - an entry in another one is rejected before it is indexed.
+ */
+class AccountCurrencies {
+
+    private final Map<AccountId, String> currencies = new ConcurrentHashMap<>();
+
+    void check(Entry entry) {
+        check(entry.accountId(), entry.currencyCode());
+    }
+
+    void check(AccountId accountId, String currencyCode) {
+        String currency = currencies.putIfAbsent(accountId, currencyCode);
+        checkArgument(currency == null || currency.equals(currencyCode),
+                String.format("Entries of account %s are in %s, cannot add %s", accountId, currency, currencyCode));
+    }
+
+    //an account without entries has a zero balance, like a new account
+    Money toMoney(AccountId accountId, long minorUnits) {
+        return CompactMoney.toMoney(minorUnits, currencies.getOrDefault(accountId, CompactMoney.PLN));
+    }
+}
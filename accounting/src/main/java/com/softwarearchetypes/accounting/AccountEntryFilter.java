@@ -1,24 +1,23 @@
 package com.softwarearchetypes.accounting;
 
 import java.time.Instant;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
 
+import com.softwarearchetypes.accounting.Filter.AccountIn;
+import com.softwarearchetypes.accounting.Filter.AccountNameContains;
+import com.softwarearchetypes.accounting.Filter.AmountMatching;
+import com.softwarearchetypes.accounting.Filter.MetadataEquals;
+import com.softwarearchetypes.accounting.Filter.OccurredMatching;
+import com.softwarearchetypes.accounting.Filter.OccurredNotAfter;
+import com.softwarearchetypes.accounting.Filter.OccurredNotBefore;
 import com.softwarearchetypes.quantity.money.Money;
 
-import static com.softwarearchetypes.accounting.EntryFilter.ENTRY_OF_ACCOUNT;
-import static com.softwarearchetypes.accounting.EntryFilter.ENTRY_OF_AMOUNT;
-import static com.softwarearchetypes.accounting.EntryFilter.ENTRY_OF_DATE;
-import static com.softwarearchetypes.accounting.EntryFilter.ENTRY_OF_METADATA;
-
 public class AccountEntryFilter {
 
-    private Predicate<String> accountDescPredicate = accountDesc -> true;
-    private Predicate<AccountId> accountIdPredicate = accountId -> true;
-    private Predicate<Instant> occuredAtPredicate = date -> true;
-    private Predicate<Money> amountPredicate = amount -> true;
-    private Predicate<Map<String, String>> metadataPredicate = metaData -> true;
+    private final List<Filter> conditions = new ArrayList<>();
 
     private AccountEntryFilter() {
     }
@@ -28,27 +27,27 @@ public class AccountEntryFilter {
     }
 
     public AccountEntryFilter onDateOlderThan(Instant date) {
-        this.occuredAtPredicate = occuredAtPredicate.and(test -> !test.isAfter(date));
+        conditions.add(new OccurredNotAfter(date));
         return this;
     }
 
     public AccountEntryFilter onDateYoungerThan(Instant date) {
-        this.occuredAtPredicate = occuredAtPredicate.and(test -> !test.isBefore(date));
+        conditions.add(new OccurredNotBefore(date));
         return this;
     }
 
     public AccountEntryFilter onDate(Predicate<Instant> datePredicate) {
-        this.occuredAtPredicate = occuredAtPredicate.and(datePredicate);
+        conditions.add(new OccurredMatching(datePredicate));
         return this;
     }
 
     public AccountEntryFilter onAccountsIn(Set<AccountId> idSet) {
-        this.accountIdPredicate = accountIdPredicate.and(idSet::contains);
+        conditions.add(new AccountIn(idSet));
         return this;
     }
 
     public AccountEntryFilter havingMetadata(String key, String value) {
-        this.metadataPredicate = metadataPredicate.and(metadata -> metadata.containsKey(key) && metadata.get(key).equals(value));
+        conditions.add(new MetadataEquals(key, value));
         return this;
     }
 
@@ -57,57 +56,17 @@ public class AccountEntryFilter {
     }
 
     public AccountEntryFilter onAmount(Predicate<Money> amountPredicate) {
-        this.amountPredicate = amountPredicate.and(amountPredicate);
+        conditions.add(new AmountMatching(amountPredicate));
         return this;
     }
 
     public AccountEntryFilter onAccountDescriptionContaining(String desc) {
-        this.accountDescPredicate = accountDescPredicate.and(accountDesc -> accountDesc.contains(desc));
+        conditions.add(new AccountNameContains(desc));
         return this;
     }
 
     //koniecznie niepubliczna
     Filter toFilter() {
-        //to sql
-        Predicate<Entry> entryFilter = ENTRY_OF_ACCOUNT(accountIdPredicate)
-                .and(ENTRY_OF_METADATA(metadataPredicate))
-                .and(ENTRY_OF_DATE(occuredAtPredicate))
-                .and(ENTRY_OF_AMOUNT(amountPredicate));
-        Predicate<Account> accountFilter = account -> accountDescPredicate.test(account.name());
-
-        return new Filter(entryFilter, accountFilter);
-    }
-
-
-}
-
-class EntryFilter {
-
-    static Predicate<Map<String, String>> HAVING_VALUES(String key, String value) {
-        return metadata -> metadata.containsKey(key) && metadata.get(key).equals(value);
-    }
-
-    static Predicate<Entry> ENTRY_HAVING_METADATA(Predicate<Map<String, String>> metadataPredicate) {
-        return entry -> metadataPredicate.test(entry.metadata().metadata());
-    }
-
-    static Predicate<Entry> ENTRY_OF_ACCOUNT(AccountId accountId) {
-        return entry -> entry.accountId().equals(accountId);
-    }
-
-    static Predicate<Entry> ENTRY_OF_ACCOUNT(Predicate<AccountId> accountPredicate) {
-        return entry -> accountPredicate.test(entry.accountId());
-    }
-
-    static Predicate<Entry> ENTRY_OF_AMOUNT(Predicate<Money> amountPredicate) {
-        return entry -> amountPredicate.test(entry.amount());
-    }
-
-    static Predicate<Entry> ENTRY_OF_DATE(Predicate<Instant> datePredicate) {
-        return entry -> datePredicate.test(entry.occurredAt());
-    }
-
-    static Predicate<Entry> ENTRY_OF_METADATA(Predicate<Map<String, String>> metadataPredicate) {
-        return entry -> metadataPredicate.test(entry.metadata().metadata());
+        return Filter.allOf(List.copyOf(conditions));
     }
 }
@@ -0,0 +1,63 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Striped per-account locks. Accounts are mapped onto a fixed number of stripes by {@link AccountId} hash,
+ * and stripes are always acquired in ascending order, so two transactions sharing accounts cannot deadlock
+ * while transactions on disjoint stripes proceed in parallel.
+ */
+class AccountLocks {
+
+    static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+
+    AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    AccountLocks(int stripes) {
+        checkArgument(stripes > 0, "Number of lock stripes must be positive");
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    Locked lock(Collection<AccountId> accountIds) {
+        List<ReentrantLock> ordered = accountIds.stream()
+                                                .mapToInt(this::stripeOf)
+                                                .distinct()
+                                                .sorted()
+                                                .mapToObj(stripe -> stripes[stripe])
+                                                .toList();
+        int acquired = 0;
+        try {
+            for (ReentrantLock lock : ordered) {
+                lock.lock();
+                acquired++;
+            }
+        } catch (RuntimeException ex) {
+            ordered.subList(0, acquired).reversed().forEach(ReentrantLock::unlock);
+            throw ex;
+        }
+        return new Locked(ordered);
+    }
+
+    private int stripeOf(AccountId accountId) {
+        return Math.floorMod(accountId.hashCode(), stripes.length);
+    }
+
+    record Locked(List<ReentrantLock> locks) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            locks.reversed().forEach(ReentrantLock::unlock);
+        }
+    }
+}
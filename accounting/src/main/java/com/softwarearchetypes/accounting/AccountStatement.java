@@ -0,0 +1,135 @@
+package com.softwarearchetypes.accounting;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Walks entries of an account in statement order, one page at a time - only the current page is held in memory,
+ * however many entries the account has. Pages are read lazily, when the stream is consumed.
+ * The running balance is in the currency of the entries of the account.
+ */
+class AccountStatement extends Spliterators.AbstractSpliterator<StatementLine> {
+
+    private final EntryRepository entryRepository;
+    private final AccountId accountId;
+    private final StatementQuery query;
+    private final Deque<Entry> page = new ArrayDeque<>();
+    private final EntryTotal balance;
+    private EntryPosition position;
+    private boolean lastPage;
+
+    private AccountStatement(EntryRepository entryRepository, AccountId accountId, StatementQuery query, EntryPosition position, EntryTotal balance) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.entryRepository = entryRepository;
+        this.accountId = accountId;
+        this.query = query;
+        this.position = position;
+        this.balance = balance;
+    }
+
+    static Stream<StatementLine> of(EntryRepository entryRepository, AccountId accountId, StatementQuery query) {
+        EntryPosition resumedAfter = query.resumeAfter().map(StatementCursor::decode).orElse(null);
+        EntryTotal balance = resumedAfter == null
+                ? balanceBefore(entryRepository, accountId, query.from())
+                : balanceAfter(entryRepository, accountId, resumedAfter, query.pageSize());
+        return StreamSupport.stream(new AccountStatement(entryRepository, accountId, query, resumedAfter, balance), false);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super StatementLine> action) {
+        while (true) {
+            if (page.isEmpty() && !nextPage()) {
+                return false;
+            }
+            Entry entry = page.poll();
+            position = EntryPosition.of(entry);
+            //filtered out entries still move the running balance
+            balance.add(entry);
+            if (query.matches(entry)) {
+                action.accept(new StatementLine(EntryView.from(entry),
+                        entry.metadata().metadata(),
+                        balance.toMoney(),
+                        StatementCursor.encode(position)));
+                return true;
+            }
+        }
+    }
+
+    private boolean nextPage() {
+        if (lastPage) {
+            return false;
+        }
+        List<Entry> entries = entryRepository.findPageFor(accountId, query.from(), query.to(), position, query.pageSize());
+        lastPage = entries.size() < query.pageSize();
+        page.addAll(entries);
+        return !page.isEmpty();
+    }
+
+    private static EntryTotal balanceBefore(EntryRepository entryRepository, AccountId accountId, Instant instant) {
+        EntryTotal balance = new EntryTotal();
+        if (instant.isAfter(StatementQuery.EARLIEST)) {
+            Money before = entryRepository.balanceAsOf(accountId, instant.minusNanos(1));
+            //zero of an account without entries is in PLN, whatever the currency of the entries to come
+            if (!before.isZero()) {
+                balance.add(CompactMoney.minorUnitsOf(before), before.currencyCode());
+            }
+        }
+        return balance;
+    }
+
+    //the cursor comes from the client, so it carries no balance - the balance is read again, up to the entry of the cursor
+    private static EntryTotal balanceAfter(EntryRepository entryRepository, AccountId accountId, EntryPosition position, int pageSize) {
+        EntryTotal balance = balanceBefore(entryRepository, accountId, position.appliesAt());
+        EntryPosition after = null;
+        List<Entry> entries;
+        do {
+            entries = entryRepository.findPageFor(accountId, position.appliesAt(), position.appliesAt(), after, pageSize);
+            for (Entry entry : entries) {
+                if (position.isBefore(entry)) {
+                    return balance;
+                }
+                balance.add(entry);
+            }
+            after = entries.isEmpty() ? after : EntryPosition.of(entries.getLast());
+        } while (entries.size() == pageSize);
+        return balance;
+    }
+
+    //opaque token of the position of the last entry walked
+    static final class StatementCursor {
+
+        private StatementCursor() {
+        }
+
+        static String encode(EntryPosition position) {
+            String value = position.appliesAt().getEpochSecond() + ":" + position.appliesAt().getNano() + ":" + position.entryId().value();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static EntryPosition decode(String token) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+                checkArgument(parts.length == 3, "Statement cursor has 3 parts");
+                Instant appliesAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                return new EntryPosition(appliesAt, new EntryId(UUID.fromString(parts[2])));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid statement cursor: " + token, e);
+            }
+        }
+    }
+}
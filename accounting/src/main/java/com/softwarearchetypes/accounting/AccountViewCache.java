@@ -0,0 +1,190 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Views and balances of accounts, least recently used evicted above {@code maxSize} accounts, or once cached views
+ * hold more than {@code maxEntries} entries together, every cached value dropped after {@code timeToLive}.
+ * A view with more than {@code maxEntries} entries is never cached - it is read from the repository every time.
+ * <p>
+ * Values of accounts are invalidated by the facade when it posts to them, still under the locks of the accounts.
+ * A value is cached with the stamp taken before it was loaded, and only if the account was not invalidated since -
+ * a value loaded before a posting was saved is never cached after the posting invalidated the account.
+ * Stamps are shared by accounts of one stripe, a posting may needlessly fail caching of a few other accounts.
+ * Postings of other application instances sharing the database are not seen - their effects show up after {@code timeToLive}.
+ */
+class AccountViewCache {
+
+    private static final int STRIPES = 4096;
+
+    private final boolean enabled;
+    private final Lru<AccountView> accounts;
+    private final Lru<CachedBalance> balances;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    AccountViewCache(int maxSize, int maxEntries, Duration timeToLive) {
+        this(maxSize, maxEntries, timeToLive, System::nanoTime);
+    }
+
+    AccountViewCache(int maxSize, int maxEntries, Duration timeToLive, LongSupplier nanoTime) {
+        checkArgument(maxSize >= 0, "Cache size cannot be negative");
+        checkArgument(maxEntries >= 0, "Number of cached entries cannot be negative");
+        this.enabled = maxSize > 0;
+        //a view without entries still takes a place
+        this.accounts = new Lru<>(maxSize, Math.max(maxEntries, maxSize), view -> Math.max(1, view.entries().size()));
+        this.balances = new Lru<>(maxSize, maxSize, balance -> 1);
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    static AccountViewCache disabled() {
+        return new AccountViewCache(0, 0, Duration.ZERO);
+    }
+
+    //to be taken before the value to cache is loaded
+    long stamp(AccountId accountId) {
+        return stamps.get(stripeOf(accountId));
+    }
+
+    //whether a value loaded after the stamp was taken would be kept - lets callers skip preparing it
+    boolean accepts(AccountId accountId, long stamp) {
+        return enabled && stamp(accountId) == stamp;
+    }
+
+    Optional<AccountView> account(AccountId accountId) {
+        return lookup(accounts, accountId, view -> true);
+    }
+
+    void cacheAccount(AccountId accountId, AccountView view, long stamp) {
+        store(accounts, accountId, view, stamp);
+    }
+
+    Optional<Money> balanceAsOf(AccountId accountId, Instant when) {
+        return lookup(balances, accountId, balance -> balance.covers(when)).map(CachedBalance::balance);
+    }
+
+    void cacheBalance(AccountId accountId, CachedBalance balance, long stamp) {
+        store(balances, accountId, balance, stamp);
+    }
+
+    //stamps are bumped before values are removed - see store
+    void invalidate(Collection<AccountId> accountIds) {
+        for (AccountId accountId : accountIds) {
+            stamps.incrementAndGet(stripeOf(accountId));
+            accounts.remove(accountId);
+            balances.remove(accountId);
+        }
+    }
+
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private <V> Optional<V> lookup(Lru<V> lru, AccountId accountId, Predicate<V> usable) {
+        Optional<V> value = lru.get(accountId, nanoTime.getAsLong()).filter(usable);
+        (value.isPresent() ? hits : misses).increment();
+        return value;
+    }
+
+    private <V> void store(Lru<V> lru, AccountId accountId, V value, long stamp) {
+        if (stamp(accountId) != stamp) {
+            return;
+        }
+        evictions.add(lru.put(accountId, value, nanoTime.getAsLong() + timeToLiveNanos));
+        //invalidation bumps the stamp before removing values - if its removal ran before the put, the stamp has already changed
+        if (stamp(accountId) != stamp) {
+            lru.remove(accountId);
+        }
+    }
+
+    private static int stripeOf(AccountId accountId) {
+        int hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    //balance applying at any instant within [asOf, nextChange) - no entry of the account applies in between
+    record CachedBalance(Instant asOf, Money balance, Instant nextChange) {
+
+        boolean covers(Instant when) {
+            return !when.isBefore(asOf) && when.isBefore(nextChange);
+        }
+    }
+
+    //bounded by the number of values and by their total weight
+    private static final class Lru<V> {
+
+        private final int maxSize;
+        private final long maxWeight;
+        private final ToIntFunction<V> weigher;
+        private final LinkedHashMap<AccountId, Expiring<V>> values = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        private Lru(int maxSize, long maxWeight, ToIntFunction<V> weigher) {
+            this.maxSize = maxSize;
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+        }
+
+        synchronized Optional<V> get(AccountId accountId, long now) {
+            Expiring<V> expiring = values.get(accountId);
+            if (expiring == null) {
+                return Optional.empty();
+            }
+            if (expiring.expiresAt() - now <= 0) {
+                remove(accountId);
+                return Optional.empty();
+            }
+            return Optional.of(expiring.value());
+        }
+
+        //number of least recently used values evicted to make room - a value heavier than the whole cache is not kept
+        synchronized int put(AccountId accountId, V value, long expiresAt) {
+            int valueWeight = weigher.applyAsInt(value);
+            if (maxSize == 0 || valueWeight > maxWeight) {
+                return 0;
+            }
+            remove(accountId);
+            values.put(accountId, new Expiring<>(value, expiresAt, valueWeight));
+            weight += valueWeight;
+            int evicted = 0;
+            //the value just put is the most recently used one, and it fits alone
+            Iterator<Expiring<V>> eldest = values.values().iterator();
+            while (values.size() > maxSize || weight > maxWeight) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized void remove(AccountId accountId) {
+            Expiring<V> removed = values.remove(accountId);
+            if (removed != null) {
+                weight -= removed.weight();
+            }
+        }
+    }
+
+    private record Expiring<V>(V value, long expiresAt, int weight) {
+    }
+}
@@ -1,40 +1,162 @@
 package com.softwarearchetypes.accounting;
 
-public class AccountingConfiguration {
-
-    // private final AccountRepository accountRepository;
-    // private final TransactionBuilderFactory transactionBuilderFactory;
-    // private final AccountingFacade accountingFacade;
-    //
-    // AccountingConfiguration(AccountRepository accountRepository, TransactionBuilderFactory transactionBuilderFactory, AccountingFacade accountingFacade) {
-    //     this.accountRepository = accountRepository;
-    //     this.transactionBuilderFactory = transactionBuilderFactory;
-    //     this.accountingFacade = accountingFacade;
-    // }
-    //
-    // public static AccountingConfiguration inMemory(Clock clock) {
-    //     return inMemory(clock, EventPublishingConfiguration.inMemory().publisher());
-    // }
-    //
-    // public static AccountingConfiguration inMemory(Clock clock, EventPublisher eventPublisher) {
-    //     InMemoryEntryRepository entryRepository = new InMemoryEntryRepository();
-    //     InMemoryAccountRepo accountRepository = new InMemoryAccountRepo(entryRepository);
-    //     InMemoryTransactionRepo transactionRepository = new InMemoryTransactionRepo();
-    //     EntryAllocations entryAllocations = new EntryAllocations(entryRepository);
-    //     TransactionBuilderFactory transactionBuilderFactory = new TransactionBuilderFactory(accountRepository, transactionRepository, entryAllocations, entryRepository, clock);
-    //     AccountingFacade accountingFacade = new AccountingFacade(clock, accountRepository, transactionRepository, transactionBuilderFactory, eventPublisher);
-    //     return new AccountingConfiguration(accountRepository, transactionBuilderFactory, accountingFacade);
-    // }
-    //
-    // public AccountingFacade facade() {
-    //     return accountingFacade;
-    // }
-    //
-    // public AccountRepository repository() {
-    //     return accountRepository;
-    // }
-    //
-    // public TransactionBuilderFactory transactionBuilderFactory() {
-    //     return transactionBuilderFactory;
-    // }
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.softwarearchetypes.accounting.events.AccountingEvent;
+import com.softwarearchetypes.common.events.EventPublisher;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.common.events.PartitionedAsyncEventPublisher;
+
+public class AccountingConfiguration implements Closeable {
+
+    private final AccountRepository accountRepository;
+    private final TransactionBuilderFactory transactionBuilderFactory;
+    private final AccountingFacade accountingFacade;
+    private final EntryRepository entryRepository;
+    private final Clock clock;
+    private final Closeable storage;
+
+    AccountingConfiguration(AccountRepository accountRepository, TransactionBuilderFactory transactionBuilderFactory, AccountingFacade accountingFacade,
+                            EntryRepository entryRepository, Clock clock, Closeable storage) {
+        this.accountRepository = accountRepository;
+        this.transactionBuilderFactory = transactionBuilderFactory;
+        this.accountingFacade = accountingFacade;
+        this.entryRepository = entryRepository;
+        this.clock = clock;
+        this.storage = storage;
+    }
+
+    public static AccountingConfiguration inMemory(Clock clock) {
+        return inMemory(clock, new InMemoryEventsPublisher());
+    }
+
+    public static AccountingConfiguration inMemory(Clock clock, EventPublisher eventPublisher) {
+        return inMemory(clock, eventPublisher, new IndexedEntryRepository());
+    }
+
+    static AccountingConfiguration inMemory(Clock clock, EventPublisher eventPublisher, EntryRepository entryRepository) {
+        InMemoryAccountRepo accountRepository = new InMemoryAccountRepo(entryRepository);
+        InMemoryTransactionRepo transactionRepository = new InMemoryTransactionRepo();
+        return create(clock, eventPublisher, accountRepository, entryRepository, transactionRepository, DatabaseTransactions.NONE,
+                new ForkJoinLedgerAggregation(accountRepository, entryRepository), AccountViewCache.disabled(), () -> {});
+    }
+
+    //expects the schema from schema-accounting.sql
+    public static AccountingConfiguration jdbc(Clock clock, EventPublisher eventPublisher, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        return jdbc(clock, eventPublisher, jdbcTemplate, transactionManager, AccountViewCache.disabled());
+    }
+
+    /**
+     * Views and balances of up to {@code cachedAccounts} accounts, with up to {@code cachedEntries} entries in all views, are cached
+     * for at most {@code cacheTimeToLive} - postings of other application instances sharing the database are seen only once it passes.
+     */
+    public static AccountingConfiguration jdbc(Clock clock, EventPublisher eventPublisher, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                               int cachedAccounts, int cachedEntries, Duration cacheTimeToLive) {
+        return jdbc(clock, eventPublisher, jdbcTemplate, transactionManager, new AccountViewCache(cachedAccounts, cachedEntries, cacheTimeToLive));
+    }
+
+    private static AccountingConfiguration jdbc(Clock clock, EventPublisher eventPublisher, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                                AccountViewCache accountViewCache) {
+        JdbcEntryRepository entryRepository = new JdbcEntryRepository(jdbcTemplate);
+        JdbcAccountRepository accountRepository = new JdbcAccountRepository(jdbcTemplate, entryRepository);
+        JdbcTransactionRepository transactionRepository = new JdbcTransactionRepository(jdbcTemplate, entryRepository, accountRepository);
+        return create(clock, eventPublisher, accountRepository, entryRepository, transactionRepository, new SpringDatabaseTransactions(transactionManager),
+                new JdbcLedgerAggregation(jdbcTemplate), accountViewCache, () -> {});
+    }
+
+    /**
+     * Entries and accounts are appended to a memory-mapped journal at {@code journalFile} and replayed from it on startup.
+     * Transactions are not journaled - a posted transaction can be found only until restart. Its entries are, so it can be reverted also afterwards.
+     * {@link #close()} forces and closes the journal, if the configuration is not closed it is forced when the application stops.
+     */
+    public static AccountingConfiguration journaled(Clock clock, EventPublisher eventPublisher, Path journalFile, FsyncPolicy fsyncPolicy) {
+        LedgerJournal journal = LedgerJournal.open(journalFile, fsyncPolicy);
+        Thread syncOnShutdown = new Thread(journal::sync);
+        Runtime.getRuntime().addShutdownHook(syncOnShutdown);
+        JournalEntryRepository entryRepository = new JournalEntryRepository(journal);
+        JournalAccountRepository accountRepository = new JournalAccountRepository(journal, entryRepository);
+        return create(clock, eventPublisher, accountRepository, entryRepository, new InMemoryTransactionRepo(), DatabaseTransactions.NONE,
+                new ForkJoinLedgerAggregation(accountRepository, entryRepository), AccountViewCache.disabled(), () -> {
+                    Runtime.getRuntime().removeShutdownHook(syncOnShutdown);
+                    journal.close();
+                });
+    }
+
+    private static AccountingConfiguration create(Clock clock, EventPublisher eventPublisher, AccountRepository accountRepository, EntryRepository entryRepository,
+                                                  TransactionRepository transactionRepository, DatabaseTransactions databaseTransactions,
+                                                  LedgerAggregation ledgerAggregation, AccountViewCache accountViewCache, Closeable storage) {
+        EntryAllocations entryAllocations = new EntryAllocations(entryRepository);
+        TransactionBuilderFactory transactionBuilderFactory = new TransactionBuilderFactory(accountRepository, entryAllocations, entryRepository, clock);
+        MaterializedProjections materializedProjections = new MaterializedProjections(accountRepository, entryRepository);
+        //read models are registered before any handler reacting to postings (e.g. posting rules), so they are up to date when those run
+        eventPublisher.register(materializedProjections);
+        AccountViewQueries accountViewQueries = new AccountViewQueries(accountRepository, entryRepository, materializedProjections, ledgerAggregation, accountViewCache);
+        AccountingFacade accountingFacade = new AccountingFacade(clock, accountRepository, accountViewQueries, transactionRepository, transactionBuilderFactory, eventPublisher, materializedProjections,
+                new AccountLocks(), databaseTransactions);
+        return new AccountingConfiguration(accountRepository, transactionBuilderFactory, accountingFacade, entryRepository, clock, storage);
+    }
+
+    /**
+     * Handles events of different accounts in parallel, events of one account in order.
+     * Handlers (e.g. posting rules) no longer add to the latency of the posting which published the events.
+     * <p>
+     * Events are handed over while the posted accounts are still locked, so events of one account are handled in posting order.
+     * Postings made by handlers publish without blocking - beyond {@code capacity} waiting events they are queued on the capacity
+     * of outside producers, which wait instead. No event is dropped once its posting was committed.
+     */
+    public static PartitionedAsyncEventPublisher asyncEventPublisher(int partitions, int capacity) {
+        return new PartitionedAsyncEventPublisher(partitions, capacity,
+                event -> event instanceof AccountingEvent accountingEvent ? accountingEvent.accountId() : event.id());
+    }
+
+    /**
+     * Moves what is left of expired entries to {@code compensationAccount}, at most {@code batchSize * batchesPerSweep} entries per sweep.
+     * Sweeps run when called or on a schedule, see {@link ExpirationSweeper#scheduleOn}.
+     */
+    public ExpirationSweeper expirationSweeper(AccountId compensationAccount, int batchSize, int batchesPerSweep) {
+        return new ExpirationSweeper(entryRepository, transactionBuilderFactory, accountingFacade, clock, compensationAccount, batchSize, batchesPerSweep);
+    }
+
+    /**
+     * Matches lines of external statements with entries by {@code rules}, in {@code partitions} partitions matched in parallel on the common pool.
+     * Discrepancies come with suggested adjustments against {@code adjustmentAccount}, e.g. a suspense account.
+     */
+    public ReconciliationEngine reconciliationEngine(MatchingRules rules, AccountId adjustmentAccount, int partitions) {
+        return new ReconciliationEngine(accountRepository, entryRepository, transactionBuilderFactory, clock, rules, adjustmentAccount, partitions,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Alternative way of posting commands of {@link AccountingFacade#handle(ExecuteTransactionCommand)} - by a single writer thread,
+     * fed through a ring buffer of {@code capacity} slots (a power of two). Must be closed to stop the writer.
+     */
+    public PostingPipeline postingPipeline(int capacity, int maxBatchSize) {
+        return PostingPipeline.start(accountingFacade, capacity, maxBatchSize);
+    }
+
+    //releases the storage, e.g. the journal of a journaled configuration - the facade must not be used afterwards
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    public AccountingFacade facade() {
+        return accountingFacade;
+    }
+
+    AccountRepository repository() {
+        return accountRepository;
+    }
+
+    public TransactionBuilderFactory transactionBuilderFactory() {
+        return transactionBuilderFactory;
+    }
 }
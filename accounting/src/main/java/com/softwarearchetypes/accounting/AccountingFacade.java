@@ -6,13 +6,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
-import org.jetbrains.annotations.NotNull;
-
+import com.softwarearchetypes.accounting.AccountViewCache.CachedBalance;
 import com.softwarearchetypes.accounting.events.AccountingEvent;
 import com.softwarearchetypes.common.Result;
 import com.softwarearchetypes.common.Result.CompositeSetResult;
@@ -26,8 +29,6 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
-//todo wszedzie
-//db transacions
 public class AccountingFacade {
 
     private final Clock clock;
@@ -36,14 +37,24 @@ public class AccountingFacade {
     private final TransactionRepository transactionRepository;
     private final TransactionBuilderFactory transactionBuilderFactory;
     private final EventPublisher eventPublisher;
+    private final MaterializedProjections materializedProjections;
+    private final AccountLocks accountLocks;
+    private final DatabaseTransactions databaseTransactions;
+
+    AccountingFacade(Clock clock, AccountRepository accountRepository, AccountViewQueries accountViewQueries, TransactionRepository transactionRepository, TransactionBuilderFactory transactionBuilderFactory, EventPublisher eventPublisher, MaterializedProjections materializedProjections) {
+        this(clock, accountRepository, accountViewQueries, transactionRepository, transactionBuilderFactory, eventPublisher, materializedProjections, new AccountLocks(), DatabaseTransactions.NONE);
+    }
 
-    AccountingFacade(Clock clock, AccountRepository accountRepository, AccountViewQueries accountViewQueries, TransactionRepository transactionRepository, TransactionBuilderFactory transactionBuilderFactory, EventPublisher eventPublisher) {
+    AccountingFacade(Clock clock, AccountRepository accountRepository, AccountViewQueries accountViewQueries, TransactionRepository transactionRepository, TransactionBuilderFactory transactionBuilderFactory, EventPublisher eventPublisher, MaterializedProjections materializedProjections, AccountLocks accountLocks, DatabaseTransactions databaseTransactions) {
         this.clock = clock;
         this.accountRepository = accountRepository;
         this.accountViewQueries = accountViewQueries;
         this.transactionRepository = transactionRepository;
         this.transactionBuilderFactory = transactionBuilderFactory;
         this.eventPublisher = eventPublisher;
+        this.materializedProjections = materializedProjections;
+        this.accountLocks = accountLocks;
+        this.databaseTransactions = databaseTransactions;
     }
 
     public Result<String, Set<AccountId>> createAccounts(Set<CreateAccount> requests) {
@@ -72,26 +83,43 @@ public class AccountingFacade {
     }
 
     public Optional<Money> balance(AccountId accountId) {
-        return accountRepository.find(accountId).map(Account::balance);
+        return materializedProjections.balanceOf(accountId)
+                                      .or(() -> accountRepository.find(accountId).map(Account::balance));
     }
 
     public Optional<Money> balanceAsOf(AccountId accountId, Instant when) {
-        return accountViewQueries.find(accountId).map(acc -> acc.balanceAsOf(when));
+        return accountViewQueries.balanceAsOf(accountId, when);
+    }
+
+    /**
+     * Balance applying at {@code appliesAt} as it was known at {@code knownAt} - entries which occurred later,
+     * e.g. back-dated corrections, are left out.
+     */
+    public Optional<Money> balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        return accountViewQueries.balanceAsOf(accountId, appliesAt, knownAt);
     }
 
     public Balances balancesAsOf(Set<AccountId> accounts, Instant when) {
-        Map<AccountId, AccountView> entriesByAccount = accountViewQueries.find(accounts);
-        Map<AccountId, Money> balances = new HashMap<>();
-        for (Map.Entry<AccountId, AccountView> entry : entriesByAccount.entrySet()) {
-            balances.put(entry.getKey(), entry.getValue().balanceAsOf(when));
-        }
-        return new Balances(balances);
+        return new Balances(accountViewQueries.balancesAsOf(accounts, when));
     }
 
     public Balances balances(Set<AccountId> accounts) {
         return balancesAsOf(accounts, clock.instant());
     }
 
+    public TrialBalance trialBalanceAsOf(Instant when) {
+        return new TrialBalance(when, accountViewQueries.totalsByAccountTypeAsOf(when));
+    }
+
+    public TrialBalance trialBalance() {
+        return trialBalanceAsOf(clock.instant());
+    }
+
+    //totals of entries per value of the metadata key and currency code, across the whole ledger
+    public Map<String, Map<String, Money>> totalsByMetadataAsOf(String key, Instant when) {
+        return accountViewQueries.totalsByMetadataAsOf(key, when);
+    }
+
     public Result<String, Set<AccountId>> createAccountsWithInitialBalances(Set<CreateAccount> requests, AccountAmounts accountAmounts) {
         Result<String, Set<AccountId>> creation = createAccounts(requests);
         Result<String, TransactionId> txResult = creation.flatMap(it -> {
@@ -117,31 +145,35 @@ public class AccountingFacade {
 
     public Result<String, TransactionId> handle(ExecuteTransactionCommand command) {
         try {
-            TransactionBuilder.TransactionEntriesBuilder entriesBuilder = transactionBuilderFactory.transaction()
-                    .occurredAt(command.occurredAt())
-                    .appliesAt(command.appliesAt())
-                    .withTypeOf(command.transactionType())
-                    .withMetadata(MetaData.of(command.metadata()))
-                    .executing();
-
-            for (ExecuteTransactionCommand.Entry entry : command.entries()) {
-                Validity validity = Validity.between(entry.validFrom(), entry.validTo());
-                AccountId accountId = AccountId.of(entry.accountId());
-                Money amount = entry.amount();
-
-                switch (entry.entryType()) {
-                    case CREDIT -> entriesBuilder.creditTo(accountId, amount, validity);
-                    case DEBIT -> entriesBuilder.debitFrom(accountId, amount, validity);
-                }
-            }
-
-            Transaction transaction = entriesBuilder.build();
-            return execute(transaction);
+            return execute(transactionFrom(command));
         } catch (Exception ex) {
             return Result.failure(ex.getMessage());
         }
     }
 
+    //throws IllegalArgumentException when the command is invalid, e.g. refers to a missing account
+    Transaction transactionFrom(ExecuteTransactionCommand command) {
+        TransactionBuilder.TransactionEntriesBuilder entriesBuilder = transactionBuilderFactory.transaction()
+                .occurredAt(command.occurredAt())
+                .appliesAt(command.appliesAt())
+                .withTypeOf(command.transactionType())
+                .withMetadata(MetaData.of(command.metadata()))
+                .executing();
+
+        for (ExecuteTransactionCommand.Entry entry : command.entries()) {
+            Validity validity = Validity.between(entry.validFrom(), entry.validTo());
+            AccountId accountId = AccountId.of(entry.accountId());
+            Money amount = entry.amount();
+
+            switch (entry.entryType()) {
+                case CREDIT -> entriesBuilder.creditTo(accountId, amount, validity);
+                case DEBIT -> entriesBuilder.debitFrom(accountId, amount, validity);
+            }
+        }
+
+        return entriesBuilder.build();
+    }
+
     public Result<String, TransactionId> handle(ReverseTransactionCommand command) {
         try {
             Transaction transaction = transactionBuilderFactory.transaction()
@@ -159,29 +191,34 @@ public class AccountingFacade {
         return transfer(from, to, amount, occurredAt, appliesAt, MetaData.empty());
     }
 
-    //transactional
+    //locks are held for the try block - the resource itself is never referenced
+    @SuppressWarnings("try")
     public Result<String, TransactionId> transfer(AccountId from, AccountId to, Money amount, Instant occurredAt, Instant appliesAt, MetaData metaData) {
         try {
-            Transaction transaction = transactionBuilderFactory.transaction()
-                                                               .occurredAt(occurredAt)
-                                                               .appliesAt(appliesAt)
-                                                               .withTypeOf("transfer")
-                                                               .withMetadata(metaData)
-                                                               .executing()
-                                                               .debitFrom(from, amount)
-                                                               .creditTo(to, amount)
-                                                               .build();
-            transaction.execute();
-            transactionRepository.save(transaction);
-            //optimistic locking on every account involved in transaction
-            saveAccountsAndPublishEvents(transaction.accountsInvolved());
+            Transaction transaction;
+            Runnable publication;
+            //both accounts are known upfront - the transaction is built under their locks, so it cannot go stale
+            try (AccountLocks.Locked ignored = accountLocks.lock(Set.copyOf(List.of(from, to)))) {
+                transaction = transactionBuilderFactory.transaction()
+                                                       .occurredAt(occurredAt)
+                                                       .appliesAt(appliesAt)
+                                                       .withTypeOf("transfer")
+                                                       .withMetadata(metaData)
+                                                       .executing()
+                                                       .debitFrom(from, amount)
+                                                       .creditTo(to, amount)
+                                                       .build();
+                publication = eventPublisher.publishHoldingLocks(post(List.of(transaction), accountRepository.find(transaction.accountIdsInvolved())));
+            }
+            //events are handed over under the locks, in posting order per account - handlers run outside of them,
+            //as they may post further transactions on other accounts
+            publication.run();
             return Result.success(transaction.id());
         } catch (Exception ex) {
             return Result.failure(ex.getMessage());
         }
     }
 
-    //db transaction
     public Result<String, Set<TransactionId>> execute(Transaction... transactions) {
         CompositeSetResult<String, TransactionId> result = Result.compositeSet();
         for (Transaction transaction : transactions) {
@@ -193,52 +230,152 @@ public class AccountingFacade {
         return result.toResult();
     }
 
-    //db transaction
+    @SuppressWarnings("try")
     public Result<String, TransactionId> execute(Transaction transaction) {
         try {
-            transaction.execute();
-            transactionRepository.save(transaction);
-            //optimistic locking on every account involved in transaction
-            saveAccountsAndPublishEvents(transaction.accountsInvolved());
+            Runnable publication;
+            try (AccountLocks.Locked ignored = accountLocks.lock(transaction.accountIdsInvolved())) {
+                //optimistic locking on every account involved in transaction - the transaction may hold instances loaded
+                //before the locks were taken (e.g. with JDBC every load is a new instance), so accounts are read again
+                Map<AccountId, Account> accounts = accountRepository.find(transaction.accountIdsInvolved());
+                if (!transaction.isBuiltAgainst(accounts)) {
+                    return Result.failure(format("Accounts involved in transaction %s were modified concurrently", transaction.id()));
+                }
+                publication = eventPublisher.publishHoldingLocks(post(List.of(transaction), accounts));
+            }
+            publication.run();
         } catch (Exception ex) {
             return Result.failure(ex.getMessage());
         }
         return Result.success(transaction.id());
     }
 
+    /**
+     * Posts many transactions as one group: all of them are validated upfront under the locks of every involved
+     * account, entries of all of them are added to one instance per account, so each account is saved once per batch
+     * with its summed balance, and all entry events are published as a single list.
+     */
+    @SuppressWarnings("try")
+    public Result<String, BatchPostingResult> execute(List<Transaction> transactions, BatchPostingMode mode) {
+        try {
+            Set<AccountId> accountIds = transactions.stream()
+                                                    .flatMap(transaction -> transaction.accountIdsInvolved().stream())
+                                                    .collect(toSet());
+            Runnable publication;
+            Set<TransactionId> posted = new HashSet<>();
+            Map<TransactionId, String> rejected = new HashMap<>();
+            try (AccountLocks.Locked ignored = accountLocks.lock(accountIds)) {
+                Map<AccountId, Account> currentAccounts = accountRepository.find(accountIds);
+                List<Transaction> valid = new ArrayList<>();
+                for (Transaction transaction : transactions) {
+                    validationErrorOf(transaction, posted, currentAccounts).ifPresentOrElse(
+                            error -> rejected.put(transaction.id(), error),
+                            () -> {
+                                valid.add(transaction);
+                                posted.add(transaction.id());
+                            });
+                }
+                if (mode == BatchPostingMode.ALL_OR_NOTHING && !rejected.isEmpty()) {
+                    return Result.failure(format("Batch rejected: %s", rejected));
+                }
+                publication = eventPublisher.publishHoldingLocks(post(valid, currentAccounts));
+            }
+            publication.run();
+            return Result.success(new BatchPostingResult(posted, rejected));
+        } catch (Exception ex) {
+            return Result.failure(ex.getMessage());
+        }
+    }
+
+    private Optional<String> validationErrorOf(Transaction transaction, Set<TransactionId> alreadyInBatch, Map<AccountId, Account> currentAccounts) {
+        if (alreadyInBatch.contains(transaction.id()) || transactionRepository.find(transaction.id()).isPresent()) {
+            return Optional.of(format("Transaction %s was already posted", transaction.id()));
+        }
+        //versions are checked against the state from before the batch - accounts are saved only once, at the end
+        if (!transaction.isBuiltAgainst(currentAccounts)) {
+            return Optional.of(format("Accounts involved in transaction %s were modified concurrently", transaction.id()));
+        }
+        return Optional.empty();
+    }
+
     public Result<String, AccountId> createProjectingAccount(AccountId projecting, AccountEntryFilter accountEntryFilter, String description) {
         return createProjectingAccount(projecting, accountEntryFilter.toFilter(), description);
     }
 
     Result<String, AccountId> createProjectingAccount(AccountId projecting, Filter filter, String name) {
+        if (name == null || name.isBlank()) {
+            return Result.failure("Projecting account description must be defined");
+        }
+        if (accountRepository.find(projecting).isPresent()) {
+            return Result.failure("Account with id " + projecting + " already exists");
+        }
         accountRepository.save(new ProjectionAccount(projecting, filter, name));
         return Result.success(projecting);
     }
 
+    public Result<String, AccountId> createMaterializedProjectingAccount(AccountId projecting, AccountEntryFilter accountEntryFilter, String description) {
+        return createProjectingAccount(projecting, accountEntryFilter, description)
+                .flatMap(this::materializeProjection);
+    }
+
+    //balance of a materialized projection is maintained from entry events, reading it does not touch the ledger
+    public Result<String, AccountId> materializeProjection(AccountId projectionId) {
+        return accountRepository.findProjection(projectionId)
+                                .map(projection -> {
+                                    materializedProjections.rebuild(projection);
+                                    return Result.<String, AccountId>success(projectionId);
+                                })
+                                .orElseGet(() -> Result.failure("Projection account " + projectionId + " not found"));
+    }
+
+    public Result<String, AccountId> rebuildProjection(AccountId projectionId) {
+        if (!materializedProjections.isMaterialized(projectionId)) {
+            return Result.failure("Projection account " + projectionId + " is not materialized");
+        }
+        return materializeProjection(projectionId);
+    }
+
+    public Result<String, AccountId> changeProjectionFilter(AccountId projectionId, AccountEntryFilter accountEntryFilter) {
+        Optional<ProjectionAccount> current = accountRepository.findProjection(projectionId);
+        if (current.isEmpty()) {
+            return Result.failure("Projection account " + projectionId + " not found");
+        }
+        ProjectionAccount projection = current.get();
+        accountRepository.save(new ProjectionAccount(projectionId, accountEntryFilter.toFilter(), projection.desc(), Version.of(projection.version().value() + 1)));
+        if (materializedProjections.isMaterialized(projectionId)) {
+            return rebuildProjection(projectionId);
+        }
+        return Result.success(projectionId);
+    }
+
     public Optional<AccountView> findAccount(AccountId accountId) {
-        return accountRepository.find(accountId).map(AccountView::from);
+        return accountViewQueries.find(accountId);
     }
 
     public List<AccountView> findAccounts(Set<AccountId> accountIds) {
-        return accountRepository.find(accountIds)
-                                .values()
-                                .stream()
-                                .map(AccountView::from)
-                                .toList();
+        return List.copyOf(accountViewQueries.find(accountIds).values());
+    }
+
+    /**
+     * Entries of the account in {@code appliesAt} order, each with the running balance of the account.
+     * Entries are read page by page while the stream is consumed, so even accounts with millions of entries
+     * are walked in constant memory.
+     */
+    public Stream<StatementLine> statementOf(AccountId accountId, StatementQuery query) {
+        return accountViewQueries.statementOf(accountId, query);
     }
 
     public List<AccountView> findAll() {
-        return accountRepository
-                .findAll()
-                .stream()
-                .map(AccountView::from)
-                .toList();
+        return accountViewQueries.findAll();
     }
 
+    //hits and misses of cached account views and balances
+    public CacheStatistics accountCacheStatistics() {
+        return accountViewQueries.cacheStatistics();
+    }
+
+    //entries are assigned to accounts - they are found through the entry repository's transaction index
     public Optional<TransactionView> findTransactionBy(TransactionId transactionId) {
-        //transactions should not contain entries in db - entries are assigned to accounts
-        //therefore, to get transaction entries a SQL query is required to find entries with
-        //matching transactionId
         return transactionRepository.find(transactionId)
                                     .map(transaction -> new TransactionView(
                                             transaction.id(),
@@ -246,42 +383,44 @@ public class AccountingFacade {
                                             transaction.type(),
                                             transaction.occurredAt(),
                                             transaction.appliesAt(),
-                                            entriesViewsFrom(transaction)));
+                                            accountViewQueries.entriesOf(transaction.id())));
     }
 
+    //each transaction once - read from the entry repository's account index, entries of the account are not loaded
     public List<TransactionId> findTransactionIdsFor(AccountId accountId) {
-        //transactions should not contain entries in db - entries are assigned to accounts
-        //therefore, to get transaction entries a SQL query is required to find entries with
-        //matching transactionId
-        return accountRepository.find(accountId)
-                                .stream()
-                                .flatMap(acc -> acc.entries().stream())
-                                .map(Entry::transactionId)
-                                .collect(toList());
-    }
-
-    @NotNull
-    private static List<TransactionAccountEntriesView> entriesViewsFrom(Transaction transaction) {
-        return transaction.entries().entrySet().stream().map(
-                entry -> {
-                    Account account = entry.getKey();
-                    AccountMetadataView accountView = new AccountMetadataView(account.id(), account.name(), account.type().name());
-                    List<EntryView> entries = entry.getValue().stream().map(EntryView::from).toList();
-                    return new TransactionAccountEntriesView(accountView, entries);
-                }
-        ).collect(toList());
+        return accountViewQueries.transactionIdsFor(accountId);
     }
 
-    private void saveAccountsAndPublishEvents(Collection<Account> accounts) {
-        List<AccountingEvent> allEvents = new ArrayList<>();
-
-        for (Account account : accounts) {
-            allEvents.addAll(account.getPendingEvents());
-            account.clearPendingEvents();
+    //must be called while holding locks of all accounts involved in the transactions, with accounts read under those locks
+    private List<AccountingEvent> post(List<Transaction> transactions, Map<AccountId, Account> accounts) {
+        Map<AccountId, Account> involved = new LinkedHashMap<>();
+        transactions.forEach(transaction -> transaction.accountIdsInvolved().forEach(id -> involved.put(id, accounts.get(id))));
+        Map<AccountId, Account.Snapshot> snapshots = new HashMap<>();
+        involved.values().forEach(account -> snapshots.put(account.id(), account.snapshot()));
+        List<AccountingEvent> events;
+        try {
+            events = databaseTransactions.inTransaction(() -> {
+                List<AccountingEvent> pending = new ArrayList<>();
+                for (Transaction transaction : transactions) {
+                    transaction.executeOn(involved);
+                    //drained per transaction, so events keep the order of transactions
+                    transaction.accountIdsInvolved().forEach(id -> {
+                        pending.addAll(involved.get(id).getPendingEvents());
+                        involved.get(id).clearPendingEvents();
+                    });
+                }
+                transactionRepository.save(transactions);
+                accountRepository.save(involved.values());
+                return pending;
+            });
+        } catch (RuntimeException | Error e) {
+            //nothing was saved - accounts must not keep entries, balance or version of the failed posting
+            involved.values().forEach(account -> account.restore(snapshots.get(account.id())));
+            throw e;
         }
-
-        accountRepository.save(accounts);
-        eventPublisher.publish(allEvents);
+        //still under the locks - no posting to these accounts can be saved before their cached values are dropped
+        accountViewQueries.invalidate(involved.keySet());
+        return events;
     }
 }
 
@@ -289,30 +428,167 @@ class AccountViewQueries {
 
     private final AccountRepository accountRepository;
     private final EntryRepository entryRepository;
+    private final MaterializedProjections materializedProjections;
+    private final LedgerAggregation ledgerAggregation;
+    private final AccountViewCache cache;
+
+    AccountViewQueries(AccountRepository accountRepository, EntryRepository entryRepository, MaterializedProjections materializedProjections) {
+        this(accountRepository, entryRepository, materializedProjections, new ForkJoinLedgerAggregation(accountRepository, entryRepository));
+    }
 
-    AccountViewQueries(AccountRepository accountRepository, EntryRepository entryRepository) {
+    AccountViewQueries(AccountRepository accountRepository, EntryRepository entryRepository, MaterializedProjections materializedProjections,
+                       LedgerAggregation ledgerAggregation) {
+        this(accountRepository, entryRepository, materializedProjections, ledgerAggregation, AccountViewCache.disabled());
+    }
+
+    AccountViewQueries(AccountRepository accountRepository, EntryRepository entryRepository, MaterializedProjections materializedProjections,
+                       LedgerAggregation ledgerAggregation, AccountViewCache cache) {
         this.accountRepository = accountRepository;
         this.entryRepository = entryRepository;
+        this.materializedProjections = materializedProjections;
+        this.ledgerAggregation = ledgerAggregation;
+        this.cache = cache;
     }
 
     //can be changed with SQL
     Optional<AccountView> find(AccountId accountId) {
-        return accountRepository.find(accountId)
-                                .map(this::accountViewFrom);
+        return materializedProjections.viewOf(accountId)
+                                      .or(() -> cache.account(accountId))
+                                      .or(() -> {
+                                          long stamp = cache.stamp(accountId);
+                                          return accountRepository.find(accountId).map(account -> cached(account, stamp));
+                                      });
     }
 
     //can be changed with SQL
     Map<AccountId, AccountView> find(Set<AccountId> accountIds) {
-        return accountRepository.find(accountIds)
-                                .values()
-                                .stream()
-                                .map(this::accountViewFrom)
-                                .collect(toMap(AccountView::id, it -> it));
+        Map<AccountId, AccountView> views = new HashMap<>();
+        Map<AccountId, Long> notCached = new HashMap<>();
+        for (AccountId accountId : accountIds) {
+            materializedProjections.viewOf(accountId)
+                                   .or(() -> cache.account(accountId))
+                                   .ifPresentOrElse(view -> views.put(accountId, view), () -> notCached.put(accountId, cache.stamp(accountId)));
+        }
+        accountRepository.find(notCached.keySet())
+                         .values()
+                         .forEach(account -> views.put(account.id(), cached(account, notCached.get(account.id()))));
+        return views;
+    }
+
+    //only entries of the transaction and their accounts are read
+    List<TransactionAccountEntriesView> entriesOf(TransactionId transactionId) {
+        Map<AccountId, List<EntryView>> entriesByAccount = new LinkedHashMap<>();
+        for (Entry entry : entryRepository.findAllOf(transactionId)) {
+            entriesByAccount.computeIfAbsent(entry.accountId(), id -> new ArrayList<>()).add(EntryView.from(entry));
+        }
+        Map<AccountId, Account> accounts = accountRepository.find(entriesByAccount.keySet());
+        return entriesByAccount.entrySet()
+                               .stream()
+                               .filter(entries -> accounts.containsKey(entries.getKey()))
+                               .map(entries -> {
+                                   Account account = accounts.get(entries.getKey());
+                                   AccountMetadataView accountView = new AccountMetadataView(account.id(), account.name(), account.type().name());
+                                   return new TransactionAccountEntriesView(accountView, entries.getValue());
+                               })
+                               .collect(toList());
+    }
+
+    List<TransactionId> transactionIdsFor(AccountId accountId) {
+        return entryRepository.findTransactionIdsFor(accountId);
+    }
+
+    CacheStatistics cacheStatistics() {
+        return cache.statistics();
+    }
+
+    void invalidate(Collection<AccountId> accountIds) {
+        cache.invalidate(accountIds);
+    }
+
+    Map<AccountType, Map<String, Money>> totalsByAccountTypeAsOf(Instant when) {
+        return ledgerAggregation.totalsByAccountType(when);
+    }
+
+    Map<String, Map<String, Money>> totalsByMetadataAsOf(String key, Instant when) {
+        return ledgerAggregation.totalsByMetadata(key, when);
+    }
+
+    Stream<StatementLine> statementOf(AccountId accountId, StatementQuery query) {
+        return AccountStatement.of(entryRepository, accountId, query);
+    }
+
+    //accounts not cached are loaded again by id - the cache stamp must be taken before an account is loaded
+    List<AccountView> findAll() {
+        List<AccountId> accountIds = accountRepository.findAll().stream().map(Account::id).toList();
+        Map<AccountId, AccountView> views = find(Set.copyOf(accountIds));
+        return accountIds.stream()
+                         .map(views::get)
+                         .filter(Objects::nonNull)
+                         .toList();
+    }
+
+    //reads the nearest balance checkpoint instead of loading all entries of the account
+    Optional<Money> balanceAsOf(AccountId accountId, Instant when) {
+        return cache.balanceAsOf(accountId, when)
+                    .or(() -> {
+                        long stamp = cache.stamp(accountId);
+                        return accountRepository.find(accountId)
+                                                .map(acc -> cached(acc.id(), when, entryRepository.balanceAsOf(acc.id(), when), stamp));
+                    });
     }
 
-    private AccountView accountViewFrom(Account acc) {
-        List<EntryView> entries = entryRepository.findAllFor(acc.id()).stream().map(EntryView::from).collect(toList());
-        return new AccountView(acc.id(), acc.name(), acc.type().name(), acc.balance(), entries);
+    Optional<Money> balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        return accountRepository.find(accountId)
+                                .map(acc -> entryRepository.balanceAsOf(acc.id(), appliesAt, knownAt));
+    }
+
+    Map<AccountId, Money> balancesAsOf(Set<AccountId> accountIds, Instant when) {
+        Map<AccountId, Money> balances = new HashMap<>();
+        Map<AccountId, Long> notCached = new HashMap<>();
+        for (AccountId accountId : accountIds) {
+            cache.balanceAsOf(accountId, when)
+                 .ifPresentOrElse(balance -> balances.put(accountId, balance), () -> notCached.put(accountId, cache.stamp(accountId)));
+        }
+        for (AccountId accountId : accountRepository.find(notCached.keySet()).keySet()) {
+            balances.put(accountId, cached(accountId, when, entryRepository.balanceAsOf(accountId, when), notCached.get(accountId)));
+        }
+        return balances;
+    }
+
+    //projections are not cached - postings to the projected accounts do not invalidate them
+    private AccountView cached(Account account, long stamp) {
+        AccountView view = accountViewFrom(account);
+        if (cache.accepts(account.id(), stamp) && accountRepository.findProjection(account.id()).isEmpty()) {
+            cache.cacheAccount(account.id(), view, stamp);
+        }
+        return view;
+    }
+
+    //the next change is looked up only for a balance which is going to be kept
+    private Money cached(AccountId accountId, Instant when, Money balance, long stamp) {
+        if (cache.accepts(accountId, stamp) && accountRepository.findProjection(accountId).isEmpty()) {
+            cache.cacheBalance(accountId, new CachedBalance(when, balance, nextChangeAfter(accountId, when)), stamp);
+        }
+        return balance;
+    }
+
+    //the balance as of a later instant is the same until the next entry of the account applies
+    private Instant nextChangeAfter(AccountId accountId, Instant when) {
+        Instant after = when.plusNanos(1);
+        if (after.isAfter(StatementQuery.LATEST)) {
+            return Instant.MAX;
+        }
+        return entryRepository.findPageFor(accountId, after, StatementQuery.LATEST, null, 1)
+                              .stream()
+                              .findFirst()
+                              .map(Entry::appliesAt)
+                              .orElse(Instant.MAX);
+    }
+
+    //entries are unmodifiable - the view may be shared through the cache
+    private AccountView accountViewFrom(Account account) {
+        List<EntryView> entries = entryRepository.findAllFor(account.id()).stream().map(EntryView::from).toList();
+        return new AccountView(account.id(), account.name(), account.type().name(), account.balance(), entries);
     }
 
 }
@@ -330,12 +606,17 @@ interface AccountRepository {
     List<Account> findAll();
 
     Map<AccountId, Account> find(Set<AccountId> accounts);
+
+    Optional<ProjectionAccount> findProjection(AccountId projectionId);
+
+    //accounts (projections excluded) selected by account level conditions of the filter
+    List<Account> findAccountsMatching(Filter filter);
 }
 
 class InMemoryAccountRepo implements AccountRepository {
 
-    private final Map<AccountId, Account> accounts = new HashMap<>();
-    private final Map<AccountId, ProjectionAccount> projectionAccounts = new HashMap<>();
+    private final Map<AccountId, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<AccountId, ProjectionAccount> projectionAccounts = new ConcurrentHashMap<>();
     private final EntryRepository entryRepository;
 
     InMemoryAccountRepo(EntryRepository entryRepository) {
@@ -349,16 +630,19 @@ class InMemoryAccountRepo implements AccountRepository {
 
     @Override
     public Account save(Account account) {
-        account.entries().stream().forEach(entryRepository::save);
+        entryRepository.save(account.entries().toList());
+        account.markSaved();
         return accounts.put(account.id(), account);
     }
 
+    //entries of all accounts are saved at once - a posting is a single append to a journaling entry repository
     @Override
     public void save(Collection<Account> accounts) {
-        accounts.forEach(acc -> {
-            acc.entries().stream().forEach(entryRepository::save);
-            this.accounts.put(acc.id(), acc);
-        });
+        entryRepository.save(accounts.stream().flatMap(account -> account.entries().toList().stream()).toList());
+        for (Account account : accounts) {
+            account.markSaved();
+            this.accounts.put(account.id(), account);
+        }
     }
 
     @Override
@@ -399,15 +683,40 @@ class InMemoryAccountRepo implements AccountRepository {
     //TODO: przerobić na accountView
     private Account getProjection(AccountId accountId) {
         ProjectionAccount projectionAccount = projectionAccounts.get(accountId);
-        //sql z bazy - nie wyciagamy wszystkich kont do pamieci
-        Set<Account> filteredAccounts = accounts.values().stream().filter(account -> projectionAccount.filter().accountFilter().test(account)).collect(toSet());
-        Entries filteredEntries =
-                new Entries(filteredAccounts.stream().map(Account::entries)
-                                            .map(Entries::toList)
-                                            .flatMap(Collection::stream)
-                                            .filter(entry -> projectionAccount.filter().entryFilter().test(entry))
-                                            .toList());
-        return new Account(accountId, null, null, projectionAccount.version());
+        Filter filter = projectionAccount.filter();
+        EntryTotal balance = new EntryTotal();
+        for (Account account : findAccountsMatching(filter)) {
+            addProjectedBalanceOf(account, filter, balance);
+        }
+        return new Account(accountId, AccountType.OFF_BALANCE, AccountName.of(projectionAccount.desc()), balance.toMoney(), projectionAccount.version());
+    }
+
+    @Override
+    public Optional<ProjectionAccount> findProjection(AccountId projectionId) {
+        return Optional.ofNullable(projectionAccounts.get(projectionId));
+    }
+
+    //only accounts the filter is narrowed to are looked up - all accounts are scanned only for filters on account name alone
+    @Override
+    public List<Account> findAccountsMatching(Filter filter) {
+        Collection<Account> candidates = filter.accountIds()
+                                               .map(ids -> ids.stream().map(accounts::get).filter(Objects::nonNull).toList())
+                                               .orElseGet(() -> List.copyOf(accounts.values()));
+        return candidates.stream()
+                         .filter(account -> filter.matchesAccount(account.id(), account.name()))
+                         .toList();
+    }
+
+    private void addProjectedBalanceOf(Account account, Filter filter, EntryTotal balance) {
+        if (!filter.constrainsEntries()) {
+            balance.add(account.compactBalance().minorUnits(), account.compactBalance().currencyCode());
+            return;
+        }
+        for (Entry entry : entryRepository.findAllFor(account.id())) {
+            if (filter.matches(entry)) {
+                balance.add(entry);
+            }
+        }
     }
 
 }
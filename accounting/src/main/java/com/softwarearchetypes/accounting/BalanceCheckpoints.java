@@ -0,0 +1,71 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Periodic balance checkpoints kept per account on the {@code appliesAt} axis.
+ * A checkpoint stored under instant {@code t} holds the sum of all entries applying strictly before {@code t}.
+ * Checkpoints are placed on interval boundaries only, right after every interval that has at least one entry,
+ * so an as-of query reads the nearest checkpoint and folds entries of at most one interval.
+ * Entries of a single account are expected to be recorded by one thread at a time (under the account lock),
+ * reads may run concurrently. Balances are kept in minor units, so neither recording nor reading allocates money objects.
+ */
+class BalanceCheckpoints {
+
+    static final Duration DEFAULT_INTERVAL = Duration.ofDays(1);
+
+    private final long intervalSeconds;
+    private final Map<AccountId, NavigableMap<Instant, Long>> checkpoints = new ConcurrentHashMap<>();
+
+    BalanceCheckpoints() {
+        this(DEFAULT_INTERVAL);
+    }
+
+    BalanceCheckpoints(Duration interval) {
+        checkArgument(interval != null && interval.getSeconds() > 0, "Checkpoint interval must be at least one second");
+        this.intervalSeconds = interval.getSeconds();
+    }
+
+    //must be called exactly once per entry
+    void record(Entry entry) {
+        NavigableMap<Instant, Long> accountCheckpoints = checkpoints.computeIfAbsent(entry.accountId(), id -> new ConcurrentSkipListMap<>());
+        long amount = entry.amountInMinorUnits();
+        //back-dated entry - every checkpoint placed after it has to include it
+        accountCheckpoints.tailMap(entry.appliesAt(), false).replaceAll((at, balance) -> Math.addExact(balance, amount));
+        Instant next = intervalStartOf(entry.appliesAt()).plusSeconds(intervalSeconds);
+        if (!accountCheckpoints.containsKey(next)) {
+            //missing checkpoint means this is the first entry applying within its interval
+            long previous = Optional.ofNullable(accountCheckpoints.lowerEntry(next))
+                                    .map(Map.Entry::getValue)
+                                    .orElse(0L);
+            accountCheckpoints.put(next, Math.addExact(previous, amount));
+        }
+    }
+
+    Checkpoint nearest(AccountId accountId, Instant when) {
+        return Optional.ofNullable(checkpoints.get(accountId))
+                       .map(accountCheckpoints -> accountCheckpoints.floorEntry(when))
+                       .map(it -> new Checkpoint(it.getKey(), it.getValue()))
+                       .orElse(Checkpoint.NONE);
+    }
+
+    private Instant intervalStartOf(Instant instant) {
+        return Instant.ofEpochSecond(Math.floorDiv(instant.getEpochSecond(), intervalSeconds) * intervalSeconds);
+    }
+
+    /**
+     * Balance, in minor units, of all entries applying strictly before {@code at}.
+     */
+    record Checkpoint(Instant at, long balance) {
+
+        static final Checkpoint NONE = new Checkpoint(Instant.MIN, 0);
+    }
+}
@@ -0,0 +1,17 @@
+package com.softwarearchetypes.accounting;
+
+/**
+ * Decides what happens to a batch of transactions when some of them cannot be posted.
+ */
+public enum BatchPostingMode {
+
+    /**
+     * Nothing is posted unless every transaction in the batch passes validation.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Valid transactions are posted, invalid ones are reported as rejected.
+     */
+    BEST_EFFORT
+}
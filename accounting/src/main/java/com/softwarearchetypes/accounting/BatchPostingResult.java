@@ -0,0 +1,16 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.Map;
+import java.util.Set;
+
+public record BatchPostingResult(Set<TransactionId> posted, Map<TransactionId, String> rejected) {
+
+    public BatchPostingResult {
+        posted = Set.copyOf(posted);
+        rejected = Map.copyOf(rejected);
+    }
+
+    public boolean allPosted() {
+        return rejected.isEmpty();
+    }
+}
@@ -0,0 +1,192 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Answers "what was the balance applying at {@code appliesAt}, as known at {@code knownAt}" - entries applying
+ * not later than {@code appliesAt} which occurred not later than {@code knownAt}.
+ * <p>
+ * Per account entries are kept in persistent (path copying) treaps ordered by {@code appliesAt}, with subtree sums.
+ * The {@code occurredAt} axis is split into intervals, as in {@link BalanceCheckpoints}: every interval holding an entry
+ * keeps a snapshot of all entries which occurred before it, plus its own entries. A query sums the {@code appliesAt} prefix
+ * of the snapshot in O(log n) and folds entries of one interval - one version is retained per interval, not per entry.
+ * <p>
+ * An entry which occurred before entries already recorded (recorded late) is inserted into snapshots of all later intervals,
+ * sharing all but O(log n) nodes with them - the later it is, the more intervals it touches.
+ * Entries of an account are recorded under the lock of its history, reads run concurrently without locking.
+ */
+class BitemporalBalances {
+
+    private final long intervalSeconds;
+    private final Map<AccountId, History> histories = new ConcurrentHashMap<>();
+
+    BitemporalBalances() {
+        this(BalanceCheckpoints.DEFAULT_INTERVAL);
+    }
+
+    BitemporalBalances(Duration interval) {
+        checkArgument(interval != null && interval.getSeconds() > 0, "Snapshot interval must be at least one second");
+        this.intervalSeconds = interval.getSeconds();
+    }
+
+    //must be called exactly once per entry
+    void record(Entry entry) {
+        histories.computeIfAbsent(entry.accountId(), id -> new History()).record(entry, intervalStartOf(entry.occurredAt()));
+    }
+
+    //in minor units
+    long balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        return Optional.ofNullable(histories.get(accountId))
+                       .map(history -> history.balanceAsOf(appliesAt, knownAt))
+                       .orElse(0L);
+    }
+
+    private Instant intervalStartOf(Instant instant) {
+        return Instant.ofEpochSecond(Math.floorDiv(instant.getEpochSecond(), intervalSeconds) * intervalSeconds);
+    }
+
+    private static final class History {
+
+        private final NavigableMap<Instant, Interval> intervals = new ConcurrentSkipListMap<>();
+
+        synchronized void record(Entry entry, Instant intervalStart) {
+            Interval interval = intervals.get(intervalStart);
+            if (interval == null) {
+                Map.Entry<Instant, Interval> previous = intervals.lowerEntry(intervalStart);
+                interval = new Interval(previous == null ? null : previous.getValue().snapshotAfter());
+                intervals.put(intervalStart, interval);
+            }
+            interval.add(entry);
+            Node node = Node.of(entry);
+            for (Interval later : intervals.tailMap(intervalStart, false).values()) {
+                later.before = Node.insert(later.before, node);
+            }
+        }
+
+        long balanceAsOf(Instant appliesAt, Instant knownAt) {
+            Map.Entry<Instant, Interval> known = intervals.floorEntry(knownAt);
+            return known == null ? 0 : known.getValue().balanceAsOf(appliesAt, knownAt);
+        }
+    }
+
+    //entries are appended by the history's writer, readers take size first - elements below it are published
+    private static final class Interval {
+
+        //entries which occurred before the interval
+        private volatile Node before;
+        private volatile Entry[] entries = new Entry[4];
+        private volatile int size;
+
+        private Interval(Node before) {
+            this.before = before;
+        }
+
+        void add(Entry entry) {
+            Entry[] current = entries;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                entries = current;
+            }
+            current[size] = entry;
+            size = size + 1;
+        }
+
+        Node snapshotAfter() {
+            Node snapshot = before;
+            for (int i = 0; i < size; i++) {
+                snapshot = Node.insert(snapshot, Node.of(entries[i]));
+            }
+            return snapshot;
+        }
+
+        long balanceAsOf(Instant appliesAt, Instant knownAt) {
+            int count = size;
+            Entry[] current = entries;
+            long balance = Node.sumUpTo(before, appliesAt);
+            for (int i = 0; i < count; i++) {
+                Entry entry = current[i];
+                if (!entry.occurredAt().isAfter(knownAt) && !entry.appliesAt().isAfter(appliesAt)) {
+                    balance = Math.addExact(balance, entry.amountInMinorUnits());
+                }
+            }
+            return balance;
+        }
+    }
+
+    //immutable - a version is never changed once published, so readers need no locking
+    private record Node(Instant appliesAt, long amount, int priority, Node left, Node right, long sum) {
+
+        Node(Instant appliesAt, long amount, int priority) {
+            this(appliesAt, amount, priority, null, null, amount);
+        }
+
+        static Node of(Entry entry) {
+            return new Node(entry.appliesAt(), entry.amountInMinorUnits(), entry.id().hashCode());
+        }
+
+        Node with(Node left, Node right) {
+            return new Node(appliesAt, amount, priority, left, right, Math.addExact(Math.addExact(sumOf(left), amount), sumOf(right)));
+        }
+
+        static Node insert(Node root, Node node) {
+            Split split = split(root, node.appliesAt());
+            return merge(merge(split.notAfter(), node), split.after());
+        }
+
+        static long sumUpTo(Node node, Instant appliesAt) {
+            long sum = 0;
+            while (node != null) {
+                if (node.appliesAt().isAfter(appliesAt)) {
+                    node = node.left();
+                } else {
+                    sum = Math.addExact(sum, Math.addExact(sumOf(node.left()), node.amount()));
+                    node = node.right();
+                }
+            }
+            return sum;
+        }
+
+        //copies only the nodes on the path to the split point
+        private static Split split(Node node, Instant appliesAt) {
+            if (node == null) {
+                return new Split(null, null);
+            }
+            if (node.appliesAt().isAfter(appliesAt)) {
+                Split split = split(node.left(), appliesAt);
+                return new Split(split.notAfter(), node.with(split.after(), node.right()));
+            }
+            Split split = split(node.right(), appliesAt);
+            return new Split(node.with(node.left(), split.notAfter()), split.after());
+        }
+
+        //every node of first applies not later than any node of second
+        private static Node merge(Node first, Node second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null) {
+                return first;
+            }
+            if (first.priority() > second.priority()) {
+                return first.with(first.left(), merge(first.right(), second));
+            }
+            return second.with(merge(first, second.left()), second.right());
+        }
+
+        private static long sumOf(Node node) {
+            return node == null ? 0 : node.sum();
+        }
+    }
+
+    private record Split(Node notAfter, Node after) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.softwarearchetypes.accounting;
+
+public record CacheStatistics(long hits, long misses, long evictions) {
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        return requests() == 0 ? 0 : (double) hits / requests();
+    }
+}
@@ -0,0 +1,44 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.function.Supplier;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Transaction, accounts and entries are saved by separate repositories - with a database behind them
+ * posting must commit all of them or none. Any exception thrown by the work rolls the database transaction back.
+ */
+interface DatabaseTransactions {
+
+    //in memory repositories have nothing to commit
+    DatabaseTransactions NONE = new DatabaseTransactions() {
+        @Override
+        public <T> T inTransaction(Supplier<T> work) {
+            return work.get();
+        }
+    };
+
+    <T> T inTransaction(Supplier<T> work);
+
+    default void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
+
+class SpringDatabaseTransactions implements DatabaseTransactions {
+
+    private final TransactionTemplate transactionTemplate;
+
+    SpringDatabaseTransactions(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+}
@@ -23,11 +23,13 @@ class Entries {
 
     //TODO: powino zostać przeniesione do widoku - ta klasa słuzy tylko do przechowywania nowych wpisów - nie wszystkich
     Money balanceAsOf(Instant when) {
-        return entries
-                .stream()
-                .filter(e -> !e.appliesAt().isAfter(when))
-                .map(Entry::amount)
-                .reduce(Money.zeroPln(), Money::add);
+        EntryTotal balance = new EntryTotal();
+        for (Entry entry : entries) {
+            if (!entry.appliesAt().isAfter(when)) {
+                balance.add(entry);
+            }
+        }
+        return balance.toMoney();
     }
 
     Entries add(Entry entry) {
@@ -40,6 +42,10 @@ class Entries {
         return this;
     }
 
+    void clear() {
+        entries.clear();
+    }
+
     List<Entry> toList() {
         return new ArrayList<>(entries);
     }
@@ -49,7 +55,7 @@ class Entries {
     }
 
     Entries copy() {
-        return new Entries(entries);
+        return new Entries(new ArrayList<>(entries));
     }
 
     Stream<Entry> stream() {
@@ -3,8 +3,11 @@ package com.softwarearchetypes.accounting;
 import java.time.Instant;
 import java.util.Optional;
 
+import com.softwarearchetypes.quantity.money.CompactMoney;
 import com.softwarearchetypes.quantity.money.Money;
 
+import static java.lang.String.format;
+
 sealed interface Entry permits AccountDebited, AccountCredited {
 
     EntryId id();
@@ -19,15 +22,37 @@ sealed interface Entry permits AccountDebited, AccountCredited {
 
     Money amount();
 
+    //signed, like amount(), but without allocating a Money - computed once, when the entry is created
+    long amountInMinorUnits();
+
+    String currencyCode();
+
     MetaData metadata();
 
     Validity validity();
 
     Optional<EntryId> appliedTo();
+
+    //the same entry, with the metadata
+    Entry withMetadata(MetaData metadata);
+
+    //entries are summed in minor units - an amount with more than 2 fraction digits is rejected, although Money allows it
+    static long minorUnitsOf(Money amount) {
+        try {
+            return CompactMoney.minorUnitsOf(amount);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException(format("Entry amount must have at most %d fraction digits and fit in minor units, got %s", CompactMoney.SCALE, amount));
+        }
+    }
 }
 
 record AccountDebited(EntryId id, TransactionId transactionId, AccountId accountId, Money amount, Instant appliesAt, Instant occurredAt,
-                      MetaData metadata, Validity validity, Optional<EntryId> appliedTo) implements Entry {
+                      MetaData metadata, Validity validity, Optional<EntryId> appliedTo, long amountInMinorUnits) implements Entry {
+
+    AccountDebited(EntryId id, TransactionId transactionId, AccountId accountId, Money amount, Instant appliesAt, Instant occurredAt,
+                   MetaData metadata, Validity validity, Optional<EntryId> appliedTo) {
+        this(id, transactionId, accountId, amount, appliesAt, occurredAt, metadata, validity, appliedTo, Math.negateExact(Entry.minorUnitsOf(amount)));
+    }
 
     AccountDebited(AccountId accountId, TransactionId transactionId, Money amount, Instant appliesAt, Instant occurredAt) {
         this(EntryId.generate(), transactionId, accountId, amount, appliesAt, occurredAt, MetaData.empty(), Validity.always(), Optional.empty());
@@ -53,10 +78,25 @@ record AccountDebited(EntryId id, TransactionId transactionId, AccountId account
     public Money amount() {
         return amount.negate();
     }
+
+    @Override
+    public String currencyCode() {
+        return amount.currencyCode();
+    }
+
+    @Override
+    public AccountDebited withMetadata(MetaData metadata) {
+        return new AccountDebited(id, transactionId, accountId, amount, appliesAt, occurredAt, metadata, validity, appliedTo, amountInMinorUnits);
+    }
 }
 
 record AccountCredited(EntryId id, TransactionId transactionId, AccountId accountId, Money amount, Instant appliesAt, Instant occurredAt,
-                       MetaData metadata, Validity validity, Optional<EntryId> appliedTo) implements Entry {
+                       MetaData metadata, Validity validity, Optional<EntryId> appliedTo, long amountInMinorUnits) implements Entry {
+
+    AccountCredited(EntryId id, TransactionId transactionId, AccountId accountId, Money amount, Instant appliesAt, Instant occurredAt,
+                    MetaData metadata, Validity validity, Optional<EntryId> appliedTo) {
+        this(id, transactionId, accountId, amount, appliesAt, occurredAt, metadata, validity, appliedTo, Entry.minorUnitsOf(amount));
+    }
 
     AccountCredited(AccountId accountId, TransactionId transactionId, Money amount, Instant appliesAt, Instant occurredAt) {
         this(EntryId.generate(), transactionId, accountId, amount, appliesAt, occurredAt, MetaData.empty(), Validity.always(), Optional.empty());
@@ -77,5 +117,15 @@ record AccountCredited(EntryId id, TransactionId transactionId, AccountId accoun
     AccountCredited(AccountId accountId, TransactionId transactionId, Money amount, Instant appliesAt, Instant occurredAt, EntryId appliedToEntryId) {
         this(EntryId.generate(), transactionId, accountId, amount, appliesAt, occurredAt, MetaData.empty(), Validity.always(), Optional.ofNullable(appliedToEntryId));
     }
+
+    @Override
+    public String currencyCode() {
+        return amount.currencyCode();
+    }
+
+    @Override
+    public AccountCredited withMetadata(MetaData metadata) {
+        return new AccountCredited(id, transactionId, accountId, amount, appliesAt, occurredAt, metadata, validity, appliedTo, amountInMinorUnits);
+    }
 }
 
@@ -16,7 +16,14 @@ class EntryAllocations {
         this.entryRepository = entryRepository;
     }
 
+    //FIFO and LIFO allocate only open entries, from the account's own ordered entries - the ledger is never sorted
     Optional<Entry> findAllocationFor(EntryAllocationFilter filter) {
+        if (filter.entryId() != null) {
+            return entryRepository.find(filter.entryId()).filter(filter.predicate());
+        }
+        if (filter.accountId() != null && filter.strategy() != MANUAL) {
+            return entryRepository.findFirstOpen(filter);
+        }
         return entryRepository.findMatching(filter.predicate(), filter.comparator());
     }
 
@@ -28,13 +35,20 @@ enum EntryAllocationStrategy {
     MANUAL
 }
 
-record EntryAllocationFilter(Predicate<Entry> predicate, Comparator<Entry> comparator) {
+//account, entry id, entry type and validity instant are kept next to the predicate, so that allocation can be looked up in an index instead of matched
+record EntryAllocationFilter(Predicate<Entry> predicate, Comparator<Entry> comparator, EntryAllocationStrategy strategy, AccountId accountId, EntryId entryId,
+                             Class<? extends Entry> entryType, Instant validAt) {
 
-    static final EntryAllocationFilter NONE = new EntryAllocationFilter(null, null);
+    static final EntryAllocationFilter NONE = new EntryAllocationFilter(null, null, null, null, null, null, null);
 
     boolean isEmpty() {
         return NONE.equals(this);
     }
+
+    //entries of any type are allocatable when no type was asked for
+    boolean admits(Class<? extends Entry> type) {
+        return entryType == null || entryType.isAssignableFrom(type);
+    }
 }
 
 class EntryAllocationFilterBuilder {
@@ -64,7 +78,7 @@ class EntryAllocationFilterBuilder {
         return new EntryAllocationFilterBuilder(EntryAllocationStrategy.LIFO, accountId);
     }
 
-    static EntryAllocationFilterBuilder Al(EntryId entryId) {
+    static EntryAllocationFilterBuilder manual(EntryId entryId) {
         return new EntryAllocationFilterBuilder(MANUAL, entryId);
     }
 
@@ -81,7 +95,7 @@ class EntryAllocationFilterBuilder {
     //TODO: other filters possible
 
     EntryAllocationFilter build() {
-        return new EntryAllocationFilter(buildEntryPredicate(), buildComparator());
+        return new EntryAllocationFilter(buildEntryPredicate(), buildComparator(), strategy, accountId, entryId, entryType, time);
     }
 
     // Helper method to create entry predicate based on filters
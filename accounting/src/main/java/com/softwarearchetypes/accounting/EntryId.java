@@ -2,12 +2,19 @@ package com.softwarearchetypes.accounting;
 
 import java.util.UUID;
 
-public record EntryId(UUID value) {
+//ordered like the 16 bytes of the uuid, i.e. the way databases order uuid columns - UUID.compareTo compares signed longs
+public record EntryId(UUID value) implements Comparable<EntryId> {
 
     public static EntryId generate() {
         return new EntryId(UUID.randomUUID());
     }
 
+    @Override
+    public int compareTo(EntryId other) {
+        int byHighBits = Long.compareUnsigned(value.getMostSignificantBits(), other.value.getMostSignificantBits());
+        return byHighBits != 0 ? byHighBits : Long.compareUnsigned(value.getLeastSignificantBits(), other.value.getLeastSignificantBits());
+    }
+
     @Override
     public String toString() {
         return value.toString();
@@ -1,14 +1,29 @@
 package com.softwarearchetypes.accounting;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.softwarearchetypes.accounting.BalanceCheckpoints.Checkpoint;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.util.Collections.emptyNavigableMap;
+
 // it is an alternative to searching for entries through accounts
 interface EntryRepository {
 
@@ -16,18 +31,125 @@ interface EntryRepository {
 
     void save(Entry entry);
 
+    default void save(List<Entry> entries) {
+        entries.forEach(this::save);
+    }
+
     List<Entry> findAllFor(AccountId accountId);
 
+    //entries applying within [from, to], both ends inclusive
+    List<Entry> findAllFor(AccountId accountId, Instant from, Instant to);
+
+    Money balanceAsOf(AccountId accountId, Instant when);
+
+    //entries applying not later than appliesAt, which occurred not later than knownAt
+    default Money balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        EntryTotal balance = new EntryTotal();
+        for (Entry entry : findAllFor(accountId)) {
+            if (!entry.appliesAt().isAfter(appliesAt) && !entry.occurredAt().isAfter(knownAt)) {
+                balance.add(entry);
+            }
+        }
+        return balance.toMoney();
+    }
+
     Optional<Entry> findMatching(Predicate<Entry> predicate, Comparator<Entry> comparator);
 
     List<Entry> findAllMatching(Predicate<Entry> predicate);
 
     List<Entry> findEntriesReferencing(Entry entry);
+
+    //entries of one transaction, on all of its accounts
+    default List<Entry> findAllOf(TransactionId transactionId) {
+        return findAllMatching(entry -> entry.transactionId().equals(transactionId));
+    }
+
+    //transactions with entries on the account, each once, in no particular order
+    default List<TransactionId> findTransactionIdsFor(AccountId accountId) {
+        return findAllFor(accountId).stream().map(Entry::transactionId).distinct().toList();
+    }
+
+    /**
+     * Oldest (FIFO) or newest (LIFO) entry of the filter's account, of its entry type and valid at its instant, which is
+     * still open - entries of the same account referencing it through {@code appliedTo} have not used up its amount yet.
+     */
+    Optional<Entry> findFirstOpen(EntryAllocationFilter filter);
+
+    /**
+     * At most limit open entries whose validity ended not later than {@code when}, in expiry order,
+     * following the given position unless it is null.
+     */
+    default List<Entry> findExpired(Instant when, ExpiryPosition after, int limit) {
+        return findAllMatching(entry -> entry.validity().hasExpired(when) && (after == null || after.compareTo(ExpiryPosition.of(entry)) < 0))
+                .stream()
+                .sorted(Comparator.comparing(ExpiryPosition::of))
+                .filter(this::isOpen)
+                .limit(limit)
+                .toList();
+    }
+
+    //only entries of the same account use an entry up - counter entries on other accounts merely point at it
+    private boolean isOpen(Entry entry) {
+        long allocated = 0;
+        for (Entry referencing : findEntriesReferencing(entry)) {
+            if (referencing.accountId().equals(entry.accountId())) {
+                allocated = Math.addExact(allocated, Math.abs(referencing.amountInMinorUnits()));
+            }
+        }
+        return allocated < Math.abs(entry.amountInMinorUnits());
+    }
+
+    //at most limit entries applying within [from, to], in statement order, following the given position unless it is null
+    default List<Entry> findPageFor(AccountId accountId, Instant from, Instant to, EntryPosition after, int limit) {
+        return findAllFor(accountId, from, to).stream()
+                                              .filter(entry -> after == null || after.isBefore(entry))
+                                              .sorted(EntryPosition.STATEMENT_ORDER)
+                                              .limit(limit)
+                                              .toList();
+    }
+}
+
+//position of an entry in an account statement - entries applying at the same instant are ordered by id, as in SQL
+record EntryPosition(Instant appliesAt, EntryId entryId) {
+
+    static final Comparator<Entry> STATEMENT_ORDER = Comparator.comparing(Entry::appliesAt).thenComparing(Entry::id);
+
+    static EntryPosition of(Entry entry) {
+        return new EntryPosition(entry.appliesAt(), entry.id());
+    }
+
+    boolean isBefore(Entry entry) {
+        return isBefore(entry.appliesAt(), entry.id());
+    }
+
+    boolean isBefore(Instant otherAppliesAt, EntryId otherId) {
+        int byTime = appliesAt.compareTo(otherAppliesAt);
+        return byTime < 0 || (byTime == 0 && entryId.compareTo(otherId) < 0);
+    }
+}
+
+//position of an entry in expiration order - entries expiring at the same instant are ordered by id, as in SQL
+record ExpiryPosition(Instant validTo, EntryId entryId) implements Comparable<ExpiryPosition> {
+
+    static ExpiryPosition of(Entry entry) {
+        return new ExpiryPosition(entry.validity().validTo(), entry.id());
+    }
+
+    @Override
+    public int compareTo(ExpiryPosition other) {
+        int byTime = validTo.compareTo(other.validTo);
+        return byTime != 0 ? byTime : entryId.compareTo(other.entryId);
+    }
 }
 
+/**
+ * Unindexed reference implementation - every lookup scans the whole ledger, so it keeps no balance checkpoints either.
+ * Repositories meant for larger ledgers index entries by account, see {@link IndexedEntryRepository}.
+ */
 class InMemoryEntryRepository implements EntryRepository {
 
-    private final Map<EntryId, Entry> entries = new HashMap<>();
+    private final Map<EntryId, Entry> entries = new ConcurrentHashMap<>();
+    private final AccountCurrencies currencies = new AccountCurrencies();
 
     @Override
     public Optional<Entry> find(EntryId entryId) {
@@ -36,6 +158,7 @@ class InMemoryEntryRepository implements EntryRepository {
 
     @Override
     public void save(Entry entry) {
+        currencies.check(entry);
         entries.put(entry.id(), entry);
     }
 
@@ -44,6 +167,24 @@ class InMemoryEntryRepository implements EntryRepository {
         return findAllMatching(it -> it.accountId().equals(accountId));
     }
 
+    @Override
+    public List<Entry> findAllFor(AccountId accountId, Instant from, Instant to) {
+        return findAllMatching(it -> it.accountId().equals(accountId)
+                && !it.appliesAt().isBefore(from)
+                && !it.appliesAt().isAfter(to));
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant when) {
+        long balance = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.accountId().equals(accountId) && !entry.appliesAt().isAfter(when)) {
+                balance = Math.addExact(balance, entry.amountInMinorUnits());
+            }
+        }
+        return currencies.toMoney(accountId, balance);
+    }
+
     @Override
     public Optional<Entry> findMatching(Predicate<Entry> predicate, Comparator<Entry> comparator) {
         Stream<Entry> stream = entries.values().stream();
@@ -63,6 +204,129 @@ class InMemoryEntryRepository implements EntryRepository {
         );
     }
 
+    //one pass over the ledger - amounts allocated to entries of the account are summed while candidates are collected
+    @Override
+    public Optional<Entry> findFirstOpen(EntryAllocationFilter filter) {
+        List<Entry> candidates = new ArrayList<>();
+        Map<EntryId, Long> allocated = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            if (!entry.accountId().equals(filter.accountId())) {
+                continue;
+            }
+            if (filter.predicate().test(entry)) {
+                candidates.add(entry);
+            }
+            entry.appliedTo().ifPresent(refId -> allocated.merge(refId, Math.abs(entry.amountInMinorUnits()), Math::addExact));
+        }
+        Comparator<Entry> order = filter.strategy() == EntryAllocationStrategy.LIFO ? EntryPosition.STATEMENT_ORDER.reversed() : EntryPosition.STATEMENT_ORDER;
+        return candidates.stream()
+                         .filter(entry -> allocated.getOrDefault(entry.id(), 0L) < Math.abs(entry.amountInMinorUnits()))
+                         .min(order);
+    }
+
+    @Override
+    public List<Entry> findAllMatching(Predicate<Entry> predicate) {
+        Stream<Entry> stream = entries.values().stream();
+        if (predicate != null) {
+            stream = stream.filter(predicate);
+        }
+        return stream.collect(Collectors.toList());
+    }
+}
+/**
+ * Keeps entries grouped per account and ordered by {@code appliesAt}, together with a reverse index
+ * of entries referencing other entries through {@code appliedTo}. Account and time-range lookups cost
+ * O(log n + k) instead of scanning the whole ledger.
+ * Safe for concurrent use as long as entries of a single account are saved by one thread at a time.
+ */
+class IndexedEntryRepository implements EntryRepository {
+
+    private final Map<EntryId, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<AccountId, NavigableMap<Instant, EntriesAt>> entriesByAccount = new ConcurrentHashMap<>();
+    private final Map<EntryId, List<Entry>> entriesByAppliedTo = new ConcurrentHashMap<>();
+    private final BalanceCheckpoints checkpoints;
+    private final BitemporalBalances bitemporalBalances = new BitemporalBalances();
+    private final Map<AccountId, OpenEntries> openEntriesByAccount = new ConcurrentHashMap<>();
+    private final Map<EntryId, Long> allocatedMinorUnits = new ConcurrentHashMap<>();
+    private final ExpiringEntries expiringEntries = new ExpiringEntries();
+    private final Map<TransactionId, List<Entry>> entriesByTransaction = new ConcurrentHashMap<>();
+    private final Map<AccountId, Set<TransactionId>> transactionIdsByAccount = new ConcurrentHashMap<>();
+    private final AccountCurrencies currencies = new AccountCurrencies();
+
+    IndexedEntryRepository() {
+        this(new BalanceCheckpoints());
+    }
+
+    IndexedEntryRepository(BalanceCheckpoints checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    @Override
+    public Optional<Entry> find(EntryId entryId) {
+        return Optional.ofNullable(entries.get(entryId));
+    }
+
+    @Override
+    public void save(Entry entry) {
+        currencies.check(entry);
+        if (entries.putIfAbsent(entry.id(), entry) != null) {
+            return;
+        }
+        entriesByAccount.computeIfAbsent(entry.accountId(), id -> new ConcurrentSkipListMap<>())
+                        .computeIfAbsent(entry.appliesAt(), at -> new EntriesAt())
+                        .add(entry);
+        //referenced entry may belong to an account which is not locked by the writer
+        entry.appliedTo().ifPresent(refId -> entriesByAppliedTo.computeIfAbsent(refId, id -> new CopyOnWriteArrayList<>()).add(entry));
+        //entries of one transaction are saved by writers of different accounts
+        entriesByTransaction.computeIfAbsent(entry.transactionId(), id -> new CopyOnWriteArrayList<>()).add(entry);
+        transactionIdsByAccount.computeIfAbsent(entry.accountId(), id -> ConcurrentHashMap.newKeySet()).add(entry.transactionId());
+        checkpoints.record(entry);
+        bitemporalBalances.record(entry);
+        trackAllocation(entry);
+        expiringEntries.record(entry);
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId) {
+        return flatten(entriesOf(accountId));
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId, Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        return flatten(entriesOf(accountId).subMap(from, true, to, true));
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant when) {
+        Checkpoint checkpoint = checkpoints.nearest(accountId, when);
+        long balance = checkpoint.balance();
+        //only totals per instant are folded - no entry is touched
+        for (EntriesAt entriesAt : entriesOf(accountId).subMap(checkpoint.at(), true, when, true).values()) {
+            balance = Math.addExact(balance, entriesAt.minorUnits());
+        }
+        return currencies.toMoney(accountId, balance);
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        return currencies.toMoney(accountId, bitemporalBalances.balanceAsOf(accountId, appliesAt, knownAt));
+    }
+
+    @Override
+    public Optional<Entry> findMatching(Predicate<Entry> predicate, Comparator<Entry> comparator) {
+        Stream<Entry> stream = entries.values().stream();
+        if (predicate != null) {
+            stream = stream.filter(predicate);
+        }
+        if (comparator != null) {
+            return stream.min(comparator);
+        }
+        return stream.findFirst();
+    }
+
     @Override
     public List<Entry> findAllMatching(Predicate<Entry> predicate) {
         Stream<Entry> stream = entries.values().stream();
@@ -71,4 +335,146 @@ class InMemoryEntryRepository implements EntryRepository {
         }
         return stream.collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Entry> findEntriesReferencing(Entry entry) {
+        return List.copyOf(entriesByAppliedTo.getOrDefault(entry.id(), List.of()));
+    }
+
+    @Override
+    public List<Entry> findAllOf(TransactionId transactionId) {
+        return List.copyOf(entriesByTransaction.getOrDefault(transactionId, List.of()));
+    }
+
+    @Override
+    public List<TransactionId> findTransactionIdsFor(AccountId accountId) {
+        return List.copyOf(transactionIdsByAccount.getOrDefault(accountId, Set.of()));
+    }
+
+    //walks the time index from the position - entries before it are never touched
+    @Override
+    public List<Entry> findPageFor(AccountId accountId, Instant from, Instant to, EntryPosition after, int limit) {
+        Instant start = after == null || after.appliesAt().isBefore(from) ? from : after.appliesAt();
+        if (start.isAfter(to)) {
+            return List.of();
+        }
+        List<Entry> page = new ArrayList<>(limit);
+        for (EntriesAt entriesAt : entriesOf(accountId).subMap(start, true, to, true).values()) {
+            List<Entry> sameInstant = new ArrayList<>(entriesAt.entries());
+            sameInstant.sort(EntryPosition.STATEMENT_ORDER);
+            for (Entry entry : sameInstant) {
+                if (after == null || after.isBefore(entry)) {
+                    page.add(entry);
+                    if (page.size() == limit) {
+                        return page;
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    //only open entries of the account are walked, in allocation order
+    @Override
+    public Optional<Entry> findFirstOpen(EntryAllocationFilter filter) {
+        OpenEntries open = openEntriesByAccount.get(filter.accountId());
+        return open == null ? Optional.empty() : open.first(filter);
+    }
+
+    //expired entries are popped from the expiry index - entries which are used up are no longer there
+    @Override
+    public List<Entry> findExpired(Instant when, ExpiryPosition after, int limit) {
+        return expiringEntries.expiredAsOf(when, after, limit).stream()
+                              .map(entries::get)
+                              .toList();
+    }
+
+    //an entry drops out of the open entries once entries of its account applied to it add up to its amount
+    private void trackAllocation(Entry entry) {
+        if (entry.amountInMinorUnits() != 0) {
+            openEntriesByAccount.computeIfAbsent(entry.accountId(), id -> new OpenEntries()).add(entry);
+        }
+        entry.appliedTo().map(entries::get).filter(allocatedTo -> allocatedTo.accountId().equals(entry.accountId())).ifPresent(allocatedTo -> {
+            long allocated = allocatedMinorUnits.merge(allocatedTo.id(), Math.abs(entry.amountInMinorUnits()), Math::addExact);
+            if (allocated >= Math.abs(allocatedTo.amountInMinorUnits())) {
+                openEntriesByAccount.get(allocatedTo.accountId()).remove(allocatedTo);
+                allocatedMinorUnits.remove(allocatedTo.id());
+            }
+        });
+    }
+
+    private NavigableMap<Instant, EntriesAt> entriesOf(AccountId accountId) {
+        return entriesByAccount.getOrDefault(accountId, emptyNavigableMap());
+    }
+
+    private static List<Entry> flatten(NavigableMap<Instant, EntriesAt> entriesByAppliesAt) {
+        List<Entry> result = new ArrayList<>();
+        entriesByAppliesAt.values().forEach(entriesAt -> result.addAll(entriesAt.entries()));
+        return result;
+    }
+
+    /**
+     * Open entries of one account, per entry type, ordered as in a statement. A lookup walks them in allocation order and stops
+     * at the first one the filter accepts - only open entries not valid at the allocation instant are skipped on the way,
+     * and entries past their validity do not stay open for long, as the expiration sweep uses them up.
+     */
+    private static final class OpenEntries {
+
+        private final Map<Class<? extends Entry>, NavigableSet<Entry>> byType = new ConcurrentHashMap<>();
+
+        void add(Entry entry) {
+            byType.computeIfAbsent(entry.getClass(), type -> new ConcurrentSkipListSet<>(EntryPosition.STATEMENT_ORDER)).add(entry);
+        }
+
+        void remove(Entry entry) {
+            NavigableSet<Entry> ofType = byType.get(entry.getClass());
+            if (ofType != null) {
+                ofType.remove(entry);
+            }
+        }
+
+        Optional<Entry> first(EntryAllocationFilter filter) {
+            boolean lifo = filter.strategy() == EntryAllocationStrategy.LIFO;
+            Comparator<Entry> order = lifo ? EntryPosition.STATEMENT_ORDER.reversed() : EntryPosition.STATEMENT_ORDER;
+            Entry first = null;
+            for (Map.Entry<Class<? extends Entry>, NavigableSet<Entry>> ofType : byType.entrySet()) {
+                if (!filter.admits(ofType.getKey())) {
+                    continue;
+                }
+                //iterators of the set never throw on concurrent removal
+                Iterator<Entry> ordered = lifo ? ofType.getValue().descendingIterator() : ofType.getValue().iterator();
+                while (ordered.hasNext()) {
+                    Entry candidate = ordered.next();
+                    if (first != null && order.compare(candidate, first) >= 0) {
+                        break;
+                    }
+                    if (filter.predicate().test(candidate)) {
+                        first = candidate;
+                        break;
+                    }
+                }
+            }
+            return Optional.ofNullable(first);
+        }
+    }
+
+    //entries of one account applying at the same instant, with their total precomputed in minor units
+    private static final class EntriesAt {
+
+        private final List<Entry> entries = new CopyOnWriteArrayList<>();
+        private volatile long minorUnits;
+
+        void add(Entry entry) {
+            entries.add(entry);
+            minorUnits = Math.addExact(minorUnits, entry.amountInMinorUnits());
+        }
+
+        List<Entry> entries() {
+            return entries;
+        }
+
+        long minorUnits() {
+            return minorUnits;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.softwarearchetypes.accounting;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Signed total of entries, summed in minor units without allocating money objects.
+ * Entries in different currencies are rejected, as {@link Money#add} rejects them. No entries make zero PLN, like a new account.
+ */
+final class EntryTotal {
+
+    private long minorUnits;
+    private String currencyCode;
+
+    EntryTotal add(Entry entry) {
+        return add(entry.amountInMinorUnits(), entry.currencyCode());
+    }
+
+    EntryTotal add(long minorUnits, String currencyCode) {
+        if (this.currencyCode == null) {
+            this.currencyCode = currencyCode;
+        } else {
+            checkArgument(this.currencyCode.equals(currencyCode),
+                    String.format("Cannot combine amounts in different currencies: %s and %s", this.currencyCode, currencyCode));
+        }
+        this.minorUnits = Math.addExact(this.minorUnits, minorUnits);
+        return this;
+    }
+
+    Money toMoney() {
+        return currencyCode == null ? Money.zeroPln() : CompactMoney.toMoney(minorUnits, currencyCode);
+    }
+}
@@ -0,0 +1,14 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.Map;
+
+public record ExpirationSweep(int compensated, Map<EntryId, String> rejected) {
+
+    public ExpirationSweep {
+        rejected = Map.copyOf(rejected);
+    }
+
+    public boolean allCompensated() {
+        return rejected.isEmpty();
+    }
+}
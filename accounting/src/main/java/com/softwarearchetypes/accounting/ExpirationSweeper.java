@@ -0,0 +1,116 @@
+package com.softwarearchetypes.accounting;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.softwarearchetypes.common.Result;
+
+import static com.softwarearchetypes.accounting.BatchPostingMode.BEST_EFFORT;
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Compensates entries whose validity has ended (e.g. expiring loyalty points) by moving what is left of them
+ * to the compensation account. Expired entries are popped from the entry repository's expiry index in batches,
+ * compensations of a batch are posted together through {@link AccountingFacade#execute(List, BatchPostingMode)}.
+ * <p>
+ * Restart safe without keeping any state of its own: a compensated entry is used up, so it is neither returned
+ * by the index again nor compensated twice - a sweep interrupted by a restart is simply repeated by the next one.
+ * A sweep compensates at most {@code batchSize * batchesPerSweep} entries, the rest is left for the following sweeps.
+ * Sweeps of one ledger must not run concurrently.
+ */
+public class ExpirationSweeper {
+
+    private static final Logger LOGGER = System.getLogger(ExpirationSweeper.class.getName());
+
+    private final EntryRepository entryRepository;
+    private final TransactionBuilderFactory transactionBuilderFactory;
+    private final AccountingFacade accountingFacade;
+    private final Clock clock;
+    private final AccountId compensationAccount;
+    private final int batchSize;
+    private final int batchesPerSweep;
+
+    ExpirationSweeper(EntryRepository entryRepository, TransactionBuilderFactory transactionBuilderFactory, AccountingFacade accountingFacade, Clock clock,
+                      AccountId compensationAccount, int batchSize, int batchesPerSweep) {
+        checkArgument(batchSize > 0, "Batch size must be positive");
+        checkArgument(batchesPerSweep > 0, "Batches per sweep must be positive");
+        this.entryRepository = entryRepository;
+        this.transactionBuilderFactory = transactionBuilderFactory;
+        this.accountingFacade = accountingFacade;
+        this.clock = clock;
+        this.compensationAccount = compensationAccount;
+        this.batchSize = batchSize;
+        this.batchesPerSweep = batchesPerSweep;
+    }
+
+    public ExpirationSweep sweep() {
+        Instant now = clock.instant();
+        ExpiryPosition after = null;
+        int compensated = 0;
+        Map<EntryId, String> rejected = new HashMap<>();
+        for (int batch = 0; batch < batchesPerSweep; batch++) {
+            List<Entry> expired = entryRepository.findExpired(now, after, batchSize);
+            if (expired.isEmpty()) {
+                break;
+            }
+            //rejected entries are passed over - they are retried by the next sweep, not by the next batch
+            after = ExpiryPosition.of(expired.getLast());
+            List<Transaction> compensations = new ArrayList<>();
+            Map<TransactionId, EntryId> compensatedEntries = new HashMap<>();
+            for (Entry entry : expired) {
+                try {
+                    compensationOf(entry, now).ifPresent(compensation -> {
+                        compensations.add(compensation);
+                        compensatedEntries.put(compensation.id(), entry.id());
+                    });
+                } catch (IllegalArgumentException ex) {
+                    rejected.put(entry.id(), ex.getMessage());
+                }
+            }
+            if (compensations.isEmpty()) {
+                continue;
+            }
+            Result<String, BatchPostingResult> result = accountingFacade.execute(compensations, BEST_EFFORT);
+            if (result.failure()) {
+                compensatedEntries.values().forEach(entryId -> rejected.put(entryId, result.getFailure()));
+                continue;
+            }
+            compensated += result.getSuccess().posted().size();
+            result.getSuccess().rejected().forEach((transactionId, error) -> rejected.put(compensatedEntries.get(transactionId), error));
+        }
+        return new ExpirationSweep(compensated, rejected);
+    }
+
+    //fixed delay - a sweep never starts before the previous one has finished
+    public ScheduledFuture<?> scheduleOn(ScheduledExecutorService scheduler, Duration interval) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException ex) {
+                //an exception would cancel the schedule - the failed sweep is repeated by the next one
+                LOGGER.log(Level.WARNING, "Expiration sweep failed, it is repeated in " + interval, ex);
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    //applies when the entry expired, so balances as of any later moment no longer include it
+    private Optional<Transaction> compensationOf(Entry entry, Instant now) {
+        return transactionBuilderFactory.transaction()
+                                        .occurredAt(now)
+                                        .appliesAt(entry.validity().validTo())
+                                        .compensatingExpired(entry)
+                                        .withCompensationAccount(compensationAccount)
+                                        .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Open entries of bounded validity, ordered by {@code validTo} - expired entries are found without looking
+ * at entries expiring later or at entries already used up.
+ * <p>
+ * An entry drops out once entries of its own account applied to it add up to its amount - e.g. when its expiration
+ * is compensated. Entries on other accounts pointing at it (like the compensation account's entry) do not use it up.
+ * Same threading contract as {@link BalanceCheckpoints}, except that an entry may be applied to an entry of an account
+ * not locked by the writer - remaining amounts are updated atomically.
+ */
+class ExpiringEntries {
+
+    private final NavigableMap<ExpiryPosition, EntryId> byValidTo = new ConcurrentSkipListMap<>();
+    private final Map<EntryId, Open> open = new ConcurrentHashMap<>();
+
+    void record(Entry entry) {
+        record(entry.id(), entry.accountId(), entry.amountInMinorUnits(), entry.validity().validTo(), entry.appliedTo());
+    }
+
+    //must be called exactly once per entry, not earlier than for the entry it is applied to
+    void record(EntryId id, AccountId accountId, long amount, Instant validTo, Optional<EntryId> appliedTo) {
+        appliedTo.ifPresent(refId -> open.computeIfPresent(refId, (ref, entry) -> {
+            if (!entry.accountId().equals(accountId)) {
+                return entry;
+            }
+            long remaining = entry.remaining() - Math.abs(amount);
+            if (remaining > 0) {
+                return new Open(entry.position(), entry.accountId(), remaining);
+            }
+            byValidTo.remove(entry.position());
+            return null;
+        }));
+        if (!Instant.MAX.equals(validTo) && amount != 0) {
+            ExpiryPosition position = new ExpiryPosition(validTo, id);
+            open.put(id, new Open(position, accountId, Math.abs(amount)));
+            byValidTo.put(position, id);
+        }
+    }
+
+    //at most limit entries which expired not later than when, in expiry order, following the given position unless it is null
+    List<EntryId> expiredAsOf(Instant when, ExpiryPosition after, int limit) {
+        NavigableMap<ExpiryPosition, EntryId> candidates = after == null ? byValidTo : byValidTo.tailMap(after, false);
+        List<EntryId> expired = new ArrayList<>();
+        for (Map.Entry<ExpiryPosition, EntryId> candidate : candidates.entrySet()) {
+            if (expired.size() == limit || candidate.getKey().validTo().isAfter(when)) {
+                break;
+            }
+            expired.add(candidate.getValue());
+        }
+        return expired;
+    }
+
+    //remaining in minor units, always positive
+    private record Open(ExpiryPosition position, AccountId accountId, long remaining) {
+    }
+}
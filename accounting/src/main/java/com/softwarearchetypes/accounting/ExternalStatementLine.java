@@ -0,0 +1,19 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Line of an external statement, e.g. of a bank statement file.
+ *
+ * @param lineNumber line of the statement file it was read from, counted from 1
+ * @param amount     signed like entries of the reconciled account - positive amounts are credits
+ */
+public record ExternalStatementLine(long lineNumber, Instant bookedAt, Money amount, Map<String, String> metadata) {
+
+    public ExternalStatementLine {
+        metadata = Map.copyOf(metadata);
+    }
+}
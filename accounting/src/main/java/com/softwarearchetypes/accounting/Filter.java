@@ -0,0 +1,237 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Inspectable conditions selecting entries of a projection account.
+ * Account level conditions ({@link AccountIn}, {@link AccountNameContains}) select accounts,
+ * entry level conditions select entries of those accounts. Repositories are free to evaluate
+ * both kinds against their indexes (or translate them to SQL, see {@link SqlFilter}),
+ * only the opaque, predicate based conditions have to be evaluated in memory.
+ */
+sealed interface Filter permits Filter.AccountIn, Filter.AccountNameContains, Filter.MetadataEquals,
+        Filter.OccurredNotAfter, Filter.OccurredNotBefore, Filter.OccurredMatching, Filter.AmountMatching,
+        Filter.EntryMatching, Filter.And {
+
+    Filter ALL = new And(List.of());
+
+    static Filter just(Predicate<Entry> entryFilter) {
+        return new EntryMatching(entryFilter);
+    }
+
+    static Filter allOf(List<Filter> conditions) {
+        return conditions.size() == 1 ? conditions.getFirst() : new And(conditions);
+    }
+
+    boolean matchesAccount(AccountId accountId, String accountName);
+
+    boolean matches(Entry entry);
+
+    default Filter and(Filter other) {
+        List<Filter> conditions = new ArrayList<>(this.conditions());
+        conditions.addAll(other.conditions());
+        return allOf(conditions);
+    }
+
+    default List<Filter> conditions() {
+        return List.of(this);
+    }
+
+    /**
+     * Accounts the filter is narrowed to, empty when any account may match.
+     */
+    default Optional<Set<AccountId>> accountIds() {
+        return Optional.empty();
+    }
+
+    /**
+     * False when every entry of a matching account matches, so projection balance is just a sum of account balances.
+     */
+    default boolean constrainsEntries() {
+        return true;
+    }
+
+    record AccountIn(Set<AccountId> ids) implements Filter {
+
+        public AccountIn {
+            checkArgument(ids != null, "Account ids must be defined");
+            ids = Set.copyOf(ids);
+        }
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return ids.contains(accountId);
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return ids.contains(entry.accountId());
+        }
+
+        @Override
+        public Optional<Set<AccountId>> accountIds() {
+            return Optional.of(ids);
+        }
+
+        @Override
+        public boolean constrainsEntries() {
+            return false;
+        }
+    }
+
+    record AccountNameContains(String text) implements Filter {
+
+        public AccountNameContains {
+            checkArgument(text != null, "Searched text must be defined");
+        }
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return accountName != null && accountName.contains(text);
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return true;
+        }
+
+        @Override
+        public boolean constrainsEntries() {
+            return false;
+        }
+    }
+
+    record MetadataEquals(String key, String value) implements Filter {
+
+        public MetadataEquals {
+            checkArgument(key != null && value != null, "Metadata key and value must be defined");
+        }
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return value.equals(entry.metadata().metadata().get(key));
+        }
+    }
+
+    record OccurredNotAfter(Instant instant) implements Filter {
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return !entry.occurredAt().isAfter(instant);
+        }
+    }
+
+    record OccurredNotBefore(Instant instant) implements Filter {
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return !entry.occurredAt().isBefore(instant);
+        }
+    }
+
+    //opaque - cannot be pushed down to the database
+    record OccurredMatching(Predicate<Instant> predicate) implements Filter {
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return predicate.test(entry.occurredAt());
+        }
+    }
+
+    //opaque - cannot be pushed down to the database
+    record AmountMatching(Predicate<Money> predicate) implements Filter {
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return predicate.test(entry.amount());
+        }
+    }
+
+    //opaque - cannot be pushed down to the database
+    record EntryMatching(Predicate<Entry> predicate) implements Filter {
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return true;
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return predicate.test(entry);
+        }
+    }
+
+    record And(List<Filter> conditions) implements Filter {
+
+        public And {
+            checkArgument(conditions != null, "Conditions must be defined");
+            conditions = conditions.stream().flatMap(it -> it.conditions().stream()).toList();
+        }
+
+        @Override
+        public boolean matchesAccount(AccountId accountId, String accountName) {
+            return conditions.stream().allMatch(it -> it.matchesAccount(accountId, accountName));
+        }
+
+        @Override
+        public boolean matches(Entry entry) {
+            return conditions.stream().allMatch(it -> it.matches(entry));
+        }
+
+        @Override
+        public Optional<Set<AccountId>> accountIds() {
+            Set<AccountId> narrowed = null;
+            for (Filter condition : conditions) {
+                Optional<Set<AccountId>> ids = condition.accountIds();
+                if (ids.isPresent()) {
+                    if (narrowed == null) {
+                        narrowed = new HashSet<>(ids.get());
+                    } else {
+                        narrowed.retainAll(ids.get());
+                    }
+                }
+            }
+            return Optional.ofNullable(narrowed);
+        }
+
+        @Override
+        public boolean constrainsEntries() {
+            return conditions.stream().anyMatch(Filter::constrainsEntries);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.softwarearchetypes.accounting;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Decides how often appends to the ledger journal are forced to the storage device.
+ * Posted transactions not yet forced survive a crash of the application, but not of the machine.
+ */
+public record FsyncPolicy(int appendsPerSync) {
+
+    public FsyncPolicy {
+        checkArgument(appendsPerSync >= 0, "Appends per sync cannot be negative");
+    }
+
+    /**
+     * Every posting is durable before it is acknowledged.
+     */
+    public static FsyncPolicy everyAppend() {
+        return new FsyncPolicy(1);
+    }
+
+    public static FsyncPolicy every(int appends) {
+        checkArgument(appends > 0, "Appends per sync must be positive");
+        return new FsyncPolicy(appends);
+    }
+
+    /**
+     * Forcing is left to the operating system and to closing the journal.
+     */
+    public static FsyncPolicy onClose() {
+        return new FsyncPolicy(0);
+    }
+
+    boolean shouldSync(int appendsSinceSync) {
+        return appendsPerSync > 0 && appendsSinceSync >= appendsPerSync;
+    }
+}
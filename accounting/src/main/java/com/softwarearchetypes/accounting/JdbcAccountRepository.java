@@ -0,0 +1,200 @@
+package com.softwarearchetypes.accounting;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.softwarearchetypes.common.Version;
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Accounts are saved with optimistic locking on their version column - an account modified by anyone else
+ * since it was loaded fails the whole save. Accounts are updated in batches, or one at a time once the driver leaves out row counts of batches.
+ * New entries of saved accounts go to the entry repository in one batch.
+ * Must be called within a database transaction, see {@link DatabaseTransactions}.
+ */
+class JdbcAccountRepository implements AccountRepository {
+
+    private static final String UPDATE_ACCOUNT = """
+            UPDATE accounts
+            SET balance = ?, currency = ?, version = ?
+            WHERE id = ? AND version = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcEntryRepository entryRepository;
+    //filters may hold predicates, which cannot be stored - projections live as long as the application, like posting rules
+    private final Map<AccountId, ProjectionAccount> projectionAccounts = new ConcurrentHashMap<>();
+    private volatile boolean batchRowCountsReported = true;
+
+    JdbcAccountRepository(JdbcTemplate jdbcTemplate, JdbcEntryRepository entryRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entryRepository = entryRepository;
+    }
+
+    @Override
+    public Optional<Account> find(AccountId accountId) {
+        if (projectionAccounts.containsKey(accountId)) {
+            return Optional.of(getProjection(projectionAccounts.get(accountId)));
+        }
+        return jdbcTemplate.query("select * from accounts where id = ?", AccountRowMapper.rowMapper, accountId.uuid())
+                           .stream()
+                           .findFirst();
+    }
+
+    @Override
+    public Account save(Account account) {
+        save(List.of(account));
+        return account;
+    }
+
+    @Override
+    public void save(Collection<Account> accounts) {
+        List<Account> created = accounts.stream().filter(account -> account.version().equals(Version.initial())).toList();
+        List<Account> modified = accounts.stream().filter(account -> !account.version().equals(Version.initial())).toList();
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO accounts
+                        (id, type, name, balance, currency, version)
+                        VALUES
+                        (?, ?, ?, ?, ?, ?)
+                        """,
+                created,
+                100,
+                (PreparedStatement ps, Account account) -> {
+                    ps.setObject(1, account.id().uuid());
+                    ps.setString(2, account.type().name());
+                    ps.setString(3, account.name());
+                    ps.setLong(4, account.compactBalance().minorUnits());
+                    ps.setString(5, account.compactBalance().currencyCode());
+                    ps.setLong(6, account.version().value() + 1);
+                });
+        if (!updated(modified)) {
+            throw new IllegalStateException(format("Accounts %s were modified concurrently", modified.stream().map(Account::id).toList()));
+        }
+        List<Entry> newEntries = new ArrayList<>();
+        accounts.forEach(account -> newEntries.addAll(account.entries().toList()));
+        entryRepository.save(newEntries);
+        accounts.forEach(Account::markSaved);
+    }
+
+    //a batched update reported without its row count cannot tell a stale version - such a save is rolled back, later ones update row by row
+    private boolean updated(List<Account> modified) {
+        if (!batchRowCountsReported) {
+            return modified.stream().allMatch(account -> jdbcTemplate.update(UPDATE_ACCOUNT, ps -> bindUpdate(ps, account)) == 1);
+        }
+        int[] counts = Stream.of(jdbcTemplate.batchUpdate(UPDATE_ACCOUNT, modified, 100, JdbcAccountRepository::bindUpdate))
+                             .flatMapToInt(IntStream::of)
+                             .toArray();
+        if (IntStream.of(counts).anyMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+            batchRowCountsReported = false;
+            throw new IllegalStateException(format("Updates of accounts %s were not counted, concurrent modification cannot be ruled out",
+                    modified.stream().map(Account::id).toList()));
+        }
+        return IntStream.of(counts).allMatch(count -> count == 1);
+    }
+
+    private static void bindUpdate(PreparedStatement ps, Account account) throws SQLException {
+        ps.setLong(1, account.compactBalance().minorUnits());
+        ps.setString(2, account.compactBalance().currencyCode());
+        ps.setLong(3, account.version().value() + 1);
+        ps.setObject(4, account.id().uuid());
+        ps.setLong(5, account.version().value());
+    }
+
+    @Override
+    public ProjectionAccount save(ProjectionAccount projection) {
+        return projectionAccounts.put(projection.id(), projection);
+    }
+
+    @Override
+    public List<Account> findAll() {
+        List<Account> allAccounts = new ArrayList<>(jdbcTemplate.query("select * from accounts", AccountRowMapper.rowMapper));
+        projectionAccounts.values().forEach(projection -> allAccounts.add(getProjection(projection)));
+        return allAccounts;
+    }
+
+    @Override
+    public Map<AccountId, Account> find(Set<AccountId> accounts) {
+        Map<AccountId, Account> found = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (AccountId accountId : accounts) {
+            if (projectionAccounts.containsKey(accountId)) {
+                found.put(accountId, getProjection(projectionAccounts.get(accountId)));
+            } else {
+                ids.add(accountId.uuid());
+            }
+        }
+        if (!ids.isEmpty()) {
+            jdbcTemplate.query("select * from accounts where id in (" + ids.stream().map(it -> "?").collect(joining(", ")) + ")",
+                                AccountRowMapper.rowMapper, ids.toArray())
+                        .forEach(account -> found.put(account.id(), account));
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<ProjectionAccount> findProjection(AccountId projectionId) {
+        return Optional.ofNullable(projectionAccounts.get(projectionId));
+    }
+
+    @Override
+    public List<Account> findAccountsMatching(Filter filter) {
+        SqlFilter accountFilter = SqlFilter.forAccounts(filter);
+        return jdbcTemplate.query("select a.* from accounts a where " + accountFilter.whereClause(),
+                AccountRowMapper.rowMapper, accountFilter.parameters().toArray());
+    }
+
+    //fully translated filters are summed by the database, otherwise the residual conditions are checked on the narrowed entries
+    private Account getProjection(ProjectionAccount projectionAccount) {
+        SqlFilter filter = SqlFilter.from(projectionAccount.filter());
+        Money balance;
+        if (filter.fullyTranslated()) {
+            balance = JdbcEntryRepository.balanceOf(projectionAccount.id(), jdbcTemplate.query("""
+                            SELECT e.currency, SUM(e.amount) AS balance
+                            FROM entries e
+                            JOIN accounts a ON a.id = e.account_id
+                            WHERE\s""" + filter.whereClause() + " GROUP BY e.currency",
+                    JdbcEntryRepository.BALANCE, filter.parameters().toArray()));
+        } else {
+            EntryTotal total = new EntryTotal();
+            for (Entry entry : entryRepository.findAllMatching(filter)) {
+                if (filter.residual().matches(entry)) {
+                    total.add(entry);
+                }
+            }
+            balance = total.toMoney();
+        }
+        return new Account(projectionAccount.id(), AccountType.OFF_BALANCE, AccountName.of(projectionAccount.desc()),
+                balance, projectionAccount.version());
+    }
+}
+
+class AccountRowMapper {
+
+    static RowMapper<Account> rowMapper =
+            (rs, rowNum) -> new Account(
+                    AccountId.of(UUID.fromString(rs.getString("id"))),
+                    AccountType.valueOf(rs.getString("type")),
+                    AccountName.of(rs.getString("name")),
+                    CompactMoney.toMoney(rs.getLong("balance"), rs.getString("currency")),
+                    Version.of(rs.getLong("version")));
+}
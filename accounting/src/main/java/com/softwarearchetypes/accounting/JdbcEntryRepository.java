@@ -0,0 +1,387 @@
+package com.softwarearchetypes.accounting;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.lang.String.format;
+import static java.sql.Timestamp.from;
+
+/**
+ * Entries are append-only - they are only ever inserted, in JDBC batches together with their metadata.
+ * Amounts are stored signed, in minor units, next to their currency, so balances are summed by the database
+ * using the (account_id, applies_at) index.
+ */
+class JdbcEntryRepository implements EntryRepository {
+
+    //entries matched by predicates are read in pages of this size, so the whole table is never held in memory
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    static final RowMapper<Money> BALANCE = (rs, rowNum) -> CompactMoney.toMoney(rs.getLong("balance"), rs.getString("currency"));
+
+    private static final String SELECT_ENTRIES = """
+            SELECT e.*, md.meta_key, md.meta_value
+            FROM entries e
+            LEFT JOIN entry_metadata md ON md.entry_id = e.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    JdbcEntryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Entry> find(EntryId entryId) {
+        return jdbcTemplate.query(SELECT_ENTRIES + "WHERE e.id = ?", EntryRowMapper.extractor, entryId.value())
+                           .stream()
+                           .findFirst();
+    }
+
+    @Override
+    public void save(Entry entry) {
+        save(List.of(entry));
+    }
+
+    @Override
+    public void save(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO entries
+                        (id, transaction_id, account_id, entry_type, amount, currency, occurred_at, applies_at, valid_from, valid_to, applied_to)
+                        VALUES
+                        (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                entries,
+                100,
+                (PreparedStatement ps, Entry entry) -> {
+                    ps.setObject(1, entry.id().value());
+                    ps.setObject(2, entry.transactionId().value());
+                    ps.setObject(3, entry.accountId().uuid());
+                    ps.setString(4, entry instanceof AccountCredited ? "CREDIT" : "DEBIT");
+                    ps.setLong(5, entry.amountInMinorUnits());
+                    ps.setString(6, entry.currencyCode());
+                    ps.setTimestamp(7, from(entry.occurredAt()));
+                    ps.setTimestamp(8, from(entry.appliesAt()));
+                    ps.setTimestamp(9, from(entry.validity().validFrom()));
+                    //Instant.MAX does not fit in a timestamp - open ended validity is stored as null
+                    ps.setTimestamp(10, Instant.MAX.equals(entry.validity().validTo()) ? null : from(entry.validity().validTo()));
+                    ps.setObject(11, entry.appliedTo().map(EntryId::value).orElse(null));
+                });
+        List<Map.Entry<EntryId, Map.Entry<String, String>>> metadata = entries.stream()
+                                                                              .flatMap(entry -> entry.metadata().metadata().entrySet().stream()
+                                                                                                     .map(it -> Map.entry(entry.id(), it)))
+                                                                              .toList();
+        if (metadata.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO entry_metadata
+                        (entry_id, meta_key, meta_value)
+                        VALUES
+                        (?, ?, ?)
+                        """,
+                metadata,
+                100,
+                (PreparedStatement ps, Map.Entry<EntryId, Map.Entry<String, String>> it) -> {
+                    ps.setObject(1, it.getKey().value());
+                    ps.setString(2, it.getValue().getKey());
+                    ps.setString(3, it.getValue().getValue());
+                });
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId) {
+        return jdbcTemplate.query(SELECT_ENTRIES + "WHERE e.account_id = ? ORDER BY e.applies_at",
+                EntryRowMapper.extractor, accountId.uuid());
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId, Instant from, Instant to) {
+        return jdbcTemplate.query(SELECT_ENTRIES + "WHERE e.account_id = ? AND e.applies_at >= ? AND e.applies_at <= ? ORDER BY e.applies_at",
+                EntryRowMapper.extractor, accountId.uuid(), from(from), from(to));
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant when) {
+        return balanceOf(accountId, jdbcTemplate.query(
+                "SELECT currency, SUM(amount) AS balance FROM entries WHERE account_id = ? AND applies_at <= ? GROUP BY currency",
+                BALANCE, accountId.uuid(), from(when)));
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        return balanceOf(accountId, jdbcTemplate.query(
+                "SELECT currency, SUM(amount) AS balance FROM entries WHERE account_id = ? AND applies_at <= ? AND occurred_at <= ? GROUP BY currency",
+                BALANCE, accountId.uuid(), from(appliesAt), from(knownAt)));
+    }
+
+    //an account without entries has a zero balance, like a new account
+    static Money balanceOf(AccountId accountId, List<Money> balancesByCurrency) {
+        if (balancesByCurrency.size() > 1) {
+            throw new IllegalStateException(format("Entries of account %s are in different currencies", accountId));
+        }
+        return balancesByCurrency.isEmpty() ? Money.zeroPln() : balancesByCurrency.getFirst();
+    }
+
+    //keyset pagination on the (account_id, applies_at) index - the cost of a page does not grow with its distance from the start
+    @Override
+    public List<Entry> findPageFor(AccountId accountId, Instant from, Instant to, EntryPosition after, int limit) {
+        String position = after == null ? "" : "AND (e.applies_at > ? OR (e.applies_at = ? AND e.id > ?))";
+        List<Object> parameters = new ArrayList<>(List.of(accountId.uuid(), from(from), from(to)));
+        if (after != null) {
+            parameters.addAll(List.of(from(after.appliesAt()), from(after.appliesAt()), after.entryId().value()));
+        }
+        parameters.add(limit);
+        //entries are limited before metadata is joined - the join multiplies rows
+        return jdbcTemplate.query("""
+                        SELECT e.*, md.meta_key, md.meta_value
+                        FROM (SELECT * FROM entries e
+                              WHERE e.account_id = ? AND e.applies_at >= ? AND e.applies_at <= ?
+                              %s
+                              ORDER BY e.applies_at, e.id
+                              LIMIT ?) e
+                        LEFT JOIN entry_metadata md ON md.entry_id = e.id
+                        ORDER BY e.applies_at, e.id
+                        """.formatted(position),
+                EntryRowMapper.extractor, parameters.toArray());
+    }
+
+    //one query - the account's entries are narrowed by type and validity, used up entries are skipped probing the applied_to index
+    @Override
+    public Optional<Entry> findFirstOpen(EntryAllocationFilter filter) {
+        List<Object> parameters = new ArrayList<>(List.of(filter.accountId().uuid()));
+        StringBuilder criteria = new StringBuilder();
+        if (filter.admits(AccountCredited.class) != filter.admits(AccountDebited.class)) {
+            criteria.append("AND e.entry_type = ? ");
+            parameters.add(filter.admits(AccountCredited.class) ? "CREDIT" : "DEBIT");
+        } else if (!filter.admits(AccountCredited.class)) {
+            return Optional.empty();
+        }
+        if (filter.validAt() != null) {
+            criteria.append("AND e.valid_from <= ? AND (e.valid_to IS NULL OR e.valid_to > ?)");
+            parameters.addAll(List.of(from(filter.validAt()), from(filter.validAt())));
+        }
+        String direction = filter.strategy() == EntryAllocationStrategy.LIFO ? "DESC" : "ASC";
+        return jdbcTemplate.query("""
+                        SELECT e.*, md.meta_key, md.meta_value
+                        FROM (SELECT * FROM entries e
+                              WHERE e.account_id = ?
+                              %s
+                              AND ABS(e.amount) > (SELECT COALESCE(SUM(ABS(r.amount)), 0) FROM entries r
+                                                   WHERE r.applied_to = e.id AND r.account_id = e.account_id)
+                              ORDER BY e.applies_at %s, e.id %s
+                              LIMIT 1) e
+                        LEFT JOIN entry_metadata md ON md.entry_id = e.id
+                        """.formatted(criteria, direction, direction),
+                EntryRowMapper.extractor, parameters.toArray()).stream().findFirst();
+    }
+
+    //keyset walk of the (valid_to, id) index - used up entries are skipped in the database, probing the applied_to index
+    @Override
+    public List<Entry> findExpired(Instant when, ExpiryPosition after, int limit) {
+        String position = after == null ? "" : "AND (e.valid_to > ? OR (e.valid_to = ? AND e.id > ?))";
+        List<Object> parameters = new ArrayList<>(List.of(from(when)));
+        if (after != null) {
+            parameters.addAll(List.of(from(after.validTo()), from(after.validTo()), after.entryId().value()));
+        }
+        parameters.add(limit);
+        return jdbcTemplate.query("""
+                        SELECT e.*, md.meta_key, md.meta_value
+                        FROM (SELECT * FROM entries e
+                              WHERE e.valid_to <= ?
+                              %s
+                              AND ABS(e.amount) > (SELECT COALESCE(SUM(ABS(r.amount)), 0) FROM entries r
+                                                   WHERE r.applied_to = e.id AND r.account_id = e.account_id)
+                              ORDER BY e.valid_to, e.id
+                              LIMIT ?) e
+                        LEFT JOIN entry_metadata md ON md.entry_id = e.id
+                        ORDER BY e.valid_to, e.id
+                        """.formatted(position),
+                EntryRowMapper.extractor, parameters.toArray());
+    }
+
+    //predicates cannot be translated to SQL - entries are matched in memory page by page, only the best match is kept
+    @Override
+    public Optional<Entry> findMatching(Predicate<Entry> predicate, Comparator<Entry> comparator) {
+        List<Entry> found = new ArrayList<>(1);
+        scan(entry -> {
+            if (predicate == null || predicate.test(entry)) {
+                if (found.isEmpty()) {
+                    found.add(entry);
+                } else if (comparator != null && comparator.compare(entry, found.getFirst()) < 0) {
+                    found.set(0, entry);
+                }
+            }
+            //without an order the first match will do
+            return comparator != null || found.isEmpty();
+        });
+        return found.stream().findFirst();
+    }
+
+    //fallback for predicates which cannot be translated to SQL - only matching entries are held in memory
+    @Override
+    public List<Entry> findAllMatching(Predicate<Entry> predicate) {
+        List<Entry> entries = new ArrayList<>();
+        scan(entry -> {
+            if (predicate == null || predicate.test(entry)) {
+                entries.add(entry);
+            }
+            return true;
+        });
+        return entries;
+    }
+
+    //keyset walk of the primary key, page by page, as long as the visitor asks for more
+    private void scan(Predicate<Entry> visitor) {
+        UUID after = null;
+        while (true) {
+            List<Entry> page = jdbcTemplate.query("""
+                            SELECT e.*, md.meta_key, md.meta_value
+                            FROM (SELECT * FROM entries e
+                                  %s
+                                  ORDER BY e.id
+                                  LIMIT ?) e
+                            LEFT JOIN entry_metadata md ON md.entry_id = e.id
+                            ORDER BY e.id
+                            """.formatted(after == null ? "" : "WHERE e.id > ?"),
+                    EntryRowMapper.extractor, after == null ? new Object[]{SCAN_PAGE_SIZE} : new Object[]{after, SCAN_PAGE_SIZE});
+            for (Entry entry : page) {
+                if (!visitor.test(entry)) {
+                    return;
+                }
+            }
+            if (page.size() < SCAN_PAGE_SIZE) {
+                return;
+            }
+            after = page.getLast().id().value();
+        }
+    }
+
+    @Override
+    public List<Entry> findEntriesReferencing(Entry entry) {
+        return jdbcTemplate.query(SELECT_ENTRIES + "WHERE e.applied_to = ?", EntryRowMapper.extractor, entry.id().value());
+    }
+
+    @Override
+    public List<Entry> findAllOf(TransactionId transactionId) {
+        return jdbcTemplate.query(SELECT_ENTRIES + "WHERE e.transaction_id = ?", EntryRowMapper.extractor, transactionId.value());
+    }
+
+    @Override
+    public List<TransactionId> findTransactionIdsFor(AccountId accountId) {
+        return jdbcTemplate.query("SELECT DISTINCT transaction_id FROM entries WHERE account_id = ?",
+                (rs, rowNum) -> TransactionId.of(rs.getObject("transaction_id", UUID.class)), accountId.uuid());
+    }
+
+    //residual conditions of the filter are left to the caller
+    List<Entry> findAllMatching(SqlFilter filter) {
+        return jdbcTemplate.query("""
+                        SELECT e.*, md.meta_key, md.meta_value
+                        FROM entries e
+                        JOIN accounts a ON a.id = e.account_id
+                        LEFT JOIN entry_metadata md ON md.entry_id = e.id
+                        WHERE\s""" + filter.whereClause(),
+                EntryRowMapper.extractor, filter.parameters().toArray());
+    }
+}
+
+class EntryRowMapper {
+
+    //metadata is joined - an entry spans as many rows as it has metadata entries
+    static ResultSetExtractor<List<Entry>> extractor =
+            rs -> {
+                Map<UUID, EntryRow> rows = new LinkedHashMap<>();
+                while (rs.next()) {
+                    UUID id = UUID.fromString(rs.getString("id"));
+                    EntryRow row = rows.get(id);
+                    if (row == null) {
+                        row = EntryRow.from(id, rs);
+                        rows.put(id, row);
+                    }
+                    String key = rs.getString("meta_key");
+                    if (key != null) {
+                        row.metadata.put(key, rs.getString("meta_value"));
+                    }
+                }
+                return rows.values().stream().map(EntryRow::toEntry).toList();
+            };
+
+    private static final class EntryRow {
+
+        private final EntryId id;
+        private final TransactionId transactionId;
+        private final AccountId accountId;
+        private final boolean credit;
+        private final long amount;
+        private final String currency;
+        private final Instant occurredAt;
+        private final Instant appliesAt;
+        private final Validity validity;
+        private final Optional<EntryId> appliedTo;
+        private final Map<String, String> metadata = new HashMap<>();
+
+        private EntryRow(EntryId id, TransactionId transactionId, AccountId accountId, boolean credit, long amount, String currency,
+                         Instant occurredAt, Instant appliesAt, Validity validity, Optional<EntryId> appliedTo) {
+            this.id = id;
+            this.transactionId = transactionId;
+            this.accountId = accountId;
+            this.credit = credit;
+            this.amount = amount;
+            this.currency = currency;
+            this.occurredAt = occurredAt;
+            this.appliesAt = appliesAt;
+            this.validity = validity;
+            this.appliedTo = appliedTo;
+        }
+
+        static EntryRow from(UUID id, ResultSet rs) throws SQLException {
+            Timestamp validTo = rs.getTimestamp("valid_to");
+            String appliedTo = rs.getString("applied_to");
+            return new EntryRow(
+                    new EntryId(id),
+                    TransactionId.of(UUID.fromString(rs.getString("transaction_id"))),
+                    AccountId.of(UUID.fromString(rs.getString("account_id"))),
+                    "CREDIT".equals(rs.getString("entry_type")),
+                    rs.getLong("amount"),
+                    rs.getString("currency"),
+                    rs.getTimestamp("occurred_at").toInstant(),
+                    rs.getTimestamp("applies_at").toInstant(),
+                    new Validity(rs.getTimestamp("valid_from").toInstant(), validTo == null ? Instant.MAX : validTo.toInstant()),
+                    Optional.ofNullable(appliedTo).map(it -> new EntryId(UUID.fromString(it))));
+        }
+
+        Entry toEntry() {
+            MetaData metaData = metadata.isEmpty() ? MetaData.empty() : MetaData.of(Map.copyOf(metadata));
+            //debit keeps its amount positive and negates it on read - the stored amount is already signed
+            if (credit) {
+                return new AccountCredited(id, transactionId, accountId, CompactMoney.toMoney(amount, currency),
+                        appliesAt, occurredAt, metaData, validity, appliedTo);
+            }
+            return new AccountDebited(id, transactionId, accountId, CompactMoney.toMoney(Math.negateExact(amount), currency),
+                    appliesAt, occurredAt, metaData, validity, appliedTo);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.sql.Timestamp.from;
+
+/**
+ * Totals are grouped and summed by the database - signed amounts let a single SUM cover credits and debits of a currency.
+ */
+class JdbcLedgerAggregation implements LedgerAggregation {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    JdbcLedgerAggregation(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<AccountType, Map<String, Money>> totalsByAccountType(Instant asOf) {
+        Map<AccountType, Map<String, Money>> totals = new EnumMap<>(AccountType.class);
+        jdbcTemplate.query("""
+                        SELECT a.type, e.currency, SUM(e.amount) AS total
+                        FROM entries e
+                        JOIN accounts a ON a.id = e.account_id
+                        WHERE e.applies_at <= ?
+                        GROUP BY a.type, e.currency
+                        HAVING SUM(e.amount) <> 0
+                        """,
+                rs -> {
+                    String currency = rs.getString("currency");
+                    totals.computeIfAbsent(AccountType.valueOf(rs.getString("type")), type -> new HashMap<>())
+                          .put(currency, CompactMoney.toMoney(rs.getLong("total"), currency));
+                },
+                from(asOf));
+        return totals;
+    }
+
+    @Override
+    public Map<String, Map<String, Money>> totalsByMetadata(String key, Instant asOf) {
+        Map<String, Map<String, Money>> totals = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT md.meta_value, e.currency, SUM(e.amount) AS total
+                        FROM entries e
+                        JOIN entry_metadata md ON md.entry_id = e.id
+                        WHERE md.meta_key = ? AND e.applies_at <= ?
+                        GROUP BY md.meta_value, e.currency
+                        HAVING SUM(e.amount) <> 0
+                        """,
+                rs -> {
+                    String currency = rs.getString("currency");
+                    totals.computeIfAbsent(rs.getString("meta_value"), value -> new HashMap<>())
+                          .put(currency, CompactMoney.toMoney(rs.getLong("total"), currency));
+                },
+                key, from(asOf));
+        return totals;
+    }
+}
@@ -0,0 +1,101 @@
+package com.softwarearchetypes.accounting;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static java.sql.Timestamp.from;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Transactions are stored without their entries - entries belong to accounts and are found by the transaction_id index.
+ */
+class JdbcTransactionRepository implements TransactionRepository {
+
+    //entries of a stored transaction were validated when it was posted
+    private static final TransactionEntriesConstraint ALREADY_POSTED = new TransactionEntriesConstraint() {
+        @Override
+        public String errorMessage() {
+            return "Stored transaction entries are not validated again";
+        }
+
+        @Override
+        public boolean test(Map<Entry, Account> entries) {
+            return true;
+        }
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcEntryRepository entryRepository;
+    private final AccountRepository accountRepository;
+
+    JdbcTransactionRepository(JdbcTemplate jdbcTemplate, JdbcEntryRepository entryRepository, AccountRepository accountRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entryRepository = entryRepository;
+        this.accountRepository = accountRepository;
+    }
+
+    @Override
+    public Optional<Transaction> find(TransactionId transactionId) {
+        return jdbcTemplate.query("select * from transactions where id = ?",
+                                   (rs, rowNum) -> {
+                                       String refId = rs.getString("ref_id");
+                                       return new StoredTransaction(
+                                               transactionId,
+                                               refId == null ? null : TransactionId.of(UUID.fromString(refId)),
+                                               TransactionType.of(rs.getString("type")),
+                                               rs.getTimestamp("occurred_at").toInstant(),
+                                               rs.getTimestamp("applies_at").toInstant());
+                                   },
+                                   transactionId.value())
+                           .stream()
+                           .findFirst()
+                           .map(this::withEntries);
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        save(List.of(transaction));
+        return transaction;
+    }
+
+    @Override
+    public void save(Collection<Transaction> transactions) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO transactions
+                        (id, ref_id, type, occurred_at, applies_at)
+                        VALUES
+                        (?, ?, ?, ?, ?)
+                        """,
+                transactions,
+                100,
+                (PreparedStatement ps, Transaction transaction) -> {
+                    ps.setObject(1, transaction.id().value());
+                    ps.setObject(2, transaction.refId().map(TransactionId::value).orElse(null));
+                    ps.setString(3, transaction.type().value());
+                    ps.setTimestamp(4, from(transaction.occurredAt()));
+                    ps.setTimestamp(5, from(transaction.appliesAt()));
+                });
+    }
+
+    private Transaction withEntries(StoredTransaction stored) {
+        List<Entry> entries = entryRepository.findAllOf(stored.id());
+        Set<AccountId> accountIds = entries.stream().map(Entry::accountId).collect(toSet());
+        Map<AccountId, Account> accounts = accountRepository.find(accountIds);
+        Map<Entry, Account> accountsByEntry = new HashMap<>();
+        entries.forEach(entry -> accountsByEntry.put(entry, accounts.get(entry.accountId())));
+        return new Transaction(stored.id(), stored.refId(), stored.type(), stored.occurredAt(), stored.appliesAt(), accountsByEntry, ALREADY_POSTED);
+    }
+
+    private record StoredTransaction(TransactionId id, TransactionId refId, TransactionType type, Instant occurredAt, Instant appliesAt) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.softwarearchetypes.common.Version;
+
+/**
+ * Accounts kept in memory, with the creation of every account appended to the {@link LedgerJournal}.
+ * On startup accounts are replayed from the journal together with balances summed from their journaled entries.
+ */
+class JournalAccountRepository implements AccountRepository {
+
+    private final LedgerJournal journal;
+    private final InMemoryAccountRepo accounts;
+
+    JournalAccountRepository(LedgerJournal journal, EntryRepository entryRepository) {
+        this.journal = journal;
+        this.accounts = new InMemoryAccountRepo(entryRepository);
+        for (int record = 0; record < journal.size(); record++) {
+            if (journal.kindOf(record) == LedgerJournal.ACCOUNT) {
+                AccountId accountId = journal.accountIdOf(record);
+                //not initial - a replayed account must not be journaled again
+                accounts.save(journal.accountAt(record, entryRepository.balanceAsOf(accountId, Instant.MAX), Version.of(1)));
+            }
+        }
+    }
+
+    @Override
+    public Optional<Account> find(AccountId accountId) {
+        return accounts.find(accountId);
+    }
+
+    @Override
+    public Account save(Account account) {
+        journalIfNew(account);
+        return accounts.save(account);
+    }
+
+    @Override
+    public void save(Collection<Account> accounts) {
+        accounts.forEach(this::journalIfNew);
+        this.accounts.save(accounts);
+    }
+
+    @Override
+    public ProjectionAccount save(ProjectionAccount account) {
+        return accounts.save(account);
+    }
+
+    @Override
+    public List<Account> findAll() {
+        return accounts.findAll();
+    }
+
+    @Override
+    public Map<AccountId, Account> find(Set<AccountId> accounts) {
+        return this.accounts.find(accounts);
+    }
+
+    @Override
+    public Optional<ProjectionAccount> findProjection(AccountId projectionId) {
+        return accounts.findProjection(projectionId);
+    }
+
+    @Override
+    public List<Account> findAccountsMatching(Filter filter) {
+        return accounts.findAccountsMatching(filter);
+    }
+
+    private void journalIfNew(Account account) {
+        if (account.version().equals(Version.initial())) {
+            journal.appendAccount(account.id(), account.type(), AccountName.of(account.name()));
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Entries live only in the {@link LedgerJournal} - the repository keeps record numbers, not entries:
+ * an array of records per account and an open addressing table from entry id to record.
+ * Balances are summed straight from the mapped records, entries are decoded only when returned.
+ * Indexes are rebuilt by replaying the journal when the repository is created.
+ */
+class JournalEntryRepository implements EntryRepository {
+
+    private final LedgerJournal journal;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock saving = new ReentrantLock();
+    private final Map<AccountId, Records> recordsByAccount = new HashMap<>();
+    private final EntryIdIndex recordsById = new EntryIdIndex();
+    private final ExpiringEntries expiringEntries = new ExpiringEntries();
+    private final Map<TransactionId, Records> recordsByTransaction = new HashMap<>();
+    private final Map<AccountId, Set<TransactionId>> transactionIdsByAccount = new HashMap<>();
+    private final Map<EntryId, Records> recordsByAppliedTo = new HashMap<>();
+    private final Map<Integer, Long> allocatedMinorUnitsByRecord = new HashMap<>();
+    private final AccountCurrencies currencies = new AccountCurrencies();
+
+    JournalEntryRepository(LedgerJournal journal) {
+        this.journal = journal;
+        for (int record = 0; record < journal.size(); record++) {
+            if (journal.kindOf(record) == LedgerJournal.ENTRY) {
+                index(record);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Entry> find(EntryId entryId) {
+        int record = read(() -> recordsById.get(entryId.value()));
+        return record < 0 ? Optional.empty() : Optional.of(journal.entryAt(record));
+    }
+
+    @Override
+    public void save(Entry entry) {
+        save(List.of(entry));
+    }
+
+    //one append per save - entries of one posting are committed to the journal together
+    //saves run one at a time, so that an entry saved concurrently is never appended twice - readers wait only while records are indexed
+    @Override
+    public void save(List<Entry> entries) {
+        saving.lock();
+        try {
+            //entries are immutable - saving the same entry again must not append it twice
+            List<Entry> newEntries = entries.stream().filter(entry -> recordsById.get(entry.id().value()) < 0).toList();
+            if (newEntries.isEmpty()) {
+                return;
+            }
+            newEntries.forEach(currencies::check);
+            int first = journal.appendEntries(newEntries);
+            lock.writeLock().lock();
+            try {
+                for (int record = first; record < first + newEntries.size(); record++) {
+                    index(record);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            saving.unlock();
+        }
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId) {
+        return decodeSorted(recordsOf(accountId));
+    }
+
+    @Override
+    public List<Entry> findAllFor(AccountId accountId, Instant from, Instant to) {
+        int[] records = Arrays.stream(recordsOf(accountId))
+                              .filter(record -> journal.compareAppliesAt(record, from) >= 0 && journal.compareAppliesAt(record, to) <= 0)
+                              .toArray();
+        return decodeSorted(records);
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant when) {
+        long balance = 0;
+        for (int record : recordsOf(accountId)) {
+            if (journal.compareAppliesAt(record, when) <= 0) {
+                balance = Math.addExact(balance, journal.amountOf(record));
+            }
+        }
+        return currencies.toMoney(accountId, balance);
+    }
+
+    @Override
+    public Money balanceAsOf(AccountId accountId, Instant appliesAt, Instant knownAt) {
+        long balance = 0;
+        for (int record : recordsOf(accountId)) {
+            if (journal.compareAppliesAt(record, appliesAt) <= 0 && journal.compareOccurredAt(record, knownAt) <= 0) {
+                balance = Math.addExact(balance, journal.amountOf(record));
+            }
+        }
+        return currencies.toMoney(accountId, balance);
+    }
+
+    //records of an account are kept in append order - a page is selected in one pass, holding at most limit records
+    @Override
+    public List<Entry> findPageFor(AccountId accountId, Instant from, Instant to, EntryPosition after, int limit) {
+        Comparator<Integer> statementOrder = Comparator.<Integer, Instant>comparing(journal::appliesAtOf)
+                                                       .thenComparing(journal::entryIdOf);
+        PriorityQueue<Integer> page = new PriorityQueue<>(statementOrder.reversed());
+        for (int record : recordsOf(accountId)) {
+            if (journal.compareAppliesAt(record, from) < 0 || journal.compareAppliesAt(record, to) > 0) {
+                continue;
+            }
+            if (after != null && !after.isBefore(journal.appliesAtOf(record), journal.entryIdOf(record))) {
+                continue;
+            }
+            page.add(record);
+            if (page.size() > limit) {
+                page.poll();
+            }
+        }
+        List<Entry> entries = new ArrayList<>(page.size());
+        while (!page.isEmpty()) {
+            entries.add(journal.entryAt(page.poll()));
+        }
+        return entries.reversed();
+    }
+
+    @Override
+    public Optional<Entry> findMatching(Predicate<Entry> predicate, Comparator<Entry> comparator) {
+        Stream<Entry> stream = findAllMatching(predicate).stream();
+        if (comparator != null) {
+            return stream.min(comparator);
+        }
+        return stream.findFirst();
+    }
+
+    @Override
+    public List<Entry> findAllMatching(Predicate<Entry> predicate) {
+        List<Entry> entries = new ArrayList<>();
+        int size = journal.size();
+        for (int record = 0; record < size; record++) {
+            if (journal.kindOf(record) == LedgerJournal.ENTRY) {
+                Entry entry = journal.entryAt(record);
+                if (predicate == null || predicate.test(entry)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public List<Entry> findEntriesReferencing(Entry entry) {
+        int[] records = read(() -> {
+            Records referencing = recordsByAppliedTo.get(entry.id());
+            return referencing == null ? new int[0] : referencing.toArray();
+        });
+        List<Entry> entries = new ArrayList<>(records.length);
+        for (int record : records) {
+            entries.add(journal.entryAt(record));
+        }
+        return entries;
+    }
+
+    //one pass over the account's records compared in place - only the entry found is decoded
+    @Override
+    public Optional<Entry> findFirstOpen(EntryAllocationFilter filter) {
+        Comparator<Integer> statementOrder = Comparator.<Integer, Instant>comparing(journal::appliesAtOf)
+                                                       .thenComparing(journal::entryIdOf);
+        Comparator<Integer> order = filter.strategy() == EntryAllocationStrategy.LIFO ? statementOrder.reversed() : statementOrder;
+        int first = read(() -> {
+            Records records = recordsByAccount.get(filter.accountId());
+            int found = -1;
+            for (int record : records == null ? new int[0] : records.toArray()) {
+                if (!filter.admits(journal.isCredit(record) ? AccountCredited.class : AccountDebited.class)
+                        || (filter.validAt() != null && !journal.isValidAt(record, filter.validAt()))
+                        || allocatedMinorUnitsByRecord.getOrDefault(record, 0L) >= Math.abs(journal.amountOf(record))) {
+                    continue;
+                }
+                if (found < 0 || order.compare(record, found) < 0) {
+                    found = record;
+                }
+            }
+            return found;
+        });
+        return first < 0 ? Optional.empty() : Optional.of(journal.entryAt(first));
+    }
+
+    @Override
+    public List<Entry> findAllOf(TransactionId transactionId) {
+        int[] records = read(() -> {
+            Records ofTransaction = recordsByTransaction.get(transactionId);
+            return ofTransaction == null ? new int[0] : ofTransaction.toArray();
+        });
+        List<Entry> entries = new ArrayList<>(records.length);
+        for (int record : records) {
+            entries.add(journal.entryAt(record));
+        }
+        return entries;
+    }
+
+    @Override
+    public List<TransactionId> findTransactionIdsFor(AccountId accountId) {
+        return read(() -> List.copyOf(transactionIdsByAccount.getOrDefault(accountId, Set.of())));
+    }
+
+    @Override
+    public List<Entry> findExpired(Instant when, ExpiryPosition after, int limit) {
+        int[] records = read(() -> expiringEntries.expiredAsOf(when, after, limit).stream()
+                                                  .mapToInt(id -> recordsById.get(id.value()))
+                                                  .toArray());
+        List<Entry> entries = new ArrayList<>(records.length);
+        for (int record : records) {
+            entries.add(journal.entryAt(record));
+        }
+        return entries;
+    }
+
+    //must be called under the write lock or before the repository is shared
+    private void index(int record) {
+        AccountId accountId = journal.accountIdOf(record);
+        EntryId entryId = journal.entryIdOf(record);
+        recordsByAccount.computeIfAbsent(accountId, id -> new Records()).add(record);
+        recordsById.put(entryId.value(), record);
+        TransactionId transactionId = journal.transactionIdOf(record);
+        recordsByTransaction.computeIfAbsent(transactionId, id -> new Records()).add(record);
+        transactionIdsByAccount.computeIfAbsent(accountId, id -> new HashSet<>()).add(transactionId);
+        Optional<EntryId> appliedTo = journal.appliedToOf(record);
+        appliedTo.ifPresent(refId -> recordsByAppliedTo.computeIfAbsent(refId, id -> new Records()).add(record));
+        //only entries of the same account use an entry up
+        appliedTo.map(refId -> recordsById.get(refId.value()))
+                 .filter(allocatedTo -> allocatedTo >= 0 && journal.accountIdOf(allocatedTo).equals(accountId))
+                 .ifPresent(allocatedTo -> allocatedMinorUnitsByRecord.merge(allocatedTo, Math.abs(journal.amountOf(record)), Math::addExact));
+        //a journal holding entries of one account in different currencies is refused on replay
+        currencies.check(accountId, journal.currencyOf(record));
+        //rebuilt from the journal on startup, so entries compensated before a restart are not offered again
+        expiringEntries.record(entryId, accountId, journal.amountOf(record), journal.validToOf(record), appliedTo);
+    }
+
+    private int[] recordsOf(AccountId accountId) {
+        return read(() -> {
+            Records records = recordsByAccount.get(accountId);
+            return records == null ? new int[0] : records.toArray();
+        });
+    }
+
+    private List<Entry> decodeSorted(int[] records) {
+        List<Entry> entries = new ArrayList<>(records.length);
+        for (int record : records) {
+            entries.add(journal.entryAt(record));
+        }
+        entries.sort(EntryPosition.STATEMENT_ORDER);
+        return entries;
+    }
+
+    private <T> T read(Supplier<T> reading) {
+        lock.readLock().lock();
+        try {
+            return reading.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //growable array of record numbers
+    private static final class Records {
+
+        private int[] records = new int[8];
+        private int size;
+
+        void add(int record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(records, size);
+        }
+    }
+
+    //open addressing, linear probing - entry ids are random UUIDs, so their bits are already well spread
+    private static final class EntryIdIndex {
+
+        private long[] mostSignificant = new long[1024];
+        private long[] leastSignificant = new long[1024];
+        private int[] records = filled(1024);
+        private int size;
+
+        int get(UUID id) {
+            int mask = records.length - 1;
+            for (int slot = slotOf(id, mask); records[slot] >= 0; slot = (slot + 1) & mask) {
+                if (mostSignificant[slot] == id.getMostSignificantBits() && leastSignificant[slot] == id.getLeastSignificantBits()) {
+                    return records[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(UUID id, int record) {
+            if (2 * (size + 1) > records.length) {
+                grow();
+            }
+            int mask = records.length - 1;
+            int slot = slotOf(id, mask);
+            while (records[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            mostSignificant[slot] = id.getMostSignificantBits();
+            leastSignificant[slot] = id.getLeastSignificantBits();
+            records[slot] = record;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldMostSignificant = mostSignificant;
+            long[] oldLeastSignificant = leastSignificant;
+            int[] oldRecords = records;
+            mostSignificant = new long[oldRecords.length * 2];
+            leastSignificant = new long[oldRecords.length * 2];
+            records = filled(oldRecords.length * 2);
+            size = 0;
+            for (int slot = 0; slot < oldRecords.length; slot++) {
+                if (oldRecords[slot] >= 0) {
+                    put(new UUID(oldMostSignificant[slot], oldLeastSignificant[slot]), oldRecords[slot]);
+                }
+            }
+        }
+
+        private static int slotOf(UUID id, int mask) {
+            return (int) (id.getLeastSignificantBits() ^ (id.getLeastSignificantBits() >>> 32)) & mask;
+        }
+
+        private static int[] filled(int length) {
+            int[] empty = new int[length];
+            Arrays.fill(empty, -1);
+            return empty;
+        }
+    }
+}
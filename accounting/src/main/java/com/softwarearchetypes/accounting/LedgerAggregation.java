@@ -0,0 +1,120 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Ledger-wide totals, as of a point in time. Amounts are signed the way entries store them - credits add, debits subtract.
+ * Amounts in different currencies are never summed together - every total is kept per currency code, zero totals are left out.
+ */
+interface LedgerAggregation {
+
+    Map<AccountType, Map<String, Money>> totalsByAccountType(Instant asOf);
+
+    //entries without the key are not counted
+    Map<String, Map<String, Money>> totalsByMetadata(String key, Instant asOf);
+}
+
+/**
+ * Accounts are split into chunks summed in parallel on a fork/join pool, each chunk into its own totals,
+ * merged on the way back up. Account balances come from the entry repository's checkpoints,
+ * so a trial balance does not touch every entry.
+ */
+class ForkJoinLedgerAggregation implements LedgerAggregation {
+
+    private static final int ACCOUNTS_PER_TASK = 1024;
+
+    private final AccountRepository accountRepository;
+    private final EntryRepository entryRepository;
+    private final ForkJoinPool pool;
+
+    ForkJoinLedgerAggregation(AccountRepository accountRepository, EntryRepository entryRepository) {
+        this(accountRepository, entryRepository, ForkJoinPool.commonPool());
+    }
+
+    ForkJoinLedgerAggregation(AccountRepository accountRepository, EntryRepository entryRepository, ForkJoinPool pool) {
+        this.accountRepository = accountRepository;
+        this.entryRepository = entryRepository;
+        this.pool = pool;
+    }
+
+    @Override
+    public Map<AccountType, Map<String, Money>> totalsByAccountType(Instant asOf) {
+        Map<InCurrency<AccountType>, Long> totals = pool.invoke(new Totals<>(accountRepository.findAll(), account -> {
+            Money balance = entryRepository.balanceAsOf(account.id(), asOf);
+            return Map.of(new InCurrency<>(account.type(), balance.currencyCode()), CompactMoney.minorUnitsOf(balance));
+        }));
+        return byCurrency(totals, new EnumMap<>(AccountType.class));
+    }
+
+    @Override
+    public Map<String, Map<String, Money>> totalsByMetadata(String key, Instant asOf) {
+        Map<InCurrency<String>, Long> totals = pool.invoke(new Totals<>(accountRepository.findAll(), account -> {
+            Map<InCurrency<String>, Long> byValue = new HashMap<>();
+            for (Entry entry : entryRepository.findAllFor(account.id(), StatementQuery.EARLIEST, asOf)) {
+                String value = entry.metadata().metadata().get(key);
+                if (value != null) {
+                    byValue.merge(new InCurrency<>(value, entry.currencyCode()), entry.amountInMinorUnits(), Math::addExact);
+                }
+            }
+            return byValue;
+        }));
+        return byCurrency(totals, new HashMap<>());
+    }
+
+    private static <K> Map<K, Map<String, Money>> byCurrency(Map<InCurrency<K>, Long> totals, Map<K, Map<String, Money>> result) {
+        totals.forEach((key, total) -> {
+            if (total != 0) {
+                result.computeIfAbsent(key.key(), ignored -> new HashMap<>()).put(key.currencyCode(), CompactMoney.toMoney(total, key.currencyCode()));
+            }
+        });
+        return result;
+    }
+
+    private record InCurrency<K>(K key, String currencyCode) {
+    }
+
+    //totals in minor units - merged with exact arithmetic, a long cannot silently overflow. Tasks are never serialized.
+    @SuppressWarnings("serial")
+    private static final class Totals<K> extends RecursiveTask<Map<K, Long>> {
+
+        private final List<Account> accounts;
+        private final Function<Account, Map<K, Long>> totalsOfAccount;
+
+        private Totals(List<Account> accounts, Function<Account, Map<K, Long>> totalsOfAccount) {
+            this.accounts = accounts;
+            this.totalsOfAccount = totalsOfAccount;
+        }
+
+        @Override
+        protected Map<K, Long> compute() {
+            if (accounts.size() <= ACCOUNTS_PER_TASK) {
+                Map<K, Long> totals = new HashMap<>();
+                for (Account account : accounts) {
+                    merge(totals, totalsOfAccount.apply(account));
+                }
+                return totals;
+            }
+            int half = accounts.size() / 2;
+            Totals<K> left = new Totals<>(accounts.subList(0, half), totalsOfAccount);
+            Totals<K> right = new Totals<>(accounts.subList(half, accounts.size()), totalsOfAccount);
+            left.fork();
+            Map<K, Long> totals = right.compute();
+            merge(totals, left.join());
+            return totals;
+        }
+
+        private static <K> void merge(Map<K, Long> into, Map<K, Long> totals) {
+            totals.forEach((key, total) -> into.merge(key, total, Math::addExact));
+        }
+    }
+}
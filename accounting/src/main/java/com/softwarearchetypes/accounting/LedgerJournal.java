@@ -0,0 +1,447 @@
+package com.softwarearchetypes.accounting;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32C;
+
+import com.softwarearchetypes.common.Version;
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only ledger journal: fixed-width binary records in a memory-mapped file, variable length data
+ * (entry metadata, account names) in a side metadata file referenced by offset and length.
+ * <p>
+ * Record layout ({@value #RECORD_SIZE} bytes):
+ * <pre>
+ *   0 marker      1 kind      2 credit      3 has applied to
+ *   4 entry id (16)           20 transaction id (16)          36 account id (16)
+ *  52 amount, signed minor units (8)
+ *  60 applies at (8 + 4)      72 occurred at (8 + 4)          84 valid from (8 + 4)     96 valid to (8 + 4)
+ * 108 applied to (16)        124 metadata offset (8)         132 metadata length (4)
+ * 136 currency code, ASCII (3)                              140 CRC32C of bytes 1-139 (4)
+ * </pre>
+ * Records of one append form a batch - all but the last one are marked {@code CONTINUED}, the last one {@code COMMITTED}.
+ * Markers are written last, but records straddle pages of the mapping, which are not written back in order - a record
+ * is taken for written only if its checksum matches. A batch torn by a crash is discarded on open and overwritten by the next append.
+ */
+final class LedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 144;
+    static final byte ENTRY = 1;
+    static final byte ACCOUNT = 2;
+
+    private static final byte CONTINUED = 1;
+    private static final byte COMMITTED = 2;
+    private static final int DEFAULT_RECORDS_PER_REGION = 1 << 16;
+
+    private static final int KIND = 1;
+    private static final int CREDIT = 2;
+    private static final int HAS_APPLIED_TO = 3;
+    private static final int ENTRY_ID = 4;
+    private static final int TRANSACTION_ID = 20;
+    private static final int ACCOUNT_ID = 36;
+    private static final int AMOUNT = 52;
+    private static final int APPLIES_AT = 60;
+    private static final int OCCURRED_AT = 72;
+    private static final int VALID_FROM = 84;
+    private static final int VALID_TO = 96;
+    private static final int APPLIED_TO = 108;
+    private static final int METADATA_OFFSET = 124;
+    private static final int METADATA_LENGTH = 132;
+    private static final int CURRENCY = 136;
+    private static final int CURRENCY_LENGTH = 3;
+    private static final int CHECKSUM = 140;
+
+    private final FileChannel records;
+    private final FileChannel metadata;
+    private final FsyncPolicy fsyncPolicy;
+    private final int recordsPerRegion;
+    private final List<MappedByteBuffer> regions = new CopyOnWriteArrayList<>();
+    //records below are committed and visible to readers
+    private volatile int size;
+    private long metadataSize;
+    private int appendsSinceSync;
+
+    private LedgerJournal(FileChannel records, FileChannel metadata, FsyncPolicy fsyncPolicy, int recordsPerRegion) throws IOException {
+        this.records = records;
+        this.metadata = metadata;
+        this.fsyncPolicy = fsyncPolicy;
+        this.recordsPerRegion = recordsPerRegion;
+        this.metadataSize = metadata.size();
+        this.size = recover();
+    }
+
+    static LedgerJournal open(Path path, FsyncPolicy fsyncPolicy) {
+        return open(path, fsyncPolicy, DEFAULT_RECORDS_PER_REGION);
+    }
+
+    static LedgerJournal open(Path path, FsyncPolicy fsyncPolicy, int recordsPerRegion) {
+        try {
+            FileChannel records = FileChannel.open(path, CREATE, READ, WRITE);
+            FileChannel metadata = FileChannel.open(path.resolveSibling(path.getFileName() + ".meta"), CREATE, READ, WRITE);
+            return new LedgerJournal(records, metadata, fsyncPolicy, recordsPerRegion);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ledger journal " + path, e);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    //returns number of the first appended record
+    synchronized int appendEntries(List<Entry> entries) {
+        int first = size;
+        for (int i = 0; i < entries.size(); i++) {
+            writeEntry(first + i, entries.get(i));
+        }
+        return commit(first, entries.size());
+    }
+
+    synchronized int appendAccount(AccountId accountId, AccountType type, AccountName name) {
+        int record = size;
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        region.put(offset + KIND, ACCOUNT);
+        putUuid(region, offset + ACCOUNT_ID, accountId.uuid());
+        writeMetadata(region, offset, Map.of("type", type.name(), "name", name.value()));
+        writeChecksum(region, offset);
+        return commit(record, 1);
+    }
+
+    byte kindOf(int record) {
+        return regionFor(record).get(offsetOf(record) + KIND);
+    }
+
+    AccountId accountIdOf(int record) {
+        return AccountId.of(getUuid(regionFor(record), offsetOf(record) + ACCOUNT_ID));
+    }
+
+    EntryId entryIdOf(int record) {
+        return new EntryId(getUuid(regionFor(record), offsetOf(record) + ENTRY_ID));
+    }
+
+    TransactionId transactionIdOf(int record) {
+        return TransactionId.of(getUuid(regionFor(record), offsetOf(record) + TRANSACTION_ID));
+    }
+
+    Optional<EntryId> appliedToOf(int record) {
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        return region.get(offset + HAS_APPLIED_TO) == 1 ? Optional.of(new EntryId(getUuid(region, offset + APPLIED_TO))) : Optional.empty();
+    }
+
+    long amountOf(int record) {
+        return regionFor(record).getLong(offsetOf(record) + AMOUNT);
+    }
+
+    String currencyOf(int record) {
+        return currencyOf(regionFor(record), offsetOf(record));
+    }
+
+    Instant appliesAtOf(int record) {
+        return getInstant(regionFor(record), offsetOf(record) + APPLIES_AT);
+    }
+
+    Instant validToOf(int record) {
+        return getInstant(regionFor(record), offsetOf(record) + VALID_TO);
+    }
+
+    boolean isCredit(int record) {
+        return regionFor(record).get(offsetOf(record) + CREDIT) == 1;
+    }
+
+    //validity is [validFrom, validTo), compared in place like appliesAt
+    boolean isValidAt(int record, Instant instant) {
+        return compareInstant(record, VALID_FROM, instant) <= 0 && compareInstant(record, VALID_TO, instant) > 0;
+    }
+
+    //compares without materializing an Instant - it is called for every entry when summing balances
+    int compareAppliesAt(int record, Instant instant) {
+        return compareInstant(record, APPLIES_AT, instant);
+    }
+
+    int compareOccurredAt(int record, Instant instant) {
+        return compareInstant(record, OCCURRED_AT, instant);
+    }
+
+    Entry entryAt(int record) {
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        EntryId id = new EntryId(getUuid(region, offset + ENTRY_ID));
+        TransactionId transactionId = TransactionId.of(getUuid(region, offset + TRANSACTION_ID));
+        AccountId accountId = AccountId.of(getUuid(region, offset + ACCOUNT_ID));
+        long amount = region.getLong(offset + AMOUNT);
+        String currency = currencyOf(region, offset);
+        Instant appliesAt = getInstant(region, offset + APPLIES_AT);
+        Instant occurredAt = getInstant(region, offset + OCCURRED_AT);
+        Validity validity = new Validity(getInstant(region, offset + VALID_FROM), getInstant(region, offset + VALID_TO));
+        Optional<EntryId> appliedTo = region.get(offset + HAS_APPLIED_TO) == 1
+                ? Optional.of(new EntryId(getUuid(region, offset + APPLIED_TO)))
+                : Optional.empty();
+        Map<String, String> values = readMetadata(region, offset);
+        MetaData metaData = values.isEmpty() ? MetaData.empty() : MetaData.of(values);
+        //debit keeps its amount positive and negates it on read - the stored amount is already signed
+        if (region.get(offset + CREDIT) == 1) {
+            return new AccountCredited(id, transactionId, accountId, CompactMoney.toMoney(amount, currency),
+                    appliesAt, occurredAt, metaData, validity, appliedTo, amount);
+        }
+        return new AccountDebited(id, transactionId, accountId, CompactMoney.toMoney(Math.negateExact(amount), currency),
+                appliesAt, occurredAt, metaData, validity, appliedTo, amount);
+    }
+
+    Account accountAt(int record, Money balance, Version version) {
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        Map<String, String> values = readMetadata(region, offset);
+        return new Account(AccountId.of(getUuid(region, offset + ACCOUNT_ID)), AccountType.valueOf(values.get("type")),
+                AccountName.of(values.get("name")), balance, version);
+    }
+
+    //metadata first - a committed record forced to disk must not reference metadata which is not there
+    synchronized void sync() {
+        try {
+            metadata.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync ledger journal metadata", e);
+        }
+        regions.forEach(MappedByteBuffer::force);
+        appendsSinceSync = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        records.close();
+        metadata.close();
+    }
+
+    private void writeEntry(int record, Entry entry) {
+        byte[] currency = entry.currencyCode().getBytes(StandardCharsets.US_ASCII);
+        checkArgument(currency.length == CURRENCY_LENGTH, "Journaled entries need a three letter currency code, got " + entry.currencyCode());
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        region.put(offset + KIND, ENTRY);
+        region.put(offset + CREDIT, (byte) (entry instanceof AccountCredited ? 1 : 0));
+        putUuid(region, offset + ENTRY_ID, entry.id().value());
+        putUuid(region, offset + TRANSACTION_ID, entry.transactionId().value());
+        putUuid(region, offset + ACCOUNT_ID, entry.accountId().uuid());
+        region.putLong(offset + AMOUNT, entry.amountInMinorUnits());
+        putInstant(region, offset + APPLIES_AT, entry.appliesAt());
+        putInstant(region, offset + OCCURRED_AT, entry.occurredAt());
+        putInstant(region, offset + VALID_FROM, entry.validity().validFrom());
+        putInstant(region, offset + VALID_TO, entry.validity().validTo());
+        region.put(offset + HAS_APPLIED_TO, (byte) (entry.appliedTo().isPresent() ? 1 : 0));
+        entry.appliedTo().ifPresent(appliedTo -> putUuid(region, offset + APPLIED_TO, appliedTo.value()));
+        region.put(offset + CURRENCY, currency);
+        writeMetadata(region, offset, entry.metadata().metadata());
+        writeChecksum(region, offset);
+    }
+
+    //markers are written last - a record is not replayed until its batch is committed
+    private int commit(int first, int count) {
+        if (count == 0) {
+            return first;
+        }
+        for (int i = 0; i < count; i++) {
+            int record = first + i;
+            regionFor(record).put(offsetOf(record), i == count - 1 ? COMMITTED : CONTINUED);
+        }
+        size = first + count;
+        appendsSinceSync++;
+        if (fsyncPolicy.shouldSync(appendsSinceSync)) {
+            sync();
+        }
+        return first;
+    }
+
+    //committed prefix of the journal - it ends at the first record which is missing or does not match its checksum
+    private int recover() {
+        int record = 0;
+        int committed = 0;
+        while (true) {
+            byte marker = regionFor(record).get(offsetOf(record));
+            if (marker == 0 || !checksumMatches(record)) {
+                break;
+            }
+            record++;
+            if (marker == COMMITTED) {
+                committed = record;
+            }
+        }
+        clearFrom(committed);
+        return committed;
+    }
+
+    //pages past a torn record may have been written back before it - all of them are cleared, so they are not taken for committed later
+    private void clearFrom(int record) {
+        long recordsInFile;
+        try {
+            recordsInFile = records.size() / RECORD_SIZE;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read size of ledger journal", e);
+        }
+        for (int torn = record; torn < recordsInFile; torn++) {
+            ByteBuffer region = regionFor(torn);
+            if (region.get(offsetOf(torn)) != 0) {
+                region.put(offsetOf(torn), (byte) 0);
+            }
+        }
+    }
+
+    private void writeChecksum(ByteBuffer region, int offset) {
+        region.putInt(offset + CHECKSUM, checksumOf(region, offset));
+    }
+
+    private boolean checksumMatches(int record) {
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record);
+        return region.getInt(offset + CHECKSUM) == checksumOf(region, offset);
+    }
+
+    //the marker is not covered - it changes when the batch is committed
+    private static int checksumOf(ByteBuffer region, int offset) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(region.slice(offset + KIND, CHECKSUM - KIND));
+        return (int) checksum.getValue();
+    }
+
+    private void writeMetadata(ByteBuffer region, int offset, Map<String, String> values) {
+        if (values.isEmpty()) {
+            region.putLong(offset + METADATA_OFFSET, -1);
+            region.putInt(offset + METADATA_LENGTH, 0);
+            return;
+        }
+        int length = Integer.BYTES;
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            length += 2 * Integer.BYTES + utf8(value.getKey()).length + utf8(value.getValue()).length;
+        }
+        ByteBuffer encoded = ByteBuffer.allocate(length);
+        encoded.putInt(values.size());
+        values.forEach((key, value) -> {
+            byte[] keyBytes = utf8(key);
+            byte[] valueBytes = utf8(value);
+            encoded.putInt(keyBytes.length).put(keyBytes).putInt(valueBytes.length).put(valueBytes);
+        });
+        encoded.flip();
+        long position = metadataSize;
+        try {
+            while (encoded.hasRemaining()) {
+                metadata.write(encoded, position + encoded.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to ledger journal metadata", e);
+        }
+        metadataSize += length;
+        region.putLong(offset + METADATA_OFFSET, position);
+        region.putInt(offset + METADATA_LENGTH, length);
+    }
+
+    private Map<String, String> readMetadata(ByteBuffer region, int offset) {
+        int length = region.getInt(offset + METADATA_LENGTH);
+        if (length == 0) {
+            return Map.of();
+        }
+        ByteBuffer encoded = ByteBuffer.allocate(length);
+        long position = region.getLong(offset + METADATA_OFFSET);
+        try {
+            while (encoded.hasRemaining()) {
+                if (metadata.read(encoded, position + encoded.position()) < 0) {
+                    throw new IllegalStateException("Ledger journal metadata is truncated");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ledger journal metadata", e);
+        }
+        encoded.flip();
+        Map<String, String> values = new HashMap<>();
+        int count = encoded.getInt();
+        for (int i = 0; i < count; i++) {
+            values.put(readString(encoded), readString(encoded));
+        }
+        return values;
+    }
+
+    private MappedByteBuffer regionFor(int record) {
+        int region = record / recordsPerRegion;
+        while (regions.size() <= region) {
+            mapNextRegion();
+        }
+        return regions.get(region);
+    }
+
+    private synchronized void mapNextRegion() {
+        int region = regions.size();
+        long regionSize = (long) recordsPerRegion * RECORD_SIZE;
+        try {
+            //mapping past the end of file grows it, new region is zeroed
+            regions.add(records.map(FileChannel.MapMode.READ_WRITE, region * regionSize, regionSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map ledger journal region " + region, e);
+        }
+    }
+
+    private int offsetOf(int record) {
+        return (record % recordsPerRegion) * RECORD_SIZE;
+    }
+
+    private int compareInstant(int record, int field, Instant instant) {
+        ByteBuffer region = regionFor(record);
+        int offset = offsetOf(record) + field;
+        int seconds = Long.compare(region.getLong(offset), instant.getEpochSecond());
+        return seconds != 0 ? seconds : Integer.compare(region.getInt(offset + 8), instant.getNano());
+    }
+
+    private static void putUuid(ByteBuffer region, int offset, UUID uuid) {
+        region.putLong(offset, uuid.getMostSignificantBits());
+        region.putLong(offset + 8, uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer region, int offset) {
+        return new UUID(region.getLong(offset), region.getLong(offset + 8));
+    }
+
+    private static void putInstant(ByteBuffer region, int offset, Instant instant) {
+        region.putLong(offset, instant.getEpochSecond());
+        region.putInt(offset + 8, instant.getNano());
+    }
+
+    private static Instant getInstant(ByteBuffer region, int offset) {
+        return Instant.ofEpochSecond(region.getLong(offset), region.getInt(offset + 8));
+    }
+
+    private static String currencyOf(ByteBuffer region, int offset) {
+        byte[] currency = new byte[CURRENCY_LENGTH];
+        region.get(offset + CURRENCY, currency);
+        return new String(currency, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer encoded) {
+        byte[] bytes = new byte[encoded.getInt()];
+        encoded.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * A statement line matches an entry of the same amount, applying at most {@code dateWindow} before or after
+ * the line was booked, whose metadata has the same values of all {@code metadataKeys} as the line (a missing value equals an empty one).
+ */
+public record MatchingRules(Duration dateWindow, List<String> metadataKeys) {
+
+    public MatchingRules {
+        checkArgument(dateWindow != null && !dateWindow.isNegative(), "Date window cannot be negative");
+        metadataKeys = List.copyOf(metadataKeys);
+    }
+
+    public static MatchingRules byAmountWithin(Duration dateWindow) {
+        return new MatchingRules(dateWindow, List.of());
+    }
+
+    public MatchingRules andMetadata(String key) {
+        List<String> extended = new ArrayList<>(metadataKeys);
+        extended.add(key);
+        return new MatchingRules(dateWindow, extended);
+    }
+}
@@ -0,0 +1,190 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.softwarearchetypes.accounting.events.AccountingEvent;
+import com.softwarearchetypes.accounting.events.CreditEntryRegistered;
+import com.softwarearchetypes.accounting.events.DebitEntryRegistered;
+import com.softwarearchetypes.common.events.EventHandler;
+import com.softwarearchetypes.common.events.PublishedEvent;
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Balances of materialized projection accounts, kept up to date from entry registered events,
+ * so reading them does not touch the ledger. Projections narrowed to accounts are indexed by those accounts,
+ * so an entry is checked only against projections it can possibly belong to.
+ * Rebuild recomputes a balance from the repositories - entries registered while it runs are buffered and
+ * applied afterwards, each once, unless the rebuild has already counted them. An entry is saved before its event
+ * is delivered, so a rebuild may count entries whose events arrive after it finished - ids counted by the last
+ * rebuild are kept until their events arrive, or until the next rebuild. Other events are counted as they come,
+ * as events are delivered at most once.
+ */
+class MaterializedProjections implements EventHandler {
+
+    private final AccountRepository accountRepository;
+    private final EntryRepository entryRepository;
+    private final Map<AccountId, MaterializedProjection> projections = new ConcurrentHashMap<>();
+    private final Map<AccountId, Set<MaterializedProjection>> projectionsByAccount = new ConcurrentHashMap<>();
+    private final Set<MaterializedProjection> notNarrowedProjections = ConcurrentHashMap.newKeySet();
+
+    MaterializedProjections(AccountRepository accountRepository, EntryRepository entryRepository) {
+        this.accountRepository = accountRepository;
+        this.entryRepository = entryRepository;
+    }
+
+    boolean isMaterialized(AccountId projectionId) {
+        return projections.containsKey(projectionId);
+    }
+
+    Optional<Money> balanceOf(AccountId projectionId) {
+        return Optional.ofNullable(projections.get(projectionId))
+                       .map(MaterializedProjection::balance);
+    }
+
+    Optional<AccountView> viewOf(AccountId projectionId) {
+        return Optional.ofNullable(projections.get(projectionId))
+                       .map(projection -> new AccountView(projectionId, projection.name(), AccountType.OFF_BALANCE.name(),
+                               projection.balance(), List.of()));
+    }
+
+    //materializing an already materialized projection rebuilds it, rebuilds are rare so they run one at a time
+    synchronized void rebuild(ProjectionAccount projectionAccount) {
+        MaterializedProjection projection = projections.computeIfAbsent(projectionAccount.id(), id -> new MaterializedProjection());
+        Filter filter = projectionAccount.filter();
+        synchronized (projection) {
+            projection.startRebuild(projectionAccount.desc(), filter);
+        }
+        reindex(projection, filter);
+
+        Set<EntryId> counted = new HashSet<>();
+        EntryTotal balance = new EntryTotal();
+        for (Account account : accountRepository.findAccountsMatching(filter)) {
+            for (Entry entry : entryRepository.findAllFor(account.id())) {
+                if (filter.matches(entry)) {
+                    counted.add(entry.id());
+                    balance.add(entry);
+                }
+            }
+        }
+        synchronized (projection) {
+            projection.finishRebuild(balance, counted);
+        }
+    }
+
+    void remove(AccountId projectionId) {
+        MaterializedProjection projection = projections.remove(projectionId);
+        if (projection != null) {
+            unindex(projection);
+        }
+    }
+
+    @Override
+    public boolean supports(PublishedEvent event) {
+        return event instanceof CreditEntryRegistered || event instanceof DebitEntryRegistered;
+    }
+
+    @Override
+    public void handle(PublishedEvent event) {
+        if (event instanceof AccountingEvent accountingEvent) {
+            switch (accountingEvent) {
+                case CreditEntryRegistered credit -> apply(new EntryId(credit.entryId()));
+                case DebitEntryRegistered debit -> apply(new EntryId(debit.entryId()));
+            }
+        }
+    }
+
+    private void apply(EntryId entryId) {
+        //filters need the whole entry - it is already saved when its event is published
+        Entry entry = entryRepository.find(entryId).orElse(null);
+        if (entry == null || projections.isEmpty()) {
+            return;
+        }
+        String accountName = null;
+        for (MaterializedProjection projection : candidatesFor(entry.accountId())) {
+            Filter filter = projection.filter();
+            if (accountName == null) {
+                accountName = accountRepository.find(entry.accountId()).map(Account::name).orElse("");
+            }
+            if (filter.matchesAccount(entry.accountId(), accountName) && filter.matches(entry)) {
+                synchronized (projection) {
+                    projection.apply(entry);
+                }
+            }
+        }
+    }
+
+    private List<MaterializedProjection> candidatesFor(AccountId accountId) {
+        List<MaterializedProjection> candidates = new ArrayList<>(notNarrowedProjections);
+        candidates.addAll(projectionsByAccount.getOrDefault(accountId, Set.of()));
+        return candidates;
+    }
+
+    private synchronized void reindex(MaterializedProjection projection, Filter filter) {
+        unindex(projection);
+        filter.accountIds().ifPresentOrElse(
+                ids -> ids.forEach(id -> projectionsByAccount.computeIfAbsent(id, it -> ConcurrentHashMap.newKeySet()).add(projection)),
+                () -> notNarrowedProjections.add(projection));
+    }
+
+    private synchronized void unindex(MaterializedProjection projection) {
+        notNarrowedProjections.remove(projection);
+        projectionsByAccount.values().forEach(projections -> projections.remove(projection));
+    }
+
+    //guarded by its own monitor
+    private static final class MaterializedProjection {
+
+        private volatile String name;
+        private volatile Filter filter;
+        private EntryTotal balance = new EntryTotal();
+        //not null while rebuilding
+        private List<Entry> registeredDuringRebuild;
+        //counted by the last rebuild, events not delivered yet - never more than the rebuild counted
+        private Set<EntryId> countedByRebuild = new HashSet<>();
+
+        void startRebuild(String name, Filter filter) {
+            this.name = name;
+            this.filter = filter;
+            this.registeredDuringRebuild = new ArrayList<>();
+        }
+
+        void finishRebuild(EntryTotal rebuiltBalance, Set<EntryId> counted) {
+            List<Entry> registered = registeredDuringRebuild;
+            Set<EntryId> replayed = new HashSet<>();
+            this.balance = rebuiltBalance;
+            this.registeredDuringRebuild = null;
+            this.countedByRebuild = counted;
+            for (Entry entry : registered) {
+                if (replayed.add(entry.id())) {
+                    apply(entry);
+                }
+            }
+        }
+
+        void apply(Entry entry) {
+            if (registeredDuringRebuild != null) {
+                registeredDuringRebuild.add(entry);
+            } else if (!countedByRebuild.remove(entry.id())) {
+                balance.add(entry);
+            }
+        }
+
+        synchronized Money balance() {
+            return balance.toMoney();
+        }
+
+        String name() {
+            return name;
+        }
+
+        Filter filter() {
+            return filter;
+        }
+    }
+}
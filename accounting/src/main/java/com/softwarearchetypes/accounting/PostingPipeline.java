@@ -0,0 +1,175 @@
+package com.softwarearchetypes.accounting;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.softwarearchetypes.common.Result;
+
+import static com.softwarearchetypes.accounting.BatchPostingMode.BEST_EFFORT;
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Posting engine in which a single writer thread posts all transactions - hot accounts are never handed over
+ * between threads. Producers put commands into a pre-allocated ring buffer, claiming slots with one atomic increment.
+ * <p>
+ * The writer takes all commands published so far (at most {@code maxBatchSize}), builds and validates their transactions,
+ * then posts them with {@link AccountingFacade#execute(List, BatchPostingMode)} - executed together, each account saved
+ * once per batch and all events published as one list. The more commands are waiting, the larger the batches.
+ * Stages run one after another for a batch: a transaction is built against account versions which no other batch
+ * may change before it is posted.
+ * <p>
+ * Futures are completed by the writer - dependent actions which take time should use the async variants.
+ * When posting a batch throws, futures of the batch not completed yet are completed exceptionally.
+ */
+public class PostingPipeline implements AutoCloseable {
+
+    private static final Logger LOGGER = System.getLogger(PostingPipeline.class.getName());
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final AccountingFacade accountingFacade;
+    private final Slot[] slots;
+    private final int mask;
+    private final int maxBatchSize;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicInteger producing = new AtomicInteger();
+    //slots of sequences below it can be reused
+    private volatile long consumed;
+    private volatile boolean accepting = true;
+    private volatile boolean stopped;
+    private final Thread writer;
+
+    private PostingPipeline(AccountingFacade accountingFacade, int capacity, int maxBatchSize) {
+        checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two");
+        checkArgument(maxBatchSize > 0, "Batch size must be positive");
+        this.accountingFacade = accountingFacade;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::write, "posting-pipeline-writer");
+    }
+
+    static PostingPipeline start(AccountingFacade accountingFacade, int capacity, int maxBatchSize) {
+        PostingPipeline pipeline = new PostingPipeline(accountingFacade, capacity, maxBatchSize);
+        pipeline.writer.start();
+        return pipeline;
+    }
+
+    //waits for a free slot when the buffer is full
+    public CompletableFuture<Result<String, TransactionId>> submit(ExecuteTransactionCommand command) {
+        producing.incrementAndGet();
+        try {
+            if (!accepting) {
+                return CompletableFuture.completedFuture(Result.failure("Posting pipeline is closed"));
+            }
+            long sequence = claimed.getAndIncrement();
+            for (int spins = 0; sequence - consumed >= slots.length; spins++) {
+                idle(spins);
+            }
+            Slot slot = slots[(int) (sequence & mask)];
+            CompletableFuture<Result<String, TransactionId>> result = new CompletableFuture<>();
+            slot.command = command;
+            slot.result = result;
+            //volatile write - publishes the fields above to the writer
+            slot.sequence = sequence;
+            return result;
+        } finally {
+            producing.decrementAndGet();
+        }
+    }
+
+    //commands submitted before closing are still posted
+    @Override
+    public void close() {
+        accepting = false;
+        while (producing.get() > 0) {
+            Thread.onSpinWait();
+        }
+        stopped = true;
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        List<Slot> batch = new ArrayList<>(maxBatchSize);
+        long next = 0;
+        int spins = 0;
+        while (!stopped || next < claimed.get()) {
+            while (batch.size() < maxBatchSize && slots[(int) ((next + batch.size()) & mask)].sequence == next + batch.size()) {
+                batch.add(slots[(int) ((next + batch.size()) & mask)]);
+            }
+            if (batch.isEmpty()) {
+                idle(spins++);
+                continue;
+            }
+            spins = 0;
+            try {
+                post(batch);
+            } catch (Exception | Error e) {
+                //futures of the batch not completed yet would never be - the writer goes on with the next batch
+                LOGGER.log(Level.ERROR, () -> "Posting a batch of " + batch.size() + " commands failed", e);
+                batch.forEach(slot -> slot.result.completeExceptionally(e));
+            }
+            for (Slot slot : batch) {
+                slot.command = null;
+                slot.result = null;
+            }
+            next += batch.size();
+            batch.clear();
+            consumed = next;
+        }
+    }
+
+    private void post(List<Slot> batch) {
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        Map<TransactionId, CompletableFuture<Result<String, TransactionId>>> results = new HashMap<>();
+        for (Slot slot : batch) {
+            try {
+                Transaction transaction = accountingFacade.transactionFrom(slot.command);
+                transactions.add(transaction);
+                results.put(transaction.id(), slot.result);
+            } catch (Exception ex) {
+                slot.result.complete(Result.failure(ex.getMessage()));
+            }
+        }
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Result<String, BatchPostingResult> posted = accountingFacade.execute(transactions, BEST_EFFORT);
+        if (posted.failure()) {
+            results.values().forEach(result -> result.complete(Result.failure(posted.getFailure())));
+            return;
+        }
+        posted.getSuccess().posted().forEach(id -> results.get(id).complete(Result.success(id)));
+        posted.getSuccess().rejected().forEach((id, error) -> results.get(id).complete(Result.failure(error)));
+    }
+
+    private static void idle(int spins) {
+        if (spins < SPINS_BEFORE_PARKING) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private static final class Slot {
+
+        private ExecuteTransactionCommand command;
+        private CompletableFuture<Result<String, TransactionId>> result;
+        private volatile long sequence = -1;
+    }
+}
@@ -1,14 +1,12 @@
 package com.softwarearchetypes.accounting;
 
-import java.util.function.Predicate;
-
 import com.softwarearchetypes.common.Version;
 
 class ProjectionAccount {
 
     //lock
     private AccountId accountId;
-    //w bazie danych ten predicate to sql
+    //w bazie danych ten filtr to sql - patrz SqlFilter
     private Filter filter;
     private String name;
     private final Version version;
@@ -41,11 +39,3 @@ class ProjectionAccount {
     }
 }
 
-
-//wrzucone w jedna klase, zeby latwiej bylo tlumaczyc na sql
-record Filter(Predicate<Entry> entryFilter, Predicate<Account> accountFilter) {
-
-    static Filter just(Predicate<Entry> entryFilter) {
-        return new Filter(entryFilter, account -> true);
-    }
-}
@@ -0,0 +1,315 @@
+package com.softwarearchetypes.accounting;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.softwarearchetypes.accounting.ReconciliationReport.Ambiguity;
+import com.softwarearchetypes.accounting.ReconciliationReport.Match;
+import com.softwarearchetypes.accounting.ReconciliationReport.UnmatchedEntry;
+import com.softwarearchetypes.accounting.ReconciliationReport.UnmatchedLine;
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Reconciles an account against an external statement, e.g. a bank statement file of millions of lines, without exporting the ledger.
+ * The statement is read line by line, entries of the account are read page by page, both are routed to partitions
+ * by a hash of their amount - a line and its matching entries always land in the same partition. Partitions are matched in parallel,
+ * each indexing its entries by what has to match (amount and metadata values) and looking candidates of a line up in the index.
+ * <p>
+ * Lines are matched in booking order: of the entries matching a line (see {@link MatchingRules}) and not matched yet,
+ * the one applying closest to the booking date is taken. A line with more equally close entries is ambiguous - none of them is taken.
+ * Entries applying within the reconciled period which no line matched nor could match are unmatched.
+ * <p>
+ * The whole statement and all entries applying within the date window around the period are held in memory while reconciling,
+ * once each - reconcile a statement of more lines than fit in memory period by period.
+ */
+public class ReconciliationEngine {
+
+    private static final int ENTRIES_PAGE_SIZE = 1_000;
+
+    private final AccountRepository accountRepository;
+    private final EntryRepository entryRepository;
+    private final TransactionBuilderFactory transactionBuilderFactory;
+    private final Clock clock;
+    private final MatchingRules rules;
+    private final AccountId adjustmentAccount;
+    private final int partitions;
+    private final ForkJoinPool pool;
+
+    ReconciliationEngine(AccountRepository accountRepository, EntryRepository entryRepository, TransactionBuilderFactory transactionBuilderFactory,
+                         Clock clock, MatchingRules rules, AccountId adjustmentAccount, int partitions, ForkJoinPool pool) {
+        checkArgument(partitions > 0, "There must be at least one partition");
+        this.accountRepository = accountRepository;
+        this.entryRepository = entryRepository;
+        this.transactionBuilderFactory = transactionBuilderFactory;
+        this.clock = clock;
+        this.rules = rules;
+        this.adjustmentAccount = adjustmentAccount;
+        this.partitions = partitions;
+        this.pool = pool;
+    }
+
+    public Result<String, ReconciliationReport> reconcile(AccountId accountId, Instant from, Instant to, Path statementFile, StatementFormat format) {
+        try (Reader statement = Files.newBufferedReader(statementFile, StandardCharsets.UTF_8)) {
+            return reconcile(accountId, from, to, statement, format);
+        } catch (IOException ex) {
+            return Result.failure(format("Statement %s cannot be read: %s", statementFile, ex.getMessage()));
+        }
+    }
+
+    //entries applying within [from, to] are expected on the statement, entries within the date window around it may match too
+    public Result<String, ReconciliationReport> reconcile(AccountId accountId, Instant from, Instant to, Reader statement, StatementFormat format) {
+        checkArgument(!from.isAfter(to), "Reconciled period must not end before it starts");
+        Map<AccountId, Account> accounts = accountRepository.find(Set.copyOf(List.of(accountId, adjustmentAccount)));
+        for (AccountId required : List.of(accountId, adjustmentAccount)) {
+            if (!accounts.containsKey(required)) {
+                return Result.failure(format("Account %s does not exist", required));
+            }
+        }
+        for (String key : rules.metadataKeys()) {
+            if (!format.hasMetadata(key)) {
+                return Result.failure(format("Statement format has no field of metadata %s", key));
+            }
+        }
+        StatementFormat statementFormat = format.withDefaultCurrency(accounts.get(accountId).compactBalance().currencyCode());
+        List<Partition> partitioned = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            partitioned.add(new Partition(from, to));
+        }
+        try {
+            readLines(statement, statementFormat, partitioned);
+        } catch (IllegalArgumentException ex) {
+            return Result.failure(ex.getMessage());
+        } catch (UncheckedIOException ex) {
+            return Result.failure(format("Statement cannot be read: %s", ex.getCause().getMessage()));
+        }
+        readEntries(accountId, from, to, partitioned);
+        List<Callable<PartitionReport>> matching = partitioned.stream().<Callable<PartitionReport>>map(partition -> partition::match).toList();
+        List<Match> matched = new ArrayList<>();
+        List<Ambiguity> ambiguous = new ArrayList<>();
+        List<ExternalStatementLine> unmatchedLines = new ArrayList<>();
+        List<Entry> unmatchedEntries = new ArrayList<>();
+        for (Future<PartitionReport> future : pool.invokeAll(matching)) {
+            PartitionReport report = join(future);
+            matched.addAll(report.matched());
+            ambiguous.addAll(report.ambiguous());
+            unmatchedLines.addAll(report.unmatchedLines());
+            unmatchedEntries.addAll(report.unmatchedEntries());
+        }
+        matched.sort(Comparator.comparingLong(match -> match.line().lineNumber()));
+        ambiguous.sort(Comparator.comparingLong(ambiguity -> ambiguity.line().lineNumber()));
+        unmatchedLines.sort(Comparator.comparingLong(ExternalStatementLine::lineNumber));
+        unmatchedEntries.sort(EntryPosition.STATEMENT_ORDER);
+        //adjustments are built here, on the calling thread, not by the partitions on the pool
+        return Result.success(new ReconciliationReport(matched, ambiguous,
+                unmatchedLines.stream()
+                              .map(line -> new UnmatchedLine(line, adjustmentFor(line.bookedAt(), new MetaData(line.metadata()),
+                                      Map.of(accountId, line.amount(), adjustmentAccount, line.amount().negate()))))
+                              .toList(),
+                unmatchedEntries.stream()
+                                .map(entry -> new UnmatchedEntry(EntryView.from(entry), adjustmentFor(entry.appliesAt(), entry.metadata(),
+                                        Map.of(accountId, entry.amount().negate(), adjustmentAccount, entry.amount()))))
+                                .toList()));
+    }
+
+    private void readLines(Reader statement, StatementFormat format, List<Partition> partitioned) {
+        BufferedReader reader = statement instanceof BufferedReader buffered ? buffered : new BufferedReader(statement);
+        try {
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (lineNumber <= format.skippedLines() || line.isBlank()) {
+                    continue;
+                }
+                ExternalStatementLine parsed = format.parse(lineNumber, line);
+                partitioned.get(partitionOf(CompactMoney.minorUnitsOf(parsed.amount()))).lines.add(parsed);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void readEntries(AccountId accountId, Instant from, Instant to, List<Partition> partitioned) {
+        Instant windowFrom = minus(from, rules.dateWindow());
+        Instant windowTo = plus(to, rules.dateWindow());
+        EntryPosition after = null;
+        List<Entry> page;
+        do {
+            page = entryRepository.findPageFor(accountId, windowFrom, windowTo, after, ENTRIES_PAGE_SIZE);
+            for (Entry entry : page) {
+                partitioned.get(partitionOf(entry.amountInMinorUnits())).entries.add(entry);
+            }
+            after = page.isEmpty() ? after : EntryPosition.of(page.getLast());
+        } while (page.size() == ENTRIES_PAGE_SIZE);
+    }
+
+    //keys of the index are computed by the partitions, in parallel
+    private int partitionOf(long amountInMinorUnits) {
+        return Math.floorMod(Long.hashCode(amountInMinorUnits), partitions);
+    }
+
+    //with the metadata of what it adjusts, so an adjustment of a line matches that line when reconciled again
+    private Transaction adjustmentFor(Instant appliesAt, MetaData metadata, Map<AccountId, Money> amounts) {
+        return transactionBuilderFactory.transaction()
+                                        .occurredAt(clock.instant())
+                                        .appliesAt(appliesAt)
+                                        .withMetadata(metadata)
+                                        .withTypeOf(TransactionType.RECONCILIATION_ADJUSTMENT)
+                                        .executing()
+                                        .entriesFor(AccountAmounts.of(amounts))
+                                        .build();
+    }
+
+    private static Instant minus(Instant instant, Duration duration) {
+        return instant.isBefore(StatementQuery.EARLIEST.plus(duration)) ? StatementQuery.EARLIEST : instant.minus(duration);
+    }
+
+    private static Instant plus(Instant instant, Duration duration) {
+        return instant.isAfter(StatementQuery.LATEST.minus(duration)) ? StatementQuery.LATEST : instant.plus(duration);
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    //what has to be equal for a line and an entry to match - the booking date only has to be close, so it is left out
+    private record MatchKey(long amountInMinorUnits, String currencyCode, List<String> metadataValues) {
+
+        static MatchKey of(ExternalStatementLine line, MatchingRules rules) {
+            return new MatchKey(CompactMoney.minorUnitsOf(line.amount()), line.amount().currencyCode(),
+                    valuesOf(line.metadata(), rules));
+        }
+
+        static MatchKey of(Entry entry, MatchingRules rules) {
+            return new MatchKey(entry.amountInMinorUnits(), entry.amount().currencyCode(), valuesOf(entry.metadata().metadata(), rules));
+        }
+
+        private static List<String> valuesOf(Map<String, String> metadata, MatchingRules rules) {
+            return Arrays.asList(rules.metadataKeys().stream().map(key -> metadata.getOrDefault(key, "")).toArray(String[]::new));
+        }
+    }
+
+    private record PartitionReport(List<Match> matched, List<Ambiguity> ambiguous, List<ExternalStatementLine> unmatchedLines,
+                                   List<Entry> unmatchedEntries) {
+    }
+
+    private final class Partition {
+
+        private final Instant from;
+        private final Instant to;
+        private final List<ExternalStatementLine> lines = new ArrayList<>();
+        //in statement order, so sorted by appliesAt - released once indexed
+        private List<Entry> entries = new ArrayList<>();
+
+        private Partition(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        PartitionReport match() {
+            List<Match> matched = new ArrayList<>();
+            List<Ambiguity> ambiguous = new ArrayList<>();
+            List<ExternalStatementLine> unmatchedLines = new ArrayList<>();
+            //entries of a key stay sorted by appliesAt, matched ones are removed
+            Map<MatchKey, List<Entry>> index = new HashMap<>();
+            entries.forEach(entry -> index.computeIfAbsent(MatchKey.of(entry, rules), key -> new ArrayList<>()).add(entry));
+            entries = null;
+            lines.sort(Comparator.comparing(ExternalStatementLine::bookedAt).thenComparingLong(ExternalStatementLine::lineNumber));
+            for (ExternalStatementLine line : lines) {
+                List<Entry> closest = closestCandidates(line, index.getOrDefault(MatchKey.of(line, rules), List.of()));
+                if (closest.isEmpty()) {
+                    unmatchedLines.add(line);
+                } else if (closest.size() == 1) {
+                    matched.add(new Match(line, EntryView.from(closest.getFirst())));
+                    closest.clear();
+                } else {
+                    //entries in doubt are left to be resolved together with the line - no later line matches them
+                    ambiguous.add(new Ambiguity(line, closest.stream().map(EntryView::from).toList()));
+                    closest.clear();
+                }
+            }
+            List<Entry> unmatchedEntries = new ArrayList<>();
+            for (List<Entry> notMatched : index.values()) {
+                for (Entry entry : notMatched) {
+                    if (!entry.appliesAt().isBefore(from) && !entry.appliesAt().isAfter(to)) {
+                        unmatchedEntries.add(entry);
+                    }
+                }
+            }
+            return new PartitionReport(matched, ambiguous, unmatchedLines, unmatchedEntries);
+        }
+
+        //a view of the entries within the date window, all equally close to the booking date - found by binary search, as they are adjacent
+        private List<Entry> closestCandidates(ExternalStatementLine line, List<Entry> candidates) {
+            Instant bookedAt = line.bookedAt();
+            int position = firstApplyingNotBefore(candidates, bookedAt);
+            Duration before = position > 0 ? Duration.between(candidates.get(position - 1).appliesAt(), bookedAt) : null;
+            Duration after = position < candidates.size() ? Duration.between(bookedAt, candidates.get(position).appliesAt()) : null;
+            Duration closest = before == null || (after != null && after.compareTo(before) < 0) ? after : before;
+            if (closest == null || closest.compareTo(rules.dateWindow()) > 0) {
+                return List.of();
+            }
+            int first = closest.equals(before) ? firstApplyingNotBefore(candidates, candidates.get(position - 1).appliesAt()) : position;
+            int end = closest.equals(after) ? firstApplyingAfter(candidates, candidates.get(position).appliesAt()) : position;
+            return candidates.subList(first, end);
+        }
+
+        private static int firstApplyingNotBefore(List<Entry> candidates, Instant instant) {
+            int low = 0;
+            int high = candidates.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (candidates.get(middle).appliesAt().isBefore(instant)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int firstApplyingAfter(List<Entry> candidates, Instant instant) {
+            int low = 0;
+            int high = candidates.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (candidates.get(middle).appliesAt().isAfter(instant)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Outcome of reconciling an account against an external statement. Every unmatched line and entry comes with
+ * a suggested adjustment against the adjustment account - ambiguous lines need a decision first, so they come without one.
+ * Adjustments are built against the current versions of the accounts: posted after the accounts changed, they are rejected
+ * and the statement should be reconciled again.
+ */
+public record ReconciliationReport(List<Match> matched, List<Ambiguity> ambiguous, List<UnmatchedLine> unmatchedLines,
+                                   List<UnmatchedEntry> unmatchedEntries) {
+
+    public ReconciliationReport {
+        matched = List.copyOf(matched);
+        ambiguous = List.copyOf(ambiguous);
+        unmatchedLines = List.copyOf(unmatchedLines);
+        unmatchedEntries = List.copyOf(unmatchedEntries);
+    }
+
+    public boolean isReconciled() {
+        return ambiguous.isEmpty() && unmatchedLines.isEmpty() && unmatchedEntries.isEmpty();
+    }
+
+    //to be posted with AccountingFacade#execute(List, BatchPostingMode)
+    public List<Transaction> suggestedAdjustments() {
+        return Stream.concat(unmatchedLines.stream().map(UnmatchedLine::adjustment), unmatchedEntries.stream().map(UnmatchedEntry::adjustment))
+                     .toList();
+    }
+
+    public record Match(ExternalStatementLine line, EntryView entry) {
+    }
+
+    //more than one entry matches the line equally well
+    public record Ambiguity(ExternalStatementLine line, List<EntryView> candidates) {
+
+        public Ambiguity {
+            candidates = List.copyOf(candidates);
+        }
+    }
+
+    //books the line's amount to the account
+    public record UnmatchedLine(ExternalStatementLine line, Transaction adjustment) {
+    }
+
+    //takes the entry's amount off the account
+    public record UnmatchedEntry(EntryView entry, Transaction adjustment) {
+    }
+}
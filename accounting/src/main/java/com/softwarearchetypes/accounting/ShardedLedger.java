@@ -0,0 +1,300 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.common.events.EventPublisher;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.accounting.TransactionEntriesConstraint.BALANCING_CONSTRAINT;
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * The ledger split into shards, accounts hash-partitioned across them by id. Every shard is a separate ledger
+ * with its own repositories, written to by a single thread - transactions of different shards are posted in parallel.
+ * <p>
+ * A transaction of accounts of one shard is posted by that shard alone. A transaction spanning shards is posted
+ * with two-phase commit: its leg is built and validated on every involved shard (prepare), the shard's writer is
+ * then parked until all legs are known, so nothing can invalidate a prepared leg. Legs are committed only if all of them
+ * were prepared and together they satisfy {@link TransactionEntriesConstraint#BALANCING_CONSTRAINT} - otherwise all are aborted.
+ * Shards are prepared one by one in ascending order, so transactions spanning the same shards cannot wait for each other in a cycle.
+ * <p>
+ * A prepared leg can still fail on commit (e.g. on a storage error) after other legs were committed. Committed legs are
+ * then compensated with their reversals; if a compensation fails too, the transaction is kept in {@link #unbalancedTransactions()}
+ * until it is resolved by hand.
+ * <p>
+ * Events of all shards go to the publisher the ledger was created with, published by shard writers. Reads go straight
+ * to the shard. Must not be used from within shard writers, e.g. by synchronous event handlers - handlers posting
+ * further transactions need an asynchronous publisher.
+ */
+public class ShardedLedger implements AutoCloseable {
+
+    //a leg alone does not balance - the coordinator checks all legs together
+    private static final TransactionEntriesConstraint LEG_CONSTRAINT = new TransactionEntriesConstraint() {
+        @Override
+        public String errorMessage() {
+            return "Legs of a transaction are balanced together";
+        }
+
+        @Override
+        public boolean test(Map<Entry, Account> entries) {
+            return true;
+        }
+    };
+
+    private final List<Shard> shards;
+    private final Map<TransactionId, String> unbalancedTransactions = new ConcurrentHashMap<>();
+
+    private ShardedLedger(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public static ShardedLedger inMemory(Clock clock, int shards) {
+        return inMemory(clock, shards, new InMemoryEventsPublisher());
+    }
+
+    public static ShardedLedger inMemory(Clock clock, int shards, EventPublisher eventPublisher) {
+        checkArgument(shards > 0, "There must be at least one shard");
+        List<AccountingConfiguration> configurations = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            configurations.add(AccountingConfiguration.inMemory(clock, eventPublisher));
+        }
+        return of(configurations);
+    }
+
+    static ShardedLedger of(List<AccountingConfiguration> configurations) {
+        checkArgument(!configurations.isEmpty(), "There must be at least one shard");
+        List<Shard> created = new ArrayList<>();
+        for (int shard = 0; shard < configurations.size(); shard++) {
+            created.add(new Shard(shard, configurations.get(shard)));
+        }
+        return new ShardedLedger(List.copyOf(created));
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(AccountId accountId) {
+        return Math.floorMod(accountId.uuid().hashCode(), shards.size());
+    }
+
+    public Result<String, AccountId> createAccount(CreateAccount request) {
+        Shard shard = shards.get(shardOf(request.accountId()));
+        return shard.call(() -> shard.facade().createAccount(request));
+    }
+
+    public Optional<AccountView> findAccount(AccountId accountId) {
+        return shards.get(shardOf(accountId)).facade().findAccount(accountId);
+    }
+
+    public Optional<Money> balance(AccountId accountId) {
+        return shards.get(shardOf(accountId)).facade().balance(accountId);
+    }
+
+    public Result<String, TransactionId> transfer(AccountId from, AccountId to, Money amount, Instant occurredAt, Instant appliesAt) {
+        return post(TransactionType.of("transfer"), occurredAt, appliesAt, AccountAmounts.empty().add(from, amount.negate()).add(to, amount));
+    }
+
+    //negative amounts are debits, positive ones credits
+    public Result<String, TransactionId> post(TransactionType type, Instant occurredAt, Instant appliesAt, AccountAmounts amounts) {
+        SortedMap<Integer, AccountAmounts> legs = new TreeMap<>();
+        amounts.all().forEach((accountId, amount) -> legs.merge(shardOf(accountId), AccountAmounts.empty().add(accountId, amount), AccountAmounts::add));
+        if (legs.isEmpty()) {
+            return Result.failure("Transaction must have entries");
+        }
+        TransactionId transactionId = TransactionId.generate();
+        if (legs.size() == 1) {
+            Shard shard = shards.get(legs.firstKey());
+            return shard.call(() -> {
+                try {
+                    Transaction transaction = shard.leg(transactionId, type, occurredAt, appliesAt, legs.get(legs.firstKey()), BALANCING_CONSTRAINT);
+                    return shard.facade().execute(transaction);
+                } catch (RuntimeException ex) {
+                    return Result.failure(ex.getMessage());
+                }
+            });
+        }
+        return postAcrossShards(transactionId, type, occurredAt, appliesAt, legs);
+    }
+
+    //transactions committed partially whose committed legs could not be compensated, with the reason
+    public Map<TransactionId, String> unbalancedTransactions() {
+        return Map.copyOf(unbalancedTransactions);
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(Shard::close);
+    }
+
+    private Result<String, TransactionId> postAcrossShards(TransactionId transactionId, TransactionType type, Instant occurredAt, Instant appliesAt,
+                                                           SortedMap<Integer, AccountAmounts> legs) {
+        List<PreparedLeg> prepared = new ArrayList<>();
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+        try {
+            for (Map.Entry<Integer, AccountAmounts> leg : legs.entrySet()) {
+                PreparedLeg preparedLeg = shards.get(leg.getKey()).prepare(transactionId, type, occurredAt, appliesAt, leg.getValue(), decision);
+                Optional<String> error = preparedLeg.error();
+                if (error.isPresent()) {
+                    return Result.failure(error.get());
+                }
+                prepared.add(preparedLeg);
+            }
+            Map<Entry, Account> entries = new HashMap<>();
+            prepared.forEach(leg -> leg.transaction().entries().forEach((account, accountEntries) -> accountEntries.forEach(entry -> entries.put(entry, account))));
+            if (!BALANCING_CONSTRAINT.test(entries)) {
+                return Result.failure(BALANCING_CONSTRAINT.errorMessage());
+            }
+            decision.complete(true);
+            List<String> errors = new ArrayList<>();
+            List<PreparedLeg> committedLegs = new ArrayList<>();
+            for (PreparedLeg leg : prepared) {
+                Result<String, TransactionId> committed = join(leg.committed());
+                if (committed.failure()) {
+                    errors.add(committed.getFailure());
+                } else {
+                    committedLegs.add(leg);
+                }
+            }
+            return errors.isEmpty()
+                    ? Result.success(transactionId)
+                    : compensate(transactionId, occurredAt, appliesAt, committedLegs, errors);
+        } finally {
+            //aborts unless committed above - parked writers are always released
+            decision.complete(false);
+        }
+    }
+
+    //a prepared leg can only fail on storage errors - the legs committed before are reverted, so the ledger balances again
+    private Result<String, TransactionId> compensate(TransactionId transactionId, Instant occurredAt, Instant appliesAt, List<PreparedLeg> committedLegs,
+                                                     List<String> errors) {
+        List<String> compensationErrors = new ArrayList<>();
+        for (PreparedLeg leg : committedLegs) {
+            Result<String, TransactionId> compensated = leg.shard().call(() -> {
+                try {
+                    return leg.shard().facade().execute(leg.shard().reversal(leg.transaction(), occurredAt, appliesAt));
+                } catch (RuntimeException ex) {
+                    return Result.failure(ex.getMessage());
+                }
+            });
+            if (compensated.failure()) {
+                compensationErrors.add(compensated.getFailure());
+            }
+        }
+        if (!compensationErrors.isEmpty()) {
+            String reason = format("Legs failed on commit: %s, compensations failed: %s", errors, compensationErrors);
+            unbalancedTransactions.put(transactionId, reason);
+            return Result.failure(format("Transaction %s was committed partially. %s", transactionId, reason));
+        }
+        return Result.failure(format("Transaction %s was aborted, its committed legs were reverted: %s", transactionId, errors));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private record PreparedLeg(Shard shard, Optional<String> error, Transaction transaction, CompletableFuture<Result<String, TransactionId>> committed) {
+    }
+
+    private static final class Shard {
+
+        private final AccountingConfiguration configuration;
+        private final ExecutorService writer;
+
+        private Shard(int index, AccountingConfiguration configuration) {
+            this.configuration = configuration;
+            this.writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ledger-shard-" + index));
+        }
+
+        AccountingFacade facade() {
+            return configuration.facade();
+        }
+
+        <T> T call(Supplier<T> task) {
+            return join(CompletableFuture.supplyAsync(task, writer));
+        }
+
+        Transaction leg(TransactionId transactionId, TransactionType type, Instant occurredAt, Instant appliesAt, AccountAmounts amounts,
+                        TransactionEntriesConstraint constraint) {
+            return configuration.transactionBuilderFactory()
+                                .transaction()
+                                .id(transactionId)
+                                .occurredAt(occurredAt)
+                                .appliesAt(appliesAt)
+                                .withTypeOf(type)
+                                .withTransactionEntriesConstraint(constraint)
+                                .executing()
+                                .entriesFor(amounts)
+                                .build();
+        }
+
+        Transaction reversal(Transaction leg, Instant occurredAt, Instant appliesAt) {
+            return configuration.transactionBuilderFactory()
+                                .transaction()
+                                .occurredAt(occurredAt)
+                                .appliesAt(appliesAt)
+                                .withTransactionEntriesConstraint(LEG_CONSTRAINT)
+                                .reverting(leg)
+                                .build();
+        }
+
+        //returns once the leg is prepared - the writer stays parked until the decision, then commits or aborts the leg
+        PreparedLeg prepare(TransactionId transactionId, TransactionType type, Instant occurredAt, Instant appliesAt, AccountAmounts amounts,
+                            CompletableFuture<Boolean> decision) {
+            CompletableFuture<PreparedLeg> prepared = new CompletableFuture<>();
+            CompletableFuture<Result<String, TransactionId>> committed = new CompletableFuture<>();
+            writer.execute(() -> {
+                //futures are completed whatever is thrown, so neither the coordinator nor other shards wait forever
+                PreparedLeg leg = new PreparedLeg(this, Optional.of(format("Leg of transaction %s was not prepared", transactionId)), null, committed);
+                try {
+                    leg = new PreparedLeg(this, Optional.empty(), leg(transactionId, type, occurredAt, appliesAt, amounts, LEG_CONSTRAINT), committed);
+                } catch (RuntimeException ex) {
+                    leg = new PreparedLeg(this, Optional.of(ex.getMessage()), null, committed);
+                } finally {
+                    prepared.complete(leg);
+                }
+                Result<String, TransactionId> result = Result.failure(format("Leg of transaction %s failed on commit", transactionId));
+                try {
+                    if (leg.error().isPresent()) {
+                        result = Result.failure(leg.error().get());
+                    } else {
+                        result = join(decision) ? facade().execute(leg.transaction()) : Result.failure(format("Transaction %s was aborted", transactionId));
+                    }
+                } catch (RuntimeException ex) {
+                    result = Result.failure(ex.getMessage());
+                } finally {
+                    committed.complete(result);
+                }
+            });
+            return join(prepared);
+        }
+
+        void close() {
+            writer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.softwarearchetypes.accounting;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * {@link Filter} translated to a WHERE clause over {@code entries e JOIN accounts a ON a.id = e.account_id}.
+ * Opaque conditions are not translatable - they are returned as {@code residual} and must be checked
+ * on the rows fetched by the query. Condition on the account ids uses the (account_id, applies_at) index.
+ */
+record SqlFilter(String whereClause, List<Object> parameters, Filter residual) {
+
+    static SqlFilter from(Filter filter) {
+        return translate(filter, "e.account_id", false);
+    }
+
+    //account level conditions only, as a WHERE clause over {@code accounts a} - entry level conditions are left as residual
+    static SqlFilter forAccounts(Filter filter) {
+        return translate(filter, "a.id", true);
+    }
+
+    private static SqlFilter translate(Filter filter, String accountIdColumn, boolean accountsOnly) {
+        List<String> clauses = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        List<Filter> residual = new ArrayList<>();
+        for (Filter condition : filter.conditions()) {
+            switch (condition) {
+                case Filter entryCondition when accountsOnly && entryCondition.constrainsEntries() -> residual.add(entryCondition);
+                case Filter.AccountIn in when in.ids().isEmpty() -> clauses.add("1 = 0");
+                case Filter.AccountIn in -> {
+                    clauses.add(accountIdColumn + " IN (" + in.ids().stream().map(it -> "?").collect(joining(", ")) + ")");
+                    in.ids().forEach(id -> parameters.add(id.uuid()));
+                }
+                case Filter.AccountNameContains name -> {
+                    clauses.add("a.name LIKE ? ESCAPE '\\'");
+                    parameters.add("%" + escapeLike(name.text()) + "%");
+                }
+                case Filter.MetadataEquals metadata -> {
+                    clauses.add("EXISTS (SELECT 1 FROM entry_metadata m WHERE m.entry_id = e.id AND m.meta_key = ? AND m.meta_value = ?)");
+                    parameters.add(metadata.key());
+                    parameters.add(metadata.value());
+                }
+                case Filter.OccurredNotAfter notAfter -> {
+                    clauses.add("e.occurred_at <= ?");
+                    parameters.add(Timestamp.from(notAfter.instant()));
+                }
+                case Filter.OccurredNotBefore notBefore -> {
+                    clauses.add("e.occurred_at >= ?");
+                    parameters.add(Timestamp.from(notBefore.instant()));
+                }
+                case Filter.OccurredMatching opaque -> residual.add(opaque);
+                case Filter.AmountMatching opaque -> residual.add(opaque);
+                case Filter.EntryMatching opaque -> residual.add(opaque);
+                //conditions() of And are already flattened
+                case Filter.And and -> throw new IllegalStateException("Nested conditions are not flattened");
+            }
+        }
+        String whereClause = clauses.isEmpty() ? "1 = 1" : String.join(" AND ", clauses);
+        return new SqlFilter(whereClause, List.copyOf(parameters), Filter.allOf(residual));
+    }
+
+    boolean fullyTranslated() {
+        return residual.conditions().isEmpty();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,177 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.softwarearchetypes.quantity.money.CompactMoney;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Layout of an external statement file - how a line is split into fields (CSV or fixed-width columns)
+ * and which fields hold the booking date, the amount and metadata. Fields are counted from 0.
+ * By default the booking date is in field 0 as an ISO date (start of the day in UTC) and the amount in field 1,
+ * in the currency of the reconciled account.
+ */
+public final class StatementFormat {
+
+    private static final DateTimeFormatter DEFAULT_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final Function<String, List<String>> fieldsOf;
+    private final int skippedLines;
+    private final int dateField;
+    private final DateTimeFormatter dateFormat;
+    private final ZoneId zone;
+    private final int amountField;
+    //null when amounts are in the currency of the reconciled account
+    private final String currencyCode;
+    private final Map<String, Integer> metadataFields;
+
+    private StatementFormat(Function<String, List<String>> fieldsOf, int skippedLines, int dateField, DateTimeFormatter dateFormat, ZoneId zone,
+                            int amountField, String currencyCode, Map<String, Integer> metadataFields) {
+        this.fieldsOf = fieldsOf;
+        this.skippedLines = skippedLines;
+        this.dateField = dateField;
+        this.dateFormat = dateFormat;
+        this.zone = zone;
+        this.amountField = amountField;
+        this.currencyCode = currencyCode;
+        this.metadataFields = Map.copyOf(metadataFields);
+    }
+
+    //fields may be enclosed in double quotes, a quote within such a field is doubled
+    public static StatementFormat csv(char separator) {
+        return new StatementFormat(line -> csvFields(line, separator), 0, 0, DEFAULT_DATE_FORMAT, ZoneOffset.UTC, 1, null, Map.of());
+    }
+
+    //the last field may be shorter than its width, fields are stripped of padding
+    public static StatementFormat fixedWidth(int... widths) {
+        checkArgument(widths.length > 0, "There must be at least one column");
+        for (int width : widths) {
+            checkArgument(width > 0, "Column width must be positive");
+        }
+        int[] columns = widths.clone();
+        return new StatementFormat(line -> fixedWidthFields(line, columns), 0, 0, DEFAULT_DATE_FORMAT, ZoneOffset.UTC, 1, null, Map.of());
+    }
+
+    //e.g. a header
+    public StatementFormat skippingLines(int lines) {
+        checkArgument(lines >= 0, "Skipped lines cannot be negative");
+        return new StatementFormat(fieldsOf, lines, dateField, dateFormat, zone, amountField, currencyCode, metadataFields);
+    }
+
+    public StatementFormat date(int field, String pattern, ZoneId zone) {
+        checkArgument(field >= 0, "Field cannot be negative");
+        return new StatementFormat(fieldsOf, skippedLines, field, DateTimeFormatter.ofPattern(pattern), zone, amountField, currencyCode, metadataFields);
+    }
+
+    public StatementFormat amount(int field, String currencyCode) {
+        checkArgument(field >= 0, "Field cannot be negative");
+        return new StatementFormat(fieldsOf, skippedLines, dateField, dateFormat, zone, field, currencyCode, metadataFields);
+    }
+
+    public StatementFormat metadata(String key, int field) {
+        checkArgument(field >= 0, "Field cannot be negative");
+        Map<String, Integer> extended = new HashMap<>(metadataFields);
+        extended.put(key, field);
+        return new StatementFormat(fieldsOf, skippedLines, dateField, dateFormat, zone, amountField, currencyCode, extended);
+    }
+
+    StatementFormat withDefaultCurrency(String currencyCode) {
+        return this.currencyCode != null ? this : amount(amountField, currencyCode);
+    }
+
+    int skippedLines() {
+        return skippedLines;
+    }
+
+    boolean hasMetadata(String key) {
+        return metadataFields.containsKey(key);
+    }
+
+    ExternalStatementLine parse(long lineNumber, String line) {
+        List<String> fields = fieldsOf.apply(line);
+        Map<String, String> metadata = new HashMap<>();
+        metadataFields.forEach((key, field) -> metadata.put(key, field(fields, field, lineNumber)));
+        return new ExternalStatementLine(lineNumber, dateOf(field(fields, dateField, lineNumber), lineNumber),
+                amountOf(field(fields, amountField, lineNumber), lineNumber), metadata);
+    }
+
+    private Instant dateOf(String value, long lineNumber) {
+        try {
+            return LocalDate.parse(value, dateFormat).atStartOfDay(zone).toInstant();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(format("Line %d has an invalid date %s", lineNumber, value));
+        }
+    }
+
+    //the amount must be representable in minor units, as entry amounts are
+    private Money amountOf(String value, long lineNumber) {
+        try {
+            Money amount = Money.of(new BigDecimal(value), currencyCode);
+            CompactMoney.minorUnitsOf(amount);
+            return amount;
+        } catch (ArithmeticException | NumberFormatException ex) {
+            throw new IllegalArgumentException(format("Line %d has an invalid amount %s", lineNumber, value));
+        }
+    }
+
+    private static String field(List<String> fields, int field, long lineNumber) {
+        checkArgument(field < fields.size(), format("Line %d has no field %d", lineNumber, field));
+        return fields.get(field).strip();
+    }
+
+    private static List<String> csvFields(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static List<String> fixedWidthFields(String line, int[] widths) {
+        List<String> fields = new ArrayList<>(widths.length);
+        int start = 0;
+        for (int width : widths) {
+            if (start >= line.length()) {
+                break;
+            }
+            int end = Math.min(start + width, line.length());
+            fields.add(line.substring(start, end));
+            start = end;
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,12 @@
+package com.softwarearchetypes.accounting;
+
+import java.util.Map;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * @param balance balance of the account right after the entry - entries filtered out of the statement are counted in too
+ * @param cursor  opaque token resuming the statement after this line
+ */
+public record StatementLine(EntryView entry, Map<String, String> metadata, Money balance, String cursor) {
+}
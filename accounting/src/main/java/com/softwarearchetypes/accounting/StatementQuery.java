@@ -0,0 +1,54 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Entries of an account statement: applying within [from, to], both ends inclusive, carrying all the given metadata.
+ * A statement may be resumed after the cursor of its last read line.
+ */
+public record StatementQuery(Instant from, Instant to, Map<String, String> metadata, Optional<String> resumeAfter, int pageSize) {
+
+    //bounds representable in SQL timestamps
+    public static final Instant EARLIEST = Instant.parse("0001-01-01T00:00:00Z");
+    public static final Instant LATEST = Instant.parse("9999-12-31T23:59:59Z");
+
+    static final int DEFAULT_PAGE_SIZE = 500;
+
+    public StatementQuery {
+        checkArgument(from != null && to != null, "Statement range must be defined");
+        checkArgument(!from.isBefore(EARLIEST) && !to.isAfter(LATEST), "Statement range must be within " + EARLIEST + " and " + LATEST);
+        checkArgument(pageSize > 0, "Page size must be positive");
+        metadata = Map.copyOf(metadata);
+    }
+
+    public static StatementQuery all() {
+        return between(EARLIEST, LATEST);
+    }
+
+    public static StatementQuery between(Instant from, Instant to) {
+        return new StatementQuery(from, to, Map.of(), Optional.empty(), DEFAULT_PAGE_SIZE);
+    }
+
+    public StatementQuery withMetadata(String key, String value) {
+        Map<String, String> extended = new HashMap<>(metadata);
+        extended.put(key, value);
+        return new StatementQuery(from, to, extended, resumeAfter, pageSize);
+    }
+
+    public StatementQuery resumingAfter(String cursor) {
+        return new StatementQuery(from, to, metadata, Optional.of(cursor), pageSize);
+    }
+
+    public StatementQuery withPageSize(int pageSize) {
+        return new StatementQuery(from, to, metadata, resumeAfter, pageSize);
+    }
+
+    boolean matches(Entry entry) {
+        return entry.metadata().metadata().entrySet().containsAll(metadata.entrySet());
+    }
+}
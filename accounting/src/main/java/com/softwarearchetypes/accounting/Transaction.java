@@ -1,6 +1,7 @@
 package com.softwarearchetypes.accounting;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -9,11 +10,12 @@ import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import com.softwarearchetypes.quantity.money.Money;
+import com.softwarearchetypes.common.Version;
 
 import static com.softwarearchetypes.common.Preconditions.checkArgument;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toMap;
 
 public final class Transaction {
 
@@ -24,6 +26,8 @@ public final class Transaction {
     private final Instant appliesAt;
     //transient
     private Map<Account, List<Entry>> entries;
+    //versions of involved accounts at the time the transaction was built
+    private final Map<AccountId, Version> expectedVersions;
 
     //package private
     Transaction(TransactionId id, TransactionId refId, TransactionType type, Instant occurredAt, Instant appliesAt,
@@ -43,18 +47,47 @@ public final class Transaction {
         this.occurredAt = occurredAt;
         this.appliesAt = appliesAt;
         this.entries = entries.entrySet().stream().collect(groupingBy(Map.Entry::getValue, mapping(Map.Entry::getKey, Collectors.toList())));
+        this.expectedVersions = this.entries.keySet().stream().collect(toMap(Account::id, Account::version));
+    }
+
+    private Transaction(Transaction transaction, Map<Account, List<Entry>> entries) {
+        this.id = transaction.id;
+        this.refId = transaction.refId;
+        this.type = transaction.type;
+        this.occurredAt = transaction.occurredAt;
+        this.appliesAt = transaction.appliesAt;
+        this.entries = entries;
+        this.expectedVersions = transaction.expectedVersions;
     }
 
     public TransactionId id() {
         return id;
     }
 
+    //the same transaction, with the key added to metadata of all its entries - e.g. to trace what caused it
+    public Transaction withMetadata(String key, String value) {
+        Map<Account, List<Entry>> extended = new HashMap<>();
+        entries.forEach((account, accountEntries) -> extended.put(account, accountEntries.stream().map(entry -> {
+            Map<String, String> metadata = new HashMap<>(entry.metadata().metadata());
+            metadata.put(key, value);
+            return entry.withMetadata(MetaData.of(metadata));
+        }).toList()));
+        return new Transaction(this, extended);
+    }
+
     Optional<TransactionId> refId() {
         return Optional.ofNullable(refId);
     }
 
-    Set<Account> accountsInvolved() {
-        return entries.keySet();
+    Set<AccountId> accountIdsInvolved() {
+        return expectedVersions.keySet();
+    }
+
+    //optimistic locking - every involved account, as currently stored, must still be in the version this transaction was built against
+    boolean isBuiltAgainst(Map<AccountId, Account> currentAccounts) {
+        return expectedVersions.entrySet().stream()
+                               .allMatch(expected -> currentAccounts.containsKey(expected.getKey())
+                                       && currentAccounts.get(expected.getKey()).version().equals(expected.getValue()));
     }
 
     Map<Account, List<Entry>> entries() {
@@ -74,8 +107,10 @@ public final class Transaction {
     }
 
     //intentionally left non-public
-    void execute() {
-        entries.forEach(Account::addEntries);
+    //entries go to the given instances of the involved accounts, e.g. read again under their locks - with JDBC every load
+    //is a new instance, so transactions of one batch touching the same account must all be executed on one of them
+    void executeOn(Map<AccountId, Account> accounts) {
+        entries.forEach((account, accountEntries) -> accounts.get(account.id()).addEntries(accountEntries));
     }
 
 }
@@ -97,13 +132,13 @@ interface TransactionEntriesConstraint extends Predicate<Map<Entry, Account>> {
 
         @Override
         public boolean test(Map<Entry, Account> entries) {
-            Money balance = Optional.ofNullable(entries).orElse(Map.of())
-                                    .entrySet()
-                                    .stream()
-                                    .filter(entry -> entry.getValue().type().isDoubleEntryBookingEnabled())
-                                    .map(entry -> entry.getKey().amount())
-                                    .reduce(Money.zeroPln(), Money::add);
-            return balance.isZero();
+            long balance = 0;
+            for (Map.Entry<Entry, Account> entry : Optional.ofNullable(entries).orElse(Map.of()).entrySet()) {
+                if (entry.getValue().type().isDoubleEntryBookingEnabled()) {
+                    balance = Math.addExact(balance, entry.getKey().amountInMinorUnits());
+                }
+            }
+            return balance == 0;
         }
     };
 
@@ -26,7 +26,6 @@ import static java.util.stream.Collectors.toMap;
 class TransactionBuilder {
 
     private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
     private final EntryAllocations entryAllocations;
     private final EntryRepository entryRepository;
     private final Clock clock;
@@ -37,9 +36,8 @@ class TransactionBuilder {
     private MetaData metadata = MetaData.empty();
     private TransactionEntriesConstraint transactionEntriesConstraint = BALANCING_CONSTRAINT;
 
-    TransactionBuilder(AccountRepository accountRepository, TransactionRepository transactionRepository, EntryAllocations entryAllocations, EntryRepository entryRepository, Clock clock) {
+    TransactionBuilder(AccountRepository accountRepository, EntryAllocations entryAllocations, EntryRepository entryRepository, Clock clock) {
         this.accountRepository = accountRepository;
-        this.transactionRepository = transactionRepository;
         this.entryAllocations = entryAllocations;
         this.entryRepository = entryRepository;
         this.clock = clock;
@@ -89,13 +87,17 @@ class TransactionBuilder {
     }
 
     public ReverseTransactionEntriesBuilder reverting(Transaction refTransaction) {
-        return new ReverseTransactionEntriesBuilder(refTransaction);
+        List<Entry> refEntries = refTransaction.entries().values().stream().flatMap(List::stream).toList();
+        return new ReverseTransactionEntriesBuilder(refTransaction.id(), refEntries);
     }
 
+    //only entries of the reverted transaction are read, through the entry repository's transaction index
     public ReverseTransactionEntriesBuilder reverting(TransactionId refTransactionId) {
-        Transaction refTransaction = transactionRepository.find(refTransactionId)
-                                                          .orElseThrow(() -> new IllegalArgumentException(String.format("Transaction %s does not exist", refTransactionId.toString())));
-        return new ReverseTransactionEntriesBuilder(refTransaction);
+        List<Entry> refEntries = entryRepository.findAllOf(refTransactionId);
+        if (refEntries.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Transaction %s does not exist", refTransactionId.toString()));
+        }
+        return new ReverseTransactionEntriesBuilder(refTransactionId, refEntries);
     }
 
     ExpirationCompensationTransactionEntriesBuilder compensatingExpired(EntryId entryId) {
@@ -250,24 +252,20 @@ class TransactionBuilder {
 
     public class ReverseTransactionEntriesBuilder {
 
-        private final Transaction refTransaction;
+        private final TransactionId refTransactionId;
         private final List<Entry> entries = new LinkedList<>();
         private final Set<AccountId> involvedAccountsIds = new HashSet<>();
 
-        ReverseTransactionEntriesBuilder(Transaction refTransaction) {
-            this.refTransaction = refTransaction;
-            refTransaction.entries()
-                          .entrySet()
-                          .stream()
-                          .flatMap(it -> it.getValue().stream())
-                          .forEach(this::revert);
+        ReverseTransactionEntriesBuilder(TransactionId refTransactionId, List<Entry> refEntries) {
+            this.refTransactionId = refTransactionId;
+            refEntries.forEach(this::revert);
         }
 
         public Transaction build() {
             Map<AccountId, Account> accountsInvolved = accountRepository.find(involvedAccountsIds);
             if (accountsInvolved.size() == involvedAccountsIds.size()) {
                 Map<Entry, Account> entriesWithAccounts = entries.stream().collect(toMap(it -> it, it -> accountsInvolved.get(it.accountId())));
-                return new Transaction(transactionId, refTransaction.id(), REVERSAL, occurredAt, appliesAt, entriesWithAccounts, transactionEntriesConstraint);
+                return new Transaction(transactionId, refTransactionId, REVERSAL, occurredAt, appliesAt, entriesWithAccounts, transactionEntriesConstraint);
             } else {
                 String missingAccountIds = subtract(involvedAccountsIds, accountsInvolved.keySet()).stream()
                                                                                                    .map(AccountId::uuid)
@@ -290,9 +288,7 @@ class TransactionBuilder {
     /**
      * Builder for creating expiration compensation transactions.
      * <p>
-     * Note: A scheduler service could be implemented to automatically find expired entries
-     * using EntryRepository.findAllMatching() with validity.hasExpired() predicate,
-     * and then call this builder to create compensation transactions via AccountingFacade.
+     * Expired entries are compensated on schedule by {@link ExpirationSweeper}.
      */
     public class ExpirationCompensationTransactionEntriesBuilder {
 
@@ -336,9 +332,11 @@ class TransactionBuilder {
             }
         }
 
+        //the compensation account's entry refers to the expired entry as well - only entries of its own account use it up
         private Money calculateRemainingAmount() {
             Money referencingEntriesTotalAmount = entryRepository.findEntriesReferencing(refEntry)
                                                                  .stream()
+                                                                 .filter(entry -> entry.accountId().equals(refEntry.accountId()))
                                                                  .map(Entry::amount)
                                                                  .reduce(Money.zeroPln(), Money::add);
 
@@ -1,8 +1,9 @@
 package com.softwarearchetypes.accounting;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 interface TransactionRepository {
 
@@ -10,11 +11,13 @@ interface TransactionRepository {
 
     Transaction save(Transaction transaction);
 
+    void save(Collection<Transaction> transactions);
+
 }
 
 class InMemoryTransactionRepo implements TransactionRepository {
 
-    private final Map<TransactionId, Transaction> transactions = new HashMap<>();
+    private final Map<TransactionId, Transaction> transactions = new ConcurrentHashMap<>();
 
     @Override
     public Optional<Transaction> find(TransactionId transactionId) {
@@ -26,4 +29,9 @@ class InMemoryTransactionRepo implements TransactionRepository {
         return transactions.put(transaction.id(), transaction);
     }
 
+    @Override
+    public void save(Collection<Transaction> transactions) {
+        transactions.forEach(this::save);
+    }
+
 }
@@ -11,6 +11,7 @@ public record TransactionType(@JsonValue String value) {
     public static final TransactionType TRANSFER = new TransactionType("transfer");
     public static final TransactionType REALLOCATION = new TransactionType("reallocation");
     public static final TransactionType EXPIRATION_COMPENSATION = new TransactionType("expiration_compensation");
+    public static final TransactionType RECONCILIATION_ADJUSTMENT = new TransactionType("reconciliation_adjustment");
 
     static TransactionType of(String value) {
         return new TransactionType(value);
@@ -0,0 +1,40 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * Totals of all accounts per account type and currency code, as of a point in time. Credits add to a total, debits subtract from it.
+ */
+public record TrialBalance(Instant asOf, Map<AccountType, Map<String, Money>> totals) {
+
+    public TrialBalance {
+        totals = totals.entrySet().stream().collect(toUnmodifiableMap(Map.Entry::getKey, total -> Map.copyOf(total.getValue())));
+    }
+
+    //per currency code
+    public Map<String, Money> totalsOf(AccountType type) {
+        return totals.getOrDefault(type, Map.of());
+    }
+
+    public Money totalOf(AccountType type, String currencyCode) {
+        return totalsOf(type).getOrDefault(currencyCode, Money.of(BigDecimal.ZERO, currencyCode));
+    }
+
+    //every double entry transaction debits as much as it credits - their accounts must sum up to zero, in every currency
+    public boolean isBalanced() {
+        Map<String, Money> byCurrency = new HashMap<>();
+        totals.forEach((type, totalsOfType) -> {
+            if (type.isDoubleEntryBookingEnabled()) {
+                totalsOfType.forEach((currencyCode, total) -> byCurrency.merge(currencyCode, total, Money::add));
+            }
+        });
+        return byCurrency.values().stream().allMatch(Money::isZero);
+    }
+}
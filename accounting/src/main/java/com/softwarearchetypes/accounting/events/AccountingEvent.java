@@ -1,7 +1,16 @@
 package com.softwarearchetypes.accounting.events;
 
+import java.util.Map;
+import java.util.UUID;
+
 import com.softwarearchetypes.common.events.PublishedEvent;
 
 sealed public interface AccountingEvent extends PublishedEvent permits CreditEntryRegistered, DebitEntryRegistered {
 
+    //events of one account must be handled in order - it is their partition key
+    UUID accountId();
+
+    UUID transactionId();
+
+    Map<String, String> metadata();
 }
@@ -1,14 +1,25 @@
 package com.softwarearchetypes.accounting.events;
 
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 import com.softwarearchetypes.quantity.money.Money;
 
-public record CreditEntryRegistered(UUID id, Instant occurredAt, Instant appliesAt, UUID entryId, UUID accountId, UUID transactionId, Money amount) implements AccountingEvent {
+//metadata of the entry
+public record CreditEntryRegistered(UUID id, Instant occurredAt, Instant appliesAt, UUID entryId, UUID accountId, UUID transactionId, Money amount,
+                                    Map<String, String> metadata) implements AccountingEvent {
 
     static final String TYPE = "CreditEntryRegistered";
 
+    public CreditEntryRegistered {
+        metadata = metadata == null ? Map.of() : Map.copyOf(metadata);
+    }
+
+    public CreditEntryRegistered(UUID id, Instant occurredAt, Instant appliesAt, UUID entryId, UUID accountId, UUID transactionId, Money amount) {
+        this(id, occurredAt, appliesAt, entryId, accountId, transactionId, amount, Map.of());
+    }
+
     public String type() {
         return TYPE;
     }
@@ -2,6 +2,7 @@ package com.softwarearchetypes.accounting.postingrules;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import com.softwarearchetypes.accounting.AccountView;
 import com.softwarearchetypes.accounting.AccountId;
@@ -10,25 +11,35 @@ public interface AccountFinder {
 
     TargetAccounts findAccounts(PostingContext context);
 
+    //accounts known up front, loaded into the PostingContext in bulk before the finder runs
+    default Set<AccountId> referencedAccounts() {
+        return Set.of();
+    }
+
     static AccountFinder fixed(String tag, AccountId accountId) {
-        return context -> {
-            AccountView account = context.accountingFacade()
-                    .findAccount(accountId)
-                    .orElseThrow(() -> new IllegalArgumentException("Account " + accountId + " not found"));
-            return TargetAccounts.of(Map.of(tag, account));
-        };
+        return fixed(Map.of(tag, accountId));
     }
 
     static AccountFinder fixed(Map<String, AccountId> accountIds) {
-        return context -> {
-            Map<String, AccountView> accounts = new HashMap<>();
-            for (Map.Entry<String, AccountId> entry : accountIds.entrySet()) {
-                AccountView account = context.accountingFacade()
-                        .findAccount(entry.getValue())
-                        .orElseThrow(() -> new IllegalArgumentException("Account " + entry.getValue() + " not found"));
-                accounts.put(entry.getKey(), account);
-            }
-            return TargetAccounts.of(accounts);
-        };
+        return new FixedAccounts(Map.copyOf(accountIds));
+    }
+}
+
+record FixedAccounts(Map<String, AccountId> accountIds) implements AccountFinder {
+
+    @Override
+    public TargetAccounts findAccounts(PostingContext context) {
+        Map<String, AccountView> accounts = new HashMap<>();
+        for (Map.Entry<String, AccountId> entry : accountIds.entrySet()) {
+            AccountView account = context.findAccount(entry.getValue())
+                    .orElseThrow(() -> new IllegalArgumentException("Account " + entry.getValue() + " not found"));
+            accounts.put(entry.getKey(), account);
+        }
+        return TargetAccounts.of(accounts);
+    }
+
+    @Override
+    public Set<AccountId> referencedAccounts() {
+        return Set.copyOf(accountIds.values());
     }
 }
\ No newline at end of file
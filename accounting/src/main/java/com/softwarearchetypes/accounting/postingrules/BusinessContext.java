@@ -1,5 +1,6 @@
 package com.softwarearchetypes.accounting.postingrules;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -15,6 +16,16 @@ public interface BusinessContext {
         return Optional.empty();
     }
 
+    default CausationChain causationChain() {
+        return get(CausationChain.KEY, CausationChain.class).orElse(CausationChain.empty());
+    }
+
+    default BusinessContext with(String key, Object value) {
+        Map<String, Object> extended = new HashMap<>(data());
+        extended.put(key, value);
+        return of(extended);
+    }
+
     static BusinessContext empty() {
         return Map::of;
     }
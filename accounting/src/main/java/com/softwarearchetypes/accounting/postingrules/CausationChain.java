@@ -0,0 +1,53 @@
+package com.softwarearchetypes.accounting.postingrules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Posting rules whose transactions, one after another, led to the entries being evaluated - the first rule of a cascade first.
+ * Empty for entries posted from outside of posting rules.
+ * Entries posted by rules carry it in their metadata under {@value #KEY}, so it reaches handlers on any thread.
+ */
+public record CausationChain(List<PostingRuleId> rules) {
+
+    static final String KEY = "causationChain";
+    private static final String SEPARATOR = " -> ";
+
+    public CausationChain {
+        rules = List.copyOf(rules);
+    }
+
+    public static CausationChain empty() {
+        return new CausationChain(List.of());
+    }
+
+    //reverse of toString()
+    static CausationChain parse(String chain) {
+        if (chain.isBlank()) {
+            return empty();
+        }
+        return new CausationChain(Arrays.stream(chain.split(SEPARATOR)).map(PostingRuleId::of).toList());
+    }
+
+    public int depth() {
+        return rules.size();
+    }
+
+    public boolean contains(PostingRuleId ruleId) {
+        return rules.contains(ruleId);
+    }
+
+    CausationChain then(PostingRuleId ruleId) {
+        List<PostingRuleId> extended = new ArrayList<>(rules);
+        extended.add(ruleId);
+        return new CausationChain(extended);
+    }
+
+    @Override
+    public String toString() {
+        return rules.stream().map(PostingRuleId::toString).collect(joining(SEPARATOR));
+    }
+}
@@ -1,7 +1,9 @@
 package com.softwarearchetypes.accounting.postingrules;
 
 import java.util.List;
+import java.util.Set;
 
+import com.softwarearchetypes.accounting.AccountId;
 import com.softwarearchetypes.accounting.Transaction;
 
 import static com.softwarearchetypes.common.Preconditions.checkArgument;
@@ -53,12 +55,18 @@ class ConfigurablePostingRule implements PostingRule {
 
     @Override
     public List<Transaction> execute(PostingContext context) {
-        if (isEligible(context)) {
-            TargetAccounts accounts = accountFinder.findAccounts(context);
-            return postingCalculator.calculate(accounts, context);
-        } else {
-            return List.of();
-        }
+        TargetAccounts accounts = accountFinder.findAccounts(context);
+        return postingCalculator.calculate(accounts, context);
+    }
+
+    @Override
+    public Set<AccountId> referencedAccounts() {
+        return accountFinder.referencedAccounts();
+    }
+
+    @Override
+    public Set<EligibilityCondition.IndexKey> indexKeys() {
+        return eligibilityCondition.indexKeys();
     }
 
     @Override
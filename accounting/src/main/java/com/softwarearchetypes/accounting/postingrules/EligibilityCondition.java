@@ -1,33 +1,40 @@
 package com.softwarearchetypes.accounting.postingrules;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import com.softwarearchetypes.accounting.AccountId;
 import com.softwarearchetypes.accounting.EntryView;
 
+/**
+ * Conditions built from {@link #accountEquals}, {@link #entryTypeEquals} and {@link #accountType} expose
+ * {@link #indexKeys()}, so a repository can look rules up by the triggering entries instead of testing every rule.
+ * Lambdas and {@link #custom} conditions are not indexed - they are tested for every context.
+ */
 @FunctionalInterface
 public interface EligibilityCondition {
 
     boolean test(PostingContext context);
 
+    /**
+     * Keys of which at least one must be present in a context for the condition to hold.
+     * Empty when the condition cannot be indexed.
+     */
+    default Set<IndexKey> indexKeys() {
+        return Set.of();
+    }
+
     static EligibilityCondition accountEquals(AccountId accountId) {
-        return context -> context.triggeringEntries().stream()
-                                 .anyMatch(entry -> entry.accountId().equals(accountId));
+        return new AccountEquals(accountId);
     }
 
     static EligibilityCondition entryTypeEquals(EntryView.EntryType entryType) {
-        return context -> context.triggeringEntries().stream()
-                                 .anyMatch(it -> it.type().equals(entryType));
+        return new EntryTypeEquals(entryType);
     }
 
     static EligibilityCondition accountType(String type) {
-        return context -> context.triggeringEntries().stream()
-                                 .anyMatch(entry -> {
-                                     return context.accountingFacade()
-                                                   .findAccount(entry.accountId())
-                                                   .map(account -> account.type().equals(type))
-                                                   .orElse(false);
-                                 });
+        return new AccountTypeEquals(type);
     }
 
     static EligibilityCondition custom(Predicate<PostingContext> predicate) {
@@ -35,14 +42,122 @@ public interface EligibilityCondition {
     }
 
     default EligibilityCondition and(EligibilityCondition other) {
-        return context -> this.test(context) && other.test(context);
+        return new AllOf(this, other);
     }
 
     default EligibilityCondition or(EligibilityCondition other) {
-        return context -> this.test(context) || other.test(context);
+        return new AnyOf(this, other);
     }
 
     default EligibilityCondition negate() {
         return context -> !this.test(context);
     }
-}
\ No newline at end of file
+
+    record IndexKey(Dimension dimension, Object value) {
+
+        enum Dimension {
+            ACCOUNT_ID,
+            ENTRY_TYPE,
+            ACCOUNT_TYPE
+        }
+
+        static IndexKey accountId(AccountId accountId) {
+            return new IndexKey(Dimension.ACCOUNT_ID, accountId);
+        }
+
+        static IndexKey entryType(EntryView.EntryType entryType) {
+            return new IndexKey(Dimension.ENTRY_TYPE, entryType);
+        }
+
+        static IndexKey accountType(String type) {
+            return new IndexKey(Dimension.ACCOUNT_TYPE, type);
+        }
+    }
+}
+
+record AccountEquals(AccountId accountId) implements EligibilityCondition {
+
+    @Override
+    public boolean test(PostingContext context) {
+        return context.triggeringEntries().stream()
+                      .anyMatch(entry -> entry.accountId().equals(accountId));
+    }
+
+    @Override
+    public Set<IndexKey> indexKeys() {
+        return Set.of(IndexKey.accountId(accountId));
+    }
+}
+
+record EntryTypeEquals(EntryView.EntryType entryType) implements EligibilityCondition {
+
+    @Override
+    public boolean test(PostingContext context) {
+        return context.triggeringEntries().stream()
+                      .anyMatch(entry -> entry.type().equals(entryType));
+    }
+
+    @Override
+    public Set<IndexKey> indexKeys() {
+        return Set.of(IndexKey.entryType(entryType));
+    }
+}
+
+record AccountTypeEquals(String type) implements EligibilityCondition {
+
+    @Override
+    public boolean test(PostingContext context) {
+        return context.triggeringEntries().stream()
+                      .anyMatch(entry -> context.accountTypeOf(entry.accountId())
+                                                .map(type::equals)
+                                                .orElse(false));
+    }
+
+    @Override
+    public Set<IndexKey> indexKeys() {
+        return Set.of(IndexKey.accountType(type));
+    }
+}
+
+record AllOf(EligibilityCondition first, EligibilityCondition second) implements EligibilityCondition {
+
+    @Override
+    public boolean test(PostingContext context) {
+        return first.test(context) && second.test(context);
+    }
+
+    //both must hold, so keys of either side are enough - the narrower side is preferred
+    @Override
+    public Set<IndexKey> indexKeys() {
+        Set<IndexKey> firstKeys = first.indexKeys();
+        Set<IndexKey> secondKeys = second.indexKeys();
+        if (firstKeys.isEmpty()) {
+            return secondKeys;
+        }
+        if (secondKeys.isEmpty()) {
+            return firstKeys;
+        }
+        return firstKeys.size() <= secondKeys.size() ? firstKeys : secondKeys;
+    }
+}
+
+record AnyOf(EligibilityCondition first, EligibilityCondition second) implements EligibilityCondition {
+
+    @Override
+    public boolean test(PostingContext context) {
+        return first.test(context) || second.test(context);
+    }
+
+    //indexed only when both sides are
+    @Override
+    public Set<IndexKey> indexKeys() {
+        Set<IndexKey> firstKeys = first.indexKeys();
+        Set<IndexKey> secondKeys = second.indexKeys();
+        if (firstKeys.isEmpty() || secondKeys.isEmpty()) {
+            return Set.of();
+        }
+        Set<IndexKey> keys = new HashSet<>(firstKeys);
+        keys.addAll(secondKeys);
+        return Set.copyOf(keys);
+    }
+}
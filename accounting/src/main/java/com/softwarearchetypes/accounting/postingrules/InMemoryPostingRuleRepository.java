@@ -1,13 +1,28 @@
 package com.softwarearchetypes.accounting.postingrules;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import com.softwarearchetypes.accounting.EntryView;
+import com.softwarearchetypes.accounting.postingrules.EligibilityCondition.IndexKey;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Rules are indexed by the {@link PostingRule#indexKeys()} of their conditions. Only rules indexed under a key
+ * present in the triggering entries, and rules which cannot be indexed, are tested for eligibility.
+ */
 class InMemoryPostingRuleRepository implements PostingRuleRepository {
 
     private final Map<PostingRuleId, PostingRule> rules = new HashMap<>();
+    private final Map<IndexKey, Set<PostingRuleId>> index = new HashMap<>();
+    private final Set<PostingRuleId> notIndexed = new LinkedHashSet<>();
+    private int accountTypeKeys;
 
     @Override
     public List<PostingRule> findAll() {
@@ -21,19 +36,72 @@ class InMemoryPostingRuleRepository implements PostingRuleRepository {
 
     @Override
     public void save(PostingRule rule) {
+        delete(rule.id());
         rules.put(rule.id(), rule);
+        Set<IndexKey> keys = rule.indexKeys();
+        if (keys.isEmpty()) {
+            notIndexed.add(rule.id());
+        }
+        for (IndexKey key : keys) {
+            if (index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(rule.id()) && isAccountType(key)) {
+                accountTypeKeys++;
+            }
+        }
     }
 
     @Override
     public void delete(PostingRuleId id) {
-        rules.remove(id);
+        PostingRule removed = rules.remove(id);
+        if (removed == null) {
+            return;
+        }
+        notIndexed.remove(id);
+        for (IndexKey key : removed.indexKeys()) {
+            Set<PostingRuleId> indexed = index.get(key);
+            if (indexed != null && indexed.remove(id)) {
+                if (isAccountType(key)) {
+                    accountTypeKeys--;
+                }
+                if (indexed.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
     }
 
     @Override
     public List<PostingRule> findEligibleRules(PostingContext context) {
-        return rules.values()
-                .stream()
-                .filter(rule -> rule.isEligible(context))
-                .toList();
+        Set<PostingRuleId> candidates = new LinkedHashSet<>(notIndexed);
+        if (accountTypeKeys > 0) {
+            context.preloadAccounts(context.triggeringEntries().stream().map(EntryView::accountId).collect(toSet()));
+        }
+        for (EntryView entry : context.triggeringEntries()) {
+            addIndexed(IndexKey.accountId(entry.accountId()), candidates);
+            addIndexed(IndexKey.entryType(entry.type()), candidates);
+            //account lookup only when some rule depends on account type
+            if (accountTypeKeys > 0) {
+                context.accountTypeOf(entry.accountId())
+                       .ifPresent(type -> addIndexed(IndexKey.accountType(type), candidates));
+            }
+        }
+        List<PostingRule> eligible = new ArrayList<>();
+        for (PostingRuleId id : candidates) {
+            PostingRule rule = rules.get(id);
+            if (rule.isEligible(context)) {
+                eligible.add(rule);
+            }
+        }
+        return eligible;
+    }
+
+    private void addIndexed(IndexKey key, Set<PostingRuleId> candidates) {
+        Set<PostingRuleId> indexed = index.get(key);
+        if (indexed != null) {
+            candidates.addAll(indexed);
+        }
+    }
+
+    private static boolean isAccountType(IndexKey key) {
+        return key.dimension() == IndexKey.Dimension.ACCOUNT_TYPE;
     }
-}
\ No newline at end of file
+}
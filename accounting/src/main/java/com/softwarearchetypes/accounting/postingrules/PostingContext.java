@@ -2,17 +2,26 @@ package com.softwarearchetypes.accounting.postingrules;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import com.softwarearchetypes.accounting.AccountId;
+import com.softwarearchetypes.accounting.AccountView;
 import com.softwarearchetypes.accounting.AccountingFacade;
 import com.softwarearchetypes.accounting.EntryView;
 
+import static java.util.stream.Collectors.toSet;
+
 public class PostingContext {
 
     private final List<EntryView> triggeringEntries;
     private final AccountingFacade accountingFacade;
     private final Instant executionTime;
     private final BusinessContext businessContext;
+    private final Map<AccountId, Optional<AccountView>> accounts = new HashMap<>();
 
     public PostingContext(List<EntryView> triggeringEntries, AccountingFacade accountingFacade, Clock clock) {
         this(triggeringEntries, accountingFacade, clock.instant(), BusinessContext.empty());
@@ -40,4 +49,30 @@ public class PostingContext {
     public BusinessContext businessContext() {
         return businessContext;
     }
-}
\ No newline at end of file
+
+    //looked up once per context, no matter how many rules ask - until the executor posts a transaction
+    public Optional<AccountView> findAccount(AccountId accountId) {
+        return accounts.computeIfAbsent(accountId, accountingFacade::findAccount);
+    }
+
+    public Optional<String> accountTypeOf(AccountId accountId) {
+        return findAccount(accountId).map(AccountView::type);
+    }
+
+    //one round trip for all accounts not yet cached
+    void preloadAccounts(Set<AccountId> accountIds) {
+        Set<AccountId> missing = accountIds.stream()
+                                           .filter(id -> !accounts.containsKey(id))
+                                           .collect(toSet());
+        if (missing.isEmpty()) {
+            return;
+        }
+        accountingFacade.findAccounts(missing).forEach(account -> accounts.put(account.id(), Optional.of(account)));
+        missing.forEach(id -> accounts.putIfAbsent(id, Optional.empty()));
+    }
+
+    //balances change once a rule's transactions are posted
+    void evictAccounts() {
+        accounts.clear();
+    }
+}
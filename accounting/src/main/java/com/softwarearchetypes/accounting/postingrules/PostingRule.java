@@ -1,7 +1,9 @@
 package com.softwarearchetypes.accounting.postingrules;
 
 import java.util.List;
+import java.util.Set;
 
+import com.softwarearchetypes.accounting.AccountId;
 import com.softwarearchetypes.accounting.Transaction;
 
 public interface PostingRule {
@@ -12,8 +14,19 @@ public interface PostingRule {
 
     boolean isEligible(PostingContext context);
 
+    //callers check eligibility first
     List<Transaction> execute(PostingContext context);
 
+    //accounts the rule reads when executed, preloaded in one round trip
+    default Set<AccountId> referencedAccounts() {
+        return Set.of();
+    }
+
+    //empty - the rule is tested for every context
+    default Set<EligibilityCondition.IndexKey> indexKeys() {
+        return Set.of();
+    }
+
     default int priority() {
         return 100;
     }
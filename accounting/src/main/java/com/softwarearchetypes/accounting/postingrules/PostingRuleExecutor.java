@@ -3,23 +3,40 @@ package com.softwarearchetypes.accounting.postingrules;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
 import org.jetbrains.annotations.NotNull;
 
+import com.softwarearchetypes.accounting.AccountId;
 import com.softwarearchetypes.accounting.Transaction;
 import com.softwarearchetypes.accounting.TransactionId;
 import com.softwarearchetypes.common.Result;
 
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toSet;
+
 class PostingRuleExecutor {
 
+    static final int DEFAULT_MAX_CASCADE_DEPTH = 16;
+
     private final PostingRuleRepository postingRuleRepository;
+    private final int maxCascadeDepth;
 
     public PostingRuleExecutor(PostingRuleRepository postingRuleRepository) {
+        this(postingRuleRepository, DEFAULT_MAX_CASCADE_DEPTH);
+    }
+
+    public PostingRuleExecutor(PostingRuleRepository postingRuleRepository, int maxCascadeDepth) {
+        checkArgument(maxCascadeDepth > 0, "Max cascade depth must be positive");
         this.postingRuleRepository = postingRuleRepository;
+        this.maxCascadeDepth = maxCascadeDepth;
     }
 
-    public Result<String, Set<TransactionId>> executeEligibleRules(PostingContext context, Function<Transaction, Result<String, TransactionId>> transactionExecutor) {
+    /**
+     * Transactions of every rule are passed to the executor together with the causation chain extended by that rule,
+     * so entries they post can be traced back to it.
+     */
+    public Result<String, Set<TransactionId>> executeEligibleRules(PostingContext context, BiFunction<Transaction, CausationChain, Result<String, TransactionId>> transactionExecutor) {
         List<PostingRule> rules = postingRuleRepository.findEligibleRules(context).stream()
                                                        .sorted(Comparator.comparing(PostingRule::priority))
                                                        .toList();
@@ -27,19 +44,33 @@ class PostingRuleExecutor {
     }
 
     @NotNull
-    private static Result<String, Set<TransactionId>> execute(List<PostingRule> rules,
+    private Result<String, Set<TransactionId>> execute(List<PostingRule> rules,
             PostingContext context,
-            Function<Transaction, Result<String, TransactionId>> transactionExecutor) {
+            BiFunction<Transaction, CausationChain, Result<String, TransactionId>> transactionExecutor) {
         Result.CompositeSetResult<String, TransactionId> compositeResult = Result.compositeSet();
-        for (PostingRule rule : rules) {
-            if (rule.isEligible(context)) {
-                for (Transaction tx : rule.execute(context)) {
-                    compositeResult.accumulate(transactionExecutor.apply(tx));
-                    if (compositeResult.failure()) {
-                        return compositeResult.toResult();
-                    }
+        CausationChain causationChain = context.businessContext().causationChain();
+        context.preloadAccounts(referencedAccounts(rules));
+        //rules come from findEligibleRules - already checked
+        for (int i = 0; i < rules.size(); i++) {
+            PostingRule rule = rules.get(i);
+            if (causationChain.contains(rule.id())) {
+                return Result.failure("Posting rule " + rule.name() + " triggered by its own postings: " + causationChain.then(rule.id()));
+            }
+            if (causationChain.depth() >= maxCascadeDepth) {
+                return Result.failure("Posting rules cascade deeper than " + maxCascadeDepth + ": " + causationChain.then(rule.id()));
+            }
+            List<Transaction> transactions = rule.execute(context);
+            for (Transaction tx : transactions) {
+                compositeResult = compositeResult.accumulate(transactionExecutor.apply(tx, causationChain.then(rule.id())));
+                if (compositeResult.failure()) {
+                    return compositeResult.toResult();
                 }
             }
+            //posted transactions change balances - the remaining rules need fresh accounts
+            if (!transactions.isEmpty() && i + 1 < rules.size()) {
+                context.evictAccounts();
+                context.preloadAccounts(referencedAccounts(rules.subList(i + 1, rules.size())));
+            }
         }
         return compositeResult.toResult();
     }
@@ -59,6 +90,12 @@ class PostingRuleExecutor {
         return List.of();
     }
 
+    private static Set<AccountId> referencedAccounts(List<PostingRule> rules) {
+        return rules.stream()
+                    .flatMap(rule -> rule.referencedAccounts().stream())
+                    .collect(toSet());
+    }
+
     private boolean isEligible(PostingRule rule, PostingContext context) {
         return rule.isEligible(context);
     }
@@ -19,10 +19,19 @@ public class PostingRulesConfiguration {
     }
 
     public static PostingRulesConfiguration inMemory(AccountingFacade accountingFacade, EventPublisher eventPublisher, Clock clock) {
+        return inMemory(accountingFacade, eventPublisher, clock, PostingRulesTrigger.PER_ENTRY);
+    }
+
+    public static PostingRulesConfiguration inMemory(AccountingFacade accountingFacade, EventPublisher eventPublisher, Clock clock, PostingRulesTrigger trigger) {
+        return inMemory(accountingFacade, eventPublisher, clock, trigger, PostingRuleExecutor.DEFAULT_MAX_CASCADE_DEPTH);
+    }
+
+    public static PostingRulesConfiguration inMemory(AccountingFacade accountingFacade, EventPublisher eventPublisher, Clock clock, PostingRulesTrigger trigger,
+            int maxCascadeDepth) {
         PostingRuleRepository postingRuleRepository = new InMemoryPostingRuleRepository();
-        PostingRuleExecutor postingRuleExecutor = new PostingRuleExecutor(postingRuleRepository);
+        PostingRuleExecutor postingRuleExecutor = new PostingRuleExecutor(postingRuleRepository, maxCascadeDepth);
         PostingRulesFacade postingRulesFacade = new PostingRulesFacade(postingRuleRepository, postingRuleExecutor, accountingFacade, clock);
-        PostingRulesEventHandler eventHandler = new PostingRulesEventHandler(postingRulesFacade);
+        PostingRulesEventHandler eventHandler = new PostingRulesEventHandler(postingRulesFacade, trigger);
 
         eventPublisher.register(eventHandler);
 
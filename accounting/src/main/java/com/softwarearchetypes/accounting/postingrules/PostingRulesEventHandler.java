@@ -1,6 +1,11 @@
 package com.softwarearchetypes.accounting.postingrules;
 
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.softwarearchetypes.accounting.AccountId;
 import com.softwarearchetypes.accounting.EntryId;
@@ -10,14 +15,23 @@ import com.softwarearchetypes.accounting.events.AccountingEvent;
 import com.softwarearchetypes.accounting.events.CreditEntryRegistered;
 import com.softwarearchetypes.accounting.events.DebitEntryRegistered;
 import com.softwarearchetypes.common.events.EventHandler;
+import com.softwarearchetypes.common.Result;
 import com.softwarearchetypes.common.events.PublishedEvent;
 
 class PostingRulesEventHandler implements EventHandler {
 
+    private static final Logger LOGGER = System.getLogger(PostingRulesEventHandler.class.getName());
+
     private final PostingRulesFacade postingRulesFacade;
+    private final PostingRulesTrigger trigger;
 
     public PostingRulesEventHandler(PostingRulesFacade postingRulesFacade) {
+        this(postingRulesFacade, PostingRulesTrigger.PER_ENTRY);
+    }
+
+    public PostingRulesEventHandler(PostingRulesFacade postingRulesFacade, PostingRulesTrigger trigger) {
         this.postingRulesFacade = postingRulesFacade;
+        this.trigger = trigger;
     }
 
     @Override
@@ -28,42 +42,59 @@ class PostingRulesEventHandler implements EventHandler {
     @Override
     public void handle(PublishedEvent event) {
         if (event instanceof AccountingEvent accountingEvent) {
-            handleAccountingEvent(accountingEvent);
+            execute(List.of(entryViewFrom(accountingEvent)), accountingEvent);
         }
     }
 
-    private void handleAccountingEvent(AccountingEvent event) {
-        switch (event) {
-            case CreditEntryRegistered creditEvent -> handleEntryEvent(creditEvent);
-            case DebitEntryRegistered debitEvent -> handleEntryEvent(debitEvent);
+    @Override
+    public void handleAll(List<? extends PublishedEvent> events) {
+        if (trigger == PostingRulesTrigger.PER_ENTRY) {
+            events.forEach(this::handle);
+            return;
         }
+        //a batch may hold many transactions - each of them is evaluated once, in publishing order
+        Map<TransactionId, List<EntryView>> entriesByTransaction = new LinkedHashMap<>();
+        Map<TransactionId, AccountingEvent> firstEventOfTransaction = new LinkedHashMap<>();
+        for (PublishedEvent event : events) {
+            if (event instanceof AccountingEvent accountingEvent) {
+                EntryView entryView = entryViewFrom(accountingEvent);
+                entriesByTransaction.computeIfAbsent(entryView.transactionId(), id -> new ArrayList<>()).add(entryView);
+                firstEventOfTransaction.putIfAbsent(entryView.transactionId(), accountingEvent);
+            }
+        }
+        entriesByTransaction.forEach((transactionId, entries) -> execute(entries, firstEventOfTransaction.get(transactionId)));
     }
 
-    private void handleEntryEvent(CreditEntryRegistered event) {
-        EntryView entryView = new EntryView(
-                new EntryId(event.entryId()),
-                EntryView.EntryType.CREDIT,
-                event.amount(),
-                TransactionId.of(event.transactionId()),
-                AccountId.of(event.accountId()),
-                event.occurredAt(),
-                event.appliesAt()
-        );
-
-        postingRulesFacade.executeRulesFor(List.of(entryView));
+    //entries of one transaction share its causation chain - a failure cannot be returned to whoever posted, so it is logged
+    private void execute(List<EntryView> entries, AccountingEvent event) {
+        String chain = event.metadata().get(CausationChain.KEY);
+        BusinessContext businessContext = chain == null ? BusinessContext.empty() : BusinessContext.empty().with(CausationChain.KEY, CausationChain.parse(chain));
+        Result<String, ?> result = postingRulesFacade.executeRulesFor(entries, businessContext);
+        if (result.failure()) {
+            LOGGER.log(Level.WARNING, () -> "Posting rules failed for transaction " + event.transactionId() + ": " + result.getFailure());
+        }
     }
 
-    private void handleEntryEvent(DebitEntryRegistered event) {
-        EntryView entryView = new EntryView(
-                new EntryId(event.entryId()),
-                EntryView.EntryType.DEBIT,
-                event.amount(),
-                TransactionId.of(event.transactionId()),
-                AccountId.of(event.accountId()),
-                event.occurredAt(),
-                event.appliesAt()
-        );
-
-        postingRulesFacade.executeRulesFor(List.of(entryView));
+    private static EntryView entryViewFrom(AccountingEvent event) {
+        return switch (event) {
+            case CreditEntryRegistered creditEvent -> new EntryView(
+                    new EntryId(creditEvent.entryId()),
+                    EntryView.EntryType.CREDIT,
+                    creditEvent.amount(),
+                    TransactionId.of(creditEvent.transactionId()),
+                    AccountId.of(creditEvent.accountId()),
+                    creditEvent.occurredAt(),
+                    creditEvent.appliesAt()
+            );
+            case DebitEntryRegistered debitEvent -> new EntryView(
+                    new EntryId(debitEvent.entryId()),
+                    EntryView.EntryType.DEBIT,
+                    debitEvent.amount(),
+                    TransactionId.of(debitEvent.transactionId()),
+                    AccountId.of(debitEvent.accountId()),
+                    debitEvent.occurredAt(),
+                    debitEvent.appliesAt()
+            );
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,17 @@
 package com.softwarearchetypes.accounting.postingrules;
 
 import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import com.softwarearchetypes.accounting.AccountingFacade;
 import com.softwarearchetypes.accounting.EntryView;
+import com.softwarearchetypes.accounting.Transaction;
 import com.softwarearchetypes.accounting.TransactionId;
 import com.softwarearchetypes.common.Result;
 
@@ -24,6 +29,7 @@ public class PostingRulesFacade {
     private final PostingRuleExecutor postingRuleExecutor;
     private final AccountingFacade accountingFacade;
     private final Clock clock;
+    private final ThreadLocal<Deque<PostingContext>> cascade = new ThreadLocal<>();
 
     public PostingRulesFacade(PostingRuleRepository postingRuleRepository, PostingRuleExecutor postingRuleExecutor, AccountingFacade accountingFacade, Clock clock) {
         this.postingRuleRepository = postingRuleRepository;
@@ -59,7 +65,50 @@ public class PostingRulesFacade {
     }
 
     public Result<String, Set<TransactionId>> executeRulesFor(List<EntryView> triggeringEntries) {
-        PostingContext context = new PostingContext(triggeringEntries, accountingFacade, clock);
-        return postingRuleExecutor.executeEligibleRules(context, accountingFacade::execute);
+        return executeRulesFor(triggeringEntries, BusinessContext.empty());
     }
-}
\ No newline at end of file
+
+    /**
+     * Transactions posted by rules trigger rules again, through the published entry events. Their entries carry the causation
+     * chain extended by the rule which posted them in metadata, so the chain survives publishing on other threads.
+     * A rule firing on entries it caused, directly or not, or a cascade deeper than the executor allows, fails the evaluation
+     * of those entries - transactions posted earlier in the cascade stay posted.
+     * <p>
+     * With a synchronous publisher rules would be triggered again on the stack of the rule which posted. Such nested calls
+     * only queue their entries, the outermost call on the thread works the queue off and reports failures of the whole cascade.
+     */
+    public Result<String, Set<TransactionId>> executeRulesFor(List<EntryView> triggeringEntries, BusinessContext businessContext) {
+        PostingContext context = new PostingContext(triggeringEntries, accountingFacade, clock.instant(), businessContext);
+        Deque<PostingContext> running = cascade.get();
+        if (running != null) {
+            running.add(context);
+            return Result.success(Set.of());
+        }
+        Deque<PostingContext> queue = new ArrayDeque<>();
+        queue.add(context);
+        cascade.set(queue);
+        try {
+            return drain(queue);
+        } finally {
+            cascade.remove();
+        }
+    }
+
+    private Result<String, Set<TransactionId>> drain(Deque<PostingContext> queue) {
+        Set<TransactionId> posted = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            Result<String, Set<TransactionId>> result = postingRuleExecutor.executeEligibleRules(queue.poll(), this::post);
+            if (result.failure()) {
+                failures.add(result.getFailure());
+            } else {
+                posted.addAll(result.getSuccess());
+            }
+        }
+        return failures.isEmpty() ? Result.success(posted) : Result.failure(String.join("; ", failures));
+    }
+
+    private Result<String, TransactionId> post(Transaction transaction, CausationChain causationChain) {
+        return accountingFacade.execute(transaction.withMetadata(CausationChain.KEY, causationChain.toString()));
+    }
+}
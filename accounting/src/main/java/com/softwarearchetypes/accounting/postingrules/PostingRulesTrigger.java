@@ -0,0 +1,18 @@
+package com.softwarearchetypes.accounting.postingrules;
+
+/**
+ * Decides which entries are evaluated against posting rules together, in one {@link PostingContext}.
+ */
+public enum PostingRulesTrigger {
+
+    /**
+     * Every registered entry triggers rule evaluation on its own.
+     */
+    PER_ENTRY,
+
+    /**
+     * Entries of one transaction, published together, trigger rule evaluation once - a multi-leg transaction
+     * is checked against the rule set once, not once per leg, and calculators see all of its legs.
+     */
+    PER_TRANSACTION
+}
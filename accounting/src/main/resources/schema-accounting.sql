@@ -0,0 +1,41 @@
+create table if not exists accounts (
+    id uuid not null,
+    type varchar(32) not null,
+    name varchar(255) not null,
+    balance bigint not null,
+    currency varchar(3) default 'PLN' not null,
+    version bigint not null,
+    primary key (id));
+
+create table if not exists transactions (
+    id uuid not null,
+    ref_id uuid,
+    type varchar(64) not null,
+    occurred_at timestamp not null,
+    applies_at timestamp not null,
+    primary key (id));
+
+create table if not exists entries (
+    id uuid not null,
+    transaction_id uuid not null,
+    account_id uuid not null,
+    entry_type varchar(8) not null,
+    amount bigint not null,
+    currency varchar(3) default 'PLN' not null,
+    occurred_at timestamp not null,
+    applies_at timestamp not null,
+    valid_from timestamp not null,
+    valid_to timestamp,
+    applied_to uuid,
+    primary key (id));
+
+create index if not exists entries_account_id_applies_at_idx on entries (account_id, applies_at);
+create index if not exists entries_transaction_id_idx on entries (transaction_id);
+create index if not exists entries_applied_to_idx on entries (applied_to);
+create index if not exists entries_valid_to_idx on entries (valid_to, id);
+
+create table if not exists entry_metadata (
+    entry_id uuid not null,
+    meta_key varchar(255) not null,
+    meta_value varchar(1024) not null,
+    primary key (entry_id, meta_key));
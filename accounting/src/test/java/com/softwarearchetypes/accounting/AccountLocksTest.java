@@ -0,0 +1,83 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountLocksTest {
+
+    private static final int STRIPES = 16;
+
+    private final AccountLocks accountLocks = new AccountLocks(STRIPES);
+
+    @Test
+    @SuppressWarnings("try")
+    void shouldLockAccountsOnOtherStripesWhileAccountIsLocked() throws Exception {
+        //given
+        AccountId locked = AccountId.generate();
+        AccountId other = accountOnOtherStripeThan(locked);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            executor.submit(() -> {
+                try (AccountLocks.Locked ignored = accountLocks.lock(List.of(locked))) {
+                    acquired.countDown();
+                    released.await();
+                }
+                return null;
+            });
+            acquired.await();
+
+            //when
+            CompletableFuture<Void> otherAccount = CompletableFuture.runAsync(() -> accountLocks.lock(List.of(other)).close());
+            CompletableFuture<Void> sameAccount = CompletableFuture.runAsync(() -> accountLocks.lock(List.of(locked)).close());
+
+            //then
+            otherAccount.get(5, TimeUnit.SECONDS);
+            assertTrue(otherAccount.isDone());
+            assertFalse(sameAccount.isDone());
+            released.countDown();
+            sameAccount.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void shouldNotDeadlockWhenAccountsAreRequestedInOppositeOrder() {
+        //given
+        AccountId first = AccountId.generate();
+        AccountId second = accountOnOtherStripeThan(first);
+
+        //expect
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+                executor.submit(() -> lockRepeatedly(List.of(first, second)));
+                executor.submit(() -> lockRepeatedly(List.of(second, first)));
+            }
+        });
+    }
+
+    private void lockRepeatedly(List<AccountId> accountIds) {
+        for (int i = 0; i < 10_000; i++) {
+            accountLocks.lock(accountIds).close();
+        }
+    }
+
+    private static AccountId accountOnOtherStripeThan(AccountId accountId) {
+        AccountId other = AccountId.generate();
+        while (Math.floorMod(other.hashCode(), STRIPES) == Math.floorMod(accountId.hashCode(), STRIPES)) {
+            other = AccountId.generate();
+        }
+        return other;
+    }
+}
@@ -0,0 +1,72 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountStatementTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final IndexedEntryRepository repository = new IndexedEntryRepository();
+    private final AccountId account = AccountId.generate();
+
+    @Test
+    void shouldKeepRunningBalanceInCurrencyOfEntries() {
+        //given
+        repository.save(new AccountCredited(account, TransactionId.generate(), eur("10.00"), NOW, NOW));
+        repository.save(new AccountCredited(account, TransactionId.generate(), eur("2.50"), NOW.plusSeconds(10), NOW));
+
+        //when
+        List<Money> balances = balancesOf(StatementQuery.between(NOW.plusSeconds(5), StatementQuery.LATEST));
+
+        //then
+        assertEquals(List.of(eur("12.50")), balances);
+    }
+
+    @Test
+    void shouldResumeWithBalanceReadAgainUpToEntryOfCursor() {
+        //given
+        repository.save(new AccountCredited(account, TransactionId.generate(), Money.pln(100), NOW.minusSeconds(10), NOW));
+        for (int i = 1; i <= 5; i++) {
+            repository.save(new AccountCredited(account, TransactionId.generate(), Money.pln(i), NOW, NOW));
+        }
+        StatementQuery query = StatementQuery.between(NOW, StatementQuery.LATEST).withPageSize(2);
+        List<StatementLine> all = AccountStatement.of(repository, account, query).toList();
+
+        //when
+        List<Money> resumed = balancesOf(query.resumingAfter(all.get(2).cursor()));
+
+        //then
+        assertEquals(all.subList(3, 5).stream().map(StatementLine::balance).toList(), resumed);
+        assertEquals(Money.pln(115), resumed.getLast());
+    }
+
+    @Test
+    void shouldRejectCursorCarryingBalance() {
+        //given
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (NOW.getEpochSecond() + ":0:" + EntryId.generate().value() + ":1000000").getBytes(StandardCharsets.UTF_8));
+
+        //expect
+        assertThrows(IllegalArgumentException.class,
+                () -> AccountStatement.of(repository, account, StatementQuery.all().resumingAfter(forged)).toList());
+    }
+
+    private List<Money> balancesOf(StatementQuery query) {
+        return AccountStatement.of(repository, account, query).map(StatementLine::balance).toList();
+    }
+
+    private static Money eur(String amount) {
+        return Money.of(new BigDecimal(amount), "EUR");
+    }
+}
@@ -0,0 +1,163 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.accounting.AccountViewCache.CachedBalance;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountViewCacheTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final AtomicLong now = new AtomicLong();
+    private final AccountViewCache cache = new AccountViewCache(2, 3, Duration.ofSeconds(10), now::get);
+
+    @Test
+    void shouldNotCacheValueLoadedBeforeAccountWasInvalidated() {
+        //given
+        AccountId account = AccountId.generate();
+        long stamp = cache.stamp(account);
+        cache.invalidate(List.of(account));
+
+        //when
+        cache.cacheAccount(account, view(account, "cash", 10), stamp);
+
+        //then
+        assertTrue(cache.account(account).isEmpty());
+    }
+
+    @Test
+    void shouldAcceptValuesOnlyWhenEnabledAndAccountWasNotInvalidatedSinceStamp() {
+        //given
+        AccountId account = AccountId.generate();
+        long stamp = cache.stamp(account);
+
+        //expect
+        assertTrue(cache.accepts(account, stamp));
+        assertFalse(AccountViewCache.disabled().accepts(account, AccountViewCache.disabled().stamp(account)));
+        cache.invalidate(List.of(account));
+        assertFalse(cache.accepts(account, stamp));
+    }
+
+    @Test
+    void shouldDropValuesOfInvalidatedAccount() {
+        //given
+        AccountId account = AccountId.generate();
+        cache.cacheAccount(account, view(account, "cash", 10), cache.stamp(account));
+        cache.cacheBalance(account, new CachedBalance(T0, Money.pln(10), Instant.MAX), cache.stamp(account));
+
+        //when
+        cache.invalidate(List.of(account));
+
+        //then
+        assertTrue(cache.account(account).isEmpty());
+        assertTrue(cache.balanceAsOf(account, T0).isEmpty());
+    }
+
+    @Test
+    void shouldServeBalanceUntilNextEntryOfAccountApplies() {
+        //given
+        AccountId account = AccountId.generate();
+        cache.cacheBalance(account, new CachedBalance(T0, Money.pln(10), T0.plusSeconds(60)), cache.stamp(account));
+
+        //when & then
+        assertEquals(Money.pln(10), cache.balanceAsOf(account, T0.plusSeconds(59)).orElseThrow());
+        assertTrue(cache.balanceAsOf(account, T0.plusSeconds(60)).isEmpty());
+        assertTrue(cache.balanceAsOf(account, T0.minusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    void shouldExpireValuesAndEvictLeastRecentlyUsed() {
+        //given
+        AccountId first = AccountId.generate();
+        AccountId second = AccountId.generate();
+        AccountId third = AccountId.generate();
+        cache.cacheAccount(first, view(first, "first", 1), cache.stamp(first));
+        cache.cacheAccount(second, view(second, "second", 2), cache.stamp(second));
+        cache.account(first);
+
+        //when
+        cache.cacheAccount(third, view(third, "third", 3), cache.stamp(third));
+
+        //then
+        assertTrue(cache.account(second).isEmpty());
+        assertTrue(cache.account(first).isPresent());
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(cache.account(first).isEmpty());
+        assertEquals(1, cache.statistics().evictions());
+    }
+
+    @Test
+    void shouldEvictViewsOnceTheyHoldTooManyEntriesAndNeverCacheViewLargerThanTheBound() {
+        //given
+        AccountId first = AccountId.generate();
+        AccountId second = AccountId.generate();
+        AccountId tooLarge = AccountId.generate();
+        cache.cacheAccount(first, viewWithEntries(first, 2), cache.stamp(first));
+
+        //when
+        cache.cacheAccount(second, viewWithEntries(second, 2), cache.stamp(second));
+        cache.cacheAccount(tooLarge, viewWithEntries(tooLarge, 4), cache.stamp(tooLarge));
+
+        //then
+        assertTrue(cache.account(first).isEmpty());
+        assertEquals(2, cache.account(second).orElseThrow().entries().size());
+        assertTrue(cache.account(tooLarge).isEmpty());
+        assertEquals(1, cache.statistics().evictions());
+    }
+
+    @Test
+    void shouldServeWholeViewFromCacheUntilAccountIsPostedTo() {
+        //given
+        EmbeddedDatabase database = AccountingTestDatabase.create();
+        try {
+            AccountingFacade facade = AccountingConfiguration.jdbc(Clock.fixed(T0, ZoneOffset.UTC), new InMemoryEventsPublisher(), new JdbcTemplate(database),
+                    new DataSourceTransactionManager(database), 10, 100, Duration.ofMinutes(1)).facade();
+            AccountId first = facade.createAccount(CreateAccount.generateAssetAccount("first")).getSuccess();
+            AccountId second = facade.createAccount(CreateAccount.generateAssetAccount("second")).getSuccess();
+            facade.transfer(first, second, Money.pln(10), T0, T0);
+            AccountView loaded = facade.findAccount(second).orElseThrow();
+
+            //when
+            AccountView cached = facade.findAccount(second).orElseThrow();
+            facade.transfer(first, second, Money.pln(5), T0, T0);
+            AccountView afterPosting = facade.findAccount(second).orElseThrow();
+
+            //then
+            assertSame(loaded, cached);
+            assertEquals(1, facade.accountCacheStatistics().hits());
+            assertEquals(2, afterPosting.entries().size());
+            assertEquals(Money.pln(15), afterPosting.balance());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    private static AccountView view(AccountId accountId, String name, int balance) {
+        return new AccountView(accountId, name, "ASSET", Money.pln(balance), List.of());
+    }
+
+    private static AccountView viewWithEntries(AccountId accountId, int entries) {
+        List<EntryView> entryViews = IntStream.range(0, entries)
+                                              .mapToObj(i -> EntryView.from(new AccountCredited(accountId, TransactionId.generate(), Money.pln(1), T0, T0)))
+                                              .toList();
+        return new AccountView(accountId, "account", "ASSET", Money.pln(entries), entryViews);
+    }
+}
@@ -0,0 +1,72 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountingFacadeConcurrencyTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final AccountingConfiguration configuration = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC));
+    private final AccountingFacade facade = configuration.facade();
+    private final AccountingFixture fixture = new AccountingFixture(configuration, NOW);
+
+    @Test
+    void shouldKeepBalancesOfConcurrentTransfersBetweenTheSameAccounts() throws Exception {
+        //given
+        AccountId first = fixture.assetAccount("first");
+        AccountId second = fixture.assetAccount("second");
+
+        //when
+        List<Future<Result<String, TransactionId>>> transfers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 400; i++) {
+                AccountId from = i % 2 == 0 ? first : second;
+                AccountId to = i % 2 == 0 ? second : first;
+                Money amount = Money.pln(i % 7 + 1);
+                transfers.add(executor.submit(() -> facade.transfer(from, to, amount, NOW, NOW)));
+            }
+        }
+
+        //then
+        for (Future<Result<String, TransactionId>> transfer : transfers) {
+            assertTrue(transfer.get().success());
+        }
+        Money expected = Money.zeroPln();
+        for (int i = 0; i < 400; i++) {
+            expected = i % 2 == 0 ? expected.add(Money.pln(i % 7 + 1)) : expected.subtract(Money.pln(i % 7 + 1));
+        }
+        assertEquals(expected, facade.balance(second).orElseThrow());
+        assertEquals(expected.negate(), facade.balance(first).orElseThrow());
+    }
+
+    @Test
+    void shouldRejectTransactionBuiltAgainstAccountModifiedInTheMeantime() {
+        //given
+        AccountId first = fixture.assetAccount("first");
+        AccountId second = fixture.assetAccount("second");
+        Transaction stale = fixture.transfer(first, second, Money.pln(10));
+        facade.execute(fixture.transfer(first, second, Money.pln(5)));
+
+        //when
+        Result<String, TransactionId> result = facade.execute(stale);
+
+        //then
+        assertTrue(result.failure());
+        assertEquals(Money.pln(5), facade.balance(second).orElseThrow());
+    }
+}
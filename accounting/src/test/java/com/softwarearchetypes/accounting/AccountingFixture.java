@@ -0,0 +1,40 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+//accounts and transfers of one configuration, all transfers occurring and applying at the same instant
+final class AccountingFixture {
+
+    private final AccountingConfiguration configuration;
+    private final Instant now;
+
+    AccountingFixture(AccountingConfiguration configuration, Instant now) {
+        this.configuration = configuration;
+        this.now = now;
+    }
+
+    AccountId assetAccount(String name) {
+        return configuration.facade().createAccount(CreateAccount.generateAssetAccount(name)).getSuccess();
+    }
+
+    Transaction transfer(AccountId from, AccountId to, Money amount) {
+        return configuration.transactionBuilderFactory()
+                            .transaction()
+                            .occurredAt(now)
+                            .appliesAt(now)
+                            .withTypeOf("transfer")
+                            .executing()
+                            .debitFrom(from, amount)
+                            .creditTo(to, amount)
+                            .build();
+    }
+
+    ExecuteTransactionCommand transferCommand(AccountId from, AccountId to, Money amount) {
+        return new ExecuteTransactionCommand(now, now, "transfer", null, List.of(
+                ExecuteTransactionCommand.Entry.debit(from.uuid(), amount),
+                ExecuteTransactionCommand.Entry.credit(to.uuid(), amount)));
+    }
+}
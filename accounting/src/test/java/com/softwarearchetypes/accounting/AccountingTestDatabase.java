@@ -0,0 +1,20 @@
+package com.softwarearchetypes.accounting;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+//embedded H2 with the accounting schema, a fresh one on every call - to be shut down by the test
+final class AccountingTestDatabase {
+
+    private AccountingTestDatabase() {
+    }
+
+    static EmbeddedDatabase create() {
+        return new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema-accounting.sql")
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.BalanceCheckpoints.Checkpoint;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BalanceCheckpointsTest {
+
+    private static final Instant T10_00 = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Instant T11_00 = T10_00.plus(Duration.ofHours(1));
+    private static final Instant T13_00 = T10_00.plus(Duration.ofHours(3));
+
+    private final AccountId account = AccountId.generate();
+    private final BalanceCheckpoints checkpoints = new BalanceCheckpoints(Duration.ofHours(1));
+    private final IndexedEntryRepository repository = new IndexedEntryRepository(checkpoints);
+    private final InMemoryEntryRepository reference = new InMemoryEntryRepository();
+
+    @Test
+    void shouldAddBackdatedEntryToEveryCheckpointPlacedAfterIt() {
+        //given
+        save(credit(T10_00.plusSeconds(1800), 10), credit(T10_00.plusSeconds(9000), 20));
+
+        //when
+        save(credit(T10_00.minusSeconds(2700), 5));
+
+        //then
+        assertEquals(checkpoint(T10_00, 5), checkpoints.nearest(account, T10_00.plusSeconds(60)));
+        assertEquals(checkpoint(T11_00, 15), checkpoints.nearest(account, T11_00.plusSeconds(3600)));
+        assertEquals(checkpoint(T13_00, 35), checkpoints.nearest(account, T13_00));
+        assertBalancesAsReferenceAt(T10_00.minusSeconds(2701), T10_00.minusSeconds(2700), T10_00, T11_00, T10_00.plusSeconds(9000), T13_00);
+    }
+
+    @Test
+    void shouldNotCountEntryApplyingExactlyAtCheckpointInThatCheckpoint() {
+        //given
+        save(credit(T10_00.plusSeconds(1800), 10));
+
+        //when
+        save(credit(T11_00, 7));
+
+        //then
+        assertEquals(checkpoint(T11_00, 10), checkpoints.nearest(account, T11_00));
+        assertEquals(Money.pln(17), repository.balanceAsOf(account, T11_00));
+        assertBalancesAsReferenceAt(T11_00.minusNanos(1), T11_00, T11_00.plusSeconds(3600));
+    }
+
+    @Test
+    void shouldNotCountEntryApplyingExactlyAtCheckpointWhenEarlierEntryIsBackdated() {
+        //given
+        save(credit(T11_00, 7));
+
+        //when
+        save(credit(T10_00.plusSeconds(1800), 10));
+
+        //then
+        assertEquals(checkpoint(T11_00, 10), checkpoints.nearest(account, T11_00));
+        assertEquals(checkpoint(T11_00.plusSeconds(3600), 17), checkpoints.nearest(account, T13_00));
+        assertBalancesAsReferenceAt(T10_00, T11_00.minusNanos(1), T11_00, T13_00);
+    }
+
+    private void assertBalancesAsReferenceAt(Instant... instants) {
+        for (Instant instant : instants) {
+            assertEquals(reference.balanceAsOf(account, instant), repository.balanceAsOf(account, instant), "balance as of " + instant);
+        }
+    }
+
+    private void save(Entry... entries) {
+        repository.save(List.of(entries));
+        reference.save(List.of(entries));
+    }
+
+    //checkpoints hold minor units
+    private static Checkpoint checkpoint(Instant at, int amount) {
+        return new Checkpoint(at, amount * 100L);
+    }
+
+    private Entry credit(Instant appliesAt, int amount) {
+        return new AccountCredited(account, TransactionId.generate(), Money.pln(amount), appliesAt, appliesAt);
+    }
+}
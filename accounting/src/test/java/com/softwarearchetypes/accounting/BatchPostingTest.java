@@ -0,0 +1,95 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchPostingTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final FailingEntryRepository entryRepository = new FailingEntryRepository();
+    private final AccountingConfiguration configuration = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC),
+            new InMemoryEventsPublisher(), entryRepository);
+    private final AccountingFacade facade = configuration.facade();
+    private final AccountingFixture fixture = new AccountingFixture(configuration, NOW);
+
+    @Test
+    void shouldPostManyTransactionsOnTheSameAccountInOneBatch() {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId first = fixture.assetAccount("first");
+        AccountId second = fixture.assetAccount("second");
+
+        //when
+        Result<String, BatchPostingResult> result = facade.execute(
+                List.of(fixture.transfer(wallet, first, Money.pln(10)), fixture.transfer(wallet, second, Money.pln(15))), BatchPostingMode.ALL_OR_NOTHING);
+
+        //then
+        assertTrue(result.success());
+        assertEquals(Money.pln(-25), facade.balance(wallet).orElseThrow());
+        assertEquals(Money.pln(10), facade.balance(first).orElseThrow());
+        assertEquals(Money.pln(15), facade.balance(second).orElseThrow());
+        assertEquals(2, facade.findAccount(wallet).orElseThrow().entries().size());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenAnyTransactionIsInvalid() {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId first = fixture.assetAccount("first");
+        Transaction stale = fixture.transfer(wallet, first, Money.pln(5));
+        facade.execute(fixture.transfer(wallet, first, Money.pln(1)));
+
+        //when
+        Result<String, BatchPostingResult> result = facade.execute(List.of(fixture.transfer(wallet, first, Money.pln(10)), stale), BatchPostingMode.ALL_OR_NOTHING);
+
+        //then
+        assertTrue(result.failure());
+        assertEquals(Money.pln(1), facade.balance(first).orElseThrow());
+    }
+
+    @Test
+    void shouldLeaveAccountsUntouchedWhenSavingBatchFails() {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId first = fixture.assetAccount("first");
+        Transaction transaction = fixture.transfer(wallet, first, Money.pln(10));
+        entryRepository.failing = true;
+
+        //when
+        Result<String, BatchPostingResult> result = facade.execute(List.of(transaction), BatchPostingMode.BEST_EFFORT);
+
+        //then
+        assertTrue(result.failure());
+        entryRepository.failing = false;
+        assertEquals(Money.zeroPln(), facade.balance(wallet).orElseThrow());
+        Result<String, TransactionId> retried = facade.execute(fixture.transfer(wallet, first, Money.pln(10)));
+        assertTrue(retried.success());
+        assertEquals(Money.pln(10), facade.balance(first).orElseThrow());
+        assertEquals(1, facade.findAccount(first).orElseThrow().entries().size());
+    }
+
+    private static class FailingEntryRepository extends IndexedEntryRepository {
+
+        private volatile boolean failing;
+
+        @Override
+        public void save(Entry entry) {
+            if (failing) {
+                throw new IllegalStateException("Entry store is not available");
+            }
+            super.save(entry);
+        }
+    }
+}
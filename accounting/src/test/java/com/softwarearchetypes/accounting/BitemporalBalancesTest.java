@@ -0,0 +1,63 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BitemporalBalancesTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final BitemporalBalances balances = new BitemporalBalances(Duration.ofHours(1));
+    private final AccountId account = AccountId.generate();
+
+    @Test
+    void shouldCountEntryRecordedLateOnlyAsKnownAfterItOccurred() {
+        //given
+        balances.record(credit(10, T0, T0.plusSeconds(7200)));
+
+        //when
+        balances.record(credit(5, T0, T0.plusSeconds(60)));
+
+        //then
+        assertEquals(0, balances.balanceAsOf(account, T0, T0));
+        assertEquals(500, balances.balanceAsOf(account, T0, T0.plusSeconds(60)));
+        assertEquals(500, balances.balanceAsOf(account, T0, T0.plusSeconds(7199)));
+        assertEquals(1500, balances.balanceAsOf(account, T0, T0.plusSeconds(7200)));
+    }
+
+    @Test
+    void shouldMatchSumOfEntriesKnownAndApplyingAtAnyInstant() {
+        //given
+        Random random = new Random(18);
+        List<Entry> recorded = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Entry entry = credit(random.nextInt(100) - 50, T0.plusSeconds(random.nextInt(3 * 86400)), T0.plusSeconds(random.nextInt(3 * 86400)));
+            balances.record(entry);
+            recorded.add(entry);
+        }
+
+        //when & then
+        for (int i = 0; i < 200; i++) {
+            Instant appliesAt = T0.plusSeconds(random.nextInt(3 * 86400));
+            Instant knownAt = T0.plusSeconds(random.nextInt(3 * 86400));
+            long expected = recorded.stream()
+                                    .filter(entry -> !entry.appliesAt().isAfter(appliesAt) && !entry.occurredAt().isAfter(knownAt))
+                                    .mapToLong(Entry::amountInMinorUnits)
+                                    .sum();
+            assertEquals(expected, balances.balanceAsOf(account, appliesAt, knownAt));
+        }
+    }
+
+    private Entry credit(int amount, Instant appliesAt, Instant occurredAt) {
+        return new AccountCredited(account, TransactionId.generate(), Money.pln(amount), appliesAt, occurredAt);
+    }
+}
@@ -0,0 +1,137 @@
+package com.softwarearchetypes.accounting;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EntryAllocationsTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T1 = T0.plusSeconds(60);
+    private static final Instant T2 = T0.plusSeconds(120);
+    private static final Instant T3 = T0.plusSeconds(180);
+
+    private final AccountId account = AccountId.generate();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void close() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldAllocateOldestOrNewestEntryWhichIsNotUsedUpByEntriesOfItsAccount(Storage storage) throws IOException {
+        //given
+        EntryRepository repository = repository(storage);
+        Entry usedUp = credit(T0, Validity.always());
+        Entry partlyUsed = credit(T1, Validity.always());
+        Entry newest = credit(T2, Validity.always());
+        repository.save(List.of(usedUp, partlyUsed, newest));
+        repository.save(List.of(
+                debitApplyingTo(usedUp, Money.pln(6)),
+                debitApplyingTo(usedUp, Money.pln(4)),
+                debitApplyingTo(partlyUsed, Money.pln(9)),
+                new AccountDebited(AccountId.generate(), TransactionId.generate(), Money.pln(10), T3, T3, newest.id())));
+        EntryAllocations allocations = new EntryAllocations(repository);
+
+        //when
+        Optional<Entry> fifo = allocations.findAllocationFor(EntryAllocationFilterBuilder.fifo(account).withTypeOf(AccountCredited.class).build());
+        Optional<Entry> lifo = allocations.findAllocationFor(EntryAllocationFilterBuilder.lifo(account).withTypeOf(AccountCredited.class).build());
+
+        //then
+        assertEquals(Optional.of(partlyUsed.id()), fifo.map(Entry::id));
+        assertEquals(Optional.of(newest.id()), lifo.map(Entry::id));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldAllocateOnlyEntriesValidAtRequestedInstant(Storage storage) throws IOException {
+        //given
+        EntryRepository repository = repository(storage);
+        Entry expiring = credit(T0, Validity.until(T1));
+        Entry becomingValid = credit(T1, Validity.from(T3));
+        Entry alwaysValid = credit(T2, Validity.always());
+        repository.save(List.of(expiring, becomingValid, alwaysValid));
+        EntryAllocations allocations = new EntryAllocations(repository);
+
+        //expect
+        assertEquals(Optional.of(expiring.id()), fifoValidAt(allocations, T0));
+        assertEquals(Optional.of(alwaysValid.id()), fifoValidAt(allocations, T1));
+        assertEquals(Optional.of(becomingValid.id()), fifoValidAt(allocations, T3));
+        assertEquals(Optional.empty(), allocations.findAllocationFor(
+                EntryAllocationFilterBuilder.fifo(account).withTypeOf(AccountDebited.class).withValidityContaining(T3).build()).map(Entry::id));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldSkipEntriesExpiredAtRequestedInstantWhenEachExpiresAtItsOwnInstant(Storage storage) throws IOException {
+        //given
+        EntryRepository repository = repository(storage);
+        List<Entry> credits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            credits.add(credit(T0.plusSeconds(i), Validity.until(T1.plusSeconds(i))));
+        }
+        repository.save(credits);
+        EntryAllocations allocations = new EntryAllocations(repository);
+
+        //when
+        Optional<EntryId> fifo = fifoValidAt(allocations, T1.plusSeconds(5));
+        Optional<EntryId> lifo = allocations.findAllocationFor(
+                EntryAllocationFilterBuilder.lifo(account).withTypeOf(AccountCredited.class).withValidityContaining(T1.plusSeconds(5)).build()).map(Entry::id);
+
+        //then
+        assertEquals(Optional.of(credits.get(6).id()), fifo);
+        assertEquals(Optional.of(credits.get(9).id()), lifo);
+        assertEquals(Optional.empty(), fifoValidAt(allocations, T1.plusSeconds(9)));
+    }
+
+    private Optional<EntryId> fifoValidAt(EntryAllocations allocations, Instant instant) {
+        return allocations.findAllocationFor(EntryAllocationFilterBuilder.fifo(account).withTypeOf(AccountCredited.class).withValidityContaining(instant).build())
+                          .map(Entry::id);
+    }
+
+    private Entry credit(Instant appliesAt, Validity validity) {
+        return new AccountCredited(account, TransactionId.generate(), Money.pln(10), appliesAt, T0, MetaData.empty(), validity, null);
+    }
+
+    private Entry debitApplyingTo(Entry entry, Money amount) {
+        return new AccountDebited(account, TransactionId.generate(), amount, T3, T3, entry.id());
+    }
+
+    private EntryRepository repository(Storage storage) throws IOException {
+        return switch (storage) {
+            case IN_MEMORY -> new InMemoryEntryRepository();
+            case INDEXED -> new IndexedEntryRepository();
+            case JDBC -> {
+                EmbeddedDatabase database = AccountingTestDatabase.create();
+                resources.add(database::shutdown);
+                yield new JdbcEntryRepository(new JdbcTemplate(database));
+            }
+            case JOURNAL -> {
+                LedgerJournal journal = LedgerJournal.open(Files.createTempFile("ledger", ".journal"), FsyncPolicy.everyAppend());
+                resources.add(journal);
+                yield new JournalEntryRepository(journal);
+            }
+        };
+    }
+
+    enum Storage {
+        IN_MEMORY, INDEXED, JDBC, JOURNAL
+    }
+}
@@ -0,0 +1,90 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryCurrenciesTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    @Test
+    void shouldKeepCurrencyOfEntriesInBalancesOfEveryRepository() {
+        //given
+        AccountId account = AccountId.generate();
+        List<EntryRepository> repositories = List.of(new InMemoryEntryRepository(), new IndexedEntryRepository());
+
+        for (EntryRepository repository : repositories) {
+            //when
+            repository.save(credit(account, eur("10.00"), NOW));
+            repository.save(credit(account, eur("2.50"), NOW.plusSeconds(10)));
+
+            //then
+            assertEquals(eur("12.50"), repository.balanceAsOf(account, NOW.plusSeconds(10)));
+            assertEquals(eur("10.00"), repository.balanceAsOf(account, NOW, NOW));
+            assertEquals(Money.zeroPln(), repository.balanceAsOf(AccountId.generate(), NOW));
+        }
+    }
+
+    @Test
+    void shouldRejectEntryInAnotherCurrencyThanEntriesOfItsAccount() {
+        //given
+        AccountId account = AccountId.generate();
+        IndexedEntryRepository repository = new IndexedEntryRepository();
+        repository.save(credit(account, eur("10.00"), NOW));
+
+        //expect
+        assertThrows(IllegalArgumentException.class, () -> repository.save(credit(account, Money.pln(10), NOW)));
+        assertEquals(eur("10.00"), repository.balanceAsOf(account, NOW));
+    }
+
+    @Test
+    void shouldRejectPostingInAnotherCurrencyThanTheAccountBalance() {
+        //given
+        AccountingFacade facade = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC)).facade();
+        AccountId wallet = facade.createAccount(CreateAccount.generateAssetAccount("wallet")).getSuccess();
+        AccountId savings = facade.createAccount(CreateAccount.generateAssetAccount("savings")).getSuccess();
+
+        //when
+        boolean posted = facade.transfer(wallet, savings, eur("5.00"), NOW, NOW).success();
+
+        //then
+        assertFalse(posted);
+        assertEquals(Money.zeroPln(), facade.balance(wallet).orElseThrow());
+        assertEquals(Money.zeroPln(), facade.balance(savings).orElseThrow());
+    }
+
+    @Test
+    void shouldRejectEntryAmountWithMoreFractionDigitsThanMinorUnitsHold() {
+        //given
+        AccountingFacade facade = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC)).facade();
+        AccountId wallet = facade.createAccount(CreateAccount.generateAssetAccount("wallet")).getSuccess();
+        AccountId savings = facade.createAccount(CreateAccount.generateAssetAccount("savings")).getSuccess();
+
+        //expect
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, () -> credit(wallet, eur("1.005"), NOW));
+        assertTrue(rejected.getMessage().contains("at most 2 fraction digits"));
+        assertEquals(101, credit(wallet, eur("1.010"), NOW).amountInMinorUnits());
+        assertFalse(facade.transfer(wallet, savings, Money.pln(new BigDecimal("1.005")), NOW, NOW).success());
+        assertEquals(Money.zeroPln(), facade.balance(savings).orElseThrow());
+    }
+
+    private static Entry credit(AccountId account, Money amount, Instant appliesAt) {
+        return new AccountCredited(account, TransactionId.generate(), amount, appliesAt, appliesAt);
+    }
+
+    private static Money eur(String amount) {
+        return Money.of(new BigDecimal(amount), "EUR");
+    }
+}
@@ -0,0 +1,112 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpirationSweeperTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Instant EXPIRED_AT = NOW.minusSeconds(3600);
+
+    private final Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldCompensateAllEntriesExpiringAtTheSameInstantAcrossBatches(Storage storage) {
+        //given
+        AccountingConfiguration configuration = configuration(storage);
+        AccountId issuer = assetAccount(configuration, "issuer");
+        AccountId points = assetAccount(configuration, "points");
+        AccountId expired = assetAccount(configuration, "expired");
+        for (int i = 0; i < 7; i++) {
+            grant(configuration, issuer, points, Money.pln(10));
+        }
+
+        //when
+        ExpirationSweep sweep = configuration.expirationSweeper(expired, 2, 10).sweep();
+
+        //then
+        assertEquals(7, sweep.compensated());
+        assertTrue(sweep.allCompensated());
+        assertEquals(Money.zeroPln(), configuration.facade().balance(points).orElseThrow());
+        assertEquals(Money.pln(70), configuration.facade().balance(expired).orElseThrow());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldContinueAfterRestartWithoutCompensatingAnyEntryTwice(Storage storage) {
+        //given
+        AccountingConfiguration configuration = configuration(storage);
+        AccountId issuer = assetAccount(configuration, "issuer");
+        AccountId points = assetAccount(configuration, "points");
+        AccountId expired = assetAccount(configuration, "expired");
+        for (int i = 0; i < 5; i++) {
+            grant(configuration, issuer, points, Money.pln(10));
+        }
+        assertEquals(2, configuration.expirationSweeper(expired, 2, 1).sweep().compensated());
+
+        //when
+        ExpirationSweep afterRestart = configuration.expirationSweeper(expired, 2, 10).sweep();
+        ExpirationSweep nothingLeft = configuration.expirationSweeper(expired, 2, 10).sweep();
+
+        //then
+        assertEquals(3, afterRestart.compensated());
+        assertEquals(0, nothingLeft.compensated());
+        assertEquals(Money.zeroPln(), configuration.facade().balance(points).orElseThrow());
+        assertEquals(Money.pln(50), configuration.facade().balance(expired).orElseThrow());
+    }
+
+    private AccountingConfiguration configuration(Storage storage) {
+        return switch (storage) {
+            case IN_MEMORY -> AccountingConfiguration.inMemory(clock);
+            case JDBC -> {
+                EmbeddedDatabase database = AccountingTestDatabase.create();
+                databases.add(database);
+                yield AccountingConfiguration.jdbc(clock, new InMemoryEventsPublisher(), new JdbcTemplate(database), new DataSourceTransactionManager(database));
+            }
+        };
+    }
+
+    private static AccountId assetAccount(AccountingConfiguration configuration, String name) {
+        return configuration.facade().createAccount(CreateAccount.generateAssetAccount(name)).getSuccess();
+    }
+
+    private static void grant(AccountingConfiguration configuration, AccountId from, AccountId to, Money amount) {
+        Transaction transaction = configuration.transactionBuilderFactory()
+                                               .transaction()
+                                               .occurredAt(EXPIRED_AT.minusSeconds(60))
+                                               .appliesAt(EXPIRED_AT.minusSeconds(60))
+                                               .withTypeOf("grant")
+                                               .executing()
+                                               .debitFrom(from, amount)
+                                               .creditTo(to, amount, Validity.until(EXPIRED_AT))
+                                               .build();
+        assertTrue(configuration.facade().execute(transaction).success());
+    }
+
+    enum Storage {
+        IN_MEMORY, JDBC
+    }
+}
@@ -0,0 +1,125 @@
+package com.softwarearchetypes.accounting;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.common.Version;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcAccountRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final EmbeddedDatabase database = AccountingTestDatabase.create();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final JdbcEntryRepository entryRepository = new JdbcEntryRepository(jdbcTemplate);
+    private final JdbcAccountRepository repository = new JdbcAccountRepository(jdbcTemplate, entryRepository);
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldSaveBalanceVersionAndNewEntriesOfAccount() {
+        //given
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        repository.save(account);
+        Account loaded = repository.find(account.id()).orElseThrow();
+        Entry entry = new AccountCredited(account.id(), TransactionId.generate(), Money.pln(100), T0, T0);
+        loaded.addEntries(List.of(entry));
+
+        //when
+        repository.save(List.of(loaded));
+
+        //then
+        Account saved = repository.find(account.id()).orElseThrow();
+        assertEquals(Money.pln(100), saved.balance());
+        assertEquals(Version.of(2), saved.version());
+        assertTrue(entryRepository.find(entry.id()).isPresent());
+        assertTrue(loaded.entries().toList().isEmpty());
+    }
+
+    @Test
+    void shouldRejectSavingAccountModifiedSinceItWasLoaded() {
+        //given
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        repository.save(account);
+        Account first = repository.find(account.id()).orElseThrow();
+        Account second = repository.find(account.id()).orElseThrow();
+        first.addEntries(List.of(new AccountCredited(account.id(), TransactionId.generate(), Money.pln(10), T0, T0)));
+        repository.save(List.of(first));
+        Entry stale = new AccountCredited(account.id(), TransactionId.generate(), Money.pln(20), T0, T0);
+        second.addEntries(List.of(stale));
+
+        //when & then
+        assertThrows(IllegalStateException.class, () -> repository.save(List.of(second)));
+        assertEquals(Money.pln(10), repository.find(account.id()).orElseThrow().balance());
+    }
+
+    @Test
+    void shouldUpdateAccountsOneAtATimeOnceBatchedRowCountsAreNotReported() {
+        //given
+        JdbcAccountRepository notCountingBatches = new JdbcAccountRepository(new NotCountingBatchesJdbcTemplate(database), entryRepository);
+        DatabaseTransactions transactions = new SpringDatabaseTransactions(new DataSourceTransactionManager(database));
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        notCountingBatches.save(account);
+        Account first = withCredit(notCountingBatches.find(account.id()).orElseThrow(), 10);
+        Account second = withCredit(notCountingBatches.find(account.id()).orElseThrow(), 20);
+
+        //expect
+        assertThrows(IllegalStateException.class, () -> transactions.inTransaction(() -> notCountingBatches.save(List.of(first))));
+        assertEquals(Money.pln(0), notCountingBatches.find(account.id()).orElseThrow().balance());
+        transactions.inTransaction(() -> notCountingBatches.save(List.of(withCredit(notCountingBatches.find(account.id()).orElseThrow(), 10))));
+        assertThrows(IllegalStateException.class, () -> transactions.inTransaction(() -> notCountingBatches.save(List.of(second))));
+        assertEquals(Money.pln(10), notCountingBatches.find(account.id()).orElseThrow().balance());
+    }
+
+    @Test
+    void shouldFindManyAccountsAtOnce() {
+        //given
+        Account first = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("first"));
+        Account second = new Account(AccountId.generate(), AccountType.LIABILITY, AccountName.of("second"));
+        repository.save(List.of(first, second));
+
+        //when & then
+        assertEquals(Set.of(first.id(), second.id()), repository.find(Set.of(first.id(), second.id(), AccountId.generate())).keySet());
+    }
+
+    private static Account withCredit(Account account, int amount) {
+        account.addEntries(List.of(new AccountCredited(account.id(), TransactionId.generate(), Money.pln(amount), T0, T0)));
+        return account;
+    }
+
+    //like drivers which execute batches without counting the rows of each statement
+    private static class NotCountingBatchesJdbcTemplate extends JdbcTemplate {
+
+        NotCountingBatchesJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+            int[][] counts = super.batchUpdate(sql, batchArgs, batchSize, pss);
+            Stream.of(counts).forEach(batch -> Arrays.fill(batch, Statement.SUCCESS_NO_INFO));
+            return counts;
+        }
+    }
+}
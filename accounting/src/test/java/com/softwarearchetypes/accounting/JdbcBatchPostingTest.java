@@ -0,0 +1,72 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcBatchPostingTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final EmbeddedDatabase database = AccountingTestDatabase.create();
+    private final AccountingConfiguration configuration = AccountingConfiguration.jdbc(Clock.fixed(NOW, ZoneOffset.UTC), new InMemoryEventsPublisher(),
+            new JdbcTemplate(database), new DataSourceTransactionManager(database));
+    private final AccountingFacade facade = configuration.facade();
+    private final AccountingFixture fixture = new AccountingFixture(configuration, NOW);
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldPostTwoTransfersFromTheSameAccountInOneBatch() {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId first = fixture.assetAccount("first");
+        AccountId second = fixture.assetAccount("second");
+        //every transaction loads its own instance of the wallet account
+        List<Transaction> batch = List.of(fixture.transfer(wallet, first, Money.pln(10)), fixture.transfer(wallet, second, Money.pln(15)));
+
+        //when
+        Result<String, BatchPostingResult> result = facade.execute(batch, BatchPostingMode.ALL_OR_NOTHING);
+
+        //then
+        assertTrue(result.success());
+        assertTrue(result.getSuccess().allPosted());
+        assertEquals(Money.pln(-25), facade.balance(wallet).orElseThrow());
+        assertEquals(Money.pln(10), facade.balance(first).orElseThrow());
+        assertEquals(Money.pln(15), facade.balance(second).orElseThrow());
+        assertEquals(Money.pln(-25), facade.balanceAsOf(wallet, NOW).orElseThrow());
+    }
+
+    @Test
+    void shouldPostTransferAfterBatchOnTheSameAccount() {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId first = fixture.assetAccount("first");
+        facade.execute(List.of(fixture.transfer(wallet, first, Money.pln(10)), fixture.transfer(wallet, first, Money.pln(5))), BatchPostingMode.BEST_EFFORT);
+
+        //when
+        Result<String, TransactionId> result = facade.transfer(wallet, first, Money.pln(1), NOW, NOW);
+
+        //then
+        assertTrue(result.success());
+        assertEquals(Money.pln(16), facade.balance(first).orElseThrow());
+        assertEquals(3, facade.findTransactionIdsFor(wallet).size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcEntryRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final EmbeddedDatabase database = AccountingTestDatabase.create();
+    private final JdbcEntryRepository repository = new JdbcEntryRepository(new JdbcTemplate(database));
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldReadSavedEntryWithItsMetadataAndCurrency() {
+        //given
+        AccountId account = AccountId.generate();
+        Entry entry = new AccountDebited(account, TransactionId.generate(), Money.of(new BigDecimal("12.34"), "EUR"), T0, T0,
+                MetaData.of("invoice", "FV/1", "customer", "c-1"));
+
+        //when
+        repository.save(List.of(entry));
+
+        //then
+        Entry read = repository.find(entry.id()).orElseThrow();
+        assertEquals(entry.amount(), read.amount());
+        assertEquals(entry.metadata(), read.metadata());
+        assertEquals(entry.transactionId(), read.transactionId());
+        assertTrue(read instanceof AccountDebited);
+    }
+
+    @Test
+    void shouldSumBalanceAsOfInTheCurrencyOfEntries() {
+        //given
+        AccountId account = AccountId.generate();
+        repository.save(List.of(
+                credit(account, "10.00", "EUR", T0),
+                credit(account, "5.50", "EUR", T0.plusSeconds(10)),
+                new AccountDebited(account, TransactionId.generate(), Money.of(new BigDecimal("2.25"), "EUR"), T0.plusSeconds(20), T0)));
+
+        //when & then
+        assertEquals(Money.of(new BigDecimal("10.00"), "EUR"), repository.balanceAsOf(account, T0.plusSeconds(5)));
+        assertEquals(Money.of(new BigDecimal("13.25"), "EUR"), repository.balanceAsOf(account, T0.plusSeconds(20)));
+        assertEquals(Money.zeroPln(), repository.balanceAsOf(AccountId.generate(), T0));
+    }
+
+    @Test
+    void shouldReadStatementPageByPage() {
+        //given
+        AccountId account = AccountId.generate();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            entries.add(credit(account, "1.00", "PLN", T0.plusSeconds(i / 2)));
+        }
+        repository.save(entries);
+
+        //when
+        List<Entry> read = new ArrayList<>();
+        EntryPosition after = null;
+        List<Entry> page;
+        do {
+            page = repository.findPageFor(account, StatementQuery.EARLIEST, StatementQuery.LATEST, after, 10);
+            read.addAll(page);
+            after = page.isEmpty() ? after : EntryPosition.of(page.getLast());
+        } while (page.size() == 10);
+
+        //then
+        assertEquals(entries.stream().sorted(EntryPosition.STATEMENT_ORDER).map(Entry::id).toList(), read.stream().map(Entry::id).toList());
+    }
+
+    @Test
+    void shouldFindOnlyExpiredEntriesWhichAreNotUsedUp() {
+        //given
+        AccountId account = AccountId.generate();
+        Entry usedUp = expiring(account, T0.plusSeconds(10));
+        Entry open = expiring(account, T0.plusSeconds(20));
+        Entry notExpired = expiring(account, T0.plusSeconds(100));
+        repository.save(List.of(usedUp, open, notExpired,
+                new AccountDebited(account, TransactionId.generate(), Money.pln(10), T0, T0, MetaData.empty(), Validity.always(), usedUp.id())));
+
+        //when
+        List<Entry> expired = repository.findExpired(T0.plusSeconds(50), null, 10);
+
+        //then
+        assertEquals(List.of(open.id()), expired.stream().map(Entry::id).toList());
+    }
+
+    @Test
+    void shouldMatchEntriesAcrossManyPagesOfTheTable() {
+        //given
+        AccountId account = AccountId.generate();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 1; i <= 2500; i++) {
+            entries.add(credit(account, i + ".00", "PLN", T0.plusSeconds(i)));
+        }
+        repository.save(entries);
+
+        //when
+        List<Entry> matching = repository.findAllMatching(entry -> entry.amountInMinorUnits() % 10_000 == 0);
+        Entry largest = repository.findMatching(entry -> true, Comparator.comparing(Entry::amountInMinorUnits).reversed()).orElseThrow();
+
+        //then
+        assertEquals(25, matching.size());
+        assertEquals(Money.pln(2500), largest.amount());
+    }
+
+    private static Entry credit(AccountId account, String amount, String currency, Instant appliesAt) {
+        return new AccountCredited(account, TransactionId.generate(), Money.of(new BigDecimal(amount), currency), appliesAt, T0);
+    }
+
+    private static Entry expiring(AccountId account, Instant validTo) {
+        return new AccountCredited(account, TransactionId.generate(), Money.pln(10), T0, T0, MetaData.empty(), Validity.until(validTo), null);
+    }
+}
@@ -0,0 +1,216 @@
+package com.softwarearchetypes.accounting;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledAccountingTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+    private static final byte CONTINUED = 1;
+
+    @Test
+    void shouldReplayAccountsWithBalancesAfterRestart() throws IOException {
+        //given
+        Path journalFile = Files.createTempFile("ledger", ".journal");
+        AccountId first;
+        AccountId second;
+        try (AccountingConfiguration configuration = journaled(journalFile)) {
+            first = assetAccount(configuration, "first");
+            second = assetAccount(configuration, "second");
+            configuration.facade().transfer(first, second, Money.pln(10), NOW, NOW);
+        }
+
+        //when
+        try (AccountingConfiguration restarted = journaled(journalFile)) {
+
+            //then
+            assertEquals(Money.pln(-10), restarted.facade().balance(first).orElseThrow());
+            assertEquals(Money.pln(10), restarted.facade().balance(second).orElseThrow());
+        }
+    }
+
+    @Test
+    void shouldReplayNeitherLegOfTransferTornByCrash() throws IOException {
+        //given
+        Path journalFile = Files.createTempFile("ledger", ".journal");
+        AccountId first;
+        AccountId second;
+        try (AccountingConfiguration configuration = journaled(journalFile)) {
+            first = assetAccount(configuration, "first");
+            second = assetAccount(configuration, "second");
+            configuration.facade().transfer(first, second, Money.pln(10), NOW, NOW);
+        }
+        //records: two accounts, then both legs of the transfer - appended together, so only the last one is committed
+        assertEquals(CONTINUED, markerOf(journalFile, 2));
+        //crash before the commit marker of the transfer reached the disk
+        tear(journalFile, 3);
+
+        //when
+        try (AccountingConfiguration restarted = journaled(journalFile)) {
+
+            //then
+            assertEquals(Money.zeroPln(), restarted.facade().balance(first).orElseThrow());
+            assertEquals(Money.zeroPln(), restarted.facade().balance(second).orElseThrow());
+            restarted.facade().transfer(first, second, Money.pln(5), NOW, NOW);
+        }
+        try (AccountingConfiguration restarted = journaled(journalFile)) {
+            assertEquals(Money.pln(5), restarted.facade().balance(second).orElseThrow());
+        }
+    }
+
+    @Test
+    void shouldReplayEntriesInTheirCurrencyWithEntriesApplyingToThem() throws IOException {
+        //given
+        Path journalFile = Files.createTempFile("ledger", ".journal");
+        AccountId account = AccountId.generate();
+        Entry granted = new AccountCredited(account, TransactionId.generate(), eur("10.00"), NOW, NOW);
+        Entry used = new AccountDebited(account, TransactionId.generate(), eur("4.00"), NOW, NOW, granted.id());
+        try (LedgerJournal journal = LedgerJournal.open(journalFile, FsyncPolicy.everyAppend())) {
+            new JournalEntryRepository(journal).save(List.of(granted, used));
+        }
+
+        //when
+        try (LedgerJournal journal = LedgerJournal.open(journalFile, FsyncPolicy.everyAppend())) {
+            JournalEntryRepository replayed = new JournalEntryRepository(journal);
+
+            //then
+            assertEquals(eur("10.00"), replayed.find(granted.id()).orElseThrow().amount());
+            assertEquals(eur("6.00"), replayed.balanceAsOf(account, NOW));
+            assertEquals(List.of(used.id()), replayed.findEntriesReferencing(granted).stream().map(Entry::id).toList());
+        }
+    }
+
+    @Test
+    void shouldDiscardCommittedBatchWhoseRecordDoesNotMatchItsChecksum() throws IOException {
+        //given
+        Path journalFile = Files.createTempFile("ledger", ".journal");
+        AccountId first;
+        AccountId second;
+        try (AccountingConfiguration configuration = journaled(journalFile)) {
+            first = assetAccount(configuration, "first");
+            second = assetAccount(configuration, "second");
+            configuration.facade().transfer(first, second, Money.pln(10), NOW, NOW);
+        }
+        //the commit marker reached the disk, the page holding the amount of the first leg did not
+        corruptAmountOf(journalFile, 2);
+
+        //when
+        try (AccountingConfiguration restarted = journaled(journalFile)) {
+
+            //then
+            assertEquals(Money.zeroPln(), restarted.facade().balance(first).orElseThrow());
+            assertEquals(Money.zeroPln(), restarted.facade().balance(second).orElseThrow());
+            assertTrue(restarted.facade().transfer(first, second, Money.pln(5), NOW, NOW).success());
+        }
+        try (AccountingConfiguration restarted = journaled(journalFile)) {
+            assertEquals(Money.pln(5), restarted.facade().balance(second).orElseThrow());
+        }
+    }
+
+    @Test
+    void shouldAppendEntrySavedConcurrentlyOnce() throws Exception {
+        //given
+        AccountId account = AccountId.generate();
+        try (LedgerJournal journal = LedgerJournal.open(Files.createTempFile("ledger", ".journal"), FsyncPolicy.onClose())) {
+            JournalEntryRepository repository = new JournalEntryRepository(journal);
+            CountDownLatch start = new CountDownLatch(1);
+
+            //when
+            List<Entry> entries = new ArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+                for (int i = 0; i < 50; i++) {
+                    Entry entry = new AccountCredited(account, TransactionId.generate(), Money.pln(1), NOW, NOW);
+                    entries.add(entry);
+                    for (int thread = 0; thread < 4; thread++) {
+                        executor.submit(() -> {
+                            start.await();
+                            repository.save(List.of(entry));
+                            return null;
+                        });
+                    }
+                }
+                start.countDown();
+            }
+
+            //then
+            assertEquals(entries.size(), journal.size());
+            assertEquals(Money.pln(entries.size()), repository.balanceAsOf(account, NOW));
+        }
+    }
+
+    @Test
+    void shouldReturnEntriesApplyingAtTheSameInstantInStatementOrder() throws IOException {
+        //given
+        AccountId account = AccountId.generate();
+        try (LedgerJournal journal = LedgerJournal.open(Files.createTempFile("ledger", ".journal"), FsyncPolicy.onClose())) {
+            JournalEntryRepository repository = new JournalEntryRepository(journal);
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                entries.add(new AccountCredited(account, TransactionId.generate(), Money.pln(1), NOW, NOW));
+            }
+            repository.save(entries);
+
+            //when
+            List<Entry> found = repository.findAllFor(account);
+
+            //then
+            assertEquals(entries.stream().sorted(EntryPosition.STATEMENT_ORDER).map(Entry::id).toList(), found.stream().map(Entry::id).toList());
+        }
+    }
+
+    private static AccountingConfiguration journaled(Path journalFile) {
+        return AccountingConfiguration.journaled(CLOCK, new InMemoryEventsPublisher(), journalFile, FsyncPolicy.everyAppend());
+    }
+
+    private static AccountId assetAccount(AccountingConfiguration configuration, String name) {
+        return configuration.facade().createAccount(CreateAccount.generateAssetAccount(name)).getSuccess();
+    }
+
+    private static byte markerOf(Path journalFile, int record) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, READ)) {
+            ByteBuffer marker = ByteBuffer.allocate(1);
+            channel.read(marker, (long) record * LedgerJournal.RECORD_SIZE);
+            return marker.get(0);
+        }
+    }
+
+    private static void corruptAmountOf(Path journalFile, int record) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, WRITE)) {
+            //amount is at offset 52 of a record
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), (long) record * LedgerJournal.RECORD_SIZE + 52);
+        }
+    }
+
+    private static Money eur(String amount) {
+        return Money.of(new BigDecimal(amount), "EUR");
+    }
+
+    private static void tear(Path journalFile, int record) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {CONTINUED}), (long) record * LedgerJournal.RECORD_SIZE);
+        }
+    }
+}
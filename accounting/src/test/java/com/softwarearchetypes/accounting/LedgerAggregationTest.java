@@ -0,0 +1,94 @@
+package com.softwarearchetypes.accounting;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerAggregationTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant AS_OF = T0.plusSeconds(60);
+
+    private final EmbeddedDatabase database = AccountingTestDatabase.create();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final JdbcEntryRepository entryRepository = new JdbcEntryRepository(jdbcTemplate);
+    private final JdbcAccountRepository accountRepository = new JdbcAccountRepository(jdbcTemplate, entryRepository);
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldTotalEveryCurrencySeparatelyAlikeInDatabaseAndOnForkJoinPool() {
+        //given
+        AccountId cash = account(AccountType.ASSET);
+        AccountId euroCash = account(AccountType.ASSET);
+        AccountId loan = account(AccountType.LIABILITY);
+        AccountId euroLoan = account(AccountType.LIABILITY);
+        entryRepository.save(List.of(
+                credit(cash, Money.pln(100), T0, "north"),
+                debit(loan, Money.pln(100), T0, "north"),
+                new AccountDebited(cash, TransactionId.generate(), Money.pln(30), T0, T0),
+                new AccountCredited(loan, TransactionId.generate(), Money.pln(30), T0, T0),
+                credit(euroCash, eur("50.00"), T0, "north"),
+                debit(euroLoan, eur("50.00"), T0, "south"),
+                credit(euroCash, eur("7.00"), AS_OF.plusSeconds(1), "north")));
+        List<LedgerAggregation> aggregations = List.of(new JdbcLedgerAggregation(jdbcTemplate), new ForkJoinLedgerAggregation(accountRepository, entryRepository));
+
+        for (LedgerAggregation aggregation : aggregations) {
+            //when
+            TrialBalance trialBalance = new TrialBalance(AS_OF, aggregation.totalsByAccountType(AS_OF));
+            Map<String, Map<String, Money>> byRegion = aggregation.totalsByMetadata("region", AS_OF);
+
+            //then
+            assertEquals(Map.of("PLN", Money.pln(70), "EUR", eur("50.00")), trialBalance.totalsOf(AccountType.ASSET));
+            assertEquals(Map.of("PLN", Money.pln(-70), "EUR", eur("-50.00")), trialBalance.totalsOf(AccountType.LIABILITY));
+            assertTrue(trialBalance.isBalanced());
+            assertEquals(Map.of("north", Map.of("EUR", eur("50.00")), "south", Map.of("EUR", eur("-50.00"))), byRegion);
+        }
+    }
+
+    @Test
+    void shouldNotBalanceWhenOnlyOneCurrencyIsOff() {
+        //given
+        TrialBalance trialBalance = new TrialBalance(AS_OF, Map.of(
+                AccountType.ASSET, Map.of("PLN", Money.pln(10), "EUR", eur("10.00")),
+                AccountType.LIABILITY, Map.of("PLN", Money.pln(-10))));
+
+        //expect
+        assertEquals(eur("10.00"), trialBalance.totalOf(AccountType.ASSET, "EUR"));
+        assertEquals(eur("0.00"), trialBalance.totalOf(AccountType.LIABILITY, "EUR"));
+        assertFalse(trialBalance.isBalanced());
+    }
+
+    private AccountId account(AccountType type) {
+        Account account = new Account(AccountId.generate(), type, AccountName.of(type.name().toLowerCase()));
+        accountRepository.save(account);
+        return account.id();
+    }
+
+    private static Entry credit(AccountId accountId, Money amount, Instant appliesAt, String region) {
+        return new AccountCredited(accountId, TransactionId.generate(), amount, appliesAt, T0).withMetadata(new MetaData(Map.of("region", region)));
+    }
+
+    private static Entry debit(AccountId accountId, Money amount, Instant appliesAt, String region) {
+        return new AccountDebited(accountId, TransactionId.generate(), amount, appliesAt, T0).withMetadata(new MetaData(Map.of("region", region)));
+    }
+
+    private static Money eur(String amount) {
+        return Money.of(new BigDecimal(amount), "EUR");
+    }
+}
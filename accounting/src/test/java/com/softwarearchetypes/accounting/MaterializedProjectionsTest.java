@@ -0,0 +1,135 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.events.CreditEntryRegistered;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaterializedProjectionsTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final List<CreditEntryRegistered> deliveredWhileRebuilding = new ArrayList<>();
+    private final IndexedEntryRepository entryRepository = new RebuildObservingEntryRepository();
+    private final InMemoryAccountRepo accountRepository = new InMemoryAccountRepo(entryRepository);
+    private final MaterializedProjections projections = new MaterializedProjections(accountRepository, entryRepository);
+
+    @Test
+    void shouldCountEntryDeliveredAgainWhileRebuildIsRunningOnce() {
+        //given
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        accountRepository.save(account);
+        ProjectionAccount projection = projectionOf(account.id());
+        Entry entry = post(account, Money.pln(10));
+        deliveredWhileRebuilding.add(registered(entry));
+        deliveredWhileRebuilding.add(registered(entry));
+
+        //when
+        projections.rebuild(projection);
+
+        //then
+        assertEquals(Money.pln(10), projections.balanceOf(projection.id()).orElseThrow());
+    }
+
+    @Test
+    void shouldNotCountEntryDeliveredAfterRebuildWhichCountedIt() {
+        //given
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        accountRepository.save(account);
+        ProjectionAccount projection = projectionOf(account.id());
+        Entry entry = post(account, Money.pln(10));
+        projections.rebuild(projection);
+
+        //when
+        projections.handle(registered(entry));
+
+        //then
+        assertEquals(Money.pln(10), projections.balanceOf(projection.id()).orElseThrow());
+    }
+
+    @Test
+    void shouldCountEntriesDeliveredAfterRebuild() {
+        //given
+        Account account = new Account(AccountId.generate(), AccountType.ASSET, AccountName.of("cash"));
+        accountRepository.save(account);
+        ProjectionAccount projection = projectionOf(account.id());
+        post(account, Money.pln(5));
+        projections.rebuild(projection);
+
+        //when
+        projections.handle(registered(post(account, Money.pln(10))));
+
+        //then
+        assertEquals(Money.pln(15), projections.balanceOf(projection.id()).orElseThrow());
+    }
+
+    @Test
+    void shouldKeepBalanceOfProjectionRebuiltWhileEntriesArePosted() throws Exception {
+        //given
+        AccountingConfiguration configuration = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC));
+        AccountingFacade facade = configuration.facade();
+        AccountId wallet = facade.createAccount(CreateAccount.generateAssetAccount("wallet")).getSuccess();
+        AccountId shop = facade.createAccount(CreateAccount.generateAssetAccount("shop")).getSuccess();
+        AccountId projection = AccountId.generate();
+        facade.createMaterializedProjectingAccount(projection, AccountEntryFilter.filtering().onAccountEquals(shop), "shop income");
+
+        //when
+        List<Future<?>> tasks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 300; i++) {
+                tasks.add(executor.submit(() -> assertTrue(facade.transfer(wallet, shop, Money.pln(1), NOW, NOW).success())));
+                if (i % 10 == 0) {
+                    tasks.add(executor.submit(() -> assertTrue(facade.rebuildProjection(projection).success())));
+                }
+            }
+        }
+
+        //then
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        assertEquals(Money.pln(300), facade.balance(projection).orElseThrow());
+    }
+
+    private ProjectionAccount projectionOf(AccountId accountId) {
+        ProjectionAccount projection = new ProjectionAccount(AccountId.generate(), AccountEntryFilter.filtering().onAccountEquals(accountId).toFilter(), "projection");
+        accountRepository.save(projection);
+        return projection;
+    }
+
+    private Entry post(Account account, Money amount) {
+        Entry entry = new AccountCredited(account.id(), TransactionId.generate(), amount, NOW, NOW);
+        account.addEntries(List.of(entry));
+        accountRepository.save(account);
+        return entry;
+    }
+
+    private static CreditEntryRegistered registered(Entry entry) {
+        return new CreditEntryRegistered(UUID.randomUUID(), NOW, NOW, entry.id().value(), entry.accountId().uuid(), entry.transactionId().value(), entry.amount());
+    }
+
+    //delivers the given events while a rebuild reads entries, as a concurrent publisher might
+    private class RebuildObservingEntryRepository extends IndexedEntryRepository {
+
+        @Override
+        public List<Entry> findAllFor(AccountId accountId) {
+            List<Entry> entries = super.findAllFor(accountId);
+            deliveredWhileRebuilding.forEach(projections::handle);
+            deliveredWhileRebuilding.clear();
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingPipelineTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final CrashingEntryRepository entryRepository = new CrashingEntryRepository();
+    private final AccountingConfiguration configuration = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC),
+            new InMemoryEventsPublisher(), entryRepository);
+    private final AccountingFacade facade = configuration.facade();
+    private final AccountingFixture fixture = new AccountingFixture(configuration, NOW);
+    private final PostingPipeline pipeline = configuration.postingPipeline(16, 8);
+
+    @AfterEach
+    void close() {
+        pipeline.close();
+    }
+
+    @Test
+    void shouldPostSubmittedCommands() throws Exception {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId shop = fixture.assetAccount("shop");
+
+        //when
+        List<CompletableFuture<Result<String, TransactionId>>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(pipeline.submit(fixture.transferCommand(wallet, shop, Money.pln(1))));
+        }
+
+        //then
+        for (CompletableFuture<Result<String, TransactionId>> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS).success());
+        }
+        assertEquals(Money.pln(40), facade.balance(shop).orElseThrow());
+    }
+
+    @Test
+    void shouldCompleteFuturesExceptionallyAndKeepPostingWhenBatchThrowsError() throws Exception {
+        //given
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId shop = fixture.assetAccount("shop");
+        entryRepository.crashing = true;
+
+        //when
+        CompletableFuture<Result<String, TransactionId>> crashed = pipeline.submit(fixture.transferCommand(wallet, shop, Money.pln(10)));
+
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> crashed.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof Error);
+        entryRepository.crashing = false;
+        assertTrue(pipeline.submit(fixture.transferCommand(wallet, shop, Money.pln(5))).get(5, TimeUnit.SECONDS).success());
+        assertEquals(Money.pln(5), facade.balance(shop).orElseThrow());
+    }
+
+    private static class CrashingEntryRepository extends IndexedEntryRepository {
+
+        private volatile boolean crashing;
+
+        @Override
+        public void save(Entry entry) {
+            if (crashing) {
+                throw new Error("Entry store crashed");
+            }
+            super.save(entry);
+        }
+    }
+}
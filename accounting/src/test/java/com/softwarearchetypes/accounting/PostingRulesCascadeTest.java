@@ -0,0 +1,193 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.postingrules.EligibilityCondition;
+import com.softwarearchetypes.accounting.postingrules.PostingRule;
+import com.softwarearchetypes.accounting.postingrules.PostingRuleBuilder;
+import com.softwarearchetypes.accounting.postingrules.PostingRulesConfiguration;
+import com.softwarearchetypes.accounting.postingrules.PostingRulesFacade;
+import com.softwarearchetypes.accounting.postingrules.PostingRulesTrigger;
+import com.softwarearchetypes.common.events.EventPublisher;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.common.events.PartitionedAsyncEventPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingRulesCascadeTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    @Test
+    void shouldStopRuleTriggeredByItsOwnPostings() {
+        //given
+        EventPublisher eventPublisher = new InMemoryEventsPublisher();
+        AccountingFacade facade = AccountingConfiguration.inMemory(CLOCK, eventPublisher).facade();
+        PostingRulesFacade rules = PostingRulesConfiguration.inMemory(facade, eventPublisher, CLOCK).facade();
+        AccountId source = assetAccount(facade, "source");
+        AccountId wallet = assetAccount(facade, "wallet");
+        AccountId bonus = assetAccount(facade, "bonus");
+        rules.saveRule(forwarding("bonus on every credit", wallet, bonus, wallet));
+
+        //when
+        facade.transfer(source, wallet, Money.pln(10), NOW, NOW);
+
+        //then
+        assertEquals(Money.pln(20), facade.balance(wallet).orElseThrow());
+        assertEquals(Money.pln(-10), facade.balance(bonus).orElseThrow());
+    }
+
+    @Test
+    void shouldStopCascadeDeeperThanAllowed() {
+        //given
+        EventPublisher eventPublisher = new InMemoryEventsPublisher();
+        AccountingFacade facade = AccountingConfiguration.inMemory(CLOCK, eventPublisher).facade();
+        PostingRulesFacade rules = PostingRulesConfiguration.inMemory(facade, eventPublisher, CLOCK, PostingRulesTrigger.PER_ENTRY, 2).facade();
+        AccountId source = assetAccount(facade, "source");
+        List<AccountId> chain = List.of(assetAccount(facade, "first"), assetAccount(facade, "second"), assetAccount(facade, "third"), assetAccount(facade, "fourth"));
+        for (int i = 0; i + 1 < chain.size(); i++) {
+            rules.saveRule(forwarding("forward " + i, chain.get(i), chain.get(i), chain.get(i + 1)));
+        }
+
+        //when
+        facade.transfer(source, chain.get(0), Money.pln(10), NOW, NOW);
+
+        //then
+        assertEquals(Money.zeroPln(), facade.balance(chain.get(0)).orElseThrow());
+        assertEquals(Money.zeroPln(), facade.balance(chain.get(1)).orElseThrow());
+        assertEquals(Money.pln(10), facade.balance(chain.get(2)).orElseThrow());
+        assertEquals(Money.zeroPln(), facade.balance(chain.get(3)).orElseThrow());
+    }
+
+    @Test
+    void shouldEvaluateCascadeWithSynchronousPublisherOnStackOfFirstRule() {
+        //given
+        EventPublisher eventPublisher = new InMemoryEventsPublisher();
+        AccountingFacade facade = AccountingConfiguration.inMemory(CLOCK, eventPublisher).facade();
+        PostingRulesFacade rules = PostingRulesConfiguration.inMemory(facade, eventPublisher, CLOCK).facade();
+        AccountId source = assetAccount(facade, "source");
+        List<AccountId> chain = List.of(assetAccount(facade, "first"), assetAccount(facade, "second"), assetAccount(facade, "third"), assetAccount(facade, "fourth"));
+        List<Integer> stackDepths = new ArrayList<>();
+        for (int i = 0; i + 1 < chain.size(); i++) {
+            rules.saveRule(forwarding("forward " + i, chain.get(i), chain.get(i), chain.get(i + 1), EligibilityCondition.custom(context -> {
+                stackDepths.add(Thread.currentThread().getStackTrace().length);
+                return true;
+            })));
+        }
+
+        //when
+        facade.transfer(source, chain.get(0), Money.pln(10), NOW, NOW);
+
+        //then
+        assertEquals(Money.pln(10), facade.balance(chain.get(3)).orElseThrow());
+        assertEquals(3, stackDepths.size());
+        assertEquals(1, stackDepths.stream().distinct().count());
+    }
+
+    @Test
+    void shouldStopRuleTriggeredByItsOwnPostingsHandledOnOtherThreads() throws Exception {
+        //given
+        try (PartitionedAsyncEventPublisher eventPublisher = AccountingConfiguration.asyncEventPublisher(4, 1024)) {
+            AccountingFacade facade = AccountingConfiguration.inMemory(CLOCK, eventPublisher).facade();
+            PostingRulesFacade rules = PostingRulesConfiguration.inMemory(facade, eventPublisher, CLOCK).facade();
+            AccountId source = assetAccount(facade, "source");
+            AccountId wallet = assetAccount(facade, "wallet");
+            AccountId bonus = assetAccount(facade, "bonus");
+            rules.saveRule(forwarding("bonus on every credit", wallet, bonus, wallet));
+
+            //when
+            facade.transfer(source, wallet, Money.pln(10), NOW, NOW);
+
+            //then
+            assertTrue(eventPublisher.awaitIdle(Duration.ofSeconds(5)));
+            assertEquals(Money.pln(20), facade.balance(wallet).orElseThrow());
+            assertEquals(Money.pln(-10), facade.balance(bonus).orElseThrow());
+        }
+    }
+
+    @Test
+    void shouldTriggerRulesOncePerMultiLegTransactionWithAllItsLegs() {
+        //given
+        EventPublisher eventPublisher = new InMemoryEventsPublisher();
+        AccountingConfiguration configuration = AccountingConfiguration.inMemory(CLOCK, eventPublisher);
+        AccountingFacade facade = configuration.facade();
+        PostingRulesFacade rules = PostingRulesConfiguration.inMemory(facade, eventPublisher, CLOCK, PostingRulesTrigger.PER_TRANSACTION).facade();
+        AccountId source = assetAccount(facade, "source");
+        AccountId wallet = assetAccount(facade, "wallet");
+        AccountId shop = assetAccount(facade, "shop");
+        AccountId fees = assetAccount(facade, "fees");
+        List<Integer> legsPerCalculation = new ArrayList<>();
+        rules.saveRule(PostingRuleBuilder.createRule("fee of all credits")
+                                         .when(EligibilityCondition.accountEquals(source))
+                                         .transferTo("fees", fees)
+                                         .calculateUsing((accounts, context) -> {
+                                             legsPerCalculation.add(context.triggeringEntries().size());
+                                             Money credited = context.triggeringEntries().stream()
+                                                                     .filter(entry -> entry.type() == EntryView.EntryType.CREDIT)
+                                                                     .map(EntryView::amount)
+                                                                     .reduce(Money.zeroPln(), Money::add);
+                                             return List.of(context.accountingFacade()
+                                                                   .transaction()
+                                                                   .occurredAt(NOW)
+                                                                   .appliesAt(NOW)
+                                                                   .withTypeOf("fee")
+                                                                   .executing()
+                                                                   .debitFrom(wallet, credited)
+                                                                   .creditTo(fees, credited)
+                                                                   .build());
+                                         })
+                                         .build());
+
+        //when
+        facade.execute(configuration.transactionBuilderFactory()
+                                    .transaction()
+                                    .occurredAt(NOW)
+                                    .appliesAt(NOW)
+                                    .withTypeOf("split")
+                                    .executing()
+                                    .debitFrom(source, Money.pln(30))
+                                    .creditTo(wallet, Money.pln(10))
+                                    .creditTo(shop, Money.pln(20))
+                                    .build());
+
+        //then
+        assertEquals(List.of(3), legsPerCalculation);
+        assertEquals(Money.pln(30), facade.balance(fees).orElseThrow());
+        assertEquals(Money.pln(-20), facade.balance(wallet).orElseThrow());
+    }
+
+    //on a credit of the trigger account moves the credited amount from one account to the other
+    private static PostingRule forwarding(String name, AccountId trigger, AccountId from, AccountId to) {
+        return forwarding(name, trigger, from, to, context -> true);
+    }
+
+    private static PostingRule forwarding(String name, AccountId trigger, AccountId from, AccountId to, EligibilityCondition condition) {
+        return PostingRuleBuilder.createRule(name)
+                                 .when(EligibilityCondition.accountEquals(trigger).and(EligibilityCondition.entryTypeEquals(EntryView.EntryType.CREDIT)).and(condition))
+                                 .transferTo("to", to)
+                                 .calculateUsing((accounts, context) -> List.of(context.accountingFacade()
+                                                                                     .transaction()
+                                                                                     .occurredAt(NOW)
+                                                                                     .appliesAt(NOW)
+                                                                                     .withTypeOf("transfer")
+                                                                                     .executing()
+                                                                                     .debitFrom(from, context.triggeringEntries().getFirst().amount())
+                                                                                     .creditTo(to, context.triggeringEntries().getFirst().amount())
+                                                                                     .build()))
+                                 .build();
+    }
+
+    private static AccountId assetAccount(AccountingFacade facade, String name) {
+        return facade.createAccount(CreateAccount.generateAssetAccount(name)).getSuccess();
+    }
+}
@@ -0,0 +1,183 @@
+package com.softwarearchetypes.accounting;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReconciliationEngineTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-10T10:00:00Z");
+    private static final Instant FROM = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-01-31T00:00:00Z");
+    private static final StatementFormat CSV = StatementFormat.csv(',');
+
+    private final AccountingConfiguration configuration = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC));
+    private final AccountingFacade facade = configuration.facade();
+    private final AccountingFixture fixture = new AccountingFixture(configuration, NOW);
+    private final AccountId bank = fixture.assetAccount("bank");
+    private final AccountId counterparty = fixture.assetAccount("counterparty");
+    private final AccountId adjustments = fixture.assetAccount("adjustments");
+    private final ReconciliationEngine engine = configuration.reconciliationEngine(
+            MatchingRules.byAmountWithin(Duration.ofDays(3)).andMetadata("reference"), adjustments, 4);
+
+    @Test
+    void shouldMatchEveryLineWithEntryApplyingClosestToItsBookingDate() {
+        //given
+        received("10.00", "2024-01-01", "A");
+        received("10.00", "2024-01-04", "A");
+        received("25.50", "2024-01-05", "B");
+
+        //when
+        ReconciliationReport report = reconcile("""
+                2024-01-05,10.00,A
+                2024-01-02,10.00,A
+                2024-01-06,25.50,B
+                """);
+
+        //then
+        assertTrue(report.isReconciled());
+        assertEquals(List.of(Instant.parse("2024-01-04T00:00:00Z"), Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-01-05T00:00:00Z")),
+                report.matched().stream().map(match -> match.entry().appliesAt()).toList());
+    }
+
+    @Test
+    void shouldLeaveLineWithEquallyCloseEntriesAmbiguous() {
+        //given
+        received("10.00", "2024-01-01", "A");
+        received("10.00", "2024-01-03", "A");
+        received("10.00", "2024-01-03", "A");
+
+        //when
+        ReconciliationReport report = reconcile("2024-01-02,10.00,A");
+
+        //then
+        assertEquals(1, report.ambiguous().size());
+        assertEquals(3, report.ambiguous().getFirst().candidates().size());
+        assertTrue(report.matched().isEmpty());
+        assertTrue(report.unmatchedEntries().isEmpty());
+        assertFalse(report.isReconciled());
+    }
+
+    @Test
+    void shouldNotMatchEntryInDoubtWithLaterLine() {
+        //given
+        received("10.00", "2024-01-01", "A");
+        received("10.00", "2024-01-03", "A");
+
+        //when
+        ReconciliationReport report = reconcile("""
+                2024-01-02,10.00,A
+                2024-01-03,10.00,A
+                """);
+
+        //then
+        assertEquals(2, report.ambiguous().getFirst().candidates().size());
+        assertTrue(report.matched().isEmpty());
+        assertEquals(List.of(2L), report.unmatchedLines().stream().map(unmatched -> unmatched.line().lineNumber()).toList());
+        assertTrue(report.unmatchedEntries().isEmpty());
+    }
+
+    @Test
+    void shouldNotMatchEntryOutsideDateWindowNorWithOtherMetadata() {
+        //given
+        received("10.00", "2024-01-01", "A");
+        received("10.00", "2024-01-20", "B");
+
+        //when
+        ReconciliationReport report = reconcile("""
+                2024-01-05,10.00,A
+                2024-01-20,10.00,C
+                """);
+
+        //then
+        assertTrue(report.matched().isEmpty());
+        assertEquals(List.of(1L, 2L), report.unmatchedLines().stream().map(unmatched -> unmatched.line().lineNumber()).toList());
+        assertEquals(2, report.unmatchedEntries().size());
+    }
+
+    @Test
+    void shouldParseQuotedFieldsSkippingHeader() {
+        //given
+        received("10.00", "2024-01-02", "Invoice; \"7\"");
+        StatementFormat format = StatementFormat.csv(';')
+                                                .skippingLines(1)
+                                                .date(0, "dd.MM.yyyy", ZoneOffset.UTC)
+                                                .amount(2, "PLN")
+                                                .metadata("reference", 1);
+
+        //when
+        ReconciliationReport report = engine.reconcile(bank, FROM, TO, new StringReader("""
+                date;reference;amount
+                02.01.2024;"Invoice; ""7\""";10.00
+                """), format).getSuccess();
+
+        //then
+        assertTrue(report.isReconciled());
+        assertEquals(Map.of("reference", "Invoice; \"7\""), report.matched().getFirst().line().metadata());
+    }
+
+    @Test
+    void shouldParseFixedWidthColumnsInCurrencyOfAccount() {
+        //given
+        received("10.00", "2024-01-02", "A");
+        StatementFormat format = StatementFormat.fixedWidth(10, 8, 1).metadata("reference", 2);
+
+        //when
+        ReconciliationReport report = engine.reconcile(bank, FROM, TO, new StringReader("2024-01-02   10.00A"), format).getSuccess();
+
+        //then
+        assertTrue(report.isReconciled());
+        assertEquals(Money.pln(10), report.matched().getFirst().line().amount());
+    }
+
+    @Test
+    void shouldFailOnLineWhichCannotBeParsed() {
+        //when
+        Result<String, ReconciliationReport> result = engine.reconcile(bank, FROM, TO, new StringReader("""
+                2024-01-02,10.00,A
+                2024-01-03,ten,A
+                """), CSV.metadata("reference", 2));
+
+        //then
+        assertEquals("Line 2 has an invalid amount ten", result.getFailure());
+    }
+
+    @Test
+    void shouldSuggestAdjustmentsBookingUnmatchedLinesAndTakingOffUnmatchedEntries() {
+        //given
+        received("3.00", "2024-01-02", "A");
+
+        //when
+        ReconciliationReport report = reconcile("2024-01-15,7.00,B");
+        Result<String, BatchPostingResult> posted = facade.execute(report.suggestedAdjustments(), BatchPostingMode.ALL_OR_NOTHING);
+
+        //then
+        assertTrue(posted.success());
+        assertEquals(Money.pln(7), facade.balance(bank).orElseThrow());
+        assertEquals(Money.pln(-4), facade.balance(adjustments).orElseThrow());
+        assertTrue(reconcile("2024-01-15,7.00,B").unmatchedLines().isEmpty());
+    }
+
+    private ReconciliationReport reconcile(String statement) {
+        return engine.reconcile(bank, FROM, TO, new StringReader(statement), CSV.metadata("reference", 2)).getSuccess();
+    }
+
+    private void received(String amount, String date, String reference) {
+        Instant appliesAt = Instant.parse(date + "T00:00:00Z");
+        facade.transfer(counterparty, bank, Money.pln(new BigDecimal(amount)), NOW, appliesAt, new MetaData(Map.of("reference", reference)));
+    }
+}
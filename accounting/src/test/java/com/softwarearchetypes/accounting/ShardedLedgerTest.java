@@ -0,0 +1,157 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.events.CreditEntryRegistered;
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.common.events.EventHandler;
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.common.events.PublishedEvent;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedLedgerTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private final AtomicBoolean failingStorage = new AtomicBoolean();
+    private final ShardedLedger ledger = ShardedLedger.of(List.of(
+            AccountingConfiguration.inMemory(CLOCK, new InMemoryEventsPublisher()),
+            AccountingConfiguration.inMemory(CLOCK, new InMemoryEventsPublisher(), new FailingEntryRepository(failingStorage))));
+
+    @AfterEach
+    void closeLedger() {
+        ledger.close();
+    }
+
+    @Test
+    void shouldAbortAllLegsWhenOneOfThemCannotBePrepared() {
+        //given
+        AccountId first = assetAccountOn(ledger, 0);
+        AccountId missing = accountIdOn(ledger, 1);
+
+        //when
+        Result<String, TransactionId> result = ledger.transfer(first, missing, Money.pln(10), NOW, NOW);
+
+        //then
+        assertTrue(result.failure());
+        assertEquals(Money.zeroPln(), ledger.balance(first).orElseThrow());
+        assertTrue(ledger.transfer(first, assetAccountOn(ledger, 1), Money.pln(5), NOW, NOW).success());
+    }
+
+    @Test
+    void shouldRevertCommittedLegsWhenOtherLegFailsOnCommit() {
+        //given
+        AccountId first = assetAccountOn(ledger, 0);
+        AccountId second = assetAccountOn(ledger, 1);
+        failingStorage.set(true);
+
+        //when
+        Result<String, TransactionId> result = ledger.transfer(first, second, Money.pln(10), NOW, NOW);
+
+        //then
+        assertTrue(result.failure());
+        assertEquals(Money.zeroPln(), ledger.balance(first).orElseThrow());
+        assertEquals(Money.zeroPln(), ledger.balance(second).orElseThrow());
+        assertTrue(ledger.unbalancedTransactions().isEmpty());
+    }
+
+    @Test
+    void shouldKeepLedgerBalancedUnderConcurrentTransfersAcrossShards() throws Exception {
+        //given
+        List<AccountId> accounts = List.of(assetAccountOn(ledger, 0), assetAccountOn(ledger, 1), assetAccountOn(ledger, 0), assetAccountOn(ledger, 1));
+
+        //when
+        List<Future<Result<String, TransactionId>>> transfers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 400; i++) {
+                AccountId from = accounts.get(i % accounts.size());
+                AccountId to = accounts.get((i + 1 + i / accounts.size()) % accounts.size());
+                if (!from.equals(to)) {
+                    transfers.add(executor.submit(() -> ledger.transfer(from, to, Money.pln(1), NOW, NOW)));
+                }
+            }
+        }
+
+        //then
+        for (Future<Result<String, TransactionId>> transfer : transfers) {
+            assertTrue(transfer.get().success());
+        }
+        Money total = accounts.stream().map(account -> ledger.balance(account).orElseThrow()).reduce(Money.zeroPln(), Money::add);
+        assertEquals(Money.zeroPln(), total);
+    }
+
+    @Test
+    void shouldPublishEntriesOfAllShardsToLedgerPublisher() {
+        //given
+        InMemoryEventsPublisher publisher = new InMemoryEventsPublisher();
+        Set<AccountId> credited = ConcurrentHashMap.newKeySet();
+        publisher.register(new EventHandler() {
+            @Override
+            public boolean supports(PublishedEvent event) {
+                return event instanceof CreditEntryRegistered;
+            }
+
+            @Override
+            public void handle(PublishedEvent event) {
+                credited.add(AccountId.of(((CreditEntryRegistered) event).accountId()));
+            }
+        });
+        try (ShardedLedger published = ShardedLedger.inMemory(CLOCK, 2, publisher)) {
+            AccountId first = assetAccountOn(published, 0);
+            AccountId second = assetAccountOn(published, 1);
+
+            //when
+            published.transfer(first, second, Money.pln(10), NOW, NOW);
+            published.transfer(second, first, Money.pln(4), NOW, NOW);
+
+            //then
+            assertEquals(Set.of(first, second), credited);
+        }
+    }
+
+    private static AccountId assetAccountOn(ShardedLedger ledger, int shard) {
+        return ledger.createAccount(new CreateAccount(accountIdOn(ledger, shard), "asset", "ASSET")).getSuccess();
+    }
+
+    private static AccountId accountIdOn(ShardedLedger ledger, int shard) {
+        AccountId accountId = AccountId.generate();
+        while (ledger.shardOf(accountId) != shard) {
+            accountId = AccountId.generate();
+        }
+        return accountId;
+    }
+
+    private static class FailingEntryRepository extends IndexedEntryRepository {
+
+        private final AtomicBoolean failing;
+
+        FailingEntryRepository(AtomicBoolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public void save(Entry entry) {
+            if (failing.get()) {
+                throw new IllegalStateException("Storage is not available");
+            }
+            super.save(entry);
+        }
+    }
+}
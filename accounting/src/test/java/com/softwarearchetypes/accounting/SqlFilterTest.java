@@ -0,0 +1,90 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlFilterTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant T1 = T0.plusSeconds(3600);
+    private static final Clock CLOCK = Clock.fixed(T1, ZoneOffset.UTC);
+
+    private final AccountId source = AccountId.generate();
+    private final AccountId wallet = AccountId.generate();
+    private final AccountId shop = AccountId.generate();
+    private final EmbeddedDatabase database = AccountingTestDatabase.create();
+    private final AccountingFacade inMemory = AccountingConfiguration.inMemory(CLOCK).facade();
+    private final AccountingFacade jdbc = AccountingConfiguration.jdbc(CLOCK, new InMemoryEventsPublisher(), new JdbcTemplate(database),
+            new DataSourceTransactionManager(database)).facade();
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldProjectTheSameBalancesFromSqlAsInMemory() {
+        //given
+        List<AccountEntryFilter> filters = List.of(
+                AccountEntryFilter.filtering().onAccountsIn(Set.of(wallet, shop)).havingMetadata("channel", "web"),
+                AccountEntryFilter.filtering().onAccountDescriptionContaining("sho").onDateYoungerThan(T1),
+                AccountEntryFilter.filtering().onAccountsIn(Set.of()).havingMetadata("channel", "web"),
+                AccountEntryFilter.filtering().onAccountDescriptionContaining("_").onDateOlderThan(T0));
+        post(inMemory);
+        post(jdbc);
+
+        //expect
+        for (AccountEntryFilter filter : filters) {
+            assertTrue(SqlFilter.from(filter.toFilter()).fullyTranslated());
+            assertEquals(projectedBalance(inMemory, filter), projectedBalance(jdbc, filter));
+        }
+        assertEquals(Money.pln(15), projectedBalance(jdbc, filters.getFirst()));
+    }
+
+    @Test
+    void shouldCheckConditionsLeftUntranslatedOnEntriesNarrowedBySql() {
+        //given
+        AccountEntryFilter filter = AccountEntryFilter.filtering()
+                                                      .onAccountsIn(Set.of(wallet, shop))
+                                                      .onAmount(amount -> amount.compareTo(Money.pln(6)) > 0);
+        post(inMemory);
+        post(jdbc);
+
+        //expect
+        assertFalse(SqlFilter.from(filter.toFilter()).fullyTranslated());
+        assertEquals(Money.pln(30), projectedBalance(jdbc, filter));
+        assertEquals(projectedBalance(inMemory, filter), projectedBalance(jdbc, filter));
+    }
+
+    //wallet gets 10 over the web at T0 and 5 over the web at T1, shop gets 20 by phone at T1
+    private void post(AccountingFacade facade) {
+        facade.createAccount(new CreateAccount(source, "source", "ASSET"));
+        facade.createAccount(new CreateAccount(wallet, "wallet", "ASSET"));
+        facade.createAccount(new CreateAccount(shop, "shop", "ASSET"));
+        facade.transfer(source, wallet, Money.pln(10), T0, T0, new MetaData(Map.of("channel", "web")));
+        facade.transfer(source, wallet, Money.pln(5), T1, T1, new MetaData(Map.of("channel", "web")));
+        facade.transfer(source, shop, Money.pln(20), T1, T1, new MetaData(Map.of("channel", "phone")));
+    }
+
+    private static Money projectedBalance(AccountingFacade facade, AccountEntryFilter filter) {
+        AccountId projection = facade.createProjectingAccount(AccountId.generate(), filter, "projection").getSuccess();
+        return facade.balance(projection).orElseThrow();
+    }
+}
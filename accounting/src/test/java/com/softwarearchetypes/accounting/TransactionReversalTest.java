@@ -0,0 +1,103 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import com.softwarearchetypes.common.events.InMemoryEventsPublisher;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionReversalTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void close() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldRevertTransactionFoundByIdThroughTransactionIndex(Storage storage) {
+        //given
+        Accounting accounting = accounting(storage);
+        AccountingFixture fixture = new AccountingFixture(accounting.configuration(), NOW);
+        AccountId wallet = fixture.assetAccount("wallet");
+        AccountId shop = fixture.assetAccount("shop");
+        AccountingFacade facade = accounting.configuration().facade();
+        TransactionId reverted = facade.execute(fixture.transfer(wallet, shop, Money.pln(10))).getSuccess();
+        TransactionId kept = facade.execute(fixture.transfer(wallet, shop, Money.pln(5))).getSuccess();
+
+        //when
+        Transaction reversal = facade.transaction().occurredAt(NOW).appliesAt(NOW).reverting(reverted).build();
+        TransactionId reversalId = facade.execute(reversal).getSuccess();
+
+        //then
+        List<Entry> reversalEntries = accounting.entryRepository().findAllOf(reversalId);
+        assertEquals(2, reversalEntries.size());
+        assertEquals(entryIdsOf(accounting.entryRepository().findAllOf(reverted)), reversalEntries.stream().flatMap(entry -> entry.appliedTo().stream()).collect(toSet()));
+        assertEquals(Set.of(reverted, kept, reversalId), Set.copyOf(facade.findTransactionIdsFor(wallet)));
+        assertEquals(Set.of(reverted, kept, reversalId), Set.copyOf(facade.findTransactionIdsFor(shop)));
+        assertEquals(Optional.of(Money.pln(-5)), facade.balance(wallet));
+        assertEquals(Optional.of(Money.pln(5)), facade.balance(shop));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    void shouldNotRevertTransactionWithoutEntries(Storage storage) {
+        //given
+        AccountingFacade facade = accounting(storage).configuration().facade();
+        TransactionBuilder builder = facade.transaction().occurredAt(NOW).appliesAt(NOW);
+
+        //expect
+        assertThrows(IllegalArgumentException.class, () -> builder.reverting(TransactionId.generate()));
+        assertEquals(List.of(), facade.findTransactionIdsFor(AccountId.generate()));
+    }
+
+    private static Set<EntryId> entryIdsOf(List<Entry> entries) {
+        return entries.stream().map(Entry::id).collect(toSet());
+    }
+
+    private Accounting accounting(Storage storage) {
+        return switch (storage) {
+            case INDEXED -> {
+                IndexedEntryRepository entryRepository = new IndexedEntryRepository();
+                yield new Accounting(AccountingConfiguration.inMemory(CLOCK, new InMemoryEventsPublisher(), entryRepository), entryRepository);
+            }
+            case JDBC -> {
+                EmbeddedDatabase database = AccountingTestDatabase.create();
+                resources.add(database::shutdown);
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+                yield new Accounting(AccountingConfiguration.jdbc(CLOCK, new InMemoryEventsPublisher(), jdbcTemplate, new DataSourceTransactionManager(database)),
+                        new JdbcEntryRepository(jdbcTemplate));
+            }
+        };
+    }
+
+    private record Accounting(AccountingConfiguration configuration, EntryRepository entryRepository) {
+    }
+
+    enum Storage {
+        INDEXED, JDBC
+    }
+}
@@ -0,0 +1,89 @@
+package com.softwarearchetypes.accounting.postingrules;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.AccountId;
+import com.softwarearchetypes.accounting.AccountingConfiguration;
+import com.softwarearchetypes.accounting.AccountingFacade;
+import com.softwarearchetypes.accounting.CreateAccount;
+import com.softwarearchetypes.accounting.EntryId;
+import com.softwarearchetypes.accounting.EntryView;
+import com.softwarearchetypes.accounting.EntryView.EntryType;
+import com.softwarearchetypes.accounting.TransactionId;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.accounting.postingrules.EligibilityCondition.accountEquals;
+import static com.softwarearchetypes.accounting.postingrules.EligibilityCondition.accountType;
+import static com.softwarearchetypes.accounting.postingrules.EligibilityCondition.custom;
+import static com.softwarearchetypes.accounting.postingrules.EligibilityCondition.entryTypeEquals;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryPostingRuleRepositoryTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final AccountingFacade facade = AccountingConfiguration.inMemory(Clock.fixed(NOW, ZoneOffset.UTC)).facade();
+    private final AccountId wallet = facade.createAccount(CreateAccount.generateAssetAccount("wallet")).getSuccess();
+    private final AccountId shop = facade.createAccount(CreateAccount.generateAssetAccount("shop")).getSuccess();
+    private final AccountId loan = facade.createAccount(new CreateAccount(AccountId.generate(), "loan", "LIABILITY")).getSuccess();
+    private final InMemoryPostingRuleRepository repository = new InMemoryPostingRuleRepository();
+
+    @Test
+    void shouldFindRulesIndexedUnderAllOfAnyOfAndAccountTypeKeys() {
+        //given
+        repository.save(rule("wallet credits", accountEquals(wallet).and(entryTypeEquals(EntryType.CREDIT))));
+        repository.save(rule("shop or debits", accountEquals(shop).or(entryTypeEquals(EntryType.DEBIT))));
+        repository.save(rule("liabilities", accountType("LIABILITY")));
+
+        //expect
+        assertEquals(Set.of("wallet credits"), eligibleFor(entry(wallet, EntryType.CREDIT)));
+        assertEquals(Set.of("shop or debits"), eligibleFor(entry(shop, EntryType.CREDIT)));
+        assertEquals(Set.of("shop or debits", "liabilities"), eligibleFor(entry(loan, EntryType.DEBIT)));
+        assertEquals(Set.of("wallet credits", "liabilities"), eligibleFor(entry(wallet, EntryType.CREDIT), entry(loan, EntryType.CREDIT)));
+    }
+
+    @Test
+    void shouldEvaluateRulesWhichCannotBeIndexedForEveryContextAndIndexedOnesOnlyForTheirKeys() {
+        //given
+        AtomicInteger notIndexedEvaluations = new AtomicInteger();
+        AtomicInteger indexedEvaluations = new AtomicInteger();
+        repository.save(rule("custom", custom(context -> notIndexedEvaluations.incrementAndGet() > 0)));
+        repository.save(rule("shop or custom", accountEquals(shop).or(custom(context -> notIndexedEvaluations.incrementAndGet() > 0))));
+        repository.save(rule("shop checked", accountEquals(shop).and(custom(context -> indexedEvaluations.incrementAndGet() > 0))));
+
+        //when
+        Set<String> eligible = eligibleFor(entry(wallet, EntryType.CREDIT));
+
+        //then
+        assertEquals(Set.of("custom", "shop or custom"), eligible);
+        assertEquals(2, notIndexedEvaluations.get());
+        assertEquals(0, indexedEvaluations.get());
+    }
+
+    private Set<String> eligibleFor(EntryView... entries) {
+        return repository.findEligibleRules(new PostingContext(List.of(entries), facade, Clock.fixed(NOW, ZoneOffset.UTC)))
+                         .stream()
+                         .map(PostingRule::name)
+                         .collect(toSet());
+    }
+
+    private static EntryView entry(AccountId accountId, EntryType type) {
+        return new EntryView(EntryId.generate(), type, Money.pln(10), TransactionId.generate(), accountId, NOW, NOW);
+    }
+
+    private PostingRule rule(String name, EligibilityCondition condition) {
+        return PostingRuleBuilder.createRule(name)
+                                 .when(condition)
+                                 .transferTo("wallet", wallet)
+                                 .calculateUsing((accounts, context) -> List.of())
+                                 .build();
+    }
+}
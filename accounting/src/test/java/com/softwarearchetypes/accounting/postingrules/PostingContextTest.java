@@ -0,0 +1,92 @@
+package com.softwarearchetypes.accounting.postingrules;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.softwarearchetypes.accounting.AccountId;
+import com.softwarearchetypes.accounting.AccountingConfiguration;
+import com.softwarearchetypes.accounting.AccountingFacade;
+import com.softwarearchetypes.accounting.CreateAccount;
+import com.softwarearchetypes.accounting.EntryId;
+import com.softwarearchetypes.accounting.EntryView;
+import com.softwarearchetypes.accounting.EntryView.EntryType;
+import com.softwarearchetypes.accounting.TransactionId;
+import com.softwarearchetypes.quantity.money.Money;
+
+import static com.softwarearchetypes.accounting.postingrules.EligibilityCondition.accountType;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PostingContextTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private final AccountingFacade facade = spy(AccountingConfiguration.inMemory(CLOCK).facade());
+    private final AccountId wallet = facade.createAccount(CreateAccount.generateAssetAccount("wallet")).getSuccess();
+    private final AccountId shop = facade.createAccount(CreateAccount.generateAssetAccount("shop")).getSuccess();
+    private final AccountId loan = facade.createAccount(new CreateAccount(AccountId.generate(), "loan", "LIABILITY")).getSuccess();
+    private final InMemoryPostingRuleRepository repository = new InMemoryPostingRuleRepository();
+
+    @Test
+    void shouldLoadAccountsOfAllTriggeringEntriesInOneBulkCallForAccountTypeRules() {
+        //given
+        repository.save(rule("assets", accountType("ASSET")));
+        repository.save(rule("liabilities", accountType("LIABILITY")));
+        PostingContext context = new PostingContext(List.of(entry(wallet), entry(shop), entry(loan), entry(wallet)), facade, CLOCK);
+
+        //when
+        List<PostingRule> eligible = repository.findEligibleRules(context);
+        Optional<String> walletType = context.accountTypeOf(wallet);
+        Optional<String> loanType = context.accountTypeOf(loan);
+
+        //then
+        assertEquals(2, eligible.size());
+        assertEquals(Optional.of("ASSET"), walletType);
+        assertEquals(Optional.of("LIABILITY"), loanType);
+        verify(facade, times(1)).findAccounts(Set.of(wallet, shop, loan));
+        verify(facade, never()).findAccount(any());
+    }
+
+    @Test
+    void shouldRememberMissingAccountsAndLoadAccountsAgainOnlyAfterEviction() {
+        //given
+        AccountId missing = AccountId.generate();
+        PostingContext context = new PostingContext(List.of(entry(wallet)), facade, CLOCK);
+
+        //when
+        context.preloadAccounts(Set.of(wallet, missing));
+        context.preloadAccounts(Set.of(wallet, missing));
+        Optional<String> missingType = context.accountTypeOf(missing);
+        context.evictAccounts();
+        context.preloadAccounts(Set.of(wallet));
+
+        //then
+        assertEquals(Optional.empty(), missingType);
+        verify(facade, times(1)).findAccounts(Set.of(wallet, missing));
+        verify(facade, times(1)).findAccounts(Set.of(wallet));
+        verify(facade, never()).findAccount(any());
+    }
+
+    private static EntryView entry(AccountId accountId) {
+        return new EntryView(EntryId.generate(), EntryType.CREDIT, Money.pln(10), TransactionId.generate(), accountId, NOW, NOW);
+    }
+
+    private PostingRule rule(String name, EligibilityCondition condition) {
+        return PostingRuleBuilder.createRule(name)
+                                 .when(condition)
+                                 .transferTo("wallet", wallet)
+                                 .calculateUsing((accounts, context) -> List.of())
+                                 .build();
+    }
+}
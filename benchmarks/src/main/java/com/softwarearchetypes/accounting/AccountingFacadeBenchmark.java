@@ -0,0 +1,103 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Posting and as-of reads on the in-memory ledger.
+ * Ledger is seeded once per trial with {@code accounts * entriesPerAccount} entries spread over {@code days}.
+ * Posting benchmarks keep appending to it, so longer measurements run against a slightly bigger ledger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountingFacadeBenchmark {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Param({"10", "100", "1000"})
+    int accounts;
+
+    @Param({"100", "1000"})
+    int entriesPerAccount;
+
+    @Param({"30"})
+    int days;
+
+    private AccountingFacade facade;
+    private List<AccountId> accountIds;
+    private Set<AccountId> allAccounts;
+    private Instant now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        now = START.plus(Duration.ofDays(days));
+        facade = AccountingConfiguration.inMemory(Clock.fixed(now, ZoneOffset.UTC)).facade();
+        accountIds = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            AccountId accountId = AccountId.generate();
+            facade.createAccount(new CreateAccount(accountId, "account-" + i, "ASSET"));
+            accountIds.add(accountId);
+        }
+        allAccounts = new HashSet<>(accountIds);
+        //every transfer creates one entry on each side, so half of the transfers per account is enough
+        long transfers = (long) accounts * entriesPerAccount / 2;
+        long step = Duration.ofDays(days).toSeconds() / Math.max(transfers, 1);
+        for (long i = 0; i < transfers; i++) {
+            AccountId from = accountIds.get((int) (i % accounts));
+            AccountId to = accountIds.get((int) ((i + 1) % accounts));
+            Instant at = START.plusSeconds(i * step);
+            facade.transfer(from, to, Money.pln(1), at, at);
+        }
+    }
+
+    @Benchmark
+    public Result<String, TransactionId> transfer() {
+        int from = randomAccountIndex();
+        return facade.transfer(accountIds.get(from), accountIds.get((from + 1) % accounts), Money.pln(10), now, now);
+    }
+
+    @Benchmark
+    public Result<String, TransactionId> execute() {
+        int from = randomAccountIndex();
+        Transaction transaction = BenchmarkTransactions.transfer(facade, "transfer", accountIds.get(from), accountIds.get((from + 1) % accounts), Money.pln(10), now);
+        return facade.execute(transaction);
+    }
+
+    @Benchmark
+    public Balances balancesAsOf() {
+        Instant when = START.plusSeconds(ThreadLocalRandom.current().nextLong(Duration.ofDays(days).toSeconds()));
+        return facade.balancesAsOf(allAccounts, when);
+    }
+
+    private int randomAccountIndex() {
+        return ThreadLocalRandom.current().nextInt(accounts);
+    }
+}
@@ -0,0 +1,25 @@
+package com.softwarearchetypes.accounting;
+
+import java.time.Instant;
+
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Transaction builder is package-scoped, so benchmarks living in other packages build their transactions here.
+ */
+public class BenchmarkTransactions {
+
+    private BenchmarkTransactions() {
+    }
+
+    public static Transaction transfer(AccountingFacade facade, String type, AccountId from, AccountId to, Money amount, Instant at) {
+        return facade.transaction()
+                     .occurredAt(at)
+                     .appliesAt(at)
+                     .withTypeOf(type)
+                     .executing()
+                     .debitFrom(from, amount)
+                     .creditTo(to, amount)
+                     .build();
+    }
+}
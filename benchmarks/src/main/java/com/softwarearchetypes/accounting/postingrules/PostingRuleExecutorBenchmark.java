@@ -0,0 +1,91 @@
+package com.softwarearchetypes.accounting.postingrules;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.softwarearchetypes.accounting.AccountId;
+import com.softwarearchetypes.accounting.AccountingConfiguration;
+import com.softwarearchetypes.accounting.AccountingFacade;
+import com.softwarearchetypes.accounting.BenchmarkTransactions;
+import com.softwarearchetypes.accounting.CreateAccount;
+import com.softwarearchetypes.accounting.EntryView;
+import com.softwarearchetypes.accounting.TransactionId;
+import com.softwarearchetypes.common.Result;
+import com.softwarearchetypes.quantity.money.Money;
+
+/**
+ * Rule matching and transaction calculation for a single triggering transfer.
+ * Rules listen on {@code triggerAccounts} different accounts, only the ones bound to the triggering account are eligible.
+ * Calculated transactions are not posted, so the ledger does not grow between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostingRuleExecutorBenchmark {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Param({"10", "100", "1000"})
+    int rules;
+
+    @Param({"10"})
+    int triggerAccounts;
+
+    private PostingRuleExecutor executor;
+    private PostingContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        AccountingFacade facade = AccountingConfiguration.inMemory(clock).facade();
+        List<AccountId> accounts = new ArrayList<>(triggerAccounts);
+        for (int i = 0; i < triggerAccounts; i++) {
+            accounts.add(facade.createAccount(new CreateAccount(AccountId.generate(), "trigger-" + i, "ASSET")).getSuccess());
+        }
+        AccountId fees = facade.createAccount(new CreateAccount(AccountId.generate(), "fees", "REVENUE")).getSuccess();
+        AccountId source = facade.createAccount(new CreateAccount(AccountId.generate(), "source", "ASSET")).getSuccess();
+
+        PostingRuleRepository repository = new InMemoryPostingRuleRepository();
+        for (int i = 0; i < rules; i++) {
+            AccountId trigger = accounts.get(i % triggerAccounts);
+            repository.save(PostingRuleBuilder.createRule("fee-" + i)
+                                              .whenTriggerAccountIs(trigger)
+                                              .transferTo("fees", fees)
+                                              .calculateUsing((targets, ctx) -> List.of(BenchmarkTransactions.transfer(ctx.accountingFacade(), "fee",
+                                                      trigger, targets.getRequired("fees").id(), Money.pln(1), ctx.executionTime())))
+                                              .priority(i)
+                                              .build());
+        }
+        executor = new PostingRuleExecutor(repository);
+
+        facade.transfer(source, accounts.getFirst(), Money.pln(100), NOW, NOW);
+        List<EntryView> triggeringEntries = facade.findAccount(accounts.getFirst()).orElseThrow().entries();
+        context = new PostingContext(triggeringEntries, facade, clock);
+    }
+
+    @Benchmark
+    public Result<String, Set<TransactionId>> executeEligibleRules() {
+        return executor.executeEligibleRules(context, (transaction, chain) -> Result.success(transaction.id()));
+    }
+}
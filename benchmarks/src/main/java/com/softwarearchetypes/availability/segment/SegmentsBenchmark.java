@@ -0,0 +1,59 @@
+package com.softwarearchetypes.availability.segment;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.softwarearchetypes.availability.TimeSlot;
+
+/**
+ * Splitting a slot of {@code slotHours}, not aligned to segment boundaries, into segments of {@code segmentMinutes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentsBenchmark {
+
+    @Param({"24", "720", "8760"})
+    int slotHours;
+
+    @Param({"60", "240"})
+    int segmentMinutes;
+
+    private TimeSlot slot;
+    private SegmentInMinutes unit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instant from = Instant.parse("2024-01-01T00:17:00Z");
+        slot = new TimeSlot(from, from.plus(Duration.ofHours(slotHours)));
+        unit = SegmentInMinutes.of(segmentMinutes);
+    }
+
+    @Benchmark
+    public List<TimeSlot> split() {
+        return Segments.split(slot, unit);
+    }
+
+    @Benchmark
+    public TimeSlot normalizeToSegmentBoundaries() {
+        return Segments.normalizeToSegmentBoundaries(slot, unit);
+    }
+}
@@ -0,0 +1,89 @@
+package com.softwarearchetypes.product;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.softwarearchetypes.product.ProductCommands.AddToOffer;
+import com.softwarearchetypes.product.ProductCommands.AllowedValuesConfig;
+import com.softwarearchetypes.product.ProductCommands.DefineProductType;
+import com.softwarearchetypes.product.ProductCommands.MandatoryFeature;
+import com.softwarearchetypes.product.ProductCommands.OptionalFeature;
+import com.softwarearchetypes.product.ProductCommands.UnconstrainedConfig;
+import com.softwarearchetypes.product.ProductQueries.SearchCatalogCriteria;
+import com.softwarearchetypes.product.ProductViews.CatalogEntryView;
+
+/**
+ * Catalog searches over {@code entries} offered products, each of its own product type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCatalogBenchmark {
+
+    private static final String[] CATEGORIES = {"phones", "laptops", "tablets", "accessories", "audio", "wearables"};
+    private static final String[] COLORS = {"Black", "White", "Blue", "Red"};
+    private static final String[] STORAGE = {"64GB", "128GB", "256GB", "512GB"};
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    @Param({"100", "1000", "10000"})
+    int entries;
+
+    private ProductCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProductTypeRepository productTypeRepository = ProductTypeRepository.inMemory();
+        ProductFacade productFacade = new ProductFacade(productTypeRepository);
+        catalog = new ProductCatalog(CatalogEntryRepository.inMemory(), productTypeRepository);
+        for (int i = 0; i < entries; i++) {
+            String productTypeId = UUID.randomUUID().toString();
+            productFacade.handle(new DefineProductType("UUID", productTypeId, "Product " + i, "Description of product " + i, "pcs", "INDIVIDUALLY_TRACKED",
+                    Set.of(new MandatoryFeature("color", new AllowedValuesConfig(Set.of(COLORS[i % COLORS.length])))),
+                    Set.of(new OptionalFeature("storage", new AllowedValuesConfig(Set.of(STORAGE[i % STORAGE.length]))),
+                           new OptionalFeature("engraving", new UnconstrainedConfig("TEXT")))));
+            catalog.handle(new AddToOffer(productTypeId, "Offer " + i, "Great offer number " + i,
+                    Set.of(CATEGORIES[i % CATEGORIES.length]),
+                    TODAY.minusDays(2 + i % 365), i % 3 == 0 ? TODAY.minusDays(1) : null,
+                    Map.of("featured", String.valueOf(i % 10 == 0))));
+        }
+    }
+
+    @Benchmark
+    public Set<CatalogEntryView> findAll() {
+        return catalog.findBy(SearchCatalogCriteria.all());
+    }
+
+    @Benchmark
+    public Set<CatalogEntryView> findByText() {
+        return catalog.findBy(SearchCatalogCriteria.byText("number 42"));
+    }
+
+    @Benchmark
+    public Set<CatalogEntryView> findByCategoriesAvailableAt() {
+        return catalog.findBy(new SearchCatalogCriteria(null, Set.of("phones", "tablets"), TODAY, null, null));
+    }
+
+    @Benchmark
+    public Set<CatalogEntryView> findByFeatures() {
+        return catalog.findBy(SearchCatalogCriteria.byFeatures(Map.of("color", Set.of("Blue"), "storage", Set.of("256GB", "512GB"))));
+    }
+}
@@ -0,0 +1,67 @@
+package com.softwarearchetypes.waitlist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations on a wait list holding {@code size} elements. Every benchmark puts back what it takes out,
+ * so the list stays at the same size for the whole measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaitListBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    @Param({"FIFO", "PRIORITIZED"})
+    String type;
+
+    private WaitList waitList;
+    private List<Element> elements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        waitList = new WaitList(WaitListId.random(), WaitListType.valueOf(type), size + 1);
+        elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Element element = Element.of(UUID.randomUUID(), ThreadLocalRandom.current().nextInt(100));
+            elements.add(element);
+            waitList.add(element);
+        }
+    }
+
+    @Benchmark
+    public Element addAndPoll() {
+        waitList.add(Element.of(UUID.randomUUID(), ThreadLocalRandom.current().nextInt(100)));
+        return waitList.poll();
+    }
+
+    @Benchmark
+    public boolean removeByValue() {
+        Element element = elements.get(ThreadLocalRandom.current().nextInt(size));
+        boolean removed = waitList.removeByValue(element.value());
+        waitList.add(element);
+        return removed;
+    }
+}
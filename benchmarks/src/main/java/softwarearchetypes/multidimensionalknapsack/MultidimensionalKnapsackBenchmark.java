@@ -0,0 +1,84 @@
+package softwarearchetypes.multidimensionalknapsack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assigning {@code items} demands to {@code resources} resources available for {@code hours} hours each.
+ * Every item demands a few consecutive hours of a single resource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultidimensionalKnapsackBenchmark {
+
+    @Param({"10", "100", "500"})
+    int items;
+
+    @Param({"5", "20"})
+    int resources;
+
+    @Param({"24"})
+    int hours;
+
+    private final MultidimensionalKnapsack knapsack = new MultidimensionalKnapsack();
+    private List<Item> demands;
+    private TotalCapacity totalCapacity;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<CapacityDimension> capacities = new ArrayList<>(resources * hours);
+        for (int resource = 0; resource < resources; resource++) {
+            for (int hour = 0; hour < hours; hour++) {
+                capacities.add(new ResourceHour(resource, hour));
+            }
+        }
+        totalCapacity = TotalCapacity.of(capacities);
+        demands = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            int resource = random.nextInt(resources);
+            int length = 1 + random.nextInt(4);
+            int start = random.nextInt(hours - length + 1);
+            WeightDimension[] weight = new WeightDimension[length];
+            for (int hour = 0; hour < length; hour++) {
+                weight[hour] = new DemandedResourceHour(resource, start + hour);
+            }
+            demands.add(new Item("item-" + i, random.nextInt(1000), TotalWeight.of(weight)));
+        }
+    }
+
+    @Benchmark
+    public Result calculate() {
+        return knapsack.calculate(demands, totalCapacity);
+    }
+
+    record ResourceHour(int resource, int hour) implements CapacityDimension {
+    }
+
+    record DemandedResourceHour(int resource, int hour) implements WeightDimension<ResourceHour> {
+
+        @Override
+        public boolean isSatisfiedBy(ResourceHour capacityDimension) {
+            return resource == capacityDimension.resource() && hour == capacityDimension.hour();
+        }
+    }
+}
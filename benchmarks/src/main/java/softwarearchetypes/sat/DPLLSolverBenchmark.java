@@ -0,0 +1,64 @@
+package softwarearchetypes.sat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random 3-CNF formulas with a fixed seed, so every run solves the same instances.
+ * Clause to variable ratio around 4.26 gives the hardest instances, lower ratios are mostly satisfiable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DPLLSolverBenchmark {
+
+    private static final int LITERALS_PER_CLAUSE = 3;
+
+    @Param({"10", "15", "20"})
+    int variables;
+
+    @Param({"2.0", "4.26"})
+    double clausesPerVariable;
+
+    private final DPLLSolver solver = new DPLLSolver();
+    private List<Clause> clauses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int clausesCount = (int) Math.round(variables * clausesPerVariable);
+        clauses = new ArrayList<>(clausesCount);
+        for (int i = 0; i < clausesCount; i++) {
+            Integer[] literals = new Integer[LITERALS_PER_CLAUSE];
+            for (int j = 0; j < LITERALS_PER_CLAUSE; j++) {
+                int variable = random.nextInt(variables) + 1;
+                literals[j] = random.nextBoolean() ? variable : -variable;
+            }
+            clauses.add(new Clause(literals));
+        }
+    }
+
+    @Benchmark
+    public boolean solve() {
+        return solver.solve(clauses, new HashMap<>());
+    }
+}
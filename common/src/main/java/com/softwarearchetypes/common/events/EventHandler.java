@@ -1,9 +1,19 @@
 package com.softwarearchetypes.common.events;
 
+import java.util.List;
+
 public interface EventHandler {
 
     boolean supports(PublishedEvent event);
 
     void handle(PublishedEvent event);
 
+    /**
+     * Events published together, e.g. all events of one transaction, already filtered by {@link #supports}.
+     * Handlers which can process such a batch at once override it.
+     */
+    default void handleAll(List<? extends PublishedEvent> events) {
+        events.forEach(this::handle);
+    }
+
 }
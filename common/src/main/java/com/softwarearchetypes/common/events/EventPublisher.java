@@ -9,4 +9,13 @@ public interface EventPublisher {
     void publish(List<? extends PublishedEvent> events);
 
     void register(EventHandler eventHandler);
+
+    /**
+     * Publishes events of a change while the locks guarding it are still held, so that events of one aggregate are published
+     * in the order of its changes. Handlers may need the same locks, so nothing may wait for them here - what would wait is
+     * returned, to be run once the locks are released. By default the events are published only then.
+     */
+    default Runnable publishHoldingLocks(List<? extends PublishedEvent> events) {
+        return () -> publish(events);
+    }
 }
@@ -1,12 +1,16 @@
 package com.softwarearchetypes.common.events;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Handlers are called synchronously, in registration order - read models registered first (e.g. caches, projections)
+ * are up to date before handlers registered later (e.g. posting rules) react to the same events.
+ */
 public class InMemoryEventsPublisher implements EventPublisher {
 
-    private final Set<EventHandler> observers = new HashSet<>();
+    private final Set<EventHandler> observers = new LinkedHashSet<>();
 
     @Override
     public void publish(PublishedEvent event) {
@@ -19,7 +23,12 @@ public class InMemoryEventsPublisher implements EventPublisher {
 
     @Override
     public void publish(List<? extends PublishedEvent> events) {
-        events.forEach(this::publish);
+        observers.forEach(it -> {
+            List<? extends PublishedEvent> supported = events.stream().filter(it::supports).toList();
+            if (!supported.isEmpty()) {
+                it.handleAll(supported);
+            }
+        });
     }
 
     @Override
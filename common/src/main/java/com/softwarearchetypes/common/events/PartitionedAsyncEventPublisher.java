@@ -0,0 +1,260 @@
+package com.softwarearchetypes.common.events;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Dispatches events to handlers asynchronously, on one worker per partition. Events are partitioned by a key
+ * (e.g. id of the aggregate they come from), so events with the same key are handled one by one, in publishing order,
+ * while events with different keys may be handled in parallel.
+ * <p>
+ * Publishing blocks when {@code capacity} events published from outside are waiting - producers are slowed down
+ * to the pace of handlers. Events published by handlers themselves never block, otherwise two partitions
+ * publishing to each other could wait for each other forever - they have a bound of their own instead. Once
+ * {@code capacity} of them are waiting, further ones are still queued, but on the capacity of outside producers,
+ * which then wait for them to be handled. An event is never dropped - the posting which published it is already committed.
+ * <p>
+ * {@link #publishHoldingLocks} queues events right away, over the capacity if need be, and leaves the waiting
+ * for capacity to after the locks are released.
+ * <p>
+ * Events published together land in their partitions as batches and are passed to {@link EventHandler#handleAll}.
+ * <p>
+ * A failing handler does not stop the dispatch - the failure is logged and counted in {@link #metrics()}.
+ */
+public class PartitionedAsyncEventPublisher implements EventPublisher, AutoCloseable {
+
+    private static final Logger LOGGER = System.getLogger(PartitionedAsyncEventPublisher.class.getName());
+    private static final Task STOP = new Task(List.of(), null, 0);
+
+    private final Function<PublishedEvent, Object> partitionKey;
+    private final List<BlockingQueue<Task>> partitions = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Set<EventHandler> handlers = new CopyOnWriteArraySet<>();
+    private final int maxCapacity;
+    private final Capacity capacity;
+    private final Capacity handlerCapacity;
+    private final ThreadLocal<Boolean> insideHandler = ThreadLocal.withInitial(() -> false);
+    private final AtomicLong pending = new AtomicLong();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder handlingNanos = new LongAdder();
+    private final AtomicLong maxHandlingNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public PartitionedAsyncEventPublisher(int partitions, int capacity, Function<PublishedEvent, Object> partitionKey) {
+        this(partitions, capacity, partitionKey, Thread.ofVirtual().name("events-", 0).factory());
+    }
+
+    public PartitionedAsyncEventPublisher(int partitions, int capacity, Function<PublishedEvent, Object> partitionKey, ThreadFactory threadFactory) {
+        checkArgument(partitions > 0, "Number of partitions must be positive");
+        checkArgument(capacity > 0, "Capacity must be positive");
+        checkArgument(partitionKey != null, "Partition key must be defined");
+        this.partitionKey = partitionKey;
+        this.maxCapacity = capacity;
+        this.capacity = new Capacity(capacity);
+        this.handlerCapacity = new Capacity(capacity);
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+            Thread worker = threadFactory.newThread(() -> dispatch(queue));
+            this.partitions.add(queue);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @Override
+    public void publish(PublishedEvent event) {
+        checkArgument(event != null, "Event must be defined");
+        enqueue(partitionOf(event), List.of(event), true);
+    }
+
+    //events of one list land in their partitions in list order, as one batch per partition
+    @Override
+    public void publish(List<? extends PublishedEvent> events) {
+        batchesOf(events).forEach((partition, batch) -> enqueue(partition, batch, true));
+    }
+
+    //queued in the order of the changes made under the locks - producers wait for capacity only after releasing them
+    @Override
+    public Runnable publishHoldingLocks(List<? extends PublishedEvent> events) {
+        batchesOf(events).forEach((partition, batch) -> enqueue(partition, batch, false));
+        return insideHandler.get() ? () -> {} : this::awaitCapacity;
+    }
+
+    @Override
+    public void register(EventHandler eventHandler) {
+        handlers.add(eventHandler);
+    }
+
+    public Metrics metrics() {
+        long handledCount = handled.sum();
+        return new Metrics(
+                partitions.stream().flatMap(Collection::stream).mapToInt(task -> task.events().size()).sum(),
+                handledCount,
+                failed.sum(),
+                overflowed.sum(),
+                Duration.ofNanos(handledCount == 0 ? 0 : handlingNanos.sum() / handledCount),
+                Duration.ofNanos(maxHandlingNanos.get()));
+    }
+
+    /**
+     * Waits until every published event, including events published while handling them, has been handled.
+     */
+    public boolean awaitIdle(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+        return true;
+    }
+
+    //already published events are still handled - when interrupted, close stops waiting for them and keeps the interrupt
+    @Override
+    public void close() {
+        closed = true;
+        partitions.forEach(queue -> queue.add(STOP));
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<BlockingQueue<Task>, List<PublishedEvent>> batchesOf(List<? extends PublishedEvent> events) {
+        checkArgument(events != null && events.stream().allMatch(it -> it != null), "Events must be defined");
+        Map<BlockingQueue<Task>, List<PublishedEvent>> batches = new LinkedHashMap<>();
+        events.forEach(event -> batches.computeIfAbsent(partitionOf(event), queue -> new ArrayList<>()).add(event));
+        return batches;
+    }
+
+    //a batch larger than the capacity takes all of it, otherwise it would wait forever
+    private void enqueue(BlockingQueue<Task> partition, List<PublishedEvent> events, boolean mayWait) {
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        int permits = Math.min(events.size(), maxCapacity);
+        Capacity bound = capacity;
+        if (insideHandler.get()) {
+            if (handlerCapacity.tryAcquire(permits)) {
+                bound = handlerCapacity;
+            } else {
+                capacity.takeWithoutWaiting(permits);
+                overflowed.add(events.size());
+            }
+        } else if (mayWait) {
+            capacity.acquireUninterruptibly(permits);
+        } else {
+            capacity.takeWithoutWaiting(permits);
+        }
+        pending.addAndGet(events.size());
+        partition.add(new Task(List.copyOf(events), bound, permits));
+    }
+
+    //waits until fewer than capacity events are waiting
+    private void awaitCapacity() {
+        capacity.acquireUninterruptibly();
+        capacity.release();
+    }
+
+    private BlockingQueue<Task> partitionOf(PublishedEvent event) {
+        Object key = partitionKey.apply(event);
+        return partitions.get(Math.floorMod(key == null ? 0 : key.hashCode(), partitions.size()));
+    }
+
+    private void dispatch(BlockingQueue<Task> queue) {
+        insideHandler.set(true);
+        while (true) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            task.bound().release(task.permits());
+            try {
+                handle(task.events());
+            } finally {
+                //an error escaping here must not leave awaitIdle waiting for events which will never be handled
+                pending.addAndGet(-task.events().size());
+            }
+        }
+    }
+
+    private void handle(List<PublishedEvent> events) {
+        long start = System.nanoTime();
+        for (EventHandler handler : handlers) {
+            try {
+                List<PublishedEvent> supported = events.stream().filter(handler::supports).toList();
+                if (supported.size() == 1) {
+                    handler.handle(supported.getFirst());
+                } else if (!supported.isEmpty()) {
+                    handler.handleAll(supported);
+                }
+            } catch (Exception | Error e) {
+                //errors are caught as well - the worker is the only one handling its partition
+                failed.increment();
+                LOGGER.log(Level.WARNING, () -> "Handler " + handler + " failed to handle " + events, e);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        handled.add(events.size());
+        handlingNanos.add(nanos);
+        maxHandlingNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private record Task(List<PublishedEvent> events, Capacity bound, int permits) {
+    }
+
+    //permits may drop below zero - events queued over the capacity hold back producers waiting for it
+    @SuppressWarnings("serial")
+    private static final class Capacity extends Semaphore {
+
+        Capacity(int permits) {
+            super(permits);
+        }
+
+        void takeWithoutWaiting(int permits) {
+            reducePermits(permits);
+        }
+    }
+
+    /**
+     * @param queueDepth            events waiting for their partition worker
+     * @param handled               events handled so far
+     * @param failedHandlers        handler invocations which threw, a batch is handled in one invocation
+     * @param overflowed            events published by handlers over their own capacity, queued on the capacity of outside producers
+     * @param averageHandlerLatency average time of handling one event by all of its handlers
+     * @param maxHandlerLatency     longest time of handling one event, or one batch, by all of its handlers
+     */
+    public record Metrics(int queueDepth, long handled, long failedHandlers, long overflowed, Duration averageHandlerLatency,
+                          Duration maxHandlerLatency) {
+    }
+}
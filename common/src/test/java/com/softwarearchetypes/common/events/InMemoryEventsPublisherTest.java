@@ -0,0 +1,123 @@
+package com.softwarearchetypes.common.events;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryEventsPublisherTest {
+
+    @Test
+    void shouldPassEventsPublishedTogetherToHandlerAsOneBatch() {
+        //given
+        InMemoryEventsPublisher publisher = new InMemoryEventsPublisher();
+        List<List<? extends PublishedEvent>> batches = new ArrayList<>();
+        publisher.register(new BatchingHandler("first", batches));
+        TestEvent first = new TestEvent("first");
+        TestEvent second = new TestEvent("first");
+
+        //when
+        publisher.publish(List.of(first, new TestEvent("other"), second));
+
+        //then
+        assertEquals(List.of(List.of(first, second)), batches);
+    }
+
+    @Test
+    void shouldNotCallHandlerWhenNoneOfEventsIsSupported() {
+        //given
+        InMemoryEventsPublisher publisher = new InMemoryEventsPublisher();
+        List<List<? extends PublishedEvent>> batches = new ArrayList<>();
+        publisher.register(new BatchingHandler("first", batches));
+
+        //when
+        publisher.publish(List.of(new TestEvent("other")));
+
+        //then
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void shouldHandleEventsOneByOneByDefault() {
+        //given
+        InMemoryEventsPublisher publisher = new InMemoryEventsPublisher();
+        List<PublishedEvent> handled = new ArrayList<>();
+        publisher.register(new EventHandler() {
+            @Override
+            public boolean supports(PublishedEvent event) {
+                return true;
+            }
+
+            @Override
+            public void handle(PublishedEvent event) {
+                handled.add(event);
+            }
+        });
+        TestEvent first = new TestEvent("first");
+        TestEvent second = new TestEvent("second");
+
+        //when
+        publisher.publish(List.of(first, second));
+
+        //then
+        assertEquals(List.of(first, second), handled);
+    }
+
+    @Test
+    void shouldCallHandlersInRegistrationOrder() {
+        //given
+        InMemoryEventsPublisher publisher = new InMemoryEventsPublisher();
+        List<String> handlers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String name = "handler-" + i;
+            publisher.register(new EventHandler() {
+                @Override
+                public boolean supports(PublishedEvent event) {
+                    return true;
+                }
+
+                @Override
+                public void handle(PublishedEvent event) {
+                    handlers.add(name);
+                }
+            });
+        }
+
+        //when
+        publisher.publish(List.of(new TestEvent("first")));
+
+        //then
+        assertEquals(IntStream.range(0, 20).mapToObj(i -> "handler-" + i).toList(), handlers);
+    }
+
+    private record BatchingHandler(String type, List<List<? extends PublishedEvent>> batches) implements EventHandler {
+
+        @Override
+        public boolean supports(PublishedEvent event) {
+            return event.type().equals(type);
+        }
+
+        @Override
+        public void handle(PublishedEvent event) {
+            batches.add(List.of(event));
+        }
+
+        @Override
+        public void handleAll(List<? extends PublishedEvent> events) {
+            batches.add(events);
+        }
+    }
+
+    private record TestEvent(UUID id, String type, Instant occurredAt) implements PublishedEvent {
+
+        TestEvent(String type) {
+            this(UUID.randomUUID(), type, Instant.now());
+        }
+    }
+}
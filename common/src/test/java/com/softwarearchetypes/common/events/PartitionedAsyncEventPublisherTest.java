@@ -0,0 +1,307 @@
+package com.softwarearchetypes.common.events;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedAsyncEventPublisherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void shouldHandleEventsWithTheSameKeyInPublishingOrder() throws Exception {
+        //given
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(4, 100, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> handled.add(event.sequence())));
+
+            //when
+            for (int i = 0; i < 1000; i++) {
+                publisher.publish(new TestEvent("account", i));
+            }
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(IntStream.range(0, 1000).boxed().toList(), handled);
+        }
+    }
+
+    @Test
+    void shouldHandleEventsWithDifferentKeysInParallel() throws Exception {
+        //given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch otherHandled = new CountDownLatch(1);
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(2, 100, event -> ((TestEvent) event).sequence())) {
+            publisher.register(handler(event -> {
+                if (event.sequence() == 0) {
+                    await(blocked);
+                } else {
+                    otherHandled.countDown();
+                }
+            }));
+
+            //when
+            publisher.publish(new TestEvent("blocking", 0));
+            publisher.publish(new TestEvent("other", 1));
+
+            //then
+            assertTrue(otherHandled.await(5, TimeUnit.SECONDS));
+            blocked.countDown();
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+        }
+    }
+
+    @Test
+    void shouldNotBlockHandlersPublishingFurtherEventsWhenCapacityIsReached() throws Exception {
+        //given
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(2, 1, event -> ((TestEvent) event).sequence())) {
+            publisher.register(handler(event -> {
+                handled.add(event.sequence());
+                if (event.sequence() < 100) {
+                    publisher.publish(new TestEvent("cascade", event.sequence() + 1));
+                }
+            }));
+
+            //when
+            publisher.publish(new TestEvent("cascade", 0));
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(101, handled.size());
+        }
+    }
+
+    @Test
+    void shouldCountFailingHandlersAndKeepDispatching() throws Exception {
+        //given
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 10, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> {
+                throw new IllegalStateException("failure");
+            }));
+            publisher.register(handler(event -> handled.add(event.sequence())));
+
+            //when
+            publisher.publish(List.of(new TestEvent("account", 0), new TestEvent("account", 1)));
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(List.of(0, 1), handled);
+            PartitionedAsyncEventPublisher.Metrics metrics = publisher.metrics();
+            assertEquals(2, metrics.handled());
+            //events published together are handled in one invocation
+            assertEquals(1, metrics.failedHandlers());
+            assertEquals(0, metrics.queueDepth());
+        }
+    }
+
+    @Test
+    void shouldKeepDispatchingWhenHandlerThrowsError() throws Exception {
+        //given
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 10, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> {
+                if (event.sequence() == 0) {
+                    throw new StackOverflowError();
+                }
+                handled.add(event.sequence());
+            }));
+
+            //when
+            publisher.publish(new TestEvent("account", 0));
+            publisher.publish(new TestEvent("account", 1));
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(List.of(1), handled);
+            assertEquals(1, publisher.metrics().failedHandlers());
+        }
+    }
+
+    @Test
+    void shouldPassEventsPublishedTogetherToHandlerAsOneBatch() throws Exception {
+        //given
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(4, 10, event -> ((TestEvent) event).key())) {
+            publisher.register(new EventHandler() {
+                @Override
+                public boolean supports(PublishedEvent event) {
+                    return event instanceof TestEvent;
+                }
+
+                @Override
+                public void handle(PublishedEvent event) {
+                    batches.add(List.of(((TestEvent) event).sequence()));
+                }
+
+                @Override
+                public void handleAll(List<? extends PublishedEvent> events) {
+                    batches.add(events.stream().map(event -> ((TestEvent) event).sequence()).toList());
+                }
+            });
+
+            //when
+            publisher.publish(List.of(new TestEvent("account", 0), new TestEvent("account", 1), new TestEvent("account", 2)));
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(List.of(List.of(0, 1, 2)), batches);
+        }
+    }
+
+    @Test
+    void shouldQueueEventsPublishedByHandlersOverTheirCapacityWithoutDroppingAny() throws Exception {
+        //given
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 1, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> {
+                handled.add(event.sequence());
+                if (event.sequence() == 0) {
+                    //the only worker is busy here, so none of the published events can be taken yet
+                    for (int i = 1; i <= 3; i++) {
+                        publisher.publish(new TestEvent("account", i));
+                    }
+                }
+            }));
+
+            //when
+            publisher.publish(new TestEvent("account", 0));
+
+            //then
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(List.of(0, 1, 2, 3), handled);
+            assertEquals(2, publisher.metrics().overflowed());
+        }
+    }
+
+    @Test
+    void shouldQueueEventsPublishedHoldingLocksAndWaitForCapacityAfterwards() throws Exception {
+        //given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 1, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> {
+                started.countDown();
+                await(blocked);
+                handled.add(event.sequence());
+            }));
+            publisher.publish(new TestEvent("account", 0));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            publisher.publish(new TestEvent("account", 1));
+
+            //when
+            Runnable pacing = publisher.publishHoldingLocks(List.of(new TestEvent("account", 2)));
+            CompletableFuture<Void> paced = CompletableFuture.runAsync(pacing);
+
+            //then
+            assertEquals(2, publisher.metrics().queueDepth());
+            assertFalse(paced.isDone());
+            blocked.countDown();
+            paced.get(5, TimeUnit.SECONDS);
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertEquals(List.of(0, 1, 2), handled);
+        }
+    }
+
+    @Test
+    void shouldReportWaitingEventsAsQueueDepth() throws Exception {
+        //given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try (PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 10, event -> ((TestEvent) event).key())) {
+            publisher.register(handler(event -> {
+                started.countDown();
+                await(blocked);
+            }));
+            publisher.publish(new TestEvent("account", 0));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            //when
+            publisher.publish(new TestEvent("account", 1));
+            publisher.publish(new TestEvent("account", 2));
+
+            //then
+            assertEquals(2, publisher.metrics().queueDepth());
+            blocked.countDown();
+            assertTrue(publisher.awaitIdle(TIMEOUT));
+            assertTrue(publisher.metrics().maxHandlerLatency().compareTo(Duration.ZERO) > 0);
+        }
+    }
+
+    @Test
+    void shouldRejectEventsPublishedAfterClose() throws Exception {
+        //given
+        PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 10, PublishedEvent::id);
+        publisher.close();
+
+        //when & then
+        assertThrows(IllegalStateException.class, () -> publisher.publish(new TestEvent("account", 0)));
+    }
+
+    @Test
+    void shouldStopWaitingForWorkersWhenClosingThreadIsInterrupted() {
+        //given
+        CountDownLatch blocked = new CountDownLatch(1);
+        PartitionedAsyncEventPublisher publisher = new PartitionedAsyncEventPublisher(1, 10, PublishedEvent::id);
+        publisher.register(handler(event -> await(blocked)));
+        publisher.publish(new TestEvent("account", 0));
+
+        //when
+        Thread.currentThread().interrupt();
+        publisher.close();
+
+        //then
+        assertTrue(Thread.interrupted());
+        blocked.countDown();
+    }
+
+    private static EventHandler handler(Consumer<TestEvent> handling) {
+        return new EventHandler() {
+            @Override
+            public boolean supports(PublishedEvent event) {
+                return event instanceof TestEvent;
+            }
+
+            @Override
+            public void handle(PublishedEvent event) {
+                handling.accept((TestEvent) event);
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record TestEvent(UUID id, String key, int sequence, Instant occurredAt) implements PublishedEvent {
+
+        TestEvent(String key, int sequence) {
+            this(UUID.randomUUID(), key, sequence, Instant.now());
+        }
+
+        @Override
+        public String type() {
+            return "TestEvent";
+        }
+    }
+}
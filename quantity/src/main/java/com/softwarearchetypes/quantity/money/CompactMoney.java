@@ -0,0 +1,93 @@
+package com.softwarearchetypes.quantity.money;
+
+import java.math.BigDecimal;
+
+import static com.softwarearchetypes.common.Preconditions.checkArgument;
+
+/**
+ * Money amount kept as a {@code long} number of minor units (e.g. grosze for PLN) with a fixed scale of {@value #SCALE}.
+ * Intended for hot paths where allocating a BigDecimal-backed {@link Money} per operation is too expensive:
+ * arithmetic on {@link #minorUnits()} is plain {@code long} arithmetic with overflow checking.
+ * Conversion to and from {@link Money} is lossless - amounts which do not fit are rejected instead of rounded.
+ */
+public record CompactMoney(long minorUnits, String currencyCode) {
+
+    public static final int SCALE = 2;
+    public static final String PLN = "PLN";
+
+    public CompactMoney {
+        checkArgument(currencyCode != null && !currencyCode.isBlank(), "Currency code cannot be empty");
+    }
+
+    public static CompactMoney of(long minorUnits, String currencyCode) {
+        return new CompactMoney(minorUnits, currencyCode);
+    }
+
+    public static CompactMoney pln(long minorUnits) {
+        return new CompactMoney(minorUnits, PLN);
+    }
+
+    public static CompactMoney zeroPln() {
+        return pln(0);
+    }
+
+    public static CompactMoney from(Money money) {
+        return new CompactMoney(minorUnitsOf(money), money.currencyCode());
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@value #SCALE} fraction digits or does not fit in a long
+     */
+    public static long minorUnitsOf(Money money) {
+        return money.value().setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    public static boolean isRepresentable(Money money) {
+        try {
+            minorUnitsOf(money);
+            return true;
+        } catch (ArithmeticException ex) {
+            return false;
+        }
+    }
+
+    public static Money toMoney(long minorUnits, String currencyCode) {
+        return Money.of(BigDecimal.valueOf(minorUnits, SCALE), currencyCode);
+    }
+
+    public Money toMoney() {
+        return toMoney(minorUnits, currencyCode);
+    }
+
+    public CompactMoney add(CompactMoney toAdd) {
+        checkSameCurrency(toAdd);
+        return new CompactMoney(Math.addExact(minorUnits, toAdd.minorUnits), currencyCode);
+    }
+
+    public CompactMoney subtract(CompactMoney toSubtract) {
+        checkSameCurrency(toSubtract);
+        return new CompactMoney(Math.subtractExact(minorUnits, toSubtract.minorUnits), currencyCode);
+    }
+
+    public CompactMoney negate() {
+        return new CompactMoney(Math.negateExact(minorUnits), currencyCode);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    private void checkSameCurrency(CompactMoney other) {
+        checkArgument(currencyCode.equals(other.currencyCode),
+                String.format("Cannot combine amounts in different currencies: %s and %s", currencyCode, other.currencyCode));
+    }
+
+    @Override
+    public String toString() {
+        return currencyCode + " " + BigDecimal.valueOf(minorUnits, SCALE).stripTrailingZeros().toPlainString();
+    }
+}
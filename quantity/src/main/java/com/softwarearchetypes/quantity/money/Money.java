@@ -29,6 +29,14 @@ public class Money implements Comparable<Money> {
         return new Money(org.javamoney.moneta.Money.of(amount, "PLN"));
     }
 
+    /**
+     * Any scale is kept, but amounts stored in minor units - see {@link CompactMoney} - may have at most {@value CompactMoney#SCALE} fraction digits,
+     * e.g. ledger entries reject {@code 1.005}.
+     */
+    public static Money of(BigDecimal amount, String currencyCode) {
+        return new Money(org.javamoney.moneta.Money.of(amount, currencyCode));
+    }
+
     public static Money zeroPln() {
         return pln(0);
     }
@@ -100,6 +108,10 @@ public class Money implements Comparable<Money> {
         return money.getNumber().numberValue(BigDecimal.class);
     }
 
+    public String currencyCode() {
+        return money.getCurrency().getCurrencyCode();
+    }
+
     // Comparable implementation
     @Override
     public int compareTo(@NotNull Money other) {
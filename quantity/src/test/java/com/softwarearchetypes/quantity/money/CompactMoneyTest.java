@@ -0,0 +1,106 @@
+package com.softwarearchetypes.quantity.money;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMoneyTest {
+
+    @Test
+    void shouldConvertMoneyToMinorUnits() {
+        //given
+        Money money = Money.pln(new BigDecimal("99.99"));
+
+        //when
+        CompactMoney compact = CompactMoney.from(money);
+
+        //then
+        assertEquals(9999L, compact.minorUnits());
+        assertEquals("PLN", compact.currencyCode());
+    }
+
+    @Test
+    void shouldConvertBackToMoneyWithoutLoss() {
+        //given
+        Money money = Money.pln(new BigDecimal("-1234.5"));
+
+        //when
+        Money result = CompactMoney.from(money).toMoney();
+
+        //then
+        assertEquals(0, money.value().compareTo(result.value()));
+    }
+
+    @Test
+    void shouldRejectAmountWithMoreFractionDigitsThanScale() {
+        //given
+        Money money = Money.pln(new BigDecimal("0.001"));
+
+        //when & then
+        assertFalse(CompactMoney.isRepresentable(money));
+        assertThrows(ArithmeticException.class, () -> CompactMoney.from(money));
+    }
+
+    @Test
+    void shouldRejectAmountNotFittingInLong() {
+        //given
+        Money money = Money.pln(new BigDecimal(Long.MAX_VALUE));
+
+        //when & then
+        assertThrows(ArithmeticException.class, () -> CompactMoney.from(money));
+    }
+
+    @Test
+    void shouldAddAndSubtractMinorUnits() {
+        //given
+        CompactMoney first = CompactMoney.pln(1050);
+        CompactMoney second = CompactMoney.pln(25);
+
+        //when
+        CompactMoney sum = first.add(second);
+        CompactMoney difference = first.subtract(second);
+
+        //then
+        assertEquals(1075L, sum.minorUnits());
+        assertEquals(1025L, difference.minorUnits());
+    }
+
+    @Test
+    void shouldDetectOverflow() {
+        //given
+        CompactMoney max = CompactMoney.pln(Long.MAX_VALUE);
+
+        //when & then
+        assertThrows(ArithmeticException.class, () -> max.add(CompactMoney.pln(1)));
+        assertThrows(ArithmeticException.class, () -> CompactMoney.pln(Long.MIN_VALUE).negate());
+    }
+
+    @Test
+    void shouldNotCombineDifferentCurrencies() {
+        //given
+        CompactMoney pln = CompactMoney.pln(100);
+        CompactMoney eur = CompactMoney.of(100, "EUR");
+
+        //when & then
+        assertThrows(IllegalArgumentException.class, () -> pln.add(eur));
+    }
+
+    @Test
+    void shouldTellZeroAndNegativeAmounts() {
+        //when & then
+        assertTrue(CompactMoney.zeroPln().isZero());
+        assertTrue(CompactMoney.pln(-1).isNegative());
+        assertFalse(CompactMoney.pln(1).isNegative());
+    }
+
+    @Test
+    void shouldHaveProperStringRepresentation() {
+        //when & then
+        assertEquals("PLN 12.5", CompactMoney.pln(1250).toString());
+    }
+}